@@ -17,9 +17,12 @@ package com.googlecode.cqengine;
 
 import com.googlecode.cqengine.engine.QueryEngineInternal;
 import com.googlecode.cqengine.engine.CollectionQueryEngine;
+import com.googlecode.cqengine.explain.QueryPlan;
 import com.googlecode.cqengine.index.Index;
 import com.googlecode.cqengine.index.support.CloseableIterator;
 import com.googlecode.cqengine.index.support.CloseableRequestResources;
+import com.googlecode.cqengine.aggregate.AggregationEngine;
+import com.googlecode.cqengine.metadata.AttributeHistogram;
 import com.googlecode.cqengine.metadata.MetadataEngine;
 import com.googlecode.cqengine.persistence.Persistence;
 import com.googlecode.cqengine.persistence.onheap.OnHeapPersistence;
@@ -34,6 +37,9 @@ import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.closeable.CloseableResultSet;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static com.googlecode.cqengine.query.QueryFactory.queryOptions;
 import static java.util.Collections.singleton;
@@ -70,6 +76,7 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
     protected final ObjectStore<O> objectStore;
     protected final QueryEngineInternal<O> indexEngine;
     protected final MetadataEngine<O> metadataEngine;
+    protected final AggregationEngine<O> aggregationEngine;
 
     /**
      * Creates a new {@link ConcurrentIndexedCollection} with default settings, using {@link OnHeapPersistence}.
@@ -103,6 +110,29 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
                 () -> openRequestScopeResourcesIfNecessary(null),
                 this::closeRequestScopeResourcesIfNecessary
         );
+        this.aggregationEngine = new AggregationEngine<O>(
+                this,
+                new Predicate<QueryOptions>() {
+                    @Override
+                    public boolean test(QueryOptions queryOptions) {
+                        return isRetrievalFiltered(queryOptions);
+                    }
+                },
+                new Function<QueryOptions, QueryOptions>() {
+                    @Override
+                    public QueryOptions apply(QueryOptions requestQueryOptions) {
+                        QueryOptions resourceQueryOptions = openRequestScopeResourcesIfNecessary(requestQueryOptions);
+                        flagAsReadRequest(resourceQueryOptions);
+                        return resourceQueryOptions;
+                    }
+                },
+                new Consumer<QueryOptions>() {
+                    @Override
+                    public void accept(QueryOptions queryOptions) {
+                        closeRequestScopeResourcesIfNecessary(queryOptions);
+                    }
+                }
+        );
     }
 
     /**
@@ -118,6 +148,11 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
         return metadataEngine;
     }
 
+    @Override
+    public AggregationEngine<O> getAggregationEngine() {
+        return aggregationEngine;
+    }
+
     // ----------- Query Engine Methods -------------
 
     /**
@@ -145,6 +180,29 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
         };
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryPlan<O> explain(Query<O> query) {
+        return explain(query, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryPlan<O> explain(Query<O> query, QueryOptions queryOptions) {
+        queryOptions = openRequestScopeResourcesIfNecessary(queryOptions);
+        try {
+            flagAsReadRequest(queryOptions);
+            return indexEngine.explain(query, queryOptions);
+        }
+        finally {
+            closeRequestScopeResourcesIfNecessary(queryOptions);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -212,6 +270,50 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addHistogram(AttributeHistogram<?, O> histogram) {
+        addHistogram(histogram, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions) {
+        queryOptions = openRequestScopeResourcesIfNecessary(queryOptions);
+        try {
+            indexEngine.addHistogram(histogram, queryOptions);
+        }
+        finally {
+            closeRequestScopeResourcesIfNecessary(queryOptions);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeHistogram(AttributeHistogram<?, O> histogram) {
+        removeHistogram(histogram, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions) {
+        queryOptions = openRequestScopeResourcesIfNecessary(queryOptions);
+        try {
+            indexEngine.removeHistogram(histogram, queryOptions);
+        }
+        finally {
+            closeRequestScopeResourcesIfNecessary(queryOptions);
+        }
+    }
+
     @Override
     public Iterable<Index<O>> getIndexes() {
         return indexEngine.getIndexes();
@@ -369,7 +471,9 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
             // Add the object to the index.
             // Indexes handle gracefully the case that the objects supplied already exist in the index...
             boolean modified = objectStore.add(o, queryOptions);
-            indexEngine.addAll(ObjectSet.fromCollection(singleton(o)), queryOptions);
+            if (modified || !indexEngine.hasHistograms()) {
+                indexEngine.addAll(ObjectSet.fromCollection(singleton(o)), queryOptions);
+            }
             return modified;
         }
         finally {
@@ -387,7 +491,9 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
             @SuppressWarnings({"unchecked"})
             O o = (O) object;
             boolean modified = objectStore.remove(o, queryOptions);
-            indexEngine.removeAll(ObjectSet.fromCollection(singleton(o)), queryOptions);
+            if (modified || !indexEngine.hasHistograms()) {
+                indexEngine.removeAll(ObjectSet.fromCollection(singleton(o)), queryOptions);
+            }
             return modified;
         }
         finally {
@@ -404,8 +510,9 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
         try {
             @SuppressWarnings({"unchecked"})
             Collection<O> objects = (Collection<O>) c;
+            Collection<O> objectsAdded = objectsChangedBy(objects, true, queryOptions);
             boolean modified = objectStore.addAll(objects, queryOptions);
-            indexEngine.addAll(ObjectSet.fromCollection(objects), queryOptions);
+            indexEngine.addAll(ObjectSet.fromCollection(objectsAdded), queryOptions);
             return modified;
         }
         finally {
@@ -422,8 +529,9 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
         try {
             @SuppressWarnings({"unchecked"})
             Collection<O> objects = (Collection<O>) c;
+            Collection<O> objectsRemoved = objectsChangedBy(objects, false, queryOptions);
             boolean modified = objectStore.removeAll(objects, queryOptions);
-            indexEngine.removeAll(ObjectSet.fromCollection(objects), queryOptions);
+            indexEngine.removeAll(ObjectSet.fromCollection(objectsRemoved), queryOptions);
             return modified;
         }
         finally {
@@ -471,18 +579,47 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
         }
     }
 
+    /**
+     * Returns the objects in the given collection which adding to or removing from the object store would actually
+     * change it, which must be called before the object store is modified.
+     * <p/>
+     * Indexes handle gracefully objects which already exist in (or are already absent from) the index, so all
+     * objects are returned unless histograms have been added. Histograms count every object they are notified of,
+     * so in that case duplicate additions and removals of absent objects are filtered out...
+     *
+     * @param objects The objects about to be added or removed
+     * @param adding True if the objects are about to be added, false if they are about to be removed
+     * @param queryOptions Optional parameters for the object store
+     * @return The objects which adding or removing would change the object store
+     */
+    Collection<O> objectsChangedBy(Collection<O> objects, boolean adding, QueryOptions queryOptions) {
+        if (!indexEngine.hasHistograms()) {
+            return objects;
+        }
+        Set<O> objectsChanged = new LinkedHashSet<O>();
+        for (O object : objects) {
+            if (objectStore.contains(object, queryOptions) != adding) {
+                objectsChanged.add(object);
+            }
+        }
+        return objectsChanged;
+    }
+
     boolean doAddAll(Iterable<O> objects, QueryOptions queryOptions) {
         if (objects instanceof Collection) {
             Collection<O> c = (Collection<O>) objects;
+            Collection<O> objectsAdded = objectsChangedBy(c, true, queryOptions);
             boolean modified = objectStore.addAll(c, queryOptions);
-            indexEngine.addAll(ObjectSet.fromCollection(c), queryOptions);
+            indexEngine.addAll(ObjectSet.fromCollection(objectsAdded), queryOptions);
             return modified;
         }
         else {
             boolean modified = false;
             for (O object : objects) {
                 boolean added = objectStore.add(object, queryOptions);
-                indexEngine.addAll(ObjectSet.fromCollection(singleton(object)), queryOptions);
+                if (added || !indexEngine.hasHistograms()) {
+                    indexEngine.addAll(ObjectSet.fromCollection(singleton(object)), queryOptions);
+                }
                 modified = added || modified;
             }
             return modified;
@@ -492,20 +629,35 @@ public class ConcurrentIndexedCollection<O> implements IndexedCollection<O> {
     boolean doRemoveAll(Iterable<O> objects, QueryOptions queryOptions) {
         if (objects instanceof Collection) {
             Collection<O> c = (Collection<O>) objects;
+            Collection<O> objectsRemoved = objectsChangedBy(c, false, queryOptions);
             boolean modified = objectStore.removeAll(c, queryOptions);
-            indexEngine.removeAll(ObjectSet.fromCollection(c), queryOptions);
+            indexEngine.removeAll(ObjectSet.fromCollection(objectsRemoved), queryOptions);
             return modified;
         } else {
             boolean modified = false;
             for (O object : objects) {
                 boolean removed = objectStore.remove(object, queryOptions);
-                indexEngine.removeAll(ObjectSet.fromCollection(singleton(object)), queryOptions);
+                if (removed || !indexEngine.hasHistograms()) {
+                    indexEngine.removeAll(ObjectSet.fromCollection(singleton(object)), queryOptions);
+                }
                 modified = removed || modified;
             }
             return modified;
         }
     }
 
+    /**
+     * Returns true if {@link #retrieve(Query, QueryOptions)} filters the objects which indexes would return, given
+     * the query options supplied, in which case statistics read directly from indexes might not agree with the
+     * results of queries. This implementation returns false.
+     *
+     * @param queryOptions The query options for the request
+     * @return True if retrievals are filtered, false if indexes alone determine the results of queries
+     */
+    protected boolean isRetrievalFiltered(QueryOptions queryOptions) {
+        return false;
+    }
+
     protected QueryOptions openRequestScopeResourcesIfNecessary(QueryOptions queryOptions) {
         if (queryOptions == null) {
             queryOptions = new QueryOptions();
@@ -15,8 +15,11 @@
  */
 package com.googlecode.cqengine;
 
+import com.googlecode.cqengine.aggregate.AggregationEngine;
 import com.googlecode.cqengine.engine.QueryEngine;
+import com.googlecode.cqengine.explain.QueryPlan;
 import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.metadata.AttributeHistogram;
 import com.googlecode.cqengine.metadata.MetadataEngine;
 import com.googlecode.cqengine.persistence.Persistence;
 import com.googlecode.cqengine.query.Query;
@@ -54,6 +57,11 @@ public interface IndexedCollection<O> extends Set<O>, QueryEngine<O> {
     @Override
     ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions);
 
+    /**
+     * Shortcut for calling {@link #explain(Query, QueryOptions)} without supplying any query options.
+     */
+    QueryPlan<O> explain(Query<O> query);
+
     /**
      * Removes or adds objects to/from the collection and indexes in bulk.
      * <p/>
@@ -145,6 +153,28 @@ public interface IndexedCollection<O> extends Set<O>, QueryEngine<O> {
     @Override
     void removeIndex(Index<O> index, QueryOptions queryOptions);
 
+    /**
+     * @see #addHistogram(AttributeHistogram, QueryOptions)
+     */
+    void addHistogram(AttributeHistogram<?, O> histogram);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void addHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions);
+
+    /**
+     * @see #removeHistogram(AttributeHistogram, QueryOptions)
+     */
+    void removeHistogram(AttributeHistogram<?, O> histogram);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void removeHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions);
+
     /**
      * Returns the {@link Persistence} used by the the collection.
      *
@@ -157,4 +187,10 @@ public interface IndexedCollection<O> extends Set<O>, QueryEngine<O> {
      * on the distribution of attribute values in the collection.
      */
     MetadataEngine<O> getMetadataEngine();
+
+    /**
+     * Returns the {@link AggregationEngine}, which can compute counts, sums, averages, minimums, maximums and
+     * group-by counts over objects matching queries, using indexes where possible.
+     */
+    AggregationEngine<O> getAggregationEngine();
 }
@@ -15,6 +15,7 @@
  */
 package com.googlecode.cqengine;
 
+import com.googlecode.cqengine.jfr.VersionSwitchEvent;
 import com.googlecode.cqengine.persistence.Persistence;
 import com.googlecode.cqengine.persistence.onheap.OnHeapPersistence;
 import com.googlecode.cqengine.persistence.support.ObjectStore;
@@ -156,9 +157,19 @@ public class TransactionalIndexedCollection<O> extends ConcurrentIndexedCollecti
      * @param objectsToExcludeFromNextVersion Objects to exclude from the next version
      */
     void incrementVersion(Iterable<O> objectsToExcludeFromNextVersion) {
+        VersionSwitchEvent versionSwitchEvent = new VersionSwitchEvent();
+        versionSwitchEvent.begin();
         Version previousVersion = this.currentVersion;
-        this.currentVersion = new Version(objectsToExcludeFromNextVersion);
+        Version nextVersion = new Version(objectsToExcludeFromNextVersion);
+        this.currentVersion = nextVersion;
         previousVersion.lock.writeLock().lock();
+        versionSwitchEvent.end();
+        if (versionSwitchEvent.shouldCommit()) {
+            versionSwitchEvent.previousVersion = previousVersion.versionNumber;
+            versionSwitchEvent.newVersion = nextVersion.versionNumber;
+            versionSwitchEvent.excludesObjects = objectsToExcludeFromNextVersion.iterator().hasNext();
+            versionSwitchEvent.commit();
+        }
     }
 
     /**
@@ -406,6 +417,17 @@ public class TransactionalIndexedCollection<O> extends ConcurrentIndexedCollecti
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns true unless the query options request {@code READ_UNCOMMITTED} isolation, because
+     * objects which are not fully committed are filtered out of the results of queries.
+     */
+    @Override
+    protected boolean isRetrievalFiltered(QueryOptions queryOptions) {
+        return !isIsolationLevel(queryOptions, READ_UNCOMMITTED);
+    }
+
     static <O> boolean iterableContains(Iterable<O> objects, O o) {
         if (objects instanceof Collection) {
             return ((Collection<?>)objects).contains(o);
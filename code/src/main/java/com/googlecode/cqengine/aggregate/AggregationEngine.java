@@ -0,0 +1,450 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.aggregate;
+
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.attribute.SimpleNullableAttribute;
+import com.googlecode.cqengine.index.AttributeIndex;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.support.CloseableIterable;
+import com.googlecode.cqengine.index.support.CloseableIterator;
+import com.googlecode.cqengine.index.support.KeyStatistics;
+import com.googlecode.cqengine.index.support.KeyStatisticsAttributeIndex;
+import com.googlecode.cqengine.index.support.PartialIndex;
+import com.googlecode.cqengine.index.support.SortedKeyStatisticsAttributeIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.DeduplicationOption;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.*;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Computes aggregates (count, sum, average, minimum, maximum and group-by counts) over the objects in the collection
+ * which match a query.
+ * <p>
+ * Counts are read from the sizes of the result sets returned by the collection, which for many queries, such as
+ * {@link Equal} queries on a {@link com.googlecode.cqengine.index.hash.HashIndex}, are the sizes of the sets stored
+ * in indexes. Other aggregates are answered from indexes without materializing any objects where possible:
+ * <ul>
+ *     <li>
+ *         the minimum and maximum values of an attribute, over the entire collection or over objects matching a range
+ *         query on the same attribute, are read from the endpoints of an index which implements
+ *         {@link SortedKeyStatisticsAttributeIndex}
+ *     </li>
+ *     <li>
+ *         group-by counts, sums and averages over the entire collection are computed from the statistics for
+ *         distinct keys of an index which implements {@link KeyStatisticsAttributeIndex}
+ *     </li>
+ * </ul>
+ * A {@link PartialIndex} contains only the objects matching its filter query, so it is used only to compute
+ * aggregates over objects matching a query which is equal to its filter query, in which case all of its keys are
+ * read.
+ * Aggregates which cannot be answered from indexes are computed by streaming the objects matching the query through
+ * an accumulator, without retaining them. Aggregates are never read directly from indexes if the collection filters the results of queries,
+ * as {@link com.googlecode.cqengine.TransactionalIndexedCollection} does to provide isolation.
+ * <p>
+ * Aggregates are computed over all values of the given attribute in matching objects: objects which have no value
+ * for the attribute are ignored, and multi-valued attributes contribute each of their values. Quantized indexes are
+ * never used to compute aggregates. If a {@link QueryLog} is supplied in the query options, the strategy used is
+ * logged as {@code aggregationStrategy: resultSetSize}, {@code aggregationStrategy: index} or
+ * {@code aggregationStrategy: stream}.
+ * <p>
+ * This object can be accessed by calling {@link IndexedCollection#getAggregationEngine()}.
+ */
+public class AggregationEngine<O> {
+
+    private final IndexedCollection<O> indexedCollection;
+    private final Predicate<QueryOptions> retrievalFilteredHandler;
+    private final Function<QueryOptions, QueryOptions> openResourcesHandler;
+    private final Consumer<QueryOptions> closeResourcesHandler;
+
+    public AggregationEngine(IndexedCollection<O> indexedCollection, Predicate<QueryOptions> retrievalFilteredHandler, Function<QueryOptions, QueryOptions> openResourcesHandler, Consumer<QueryOptions> closeResourcesHandler) {
+        this.indexedCollection = indexedCollection;
+        this.retrievalFilteredHandler = retrievalFilteredHandler;
+        this.openResourcesHandler = openResourcesHandler;
+        this.closeResourcesHandler = closeResourcesHandler;
+    }
+
+    /**
+     * Returns the number of objects in the collection which match the given query.
+     */
+    public int count(Query<O> query) {
+        return count(query, new QueryOptions());
+    }
+
+    /**
+     * Returns the number of objects in the collection which match the given query.
+     */
+    public int count(Query<O> query, QueryOptions queryOptions) {
+        ResultSet<O> results = retrieveDeduplicated(query, queryOptions);
+        try {
+            // The size of a ResultSet is read from the sizes of the stored sets in indexes where possible...
+            logStrategy(queryOptions, "resultSetSize");
+            return results.size();
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Returns the minimum value of the given attribute in objects matching the given query, or null if no matching
+     * object has a value for the attribute.
+     */
+    public <A extends Comparable<A>> A min(Attribute<O, A> attribute, Query<O> query) {
+        return min(attribute, query, new QueryOptions());
+    }
+
+    /**
+     * Returns the minimum value of the given attribute in objects matching the given query, or null if no matching
+     * object has a value for the attribute.
+     */
+    public <A extends Comparable<A>> A min(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        return extremum(attribute, query, queryOptions, false);
+    }
+
+    /**
+     * Returns the maximum value of the given attribute in objects matching the given query, or null if no matching
+     * object has a value for the attribute.
+     */
+    public <A extends Comparable<A>> A max(Attribute<O, A> attribute, Query<O> query) {
+        return max(attribute, query, new QueryOptions());
+    }
+
+    /**
+     * Returns the maximum value of the given attribute in objects matching the given query, or null if no matching
+     * object has a value for the attribute.
+     */
+    public <A extends Comparable<A>> A max(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        return extremum(attribute, query, queryOptions, true);
+    }
+
+    /**
+     * Returns the sum of the values of the given attribute in objects matching the given query. The sum is a
+     * {@link Long} if the attribute is of an integral type, or a {@link Double} otherwise.
+     */
+    public <A extends Number> Number sum(Attribute<O, A> attribute, Query<O> query) {
+        return sum(attribute, query, new QueryOptions());
+    }
+
+    /**
+     * Returns the sum of the values of the given attribute in objects matching the given query. The sum is a
+     * {@link Long} if the attribute is of an integral type, or a {@link Double} otherwise.
+     */
+    public <A extends Number> Number sum(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        return accumulate(attribute, query, queryOptions).getSum();
+    }
+
+    /**
+     * Returns the average of the values of the given attribute in objects matching the given query, or null if no
+     * matching object has a value for the attribute.
+     */
+    public <A extends Number> Double average(Attribute<O, A> attribute, Query<O> query) {
+        return average(attribute, query, new QueryOptions());
+    }
+
+    /**
+     * Returns the average of the values of the given attribute in objects matching the given query, or null if no
+     * matching object has a value for the attribute.
+     */
+    public <A extends Number> Double average(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        return accumulate(attribute, query, queryOptions).getAverage();
+    }
+
+    /**
+     * Returns the number of objects matching the given query which have each distinct value of the given attribute.
+     * If the counts are read from a sorted index, the map is in ascending order of the attribute values.
+     */
+    public <A> Map<A, Integer> countBy(Attribute<O, A> attribute, Query<O> query) {
+        return countBy(attribute, query, new QueryOptions());
+    }
+
+    /**
+     * Returns the number of objects matching the given query which have each distinct value of the given attribute.
+     * If the counts are read from a sorted index, the map is in ascending order of the attribute values.
+     */
+    public <A> Map<A, Integer> countBy(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        KeyStatisticsAttributeIndex<A, O> index = getIndexOnAttribute(KeyStatisticsAttributeIndex.class, attribute, query, queryOptions);
+        if (index != null && (query instanceof All || index instanceof PartialIndex)) {
+            logStrategy(queryOptions, "index");
+            Map<A, Integer> counts = new LinkedHashMap<A, Integer>();
+            QueryOptions resourceQueryOptions = openResources(queryOptions);
+            try {
+                CloseableIterator<KeyStatistics<A>> statistics = index.getStatisticsForDistinctKeys(resourceQueryOptions).iterator();
+                try {
+                    while (statistics.hasNext()) {
+                        KeyStatistics<A> keyStatistics = statistics.next();
+                        counts.put(keyStatistics.getKey(), keyStatistics.getCount());
+                    }
+                }
+                finally {
+                    statistics.close();
+                }
+            }
+            finally {
+                closeResources(resourceQueryOptions);
+            }
+            return counts;
+        }
+        logStrategy(queryOptions, "stream");
+        Map<A, Integer> counts = new HashMap<A, Integer>();
+        ResultSet<O> results = retrieveDeduplicated(query, queryOptions);
+        try {
+            for (O object : results) {
+                for (A value : attribute.getValues(object, queryOptions)) {
+                    Integer count = counts.get(value);
+                    counts.put(value, count == null ? 1 : count + 1);
+                }
+            }
+        }
+        finally {
+            results.close();
+        }
+        return counts;
+    }
+
+    <A extends Comparable<A>> A extremum(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions, boolean maximum) {
+        SortedKeyStatisticsAttributeIndex<A, O> index = getIndexOnAttribute(SortedKeyStatisticsAttributeIndex.class, attribute, query, queryOptions);
+        if (index != null) {
+            CloseableIterable<A> keys = null;
+            QueryOptions resourceQueryOptions = openResources(queryOptions);
+            try {
+                if (query instanceof All || (query instanceof Has && ((Has<O, ?>) query).getAttribute().equals(attribute)) || index instanceof PartialIndex) {
+                    keys = maximum ? index.getDistinctKeysDescending(resourceQueryOptions) : index.getDistinctKeys(resourceQueryOptions);
+                }
+                else if (isSingleValued(attribute) && query instanceof SimpleQuery && ((SimpleQuery<O, ?>) query).getAttribute().equals(attribute)) {
+                    // For single-valued attributes, the values of objects matching a range query on the attribute are
+                    // exactly the keys in the range...
+                    keys = getDistinctKeysInRange(index, query, resourceQueryOptions, maximum);
+                }
+                if (keys != null) {
+                    logStrategy(queryOptions, "index");
+                    CloseableIterator<A> iterator = keys.iterator();
+                    try {
+                        return iterator.hasNext() ? iterator.next() : null;
+                    }
+                    finally {
+                        iterator.close();
+                    }
+                }
+            }
+            finally {
+                closeResources(resourceQueryOptions);
+            }
+        }
+        logStrategy(queryOptions, "stream");
+        A extremum = null;
+        ResultSet<O> results = indexedCollection.retrieve(query, queryOptions);
+        try {
+            for (O object : results) {
+                for (A value : attribute.getValues(object, queryOptions)) {
+                    if (extremum == null || (maximum ? value.compareTo(extremum) > 0 : value.compareTo(extremum) < 0)) {
+                        extremum = value;
+                    }
+                }
+            }
+        }
+        finally {
+            results.close();
+        }
+        return extremum;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A extends Comparable<A>, O> CloseableIterable<A> getDistinctKeysInRange(SortedKeyStatisticsAttributeIndex<A, O> index, Query<O> query, QueryOptions queryOptions, boolean descending) {
+        A lowerBound, upperBound;
+        boolean lowerInclusive, upperInclusive;
+        if (query instanceof Equal) {
+            lowerBound = upperBound = ((Equal<O, A>) query).getValue();
+            lowerInclusive = upperInclusive = true;
+        }
+        else if (query instanceof LessThan) {
+            LessThan<O, A> lessThan = (LessThan<O, A>) query;
+            lowerBound = null;
+            lowerInclusive = false;
+            upperBound = lessThan.getValue();
+            upperInclusive = lessThan.isValueInclusive();
+        }
+        else if (query instanceof GreaterThan) {
+            GreaterThan<O, A> greaterThan = (GreaterThan<O, A>) query;
+            lowerBound = greaterThan.getValue();
+            lowerInclusive = greaterThan.isValueInclusive();
+            upperBound = null;
+            upperInclusive = false;
+        }
+        else if (query instanceof Between) {
+            Between<O, A> between = (Between<O, A>) query;
+            lowerBound = between.getLowerValue();
+            lowerInclusive = between.isLowerInclusive();
+            upperBound = between.getUpperValue();
+            upperInclusive = between.isUpperInclusive();
+        }
+        else {
+            return null;
+        }
+        return descending
+                ? index.getDistinctKeysDescending(lowerBound, lowerInclusive, upperBound, upperInclusive, queryOptions)
+                : index.getDistinctKeys(lowerBound, lowerInclusive, upperBound, upperInclusive, queryOptions);
+    }
+
+    <A extends Number> Accumulator accumulate(Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        Accumulator accumulator = new Accumulator(isIntegral(attribute.getAttributeType()));
+        KeyStatisticsAttributeIndex<A, O> index = getIndexOnAttribute(KeyStatisticsAttributeIndex.class, attribute, query, queryOptions);
+        if (index != null && (query instanceof All || index instanceof PartialIndex)) {
+            logStrategy(queryOptions, "index");
+            QueryOptions resourceQueryOptions = openResources(queryOptions);
+            try {
+                CloseableIterator<KeyStatistics<A>> statistics = index.getStatisticsForDistinctKeys(resourceQueryOptions).iterator();
+                try {
+                    while (statistics.hasNext()) {
+                        KeyStatistics<A> keyStatistics = statistics.next();
+                        accumulator.add(keyStatistics.getKey(), keyStatistics.getCount());
+                    }
+                }
+                finally {
+                    statistics.close();
+                }
+            }
+            finally {
+                closeResources(resourceQueryOptions);
+            }
+            return accumulator;
+        }
+        logStrategy(queryOptions, "stream");
+        ResultSet<O> results = retrieveDeduplicated(query, queryOptions);
+        try {
+            for (O object : results) {
+                for (A value : attribute.getValues(object, queryOptions)) {
+                    accumulator.add(value, 1);
+                }
+            }
+        }
+        finally {
+            results.close();
+        }
+        return accumulator;
+    }
+
+    /**
+     * Accumulates the sum and count of numeric values, using long arithmetic for integral values.
+     */
+    static class Accumulator {
+        final boolean integral;
+        long longSum = 0;
+        double doubleSum = 0;
+        long count = 0;
+
+        Accumulator(boolean integral) {
+            this.integral = integral;
+        }
+
+        void add(Number value, int occurrences) {
+            if (integral) {
+                longSum += value.longValue() * occurrences;
+            }
+            else {
+                doubleSum += value.doubleValue() * occurrences;
+            }
+            count += occurrences;
+        }
+
+        Number getSum() {
+            return integral ? (Number) longSum : (Number) doubleSum;
+        }
+
+        Double getAverage() {
+            return count == 0 ? null : (integral ? (double) longSum : doubleSum) / count;
+        }
+    }
+
+    ResultSet<O> retrieveDeduplicated(Query<O> query, QueryOptions queryOptions) {
+        QueryOptions deduplicatingQueryOptions = new QueryOptions(new HashMap<Object, Object>(queryOptions.getOptions()));
+        deduplicatingQueryOptions.put(DeduplicationOption.class, new DeduplicationOption(DeduplicationStrategy.LOGICAL_ELIMINATION));
+        return indexedCollection.retrieve(query, deduplicatingQueryOptions);
+    }
+
+    /**
+     * Returns an index of the given type on the given attribute from which aggregates can be read directly, or null
+     * if there is no such index, or if the collection filters the results of queries given the query options.
+     * A {@link PartialIndex} is returned only if its filter query is equal to the given query, in which case it is
+     * preferred, because its keys are exactly the values of the objects matching the query. Otherwise the index
+     * returned contains all objects in the collection.
+     */
+    @SuppressWarnings("unchecked")
+    <A, I extends AttributeIndex<A, O>> I getIndexOnAttribute(Class<? extends AttributeIndex> indexType, Attribute<O, A> attribute, Query<O> query, QueryOptions queryOptions) {
+        if (retrievalFilteredHandler.test(queryOptions)) {
+            // Statistics read from indexes might include objects which queries would not return...
+            return null;
+        }
+        I fullIndex = null;
+        for (Index<O> index : indexedCollection.getIndexes()) {
+            if (indexType.isAssignableFrom(index.getClass()) && !index.isQuantized()) {
+                I attributeIndex = (I) index;
+                if (!attributeIndex.getAttribute().equals(attribute)) {
+                    continue;
+                }
+                if (index instanceof PartialIndex) {
+                    // A partial index contains only the objects matching its filter query...
+                    if (((PartialIndex<?, O, ?>) index).getFilterQuery().equals(query)) {
+                        return attributeIndex;
+                    }
+                }
+                else if (fullIndex == null) {
+                    fullIndex = attributeIndex;
+                }
+            }
+        }
+        return fullIndex;
+    }
+
+    static boolean isSingleValued(Attribute<?, ?> attribute) {
+        return attribute instanceof SimpleAttribute || attribute instanceof SimpleNullableAttribute;
+    }
+
+    static boolean isIntegral(Class<?> type) {
+        return type.equals(Integer.class) || type.equals(Long.class) || type.equals(Short.class) || type.equals(Byte.class);
+    }
+
+    static void logStrategy(QueryOptions queryOptions, String strategy) {
+        final QueryLog queryLog = queryOptions.get(QueryLog.class);
+        if (queryLog != null) {
+            queryLog.log("aggregationStrategy: " + strategy);
+        }
+    }
+
+    /**
+     * Opens request-scope resources in a copy of the given query options, so that the caller's query options are
+     * also supplied to indexes.
+     */
+    QueryOptions openResources(QueryOptions queryOptions) {
+        return openResourcesHandler.apply(new QueryOptions(new HashMap<Object, Object>(queryOptions.getOptions())));
+    }
+
+    void closeResources(QueryOptions queryOptions) {
+        closeResourcesHandler.accept(queryOptions);
+    }
+}
@@ -16,20 +16,37 @@
 package com.googlecode.cqengine.engine;
 
 import com.googlecode.concurrenttrees.common.LazyIterator;
+import com.googlecode.cqengine.IndexedCollection;
 import com.googlecode.cqengine.attribute.*;
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.explain.QueryPlan;
 import com.googlecode.cqengine.index.AttributeIndex;
 import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.sqlite.ConnectionManager;
 import com.googlecode.cqengine.index.sqlite.IdentityAttributeIndex;
 import com.googlecode.cqengine.index.sqlite.SQLiteIdentityIndex;
+import com.googlecode.cqengine.index.sqlite.SQLiteIndex;
+import com.googlecode.cqengine.index.sqlite.SQLiteLogicalQueryResultSet;
 import com.googlecode.cqengine.index.sqlite.SimplifiedSQLiteIndex;
 import com.googlecode.cqengine.index.support.*;
 import com.googlecode.cqengine.index.compound.CompoundIndex;
+import com.googlecode.cqengine.index.compound.SortedCompoundIndex;
 import com.googlecode.cqengine.index.compound.support.CompoundAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundAttributeIndex;
 import com.googlecode.cqengine.index.compound.support.CompoundQuery;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
+import com.googlecode.cqengine.index.compound.support.SortedCompoundAttributeIndex;
+import com.googlecode.cqengine.index.continuous.ContinuousQueryIndex;
 import com.googlecode.cqengine.index.fallback.FallbackIndex;
+import com.googlecode.cqengine.index.resultcache.QueryResultCache;
 import com.googlecode.cqengine.index.standingquery.StandingQueryIndex;
+import com.googlecode.cqengine.index.standingquery.StandingQueryIndexGroup;
 import com.googlecode.cqengine.index.unique.UniqueIndex;
+import com.googlecode.cqengine.jfr.IndexUpdateEvent;
+import com.googlecode.cqengine.jfr.RetrieveEvent;
+import com.googlecode.cqengine.metadata.AttributeHistogram;
 import com.googlecode.cqengine.persistence.Persistence;
+import com.googlecode.cqengine.persistence.support.BlockObjectStore;
 import com.googlecode.cqengine.persistence.support.ObjectSet;
 import com.googlecode.cqengine.persistence.support.ObjectStore;
 import com.googlecode.cqengine.persistence.support.ObjectStoreResultSet;
@@ -45,6 +62,7 @@ import com.googlecode.cqengine.query.simple.*;
 import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.closeable.CloseableResultSet;
 import com.googlecode.cqengine.resultset.common.CostCachingResultSet;
+import com.googlecode.cqengine.resultset.common.WrappedResultSet;
 import com.googlecode.cqengine.resultset.connective.ResultSetDifference;
 import com.googlecode.cqengine.resultset.connective.ResultSetIntersection;
 import com.googlecode.cqengine.resultset.connective.ResultSetUnion;
@@ -59,13 +77,16 @@ import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
 import com.googlecode.cqengine.resultset.order.AttributeOrdersComparator;
 import com.googlecode.cqengine.resultset.order.MaterializedDeduplicatedResultSet;
 import com.googlecode.cqengine.resultset.order.MaterializedOrderedResultSet;
+import com.googlecode.cqengine.workload.WorkloadRecorder;
 import com.googlecode.cqengine.index.support.CloseableRequestResources.CloseableResourceGroup;
 
+import java.sql.Connection;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import static com.googlecode.cqengine.query.QueryFactory.*;
+import static com.googlecode.cqengine.query.option.EngineFlags.EXPLAIN_ANALYZE;
 import static com.googlecode.cqengine.query.option.EngineFlags.INDEX_ORDERING_ALLOW_FAST_ORDERING_OF_MULTI_VALUED_ATTRIBUTES;
 import static com.googlecode.cqengine.query.option.EngineFlags.PREFER_INDEX_MERGE_STRATEGY;
 import static com.googlecode.cqengine.query.option.FlagsEnabled.isFlagEnabled;
@@ -83,16 +104,31 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
     // A key used to store the root query in the QueryOptions, so it may be accessed by partial indexes...
     public static final String ROOT_QUERY = "ROOT_QUERY";
 
+    // A key used to store the indexes from which ResultSets were retrieved in the QueryOptions, when explaining a query...
+    static final String EXPLAIN_INDEXES = "EXPLAIN_INDEXES";
+
     private volatile Persistence<O, ? extends Comparable> persistence;
     private volatile ObjectStore<O> objectStore;
 
+    // The cache of query results, or null if none was added...
+    private volatile QueryResultCache<O> queryResultCache = null;
+    // Continuous query indexes, which are notified of writes but not used to answer queries...
+    private final Set<ContinuousQueryIndex<O>> continuousQueryIndexes = Collections.newSetFromMap(new ConcurrentHashMap<ContinuousQueryIndex<O>, Boolean>());
+
     // Map of attributes to set of indexes on that attribute...
     private final ConcurrentMap<Attribute<O, ?>, Set<Index<O>>> attributeIndexes = new ConcurrentHashMap<Attribute<O, ?>, Set<Index<O>>>();
     private final ConcurrentMap<Attribute<O, ?>, Index<O>> uniqueIndexes = new ConcurrentHashMap<Attribute<O, ?>, Index<O>>();
+    // Map of attributes to histogram on that attribute, used to estimate the cardinality of queries...
+    private final ConcurrentMap<Attribute<O, ?>, AttributeHistogram<?, O>> histograms = new ConcurrentHashMap<Attribute<O, ?>, AttributeHistogram<?, O>>();
     // Map of CompoundAttributes to compound index on that compound attribute...
-    private final ConcurrentMap<CompoundAttribute<O>, CompoundIndex<O>> compoundIndexes = new ConcurrentHashMap<CompoundAttribute<O>, CompoundIndex<O>>();
+    private final ConcurrentMap<CompoundAttribute<O>, CompoundAttributeIndex<O>> compoundIndexes = new ConcurrentHashMap<CompoundAttribute<O>, CompoundAttributeIndex<O>>();
     // Map of queries to standing query index on that query...
     private final ConcurrentMap<Query<O>, Index<O>> standingQueryIndexes = new ConcurrentHashMap<Query<O>, Index<O>>();
+    // Map of the first conjunct of each standing And query above to those standing queries, used to find the
+    // standing queries which subsume an And query without inspecting every standing query...
+    private final ConcurrentMap<Query<O>, Set<And<O>>> standingAndQueriesByFirstConjunct = new ConcurrentHashMap<Query<O>, Set<And<O>>>();
+    // The StandingQueryIndexes among the above, which are updated together via a shared predicate network...
+    private final StandingQueryIndexGroup<O> standingQueryIndexGroup = new StandingQueryIndexGroup<O>();
     // Fallback index (handles queries which other indexes don't support)...
     private final FallbackIndex<O> fallbackIndex = new FallbackIndex<O>();
     // Updated as indexes are added or removed, this is used by the isMutable() method...
@@ -143,14 +179,24 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
      */
     @Override
     public void addIndex(Index<O> index, QueryOptions queryOptions) {
-        if (index instanceof StandingQueryIndex) {
+        if (index instanceof QueryResultCache) {
+            @SuppressWarnings({"unchecked"})
+            QueryResultCache<O> queryResultCache = (QueryResultCache<O>) index;
+            addQueryResultCache(queryResultCache, queryOptions);
+        }
+        else if (index instanceof ContinuousQueryIndex) {
+            @SuppressWarnings({"unchecked"})
+            ContinuousQueryIndex<O> continuousQueryIndex = (ContinuousQueryIndex<O>) index;
+            addContinuousQueryIndex(continuousQueryIndex, queryOptions);
+        }
+        else if (index instanceof StandingQueryIndex) {
             @SuppressWarnings({"unchecked"})
             StandingQueryIndex<O> standingQueryIndex = (StandingQueryIndex<O>) index;
             addStandingQueryIndex(standingQueryIndex, standingQueryIndex.getStandingQuery(), queryOptions);
         }
-        else if (index instanceof CompoundIndex) {
+        else if (index instanceof CompoundAttributeIndex) {
             @SuppressWarnings({"unchecked"})
-            CompoundIndex<O> compoundIndex = (CompoundIndex<O>) index;
+            CompoundAttributeIndex<O> compoundIndex = (CompoundAttributeIndex<O>) index;
             CompoundAttribute<O> compoundAttribute = compoundIndex.getAttribute();
             addCompoundIndex(compoundIndex, compoundAttribute, queryOptions);
         }
@@ -224,15 +270,69 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         queryOptions.put(QueryEngine.class, this);
         queryOptions.put(Persistence.class, persistence);
         standingQueryIndex.init(objectStore, queryOptions);
+        if (standingQueryIndex instanceof StandingQueryIndex) {
+            standingQueryIndexGroup.add((StandingQueryIndex<O>) standingQueryIndex);
+        }
+        if (standingQuery instanceof And) {
+            And<O> standingAndQuery = (And<O>) standingQuery;
+            Query<O> firstConjunct = standingAndQuery.getChildQueries().iterator().next();
+            Set<And<O>> standingAndQueries = standingAndQueriesByFirstConjunct.get(firstConjunct);
+            if (standingAndQueries == null) {
+                Set<And<O>> newStandingAndQueries = Collections.newSetFromMap(new ConcurrentHashMap<And<O>, Boolean>());
+                standingAndQueries = standingAndQueriesByFirstConjunct.putIfAbsent(firstConjunct, newStandingAndQueries);
+                if (standingAndQueries == null) {
+                    standingAndQueries = newStandingAndQueries;
+                }
+            }
+            standingAndQueries.add(standingAndQuery);
+        }
     }
 
     /**
-     * Adds a {@link CompoundIndex}.
+     * Removes the given standing query from the map used to find standing queries which subsume And queries, after
+     * its index was removed.
+     * @param standingQuery The query on which the removed index was based
+     */
+    void removeSubsumingStandingQuery(Query<O> standingQuery) {
+        if (standingQuery instanceof And) {
+            And<O> standingAndQuery = (And<O>) standingQuery;
+            Set<And<O>> standingAndQueries = standingAndQueriesByFirstConjunct.get(standingAndQuery.getChildQueries().iterator().next());
+            if (standingAndQueries != null) {
+                standingAndQueries.remove(standingAndQuery);
+            }
+        }
+    }
+
+    /**
+     * Adds a {@link QueryResultCache}.
+     * @param queryResultCache The cache to add
+     */
+    synchronized void addQueryResultCache(QueryResultCache<O> queryResultCache, QueryOptions queryOptions) {
+        if (this.queryResultCache != null) {
+            throw new IllegalStateException("A QueryResultCache has already been added: " + this.queryResultCache);
+        }
+        queryResultCache.init(objectStore, queryOptions);
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * Adds a {@link ContinuousQueryIndex}.
+     * @param continuousQueryIndex The index to add
+     */
+    void addContinuousQueryIndex(ContinuousQueryIndex<O> continuousQueryIndex, QueryOptions queryOptions) {
+        if (!continuousQueryIndexes.add(continuousQueryIndex)) {
+            throw new IllegalStateException("The index has already been added: " + continuousQueryIndex);
+        }
+        continuousQueryIndex.init(objectStore, queryOptions);
+    }
+
+    /**
+     * Adds a {@link CompoundAttributeIndex}, such as a {@link CompoundIndex}.
      * @param compoundIndex The index to add
      * @param compoundAttribute The compound attribute on which the index is based
      */
-    void addCompoundIndex(CompoundIndex<O> compoundIndex, CompoundAttribute<O> compoundAttribute, QueryOptions queryOptions) {
-        CompoundIndex<O> existingIndex = compoundIndexes.putIfAbsent(compoundAttribute, compoundIndex);
+    void addCompoundIndex(CompoundAttributeIndex<O> compoundIndex, CompoundAttribute<O> compoundAttribute, QueryOptions queryOptions) {
+        CompoundAttributeIndex<O> existingIndex = compoundIndexes.putIfAbsent(compoundAttribute, compoundIndex);
         if (existingIndex != null) {
             throw new IllegalStateException("An index has already been added for compound attribute: " + compoundAttribute);
         }
@@ -249,15 +349,30 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
     @Override
     public void removeIndex(Index<O> index, QueryOptions queryOptions) {
         boolean removed;
-        if (index instanceof StandingQueryIndex) {
+        if (index instanceof QueryResultCache) {
+            synchronized (this) {
+                removed = this.queryResultCache == index;
+                if (removed) {
+                    this.queryResultCache = null;
+                }
+            }
+        }
+        else if (index instanceof ContinuousQueryIndex) {
+            removed = continuousQueryIndexes.remove(index);
+        }
+        else if (index instanceof StandingQueryIndex) {
             @SuppressWarnings({"unchecked"})
             StandingQueryIndex<O> standingQueryIndex = (StandingQueryIndex<O>) index;
 
             removed = standingQueryIndexes.remove(standingQueryIndex.getStandingQuery(), standingQueryIndex);
+            standingQueryIndexGroup.remove(standingQueryIndex);
+            if (removed) {
+                removeSubsumingStandingQuery(standingQueryIndex.getStandingQuery());
+            }
         }
-        else if (index instanceof CompoundIndex) {
+        else if (index instanceof CompoundAttributeIndex) {
             @SuppressWarnings({"unchecked"})
-            CompoundIndex<O> compoundIndex = (CompoundIndex<O>) index;
+            CompoundAttributeIndex<O> compoundIndex = (CompoundAttributeIndex<O>) index;
             CompoundAttribute<O> compoundAttribute = compoundIndex.getAttribute();
 
             removed = compoundIndexes.remove(compoundAttribute, compoundIndex);
@@ -273,6 +388,9 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
                 Query<O> standingQuery = standingQueryAttribute.getQuery();
 
                 removed = standingQueryIndexes.remove(standingQuery, index);
+                if (removed) {
+                    removeSubsumingStandingQuery(standingQuery);
+                }
             }
             else {
                 Set<Index<O>> indexesOnThisAttribute = attributeIndexes.get(indexedAttribute);
@@ -303,6 +421,37 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
     }
 
 
+    // -------------------- Methods for adding and removing histograms --------------------
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions) {
+        AttributeHistogram<?, O> existingHistogram = histograms.putIfAbsent(histogram.getAttribute(), histogram);
+        if (existingHistogram != null) {
+            throw new IllegalStateException("A histogram has already been added for attribute: " + histogram.getAttribute());
+        }
+        histogram.init(objectStore, queryOptions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions) {
+        histograms.remove(histogram.getAttribute(), histogram);
+        histogram.destroy(queryOptions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasHistograms() {
+        return !histograms.isEmpty();
+    }
+
     // -------------------- Method for accessing indexes --------------------
 
 
@@ -317,6 +466,11 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         }
         indexes.addAll(this.compoundIndexes.values());
         indexes.addAll(this.standingQueryIndexes.values());
+        QueryResultCache<O> queryResultCache = this.queryResultCache;
+        if (queryResultCache != null) {
+            indexes.add(queryResultCache);
+        }
+        indexes.addAll(this.continuousQueryIndexes);
         return indexes;
     }
 
@@ -388,16 +542,22 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         // At this point, no standing query indexes were available,
         // so we proceed to check for other indexes on the attribute...
 
+        if (query instanceof ExistsIn) {
+            // Indexes cannot answer joins with other collections, so plan the join instead...
+            return retrieveExistsIn((ExistsIn<O, ?, A>) query, queryOptions);
+        }
+
         // Check if a UniqueIndex is available, as this will have the lowest cost of attribute-based indexes...
         Index<O> uniqueIndex = uniqueIndexes.get(query.getAttribute());
         if (uniqueIndex!= null && uniqueIndex.supportsQuery(query, queryOptions)){
-            return uniqueIndex.retrieve(query, queryOptions);
+            return recordIndexIfExplaining(uniqueIndex.retrieve(query, queryOptions), uniqueIndex, queryOptions);
         }
 
         // At this point, we did not find any UniqueIndex, so we now check for other attribute-based indexes
         // and we determine which one has the lowest retrieval cost...
 
         int lowestRetrievalCost = 0;
+        Index<O> lowestCostIndex = null;
         // Examine other (non-unique) indexes...
         Iterable<Index<O>> indexesOnAttribute = getIndexesOnAttribute(query.getAttribute());
 
@@ -409,6 +569,7 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
                 if (lowestCostResultSet == null || thisIndexRetrievalCost < lowestRetrievalCost) {
                     lowestCostResultSet = thisIndexResultSet;
                     lowestRetrievalCost = thisIndexRetrievalCost;
+                    lowestCostIndex = index;
                 }
             }
         }
@@ -418,7 +579,132 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
             // the fallback index should have been selected in worst case...
             throw new IllegalStateException("Failed to locate an index supporting query: " + query);
         }
-        return new CostCachingResultSet<O>(lowestCostResultSet);
+        if (lowestCostIndex instanceof FallbackIndex) {
+            // No index supports this query, so it will be answered by scanning the collection if iterated...
+            WorkloadRecorder<O> workloadRecorder = getWorkloadRecorder(queryOptions);
+            if (workloadRecorder != null) {
+                lowestCostResultSet = withFallbackScanRecorded(lowestCostResultSet, query, workloadRecorder, queryOptions);
+            }
+        }
+        else if (query instanceof LessThan || query instanceof GreaterThan || query instanceof Between || query instanceof In) {
+            // Computing the merge cost of range and In queries can require the index to walk the matching values,
+            // so substitute the estimate from a histogram on the attribute if one is available...
+            lowestCostResultSet = withEstimatedMergeCost(lowestCostResultSet, query);
+        }
+        return recordIndexIfExplaining(new CostCachingResultSet<O>(lowestCostResultSet), lowestCostIndex, queryOptions);
+    }
+
+    /**
+     * Wraps the given {@link ResultSet} retrieved from the {@link FallbackIndex}, such that a fallback scan will be
+     * recorded by the given {@link WorkloadRecorder} when it is iterated or counted. Result sets which are only planned, or which
+     * are only used to filter the objects retrieved for another branch of a query, are not recorded.
+     *
+     * @param resultSet The result set for the query from the fallback index
+     * @param query The query which refers to an attribute
+     * @param workloadRecorder The workload recorder
+     * @param queryOptions Optional parameters for the query
+     * @return The given result set, wrapped
+     */
+    ResultSet<O> withFallbackScanRecorded(ResultSet<O> resultSet, final SimpleQuery<O, ?> query, final WorkloadRecorder<O> workloadRecorder, final QueryOptions queryOptions) {
+        return new WrappedResultSet<O>(resultSet) {
+            @Override
+            public Iterator<O> iterator() {
+                workloadRecorder.recordFallbackScan(query, objectStore.size(queryOptions));
+                return super.iterator();
+            }
+            @Override
+            public int size() {
+                workloadRecorder.recordFallbackScan(query, objectStore.size(queryOptions));
+                return super.size();
+            }
+        };
+    }
+
+    /**
+     * Wraps the given {@link ResultSet} such that its merge cost will be the number of objects which a
+     * {@link AttributeHistogram} on the query's attribute estimates will match the query, if such a histogram is
+     * available.
+     *
+     * @param resultSet The result set for the query
+     * @param query The query which refers to an attribute
+     * @return The given result set, wrapped if a histogram is available for the query's attribute
+     */
+    ResultSet<O> withEstimatedMergeCost(ResultSet<O> resultSet, SimpleQuery<O, ?> query) {
+        AttributeHistogram<?, O> histogram = histograms.get(query.getAttribute());
+        final Double estimate = histogram == null ? null : histogram.estimateCount(query);
+        if (estimate == null) {
+            return resultSet;
+        }
+        return new WrappedResultSet<O>(resultSet) {
+            @Override
+            public int getMergeCost() {
+                return (int) Math.min(Integer.MAX_VALUE, Math.round(estimate));
+            }
+        };
+    }
+
+    /**
+     * Estimates the number of objects which would match the given query, using the {@link AttributeHistogram}s on the
+     * attributes referenced by the query, without retrieving any objects.
+     * <p/>
+     * The selectivities of the children of an {@link And} query are assumed to be independent, so the estimate for an
+     * {@link And} is the size of the collection multiplied by the product of the selectivities of its children.
+     * The estimate for an {@link Or} is the sum of the estimates of its children, capped at the size of the
+     * collection.
+     *
+     * @param query The query
+     * @param queryOptions Optional parameters for the query
+     * @return The estimated number of objects which would match the query, or null if histograms are not
+     * available for the attributes referenced by the query, or the query is not of a type supported by them
+     */
+    Double estimateCardinality(Query<O> query, QueryOptions queryOptions) {
+        if (histograms.isEmpty()) {
+            return null;
+        }
+        if (query instanceof All) {
+            return (double) objectStore.size(queryOptions);
+        }
+        if (query instanceof None) {
+            return 0.0;
+        }
+        if (query instanceof SimpleQuery) {
+            AttributeHistogram<?, O> histogram = histograms.get(((SimpleQuery<O, ?>) query).getAttribute());
+            return histogram == null ? null : histogram.estimateCount(query);
+        }
+        if (!(query instanceof LogicalQuery)) {
+            return null;
+        }
+        final double collectionSize = objectStore.size(queryOptions);
+        if (query instanceof Not) {
+            Double negatedEstimate = estimateCardinality(((Not<O>) query).getNegatedQuery(), queryOptions);
+            return negatedEstimate == null ? null : Math.max(0.0, collectionSize - negatedEstimate);
+        }
+        if (query instanceof And) {
+            if (collectionSize == 0) {
+                return 0.0;
+            }
+            double estimate = collectionSize;
+            for (Query<O> childQuery : ((And<O>) query).getChildQueries()) {
+                Double childEstimate = estimateCardinality(childQuery, queryOptions);
+                if (childEstimate == null) {
+                    return null;
+                }
+                estimate *= Math.min(1.0, childEstimate / collectionSize);
+            }
+            return estimate;
+        }
+        if (query instanceof Or) {
+            double estimate = 0.0;
+            for (Query<O> childQuery : ((Or<O>) query).getChildQueries()) {
+                Double childEstimate = estimateCardinality(childQuery, queryOptions);
+                if (childEstimate == null) {
+                    return null;
+                }
+                estimate += childEstimate;
+            }
+            return Math.min(estimate, collectionSize);
+        }
+        return null;
     }
 
     /**
@@ -434,6 +720,7 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         // Determine which of the indexes on the query's attribute have the lowest retrieval cost...
         int lowestRetrievalCost = 0;
         ResultSet<O> lowestCostResultSet = null;
+        Index<O> lowestCostIndex = null;
 
         Iterable<Index<O>> indexesOnAttribute = getIndexesOnAttribute(query.getAttribute());
 
@@ -445,6 +732,7 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
                 if (lowestCostResultSet == null || thisIndexRetrievalCost < lowestRetrievalCost) {
                     lowestCostResultSet = thisIndexResultSet;
                     lowestRetrievalCost = thisIndexRetrievalCost;
+                    lowestCostIndex = index;
                 }
             }
         }
@@ -454,7 +742,96 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
             // the fallback index should have been selected in worst case...
             throw new IllegalStateException("Failed to locate an index supporting query: " + query);
         }
-        return new CostCachingResultSet<O>(lowestCostResultSet);
+        return recordIndexIfExplaining(new CostCachingResultSet<O>(lowestCostResultSet), lowestCostIndex, queryOptions);
+    }
+
+    /**
+     * Returns an {@link ExistsInResultSet} which joins this collection with the foreign collection referenced by the
+     * given {@link ExistsIn} query, using the cheapest {@link ExistsInResultSet.JoinStrategy} given the cardinalities
+     * of both collections.
+     * <p/>
+     * The foreign collection is not accessed here: the join strategy is chosen by {@link #planExistsIn} the first
+     * time the result set is consumed, or its costs are needed to plan an enclosing query.
+     *
+     * @param query The query which refers to the foreign collection
+     * @param queryOptions Optional parameters for the query
+     * @return A {@link ResultSet} which provides objects matching the given query
+     */
+    <F, A> ResultSet<O> retrieveExistsIn(ExistsIn<O, F, A> query, QueryOptions queryOptions) {
+        return new ExistsInResultSet<O, F, A>(query, queryOptions, this, objectStore);
+    }
+
+    /**
+     * Chooses the cheapest {@link ExistsInResultSet.JoinStrategy} for the given {@link ExistsIn} query given the
+     * cardinalities of both collections, and estimates the cost of the join.
+     *
+     * @param query The query which refers to the foreign collection
+     * @param queryOptions Optional parameters for the query, those of which apply to the foreign collection are
+     * supplied when estimating the number of foreign objects matching the foreign restrictions
+     * @return The join strategy and its costs
+     */
+    <F, A> ExistsInResultSet.JoinPlan planExistsIn(ExistsIn<O, F, A> query, QueryOptions queryOptions) {
+        final IndexedCollection<F> foreignCollection = query.getForeignCollection();
+        final Query<F> foreignRestrictions = query.getForeignRestrictions();
+
+        // Estimate the number of foreign objects which match the foreign restrictions...
+        final long foreignSize = foreignCollection.size();
+        long foreignCardinality = foreignSize;
+        if (foreignRestrictions != null) {
+            ResultSet<F> foreignResults = foreignCollection.retrieve(foreignRestrictions, ExistsInResultSet.foreignQueryOptions(queryOptions));
+            try {
+                foreignCardinality = Math.min(foreignResults.getMergeCost(), foreignSize);
+            }
+            finally {
+                foreignResults.close();
+            }
+        }
+        final long localCardinality = objectStore.size(queryOptions);
+
+        // Probing the foreign collection is only cheap if it has an index on the foreign key attribute...
+        boolean foreignKeyIndexed = false;
+        for (Index<F> index : foreignCollection.getIndexes()) {
+            if (index instanceof AttributeIndex && ((AttributeIndex<?, F>) index).getAttribute().equals(query.getForeignKeyAttribute())) {
+                foreignKeyIndexed = true;
+                break;
+            }
+        }
+        // Retrieving local objects by key is only possible if this collection has an index on the local key attribute.
+        // The local key attribute must also be a SimpleAttribute, otherwise objects could be retrieved more than once...
+        boolean localKeyIndexed = false;
+        if (query.getLocalKeyAttribute() instanceof SimpleAttribute) {
+            for (Index<O> index : getIndexesOnAttribute(query.getLocalKeyAttribute())) {
+                if (!(index instanceof FallbackIndex)) {
+                    localKeyIndexed = true;
+                    break;
+                }
+            }
+        }
+        Double probeCost = Thresholds.getThreshold(queryOptions, EngineThresholds.JOIN_PROBE_COST);
+        if (probeCost == null) {
+            probeCost = EngineThresholds.JOIN_PROBE_COST.getThresholdDefault();
+        }
+        final long estimatedRows = foreignSize == 0 ? 0 : (long) Math.ceil(localCardinality * (foreignCardinality / (double) foreignSize));
+
+        final double localProbeCost = localCardinality * (foreignKeyIndexed ? probeCost : Math.max(foreignSize, 1));
+        final double hashSemiJoinCost = foreignCardinality + localCardinality;
+        final double foreignDrivenCost = localKeyIndexed ? foreignCardinality * (1 + probeCost) + estimatedRows : Double.MAX_VALUE;
+
+        ExistsInResultSet.JoinStrategy joinStrategy = ExistsInResultSet.JoinStrategy.LOCAL_PROBE;
+        double joinCost = localProbeCost;
+        if (hashSemiJoinCost < joinCost) {
+            joinStrategy = ExistsInResultSet.JoinStrategy.HASH_SEMI_JOIN;
+            joinCost = hashSemiJoinCost;
+        }
+        if (foreignDrivenCost < joinCost) {
+            joinStrategy = ExistsInResultSet.JoinStrategy.FOREIGN_DRIVEN;
+            joinCost = foreignDrivenCost;
+        }
+        final QueryLog queryLog = queryOptions.get(QueryLog.class);
+        if (queryLog != null) {
+            queryLog.log("joinStrategy: " + joinStrategy + " for " + query);
+        }
+        return new ExistsInResultSet.JoinPlan(joinStrategy, (int) Math.min(joinCost, Integer.MAX_VALUE), (int) Math.min(estimatedRows, Integer.MAX_VALUE));
     }
 
     // -------------------- Methods for query processing --------------------
@@ -466,6 +843,10 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
     // to the #retrieveRecursive() method.
     @Override
     public ResultSet<O> retrieve(final Query<O> query, final QueryOptions queryOptions) {
+        // Record the query in Java Flight Recorder, if a recording is in progress...
+        final RetrieveEvent retrieveEvent = new RetrieveEvent();
+        retrieveEvent.begin();
+
         @SuppressWarnings("unchecked")
         OrderByOption<O> orderByOption = (OrderByOption<O>) queryOptions.get(OrderByOption.class);
 
@@ -477,135 +858,444 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         // Log decisions made to the query log, if provided...
         final QueryLog queryLog = queryOptions.get(QueryLog.class); // might be null
 
+        // Record the workload, if a workload recorder was provided...
+        final WorkloadRecorder<O> workloadRecorder = getWorkloadRecorder(queryOptions);
+        if (workloadRecorder != null) {
+            workloadRecorder.recordQuery(query);
+        }
+
         SortedKeyStatisticsAttributeIndex<?, O> indexForOrdering = null;
+        SortedCompoundAttributeIndex<O> compoundIndexForOrdering = null;
         if (orderByOption != null) {
-            // Results must be ordered. Determine the ordering strategy to use: i.e. if we should use an index to order
+            // Results must be ordered. Check if a sorted compound index can retrieve results in order directly,
+            // otherwise determine the ordering strategy to use: i.e. if we should use an index to order
             // results, or if we should retrieve results and sort them afterwards instead.
+            compoundIndexForOrdering = determineSortedCompoundIndexForOrdering(query, orderByOption);
+            if (compoundIndexForOrdering == null) {
+                indexForOrdering = determineIndexOrdering(query, queryOptions, orderByOption, queryLog).indexForOrdering;
+            }
+        }
+        // If a recording is in progress, record the index from which each leaf ResultSet is retrieved while planning
+        // the query, so that the plan can be described in the event...
+        Map<ResultSet<O>, Index<O>> indexesUsed = null;
+        if (retrieveEvent.isEnabled() && queryOptions.get(EXPLAIN_INDEXES) == null) {
+            indexesUsed = new IdentityHashMap<ResultSet<O>, Index<O>>();
+            queryOptions.put(EXPLAIN_INDEXES, indexesUsed);
+        }
+        ResultSet<O> resultSet;
+        try {
+            if (compoundIndexForOrdering != null) {
+                // Retrieve results in order, with a range scan of a sorted compound index...
+                resultSet = retrieveWithSortedCompoundIndexOrdering(query, queryOptions, orderByOption, compoundIndexForOrdering);
+                if (queryLog != null) {
+                    queryLog.log("orderingStrategy: compoundIndex");
+                }
+            }
+            else if (indexForOrdering != null) {
+                // Retrieve results, using an index to accelerate ordering...
+                resultSet = retrieveWithIndexOrdering(query, queryOptions, orderByOption, indexForOrdering);
+                if (queryLog != null) {
+                    queryLog.log("orderingStrategy: index");
+                }
+            }
+            else {
+                // Retrieve results, without using an index to accelerate ordering...
+                resultSet = retrieveWithoutIndexOrdering(query, queryOptions, orderByOption);
+                if (queryLog != null) {
+                    queryLog.log("orderingStrategy: materialize");
+                }
+            }
+        }
+        finally {
+            if (indexesUsed != null) {
+                queryOptions.remove(EXPLAIN_INDEXES);
+            }
+        }
+        if (retrieveEvent.isEnabled()) {
+            // A recording is in progress, so count the rows returned and commit the event when the results are closed...
+            retrieveEvent.query = query.toString();
+            if (compoundIndexForOrdering != null) {
+                retrieveEvent.plan = "orderingStrategy: compoundIndex (" + PlanNode.describeIndex(compoundIndexForOrdering) + ")";
+            }
+            else if (indexForOrdering != null) {
+                // The leaves are retrieved lazily for each range of the index used for ordering...
+                retrieveEvent.plan = "orderingStrategy: index (" + PlanNode.describeIndex(indexForOrdering) + ")";
+            }
+            else {
+                ResultSet<O> unorderedResultSet = resultSet;
+                while (unorderedResultSet instanceof MaterializedOrderedResultSet || unorderedResultSet instanceof MaterializedDeduplicatedResultSet) {
+                    unorderedResultSet = ((WrappedResultSet<O>) unorderedResultSet).getWrappedResultSet();
+                }
+                retrieveEvent.plan = (orderByOption != null ? "orderingStrategy: materialize; " : "orderingStrategy: none; ")
+                        + RetrieveEvent.describePlan(explainResultSet(unorderedResultSet, indexesUsed == null ? Collections.<ResultSet<O>, Index<O>>emptyMap() : indexesUsed, false));
+            }
+            resultSet = RetrieveEvent.recordOnClose(resultSet, retrieveEvent);
+        }
 
-            Double selectivityThreshold = Thresholds.getThreshold(queryOptions, EngineThresholds.INDEX_ORDERING_SELECTIVITY);
-            if (selectivityThreshold == null) {
-                selectivityThreshold = EngineThresholds.INDEX_ORDERING_SELECTIVITY.getThresholdDefault();
+        // Return the results, ensuring that the close() method will close any resources which were opened...
+        // TODO: possibly not necessary to wrap here, as the IndexedCollections also ensure close() is called...
+        return new CloseableResultSet<O>(resultSet, query, queryOptions) {
+            @Override
+            public void close() {
+                super.close();
+                CloseableRequestResources.closeForQueryOptions(queryOptions);
             }
-            final List<AttributeOrder<O>> allSortOrders = orderByOption.getAttributeOrders();
-            if (selectivityThreshold != 0.0) {
-                // Index ordering can be used.
-                // Check if an index is actually available to support it...
-                AttributeOrder<O> firstOrder = allSortOrders.iterator().next();
+        };
+    }
+
+    /**
+     * The ordering strategy decided by {@link #determineIndexOrdering(Query, QueryOptions, OrderByOption, QueryLog)}.
+     */
+    static class IndexOrderingDecision<O> {
+        // The index to use to order results, or null if results should be retrieved and sorted afterwards...
+        final SortedKeyStatisticsAttributeIndex<?, O> indexForOrdering;
+        // The selectivity calculated for the query, or null if it was not calculated...
+        final Double querySelectivity;
+
+        IndexOrderingDecision(SortedKeyStatisticsAttributeIndex<?, O> indexForOrdering, Double querySelectivity) {
+            this.indexForOrdering = indexForOrdering;
+            this.querySelectivity = querySelectivity;
+        }
+    }
+
+    /**
+     * Determines if an index should be used to order results for the given query, or if results should be retrieved
+     * and sorted afterwards instead.
+     *
+     * @param query The query
+     * @param queryOptions The query options
+     * @param orderByOption The ordering requested
+     * @param queryLog The query log to which decisions should be logged, or null
+     * @return The index to use for ordering (null if the materialize strategy should be used), and the query
+     * selectivity which was calculated to make that decision if any
+     */
+    IndexOrderingDecision<O> determineIndexOrdering(Query<O> query, QueryOptions queryOptions, OrderByOption<O> orderByOption, QueryLog queryLog) {
+        SortedKeyStatisticsAttributeIndex<?, O> indexForOrdering = null;
+        Double calculatedSelectivity = null;
+        Double selectivityThreshold = Thresholds.getThreshold(queryOptions, EngineThresholds.INDEX_ORDERING_SELECTIVITY);
+        if (selectivityThreshold == null) {
+            selectivityThreshold = EngineThresholds.INDEX_ORDERING_SELECTIVITY.getThresholdDefault();
+        }
+        final List<AttributeOrder<O>> allSortOrders = orderByOption.getAttributeOrders();
+        if (selectivityThreshold != 0.0) {
+            // Index ordering can be used.
+            // Check if an index is actually available to support it...
+            AttributeOrder<O> firstOrder = allSortOrders.iterator().next();
+            @SuppressWarnings("unchecked")
+            Attribute<O, Comparable> firstAttribute = (Attribute<O, Comparable>)firstOrder.getAttribute();
+            if (firstAttribute instanceof OrderControlAttribute) {
                 @SuppressWarnings("unchecked")
-                Attribute<O, Comparable> firstAttribute = (Attribute<O, Comparable>)firstOrder.getAttribute();
-                if (firstAttribute instanceof OrderControlAttribute) {
-                    @SuppressWarnings("unchecked")
-                    Attribute<O, Comparable> firstAttributeDelegate = ((OrderControlAttribute)firstAttribute).getDelegateAttribute();
-                    firstAttribute = firstAttributeDelegate;
-                }
+                Attribute<O, Comparable> firstAttributeDelegate = ((OrderControlAttribute)firstAttribute).getDelegateAttribute();
+                firstAttribute = firstAttributeDelegate;
+            }
 
-                // Before we check if an index is available to support index ordering, we need to account for the fact
-                // that even if such an index is available, it might not contain all objects in the collection.
-                //
-                // An index built on a SimpleAttribute, is guaranteed to contain all objects in the collection, because
-                // SimpleAttribute is guaranteed to return a value for every object.
-                // OTOH an index built on a non-SimpleAttribute, is not guaranteed to contain all objects in the
-                // collection, because non-SimpleAttributes are permitted to return *zero* or more values for any
-                // object. Objects for which non-SimpleAttributes return zero values, will be omitted from the index.
-                //
-                // Therefore, if we will use an index to order results, we must ensure that the collection also has a
-                // suitable index to allow the objects which are not in the index to be retrieved as well. When
-                // ordering results, we must return those objects either before or after the objects which are found in
-                // the index. Here we proceed to locate a suitable index to use for ordering results, only if we will
-                // also be able to retrieve the objects missing from that index efficiently as well...
-                if (firstAttribute instanceof SimpleAttribute || standingQueryIndexes.get(not(has(firstAttribute))) != null) {
-                    // Either we are sorting by a SimpleAttribute, or we are sorting by a non-SimpleAttribute and we
-                    // also will be able to retrieve objects which do not have values for the non-SimpleAttribute
-                    // efficiently. Now check if an index exists which would allow index ordering...
-                    for (Index<O> index : this.getIndexesOnAttribute(firstAttribute)) {
-                        if (index instanceof SortedKeyStatisticsAttributeIndex && !index.isQuantized()) {
-                            indexForOrdering = (SortedKeyStatisticsAttributeIndex<?, O>)index;
-                            break;
-                        }
+            // Before we check if an index is available to support index ordering, we need to account for the fact
+            // that even if such an index is available, it might not contain all objects in the collection.
+            //
+            // An index built on a SimpleAttribute, is guaranteed to contain all objects in the collection, because
+            // SimpleAttribute is guaranteed to return a value for every object.
+            // OTOH an index built on a non-SimpleAttribute, is not guaranteed to contain all objects in the
+            // collection, because non-SimpleAttributes are permitted to return *zero* or more values for any
+            // object. Objects for which non-SimpleAttributes return zero values, will be omitted from the index.
+            //
+            // Therefore, if we will use an index to order results, we must ensure that the collection also has a
+            // suitable index to allow the objects which are not in the index to be retrieved as well. When
+            // ordering results, we must return those objects either before or after the objects which are found in
+            // the index. Here we proceed to locate a suitable index to use for ordering results, only if we will
+            // also be able to retrieve the objects missing from that index efficiently as well...
+            if (firstAttribute instanceof SimpleAttribute || standingQueryIndexes.get(not(has(firstAttribute))) != null) {
+                // Either we are sorting by a SimpleAttribute, or we are sorting by a non-SimpleAttribute and we
+                // also will be able to retrieve objects which do not have values for the non-SimpleAttribute
+                // efficiently. Now check if an index exists which would allow index ordering...
+                for (Index<O> index : this.getIndexesOnAttribute(firstAttribute)) {
+                    if (index instanceof SortedKeyStatisticsAttributeIndex && !index.isQuantized()) {
+                        indexForOrdering = (SortedKeyStatisticsAttributeIndex<?, O>)index;
+                        break;
                     }
                 }
+            }
 
 
-                if (queryLog != null) {
-                    queryLog.log("indexForOrdering: " + (indexForOrdering == null ? null : indexForOrdering.getClass().getSimpleName()));
+            if (queryLog != null) {
+                queryLog.log("indexForOrdering: " + (indexForOrdering == null ? null : indexForOrdering.getClass().getSimpleName()));
+            }
+            // At this point we might have found an appropriate indexForOrdering, or it might still be null.
+            if (indexForOrdering != null) {
+                // We found an appropriate index.
+                // Determine if the selectivity of the query is below the selectivity threshold to use index ordering...
+                final double querySelectivity;
+                if (selectivityThreshold == 1.0) {
+                    // Index ordering has been requested explicitly.
+                    // Don't bother calculating query selectivity, assign low selectivity so we will use the index...
+                    querySelectivity = 0.0;
+                }
+                else if (!indexForOrdering.supportsQuery(has(firstAttribute), queryOptions)) {
+                    // Index ordering was not requested explicitly, and we cannot calculate the selectivity.
+                    // In this case even though we have an index which supports index ordering,
+                    // we don't have enough information to say that it would be beneficial.
+                    // Assign high selectivity so that the materialize strategy will be used instead...
+                    querySelectivity = 1.0;
                 }
-                // At this point we might have found an appropriate indexForOrdering, or it might still be null.
-                if (indexForOrdering != null) {
-                    // We found an appropriate index.
-                    // Determine if the selectivity of the query is below the selectivity threshold to use index ordering...
-                    final double querySelectivity;
-                    if (selectivityThreshold == 1.0) {
-                        // Index ordering has been requested explicitly.
-                        // Don't bother calculating query selectivity, assign low selectivity so we will use the index...
-                        querySelectivity = 0.0;
+                else {
+                    // The index supports has() queries, which allows us to calculate selectivity.
+                    // Calculate query selectivity, based on the query cardinality and index cardinality...
+                    // Use histogram estimates where available, to avoid retrieving the query and the index...
+                    final Double estimatedQueryCardinality = estimateCardinality(query, queryOptions);
+                    final AttributeHistogram<?, O> histogram = histograms.get(firstAttribute);
+                    final int queryCardinality = estimatedQueryCardinality != null
+                            ? (int) Math.min(Integer.MAX_VALUE, Math.round(estimatedQueryCardinality))
+                            : retrieveRecursive(query, queryOptions).getMergeCost();
+                    final int indexCardinality = histogram != null
+                            ? (int) Math.min(Integer.MAX_VALUE, histogram.getObjectCount())
+                            : indexForOrdering.retrieve(has(firstAttribute), queryOptions).getMergeCost();
+                    if (queryLog != null) {
+                        if (estimatedQueryCardinality != null || histogram != null) {
+                            queryLog.log("cardinalityEstimation: histogram");
+                        }
+                        queryLog.log("queryCardinality: " + queryCardinality);
+                        queryLog.log("indexCardinality: " + indexCardinality);
                     }
-                    else if (!indexForOrdering.supportsQuery(has(firstAttribute), queryOptions)) {
-                        // Index ordering was not requested explicitly, and we cannot calculate the selectivity.
-                        // In this case even though we have an index which supports index ordering,
-                        // we don't have enough information to say that it would be beneficial.
-                        // Assign high selectivity so that the materialize strategy will be used instead...
-                        querySelectivity = 1.0;
+                    if (indexCardinality == 0) {
+                        // Handle edge case where the index is empty.
+                        querySelectivity = 1.0; // treat is as if the query has high selectivity (tend to use materialize).
+                    }
+                    else if (queryCardinality > indexCardinality) {
+                        // Handle edge case where query cardinality is greater than index cardinality.
+                        querySelectivity = 0.0; // treat is as if the query has low selectivity (tend to use index ordering).
                     }
                     else {
-                        // The index supports has() queries, which allows us to calculate selectivity.
-                        // Calculate query selectivity, based on the query cardinality and index cardinality...
-                        final int queryCardinality = retrieveRecursive(query, queryOptions).getMergeCost();
-                        final int indexCardinality = indexForOrdering.retrieve(has(firstAttribute), queryOptions).getMergeCost();
-                        if (queryLog != null) {
-                            queryLog.log("queryCardinality: " + queryCardinality);
-                            queryLog.log("indexCardinality: " + indexCardinality);
-                        }
-                        if (indexCardinality == 0) {
-                            // Handle edge case where the index is empty.
-                            querySelectivity = 1.0; // treat is as if the query has high selectivity (tend to use materialize).
-                        }
-                        else if (queryCardinality > indexCardinality) {
-                            // Handle edge case where query cardinality is greater than index cardinality.
-                            querySelectivity = 0.0; // treat is as if the query has low selectivity (tend to use index ordering).
-                        }
-                        else {
-                            querySelectivity = 1.0 - queryCardinality / (double)indexCardinality;
-                        }
+                        querySelectivity = 1.0 - queryCardinality / (double)indexCardinality;
                     }
+                }
+                calculatedSelectivity = querySelectivity;
 
-                    if (queryLog != null) {
-                        queryLog.log("querySelectivity: " + querySelectivity);
-                        queryLog.log("selectivityThreshold: " + selectivityThreshold);
-                    }
-                    if (querySelectivity > selectivityThreshold) {
-                        // Selectivity is too high for index ordering strategy.
-                        // Use the materialize ordering strategy instead.
-                        indexForOrdering = null;
-                    }
-                    // else: querySelectivity <= selectivityThreshold, so we use the index ordering strategy.
+                if (queryLog != null) {
+                    queryLog.log("querySelectivity: " + querySelectivity);
+                    queryLog.log("selectivityThreshold: " + selectivityThreshold);
                 }
+                if (querySelectivity > selectivityThreshold) {
+                    // Selectivity is too high for index ordering strategy.
+                    // Use the materialize ordering strategy instead.
+                    indexForOrdering = null;
+                }
+                // else: querySelectivity <= selectivityThreshold, so we use the index ordering strategy.
             }
         }
-        ResultSet<O> resultSet;
-        if (indexForOrdering != null) {
-            // Retrieve results, using an index to accelerate ordering...
-            resultSet = retrieveWithIndexOrdering(query, queryOptions, orderByOption, indexForOrdering);
-            if (queryLog != null) {
-                queryLog.log("orderingStrategy: index");
+        return new IndexOrderingDecision<O>(indexForOrdering, calculatedSelectivity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    // Implementation note: this method plans the query exactly as #retrieve() would, and then walks the tree of
+    // ResultSets returned by #retrieveRecursive() to describe it.
+    @Override
+    public QueryPlan<O> explain(final Query<O> query, final QueryOptions queryOptions) {
+        @SuppressWarnings("unchecked")
+        OrderByOption<O> orderByOption = (OrderByOption<O>) queryOptions.get(OrderByOption.class);
+        queryOptions.put(ROOT_QUERY, query);
+        final QueryLog queryLog = queryOptions.get(QueryLog.class); // might be null
+        final boolean analyze = isFlagEnabled(queryOptions, EXPLAIN_ANALYZE);
+        // Explaining a query should not affect the workload recorded for the queries actually run...
+        final WorkloadRecorder<O> workloadRecorder = getWorkloadRecorder(queryOptions);
+        queryOptions.remove(WorkloadRecorder.class);
+        try {
+            QueryPlan.OrderingStrategy orderingStrategy = QueryPlan.OrderingStrategy.NONE;
+            IndexOrderingDecision<O> orderingDecision = null;
+            SortedCompoundAttributeIndex<O> compoundIndexForOrdering = orderByOption == null ? null : determineSortedCompoundIndexForOrdering(query, orderByOption);
+            if (compoundIndexForOrdering != null) {
+                orderingStrategy = QueryPlan.OrderingStrategy.INDEX;
+            }
+            else if (orderByOption != null) {
+                orderingDecision = determineIndexOrdering(query, queryOptions, orderByOption, queryLog);
+                orderingStrategy = orderingDecision.indexForOrdering != null
+                        ? QueryPlan.OrderingStrategy.INDEX
+                        : QueryPlan.OrderingStrategy.MATERIALIZE;
+            }
+
+            // Record the index from which each leaf ResultSet is retrieved, while planning the query...
+            final Map<ResultSet<O>, Index<O>> indexesUsed = new IdentityHashMap<ResultSet<O>, Index<O>>();
+            queryOptions.put(EXPLAIN_INDEXES, indexesUsed);
+            PlanNode<O> root;
+            ResultSet<O> resultSet = null;
+            try {
+                resultSet = retrieveRecursive(query, queryOptions);
+                root = explainResultSet(resultSet, indexesUsed, analyze);
             }
+            finally {
+                queryOptions.remove(EXPLAIN_INDEXES);
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+            }
+
+            long actualRows = PlanNode.NOT_ANALYZED;
+            long elapsedNanos = PlanNode.NOT_ANALYZED;
+            if (analyze) {
+                // Run the query in full, including ordering and deduplication, to measure it end-to-end...
+                final long startNanos = System.nanoTime();
+                ResultSet<O> results = retrieve(query, queryOptions);
+                try {
+                    actualRows = countRows(results);
+                }
+                finally {
+                    results.close();
+                }
+                elapsedNanos = System.nanoTime() - startNanos;
+            }
+            DeduplicationOption deduplicationOption = queryOptions.get(DeduplicationOption.class);
+            return new QueryPlan<O>(
+                    query,
+                    root,
+                    orderingStrategy,
+                    compoundIndexForOrdering != null ? compoundIndexForOrdering : (orderingDecision == null ? null : orderingDecision.indexForOrdering),
+                    orderingDecision == null ? null : orderingDecision.querySelectivity,
+                    deduplicationOption == null ? DeduplicationStrategy.DUPLICATES_ALLOWED : deduplicationOption.getStrategy(),
+                    actualRows,
+                    elapsedNanos
+            );
         }
-        else {
-            // Retrieve results, without using an index to accelerate ordering...
-            resultSet = retrieveWithoutIndexOrdering(query, queryOptions, orderByOption);
-            if (queryLog != null) {
-                queryLog.log("orderingStrategy: materialize");
+        finally {
+            if (workloadRecorder != null) {
+                queryOptions.put(WorkloadRecorder.class, workloadRecorder);
             }
+            CloseableRequestResources.closeForQueryOptions(queryOptions);
         }
+    }
 
-        // Return the results, ensuring that the close() method will close any resources which were opened...
-        // TODO: possibly not necessary to wrap here, as the IndexedCollections also ensure close() is called...
-        return new CloseableResultSet<O>(resultSet, query, queryOptions) {
-            @Override
-            public void close() {
-                super.close();
-                CloseableRequestResources.closeForQueryOptions(queryOptions);
+    /**
+     * Records the index from which the given {@link ResultSet} was retrieved, if the query is being explained.
+     *
+     * @param resultSet The ResultSet retrieved from the index
+     * @param index The index from which the ResultSet was retrieved
+     * @param queryOptions The query options
+     * @return The given ResultSet
+     */
+    ResultSet<O> recordIndexIfExplaining(ResultSet<O> resultSet, Index<O> index, QueryOptions queryOptions) {
+        @SuppressWarnings("unchecked")
+        Map<ResultSet<O>, Index<O>> indexesUsed = (Map<ResultSet<O>, Index<O>>) queryOptions.get(EXPLAIN_INDEXES);
+        if (indexesUsed != null) {
+            indexesUsed.put(resultSet, index);
+        }
+        return resultSet;
+    }
+
+    /**
+     * Describes the given {@link ResultSet} returned by {@link #retrieveRecursive(Query, QueryOptions)} and its
+     * children as a tree of {@link PlanNode}s.
+     *
+     * @param resultSet The ResultSet to describe
+     * @param indexesUsed The indexes from which leaf ResultSets were retrieved
+     * @param analyze True if the rows in each ResultSet should be counted and timed
+     * @return A PlanNode describing the ResultSet
+     */
+    PlanNode<O> explainResultSet(ResultSet<O> resultSet, Map<ResultSet<O>, Index<O>> indexesUsed, boolean analyze) {
+        Index<O> index = indexesUsed.get(resultSet);
+        ResultSet<O> unwrapped = resultSet;
+        while (index == null && unwrapped instanceof CostCachingResultSet) {
+            unwrapped = ((CostCachingResultSet<O>) unwrapped).getWrappedResultSet();
+            index = indexesUsed.get(unwrapped);
+        }
+        if (index == null) {
+            // The planner groups the branches of And and Or queries by type, which can produce intersections or
+            // unions with a single child. These simply pass through the child's objects, so describe the child only...
+            ResultSet<O> onlyChild = getOnlyChildIfPassThrough(unwrapped);
+            if (onlyChild != null) {
+                return explainResultSet(onlyChild, indexesUsed, analyze);
             }
-        };
+        }
+        final List<PlanNode<O>> children = new ArrayList<PlanNode<O>>();
+        PlanNode.MergeStrategy mergeStrategy = null;
+        final PlanNode.Type type;
+        if (index != null) {
+            type = PlanNode.Type.INDEX_LOOKUP;
+        }
+        else if (unwrapped instanceof ResultSetIntersection) {
+            ResultSetIntersection<O> intersection = (ResultSetIntersection<O>) unwrapped;
+            type = PlanNode.Type.INTERSECTION;
+            for (ResultSet<O> child : intersection.getResultSets()) {
+                children.add(explainResultSet(child, indexesUsed, analyze));
+            }
+            if (children.size() > 1) {
+                mergeStrategy = intersection.isUseIndexMergeStrategy() ? PlanNode.MergeStrategy.INDEX : PlanNode.MergeStrategy.FILTER;
+            }
+        }
+        else if (unwrapped instanceof ResultSetUnion) {
+            ResultSetUnion<O> union = (ResultSetUnion<O>) unwrapped;
+            type = PlanNode.Type.UNION;
+            for (ResultSet<O> child : union.getResultSets()) {
+                children.add(explainResultSet(child, indexesUsed, analyze));
+            }
+            mergeStrategy = union.isUseIndexMergeStrategy() ? PlanNode.MergeStrategy.INDEX : PlanNode.MergeStrategy.FILTER;
+        }
+        else if (unwrapped instanceof ResultSetUnionAll) {
+            type = PlanNode.Type.UNION_ALL;
+            for (ResultSet<O> child : ((ResultSetUnionAll<O>) unwrapped).getResultSets()) {
+                children.add(explainResultSet(child, indexesUsed, analyze));
+            }
+        }
+        else if (unwrapped instanceof ResultSetDifference) {
+            ResultSetDifference<O> difference = (ResultSetDifference<O>) unwrapped;
+            type = PlanNode.Type.DIFFERENCE;
+            children.add(explainResultSet(difference.getFirstResultSet(), indexesUsed, analyze));
+            children.add(explainResultSet(difference.getSecondResultSet(), indexesUsed, analyze));
+            mergeStrategy = difference.isIndexMergeStrategyEnabled() ? PlanNode.MergeStrategy.INDEX : PlanNode.MergeStrategy.FILTER;
+        }
+        else if (unwrapped instanceof FilteringResultSet) {
+            type = PlanNode.Type.FILTER;
+            children.add(explainResultSet(((FilteringResultSet<O>) unwrapped).getWrappedResultSet(), indexesUsed, analyze));
+        }
+        else if (unwrapped instanceof ObjectStoreResultSet) {
+            type = PlanNode.Type.COLLECTION_SCAN;
+        }
+        else if (unwrapped instanceof ExistsInResultSet) {
+            type = PlanNode.Type.SEMI_JOIN;
+        }
+        else {
+            // A ResultSet from an index which was not recorded...
+            type = PlanNode.Type.INDEX_LOOKUP;
+        }
+        long actualRows = PlanNode.NOT_ANALYZED;
+        long elapsedNanos = PlanNode.NOT_ANALYZED;
+        if (analyze) {
+            final long startNanos = System.nanoTime();
+            actualRows = countRows(resultSet);
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+        return new PlanNode<O>(type, resultSet.getQuery(), index, mergeStrategy,
+                resultSet.getRetrievalCost(), resultSet.getMergeCost(), children, actualRows, elapsedNanos);
+    }
+
+    static <O> ResultSet<O> getOnlyChildIfPassThrough(ResultSet<O> resultSet) {
+        Iterable<? extends ResultSet<O>> children;
+        if (resultSet instanceof ResultSetIntersection) {
+            children = ((ResultSetIntersection<O>) resultSet).getResultSets();
+        }
+        else if (resultSet instanceof ResultSetUnion) {
+            children = ((ResultSetUnion<O>) resultSet).getResultSets();
+        }
+        else if (resultSet instanceof ResultSetUnionAll) {
+            children = ((ResultSetUnionAll<O>) resultSet).getResultSets();
+        }
+        else {
+            return null;
+        }
+        Iterator<? extends ResultSet<O>> iterator = children.iterator();
+        ResultSet<O> onlyChild = iterator.hasNext() ? iterator.next() : null;
+        return iterator.hasNext() ? null : onlyChild;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <O> WorkloadRecorder<O> getWorkloadRecorder(QueryOptions queryOptions) {
+        return (WorkloadRecorder<O>) queryOptions.get(WorkloadRecorder.class);
+    }
+
+    static <O> long countRows(ResultSet<O> resultSet) {
+        long rows = 0;
+        for (Iterator<O> iterator = resultSet.iterator(); iterator.hasNext(); iterator.next()) {
+            rows++;
+        }
+        return rows;
     }
 
     /**
@@ -613,7 +1303,7 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
      */
     ResultSet<O> retrieveWithoutIndexOrdering(Query<O> query, QueryOptions queryOptions, OrderByOption<O> orderByOption) {
         ResultSet<O> resultSet;
-        resultSet = retrieveRecursive(query, queryOptions);
+        resultSet = retrieveUsingQueryResultCacheIfAvailable(query, queryOptions);
 
         // Check if we need to order results...
         if (orderByOption != null) {
@@ -630,6 +1320,65 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
     }
 
 
+    /**
+     * Returns the results of the given query from the {@link QueryResultCache} if one was added and the results are
+     * cached, otherwise evaluates the query via {@link #retrieveRecursive(Query, QueryOptions)}, arranging for the
+     * results to be cached if possible.
+     */
+    ResultSet<O> retrieveUsingQueryResultCacheIfAvailable(Query<O> query, QueryOptions queryOptions) {
+        final QueryResultCache<O> queryResultCache = this.queryResultCache;
+        if (queryResultCache == null || !queryResultCache.isCacheable(query, queryOptions)) {
+            return retrieveRecursive(query, queryOptions);
+        }
+        final QueryLog queryLog = queryOptions.get(QueryLog.class);
+        ResultSet<O> cachedResults = queryResultCache.getCachedResults(query, queryOptions);
+        if (cachedResults != null) {
+            if (queryLog != null) {
+                queryLog.log("queryResultCache: hit");
+            }
+            return cachedResults;
+        }
+        if (queryLog != null) {
+            queryLog.log("queryResultCache: miss");
+        }
+        return queryResultCache.cacheOnCompletion(retrieveRecursive(query, queryOptions), queryOptions);
+    }
+
+    /**
+     * Returns a {@link SortedCompoundAttributeIndex}, such as a {@link SortedCompoundIndex}, which can retrieve the results of the given query in the order requested,
+     * with a single range scan, or null if no such index exists.
+     * <p/>
+     * This is the case if the query is an {@link And} query which the index can answer as a
+     * {@link CompoundRangeQuery}, and results are to be ordered by the single attribute following the prefix of the
+     * range query. The attributes of the index must all be SimpleAttributes, so that the range scan returns each object exactly once.
+     */
+    SortedCompoundAttributeIndex<O> determineSortedCompoundIndexForOrdering(Query<O> query, OrderByOption<O> orderByOption) {
+        List<AttributeOrder<O>> attributeOrders = orderByOption.getAttributeOrders();
+        if (!(query instanceof And) || attributeOrders.size() != 1 || compoundIndexes.isEmpty()) {
+            return null;
+        }
+        Attribute<O, ?> orderAttribute = attributeOrders.get(0).getAttribute();
+        for (CompoundAttributeIndex<O> candidateIndex : compoundIndexes.values()) {
+            if (candidateIndex instanceof SortedCompoundAttributeIndex && ((SortedCompoundAttributeIndex<O>) candidateIndex).hasSingleValuedAttributes()) {
+                CompoundRangeQuery<O> rangeQuery = CompoundRangeQuery.fromAndQueryIfSuitable((And<O>) query, candidateIndex.getAttribute());
+                if (rangeQuery != null && orderAttribute.equals(rangeQuery.getRangeAttribute())) {
+                    return (SortedCompoundAttributeIndex<O>) candidateIndex;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Use a {@link SortedCompoundAttributeIndex} to retrieve results in order, as determined by
+     * {@link #determineSortedCompoundIndexForOrdering(Query, OrderByOption)}.
+     */
+    ResultSet<O> retrieveWithSortedCompoundIndexOrdering(Query<O> query, QueryOptions queryOptions, OrderByOption<O> orderByOption, SortedCompoundAttributeIndex<O> compoundIndexForOrdering) {
+        CompoundRangeQuery<O> rangeQuery = CompoundRangeQuery.fromAndQueryIfSuitable((And<O>) query, compoundIndexForOrdering.getAttribute());
+        boolean descending = orderByOption.getAttributeOrders().get(0).isDescending();
+        return compoundIndexForOrdering.retrieve(rangeQuery, queryOptions, descending);
+    }
+
     /**
      * Use an index to order results.
      */
@@ -1032,14 +1781,50 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
                 // Compound indexes exist. Check if any can be used for this And query...
                 CompoundQuery<O> compoundQuery = CompoundQuery.fromAndQueryIfSuitable(and);
                 if (compoundQuery != null) {
-                    CompoundIndex<O> compoundIndex = compoundIndexes.get(compoundQuery.getCompoundAttribute());
+                    CompoundAttributeIndex<O> compoundIndex = compoundIndexes.get(compoundQuery.getCompoundAttribute());
                     if (compoundIndex != null && compoundIndex.supportsQuery(compoundQuery, queryOptions)) {
                         // No deduplication required for retrievals from compound indexes.
-                        return compoundIndex.retrieve(compoundQuery, queryOptions);
+                        return recordIndexIfExplaining(compoundIndex.retrieve(compoundQuery, queryOptions), compoundIndex, queryOptions);
+                    }
+                }
+                // Check if a sorted compound index can answer this And query with a range scan...
+                for (CompoundAttributeIndex<O> candidateIndex : compoundIndexes.values()) {
+                    if (candidateIndex instanceof SortedCompoundAttributeIndex) {
+                        CompoundRangeQuery<O> rangeQuery = CompoundRangeQuery.fromAndQueryIfSuitable(and, candidateIndex.getAttribute());
+                        if (rangeQuery != null && candidateIndex.supportsQuery(rangeQuery, queryOptions)) {
+                            return recordIndexIfExplaining(candidateIndex.retrieve(rangeQuery, queryOptions), candidateIndex, queryOptions);
+                        }
                     }
                 }
             } // else no suitable compound index exists, process the And query normally...
 
+            // Check if a standing query index exists on a subset of this And query's conjuncts...
+            if (!standingAndQueriesByFirstConjunct.isEmpty()) {
+                ResultSet<O> subsumingResultSet = retrieveUsingSubsumingStandingQueryIfAvailable(and, queryOptions, indexMergeStrategyEnabled);
+                if (subsumingResultSet != null) {
+                    return subsumingResultSet;
+                }
+            } // else no standing query index subsumes this And query...
+
+            // Check if a compound index can answer a subset of this And query's conjuncts...
+            if (!compoundIndexes.isEmpty()) {
+                ResultSet<O> partialMatchResultSet = retrieveUsingPartialCompoundIndexMatchIfAvailable(and, queryOptions, indexMergeStrategyEnabled);
+                if (partialMatchResultSet != null) {
+                    return partialMatchResultSet;
+                }
+            } // else no compound index can answer any subset of the conjuncts...
+
+            // Check if the entire And query can be evaluated in a single SQL statement...
+            ResultSet<O> sqliteResultSet = retrieveFromSQLiteIfAvailable(and, queryOptions);
+            if (sqliteResultSet != null) {
+                return sqliteResultSet;
+            } // else not all conjuncts are answered by SQLite indexes in the same database...
+
+            // Check if the collection should be scanned once for the entire And query, skipping blocks using zone maps...
+            if (objectStore instanceof BlockObjectStore && isAnsweredOnlyByFallbackIndex(and, queryOptions)) {
+                return recordIndexIfExplaining(fallbackIndex.retrieve(and, queryOptions), fallbackIndex, queryOptions);
+            } // else process the And query normally...
+
             // No deduplication required for intersections.
             Iterable<ResultSet<O>> resultSetsToMerge = new Iterable<ResultSet<O>>() {
                 @Override
@@ -1078,6 +1863,17 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         }
         else if (query instanceof Or) {
             final Or<O> or = (Or<O>) query;
+            // Check if the entire Or query can be evaluated in a single SQL statement.
+            // SQL unions eliminate duplicates, so this also satisfies any deduplication requested...
+            ResultSet<O> sqliteResultSet = retrieveFromSQLiteIfAvailable(or, queryOptions);
+            if (sqliteResultSet != null) {
+                return sqliteResultSet;
+            }
+            // Check if the collection should be scanned once for the entire Or query, skipping blocks using zone maps.
+            // A single scan returns each object at most once, so it also satisfies any deduplication requested...
+            if (objectStore instanceof BlockObjectStore && isAnsweredOnlyByFallbackIndex(or, queryOptions)) {
+                return recordIndexIfExplaining(fallbackIndex.retrieve(or, queryOptions), fallbackIndex, queryOptions);
+            }
             // If the Or query indicates child queries are disjoint,
             // ignore any instruction to perform deduplication in the queryOptions supplied...
             final QueryOptions queryOptionsForOrUnion;
@@ -1219,6 +2015,24 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         Query<O> query = queriesTyped.size() == 1 ? queriesTyped.iterator().next() : new And<O>(queriesTyped);
 
         boolean useIndexMergeStrategy = indexMergeStrategyEnabled && indexesAvailableForAllResultSets(resultSets);
+        final WorkloadRecorder<O> workloadRecorder = getWorkloadRecorder(queryOptions);
+        if (workloadRecorder != null && !useIndexMergeStrategy && query instanceof And) {
+            // Objects from the ResultSet with the lowest merge cost will be filtered by evaluating the query on them,
+            // so record the filter step when the intersection is iterated or counted...
+            final And<O> andQuery = (And<O>) query;
+            return new ResultSetIntersection<O>(resultSets, query, queryOptions, useIndexMergeStrategy) {
+                @Override
+                public Iterator<O> iterator() {
+                    workloadRecorder.recordFilterStep(andQuery, getResultSets().get(0).getMergeCost());
+                    return super.iterator();
+                }
+                @Override
+                public int size() {
+                    workloadRecorder.recordFilterStep(andQuery, getResultSets().get(0).getMergeCost());
+                    return super.size();
+                }
+            };
+        }
         return new ResultSetIntersection<O>(resultSets, query, queryOptions, useIndexMergeStrategy);
     }
 
@@ -1354,15 +2168,257 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         if (standingQueryIndex != null) {
             // No deduplication required for standing queries.
             if (standingQueryIndex instanceof StandingQueryIndex) {
-                return standingQueryIndex.retrieve(query, queryOptions);
+                return recordIndexIfExplaining(standingQueryIndex.retrieve(query, queryOptions), standingQueryIndex, queryOptions);
             }
             else {
-                return standingQueryIndex.retrieve(equal(forStandingQuery(query), Boolean.TRUE), queryOptions);
+                return recordIndexIfExplaining(standingQueryIndex.retrieve(equal(forStandingQuery(query), Boolean.TRUE), queryOptions), standingQueryIndex, queryOptions);
             }
         } // else no suitable standing query index exists, process the query normally...
         return null;
     }
 
+    /**
+     * Checks if a standing query index exists on an {@link And} query whose conjuncts are a subset of the conjuncts
+     * of the given {@link And} query, and if so returns a {@link ResultSet} which intersects the objects stored in
+     * that index with the objects matching the remaining conjuncts. If several such standing queries exist, the one
+     * with the most conjuncts is used.
+     * <p/>
+     * Standing queries are looked up by their first conjunct, which must be one of the conjuncts of the given
+     * {@link And} query if the standing query subsumes it, so only the standing queries sharing a conjunct with the
+     * given query are inspected.
+     * <p/>
+     * The stored objects will typically drive the intersection, being filtered by the remaining conjuncts, unless
+     * the remaining conjuncts can be retrieved from an index more cheaply.
+     *
+     * @param and The And query to evaluate
+     * @param queryOptions Query options supplied for the query
+     * @return A {@link ResultSet} which answers the query using a standing query index, or null if no standing query
+     * index subsumes the query
+     */
+    ResultSet<O> retrieveUsingSubsumingStandingQueryIfAvailable(And<O> and, QueryOptions queryOptions, boolean indexMergeStrategyEnabled) {
+        Set<Query<O>> conjuncts = new HashSet<Query<O>>(and.getChildQueries());
+        Query<O> subsumingQuery = null;
+        int subsumingQueryConjuncts = 0;
+        for (Query<O> conjunct : conjuncts) {
+            Set<And<O>> standingAndQueries = standingAndQueriesByFirstConjunct.get(conjunct);
+            if (standingAndQueries == null) {
+                continue;
+            }
+            for (And<O> standingQuery : standingAndQueries) {
+                Collection<Query<O>> standingConjuncts = standingQuery.getChildQueries();
+                if (standingConjuncts.size() > subsumingQueryConjuncts && conjuncts.containsAll(standingConjuncts)) {
+                    subsumingQuery = standingQuery;
+                    subsumingQueryConjuncts = standingConjuncts.size();
+                }
+            }
+        }
+        if (subsumingQuery == null) {
+            return null;
+        }
+        ResultSet<O> standingQueryResultSet = retrieveFromStandingQueryIndexIfAvailable(subsumingQuery, queryOptions);
+        if (standingQueryResultSet == null) {
+            // The index was removed concurrently...
+            return null;
+        }
+        final QueryLog queryLog = queryOptions.get(QueryLog.class);
+        if (queryLog != null) {
+            queryLog.log("standingQuerySubsumption: " + subsumingQuery + " for " + and);
+        }
+        return intersectWithRemainingConjuncts(standingQueryResultSet, ((And<O>) subsumingQuery).getChildQueries(), and, queryOptions, indexMergeStrategyEnabled);
+    }
+
+    /**
+     * Checks if a compound index can answer a subset of at least two of the conjuncts of the given {@link And}
+     * query, and if so returns a {@link ResultSet} which intersects the objects retrieved from that index with the
+     * objects matching the remaining conjuncts. If several compound indexes are suitable, the one which answers the
+     * most conjuncts is used, preferring exact lookups to range scans.
+     *
+     * @param and The And query to evaluate
+     * @param queryOptions Query options supplied for the query
+     * @return A {@link ResultSet} which answers the query using a compound index, or null if no compound index can
+     * answer any subset of the conjuncts
+     */
+    ResultSet<O> retrieveUsingPartialCompoundIndexMatchIfAvailable(And<O> and, QueryOptions queryOptions, boolean indexMergeStrategyEnabled) {
+        CompoundAttributeIndex<O> bestIndex = null;
+        Query<O> bestQuery = null;
+        And<O> bestConjuncts = null;
+        for (CompoundAttributeIndex<O> candidateIndex : compoundIndexes.values()) {
+            CompoundQuery<O> compoundQuery = CompoundQuery.fromConjunctsIfSuitable(and, candidateIndex.getAttribute());
+            if (compoundQuery != null && (bestConjuncts == null || compoundQuery.getAndQuery().size() > bestConjuncts.size())) {
+                bestIndex = candidateIndex;
+                bestQuery = compoundQuery;
+                bestConjuncts = compoundQuery.getAndQuery();
+            }
+            if (candidateIndex instanceof SortedCompoundAttributeIndex) {
+                CompoundRangeQuery<O> rangeQuery = CompoundRangeQuery.fromConjunctsIfSuitable(and, candidateIndex.getAttribute());
+                if (rangeQuery != null && candidateIndex.supportsQuery(rangeQuery, queryOptions) && (bestConjuncts == null || rangeQuery.getAndQuery().size() > bestConjuncts.size())) {
+                    bestIndex = candidateIndex;
+                    bestQuery = rangeQuery;
+                    bestConjuncts = rangeQuery.getAndQuery();
+                }
+            }
+        }
+        if (bestIndex == null) {
+            return null;
+        }
+        final QueryLog queryLog = queryOptions.get(QueryLog.class);
+        if (queryLog != null) {
+            queryLog.log("compoundIndexPartialMatch: " + bestConjuncts + " for " + and);
+        }
+        ResultSet<O> compoundIndexResultSet = recordIndexIfExplaining(bestIndex.retrieve(bestQuery, queryOptions), bestIndex, queryOptions);
+        return intersectWithRemainingConjuncts(compoundIndexResultSet, bestConjuncts.getChildQueries(), and, queryOptions, indexMergeStrategyEnabled);
+    }
+
+    /**
+     * Returns true if no index other than the {@link FallbackIndex} supports the given query, or any of its
+     * descendants if it is an {@link And} or {@link Or} query. In that case, when the collection is backed by a
+     * {@link BlockObjectStore}, it is cheaper to scan the collection once for the entire query, because zone maps can
+     * then skip blocks which do not match any one of the conjuncts.
+     *
+     * @param query The query to check
+     * @param queryOptions Query options supplied for the query
+     * @return True if only the fallback index supports the given query
+     */
+    boolean isAnsweredOnlyByFallbackIndex(Query<O> query, QueryOptions queryOptions) {
+        if (query instanceof SimpleQuery) {
+            for (Index<O> index : getIndexesOnAttribute(((SimpleQuery<O, ?>) query).getAttribute())) {
+                if (index != fallbackIndex && index.supportsQuery(query, queryOptions)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (query instanceof And || query instanceof Or) {
+            for (Query<O> childQuery : ((LogicalQuery<O>) query).getChildQueries()) {
+                if (!isAnsweredOnlyByFallbackIndex(childQuery, queryOptions)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if all of the simple queries contained in the given {@link And} or {@link Or} query are answered only by
+     * SQLite-backed indexes in the same database, and if so returns a {@link SQLiteLogicalQueryResultSet} which
+     * evaluates the entire query in a single SQL statement. This avoids retrieving the results for each simple query
+     * separately and intersecting them via {@link ResultSet#contains(Object)}, which would issue a SQL query per object.
+     *
+     * @param query An And or Or query
+     * @param queryOptions Query options supplied for the query
+     * @return A ResultSet which evaluates the query in SQL, or null if the query cannot be evaluated that way
+     */
+    ResultSet<O> retrieveFromSQLiteIfAvailable(LogicalQuery<O> query, QueryOptions queryOptions) {
+        ConnectionManager connectionManager = queryOptions.get(ConnectionManager.class);
+        if (connectionManager == null) {
+            return null;
+        }
+        Map<SimpleQuery<O, ?>, SQLiteIndex<?, O, ?>> leafIndexes = new HashMap<SimpleQuery<O, ?>, SQLiteIndex<?, O, ?>>();
+        if (!collectSQLiteIndexesForLeaves(query, queryOptions, leafIndexes) || leafIndexes.size() > SQLiteLogicalQueryResultSet.MAX_SIMPLE_QUERIES) {
+            return null;
+        }
+        // The indexes are in the same database if the connection manager supplies the same connection for them...
+        Connection connection = null;
+        for (SQLiteIndex<?, O, ?> index : leafIndexes.values()) {
+            Connection indexConnection = connectionManager.getConnection(index, queryOptions);
+            if (connection != null && indexConnection != connection) {
+                return null;
+            }
+            connection = indexConnection;
+        }
+        QueryLog queryLog = queryOptions.get(QueryLog.class);
+        if (queryLog != null) {
+            queryLog.log("sqliteLogicalQuery: " + leafIndexes.size() + " simple queries");
+        }
+        Index<O> index = leafIndexes.values().iterator().next().getEffectiveIndex();
+        return recordIndexIfExplaining(new SQLiteLogicalQueryResultSet<O, Object>(query, leafIndexes, queryOptions), index, queryOptions);
+    }
+
+    boolean collectSQLiteIndexesForLeaves(Query<O> query, QueryOptions queryOptions, Map<SimpleQuery<O, ?>, SQLiteIndex<?, O, ?>> leafIndexes) {
+        if (query instanceof SimpleQuery) {
+            SimpleQuery<O, ?> simpleQuery = (SimpleQuery<O, ?>) query;
+            if (!SQLiteLogicalQueryResultSet.isSupportedInSQL(simpleQuery) || standingQueryIndexes.containsKey(simpleQuery)) {
+                return false;
+            }
+            Index<O> uniqueIndex = uniqueIndexes.get(simpleQuery.getAttribute());
+            if (uniqueIndex != null && uniqueIndex.supportsQuery(simpleQuery, queryOptions)) {
+                return false;
+            }
+            SQLiteIndex<?, O, ?> sqliteIndex = null;
+            for (Index<O> index : getIndexesOnAttribute(simpleQuery.getAttribute())) {
+                if (index == fallbackIndex || !index.supportsQuery(simpleQuery, queryOptions)) {
+                    continue;
+                }
+                SQLiteIndex<?, O, ?> candidate = SQLiteLogicalQueryResultSet.getSQLiteIndex(index);
+                if (candidate == null) {
+                    // An index which is not stored in SQLite is available, which will likely be cheaper...
+                    return false;
+                }
+                if (sqliteIndex == null) {
+                    sqliteIndex = candidate;
+                }
+            }
+            if (sqliteIndex == null) {
+                return false;
+            }
+            leafIndexes.put(simpleQuery, sqliteIndex);
+            return true;
+        }
+        if (query instanceof And) {
+            boolean hasNonNegatedChild = false;
+            for (Query<O> childQuery : ((And<O>) query).getChildQueries()) {
+                if (childQuery instanceof Not) {
+                    // Evaluated using EXCEPT...
+                    if (!collectSQLiteIndexesForLeaves(((Not<O>) childQuery).getNegatedQuery(), queryOptions, leafIndexes)) {
+                        return false;
+                    }
+                }
+                else if (collectSQLiteIndexesForLeaves(childQuery, queryOptions, leafIndexes)) {
+                    hasNonNegatedChild = true;
+                }
+                else {
+                    return false;
+                }
+            }
+            return hasNonNegatedChild;
+        }
+        if (query instanceof Or) {
+            for (Query<O> childQuery : ((Or<O>) query).getChildQueries()) {
+                if (childQuery instanceof Not || !collectSQLiteIndexesForLeaves(childQuery, queryOptions, leafIndexes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link ResultSet} which intersects the given {@link ResultSet}, which provides objects matching some
+     * of the conjuncts of the given {@link And} query, with the objects matching the remaining conjuncts.
+     *
+     * @param resultSet A ResultSet providing objects which match the conjuncts covered
+     * @param conjunctsCovered The conjuncts of the And query which the given ResultSet matches
+     * @param and The And query
+     * @param queryOptions Query options supplied for the query
+     * @return A ResultSet which provides objects matching the And query
+     */
+    ResultSet<O> intersectWithRemainingConjuncts(ResultSet<O> resultSet, Collection<Query<O>> conjunctsCovered, And<O> and, QueryOptions queryOptions, boolean indexMergeStrategyEnabled) {
+        List<Query<O>> remainingConjuncts = new ArrayList<Query<O>>(and.getChildQueries());
+        for (Query<O> conjunct : conjunctsCovered) {
+            remainingConjuncts.remove(conjunct);
+        }
+        if (remainingConjuncts.isEmpty()) {
+            // The conjuncts covered are the same as those of the And query, in a different order...
+            return resultSet;
+        }
+        Query<O> remainingQuery = remainingConjuncts.size() == 1 ? remainingConjuncts.get(0) : new And<O>(remainingConjuncts);
+        List<ResultSet<O>> resultSetsToMerge = Arrays.asList(resultSet, retrieveRecursive(remainingQuery, queryOptions));
+        boolean useIndexMergeStrategy = shouldUseIndexMergeStrategy(indexMergeStrategyEnabled, and.hasComparativeQueries(), resultSetsToMerge);
+        return new ResultSetIntersection<O>(resultSetsToMerge, and, queryOptions, useIndexMergeStrategy);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1373,10 +2429,17 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         forEachIndexDo(new IndexOperation<O>() {
             @Override
             public boolean perform(Index<O> index) {
-                modified.value |= index.addAll(objectSet, queryOptions);
+                IndexUpdateEvent indexUpdateEvent = new IndexUpdateEvent();
+                indexUpdateEvent.begin();
+                boolean indexModified = index.addAll(objectSet, queryOptions);
+                commitIndexUpdateEvent(indexUpdateEvent, index, "addAll", indexModified);
+                modified.value |= indexModified;
                 return true;
             }
         });
+        for (AttributeHistogram<?, O> histogram : histograms.values()) {
+            histogram.addAll(objectSet, queryOptions);
+        }
         return modified.value;
     }
 
@@ -1390,10 +2453,17 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         forEachIndexDo(new IndexOperation<O>() {
             @Override
             public boolean perform(Index<O> index) {
-                modified.value |= index.removeAll(objectSet, queryOptions);
+                IndexUpdateEvent indexUpdateEvent = new IndexUpdateEvent();
+                indexUpdateEvent.begin();
+                boolean indexModified = index.removeAll(objectSet, queryOptions);
+                commitIndexUpdateEvent(indexUpdateEvent, index, "removeAll", indexModified);
+                modified.value |= indexModified;
                 return true;
             }
         });
+        for (AttributeHistogram<?, O> histogram : histograms.values()) {
+            histogram.removeAll(objectSet, queryOptions);
+        }
         return modified.value;
     }
 
@@ -1407,10 +2477,32 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
         forEachIndexDo(new IndexOperation<O>() {
             @Override
             public boolean perform(Index<O> index) {
+                IndexUpdateEvent indexUpdateEvent = new IndexUpdateEvent();
+                indexUpdateEvent.begin();
                 index.clear(queryOptions);
+                commitIndexUpdateEvent(indexUpdateEvent, index, "clear", true);
                 return true;
             }
         });
+        for (AttributeHistogram<?, O> histogram : histograms.values()) {
+            histogram.clear(queryOptions);
+        }
+    }
+
+    /**
+     * Commits the given {@link IndexUpdateEvent} to Java Flight Recorder, if a recording is in progress and the
+     * event exceeds the configured threshold.
+     */
+    static void commitIndexUpdateEvent(IndexUpdateEvent indexUpdateEvent, Index<?> index, String operation, boolean modified) {
+        indexUpdateEvent.end();
+        if (indexUpdateEvent.shouldCommit()) {
+            indexUpdateEvent.index = (index instanceof AttributeIndex)
+                    ? index.getClass().getSimpleName() + " on " + ((AttributeIndex<?, ?>) index).getAttribute().getAttributeName()
+                    : index.getClass().getSimpleName();
+            indexUpdateEvent.operation = operation;
+            indexUpdateEvent.modified = modified;
+            indexUpdateEvent.commit();
+        }
     }
 
     /**
@@ -1467,16 +2559,39 @@ public class CollectionQueryEngine<O> implements QueryEngineInternal<O> {
                 return false;
             }
         }
-        // Perform the operation on standing query indexes...
+        // Perform the operation on standing query indexes, except StandingQueryIndexes which are updated as a group...
         Iterable<? extends Index<O>> standingQueryIndexes = this.standingQueryIndexes.values();
         for (Index<O> index : standingQueryIndexes) {
+            if (standingQueryIndexGroup.contains(index)) {
+                continue;
+            }
             boolean continueIterating = indexOperation.perform(index);
             if (!continueIterating) {
                 return false;
             }
         }
+        if (!standingQueryIndexGroup.isEmpty() && !indexOperation.perform(standingQueryIndexGroup)) {
+            return false;
+        }
         // Perform the operation on the fallback index...
-        return indexOperation.perform(fallbackIndex);
+        if (!indexOperation.perform(fallbackIndex)) {
+            return false;
+        }
+        // Perform the operation on the query result cache last, so that cached results are invalidated after the
+        // indexes from which they could be retrieved again have been updated...
+        QueryResultCache<O> queryResultCache = this.queryResultCache;
+        if (queryResultCache != null && !indexOperation.perform(queryResultCache)) {
+            return false;
+        }
+        // Perform the operation on continuous query indexes after all other indexes, so that subscribers which
+        // query the collection in response to a change will see the change reflected in query results...
+        for (Index<O> index : continuousQueryIndexes) {
+            boolean continueIterating = indexOperation.perform(index);
+            if (!continueIterating) {
+                return false;
+            }
+        }
+        return true;
     }
 
     static class FlagHolder {
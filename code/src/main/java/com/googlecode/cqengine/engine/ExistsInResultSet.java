@@ -0,0 +1,283 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.engine;
+
+import com.googlecode.concurrenttrees.common.LazyIterator;
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.FlagsDisabled;
+import com.googlecode.cqengine.query.option.FlagsEnabled;
+import com.googlecode.cqengine.query.option.IsolationOption;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.option.Thresholds;
+import com.googlecode.cqengine.query.simple.ExistsIn;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.filter.FilteringIterator;
+import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static com.googlecode.cqengine.query.QueryFactory.all;
+import static com.googlecode.cqengine.query.QueryFactory.equal;
+
+/**
+ * A {@link ResultSet} which evaluates an {@link ExistsIn} query, by joining the local collection with the foreign
+ * collection using the {@link JoinStrategy} chosen by the {@link CollectionQueryEngine} based on the cardinalities
+ * of both collections.
+ * <p/>
+ * The {@link JoinStrategy#HASH_SEMI_JOIN} and {@link JoinStrategy#FOREIGN_DRIVEN} strategies build a transient
+ * set of the keys of the foreign objects which match the foreign restrictions, the first time the set is needed.
+ * Once that set has been built, it is also used by {@link #contains(Object)} and {@link #matches(Object)} instead
+ * of probing the foreign collection.
+ * <p/>
+ * The foreign collection is not accessed until the result set is consumed, or its costs are needed to plan an
+ * enclosing query. The join strategy is then chosen once, and the foreign collection is queried with those of the
+ * caller's query options which apply to it: see {@link #foreignQueryOptions(QueryOptions)}.
+ *
+ * @param <O> The type of the objects in the local collection
+ * @param <F> The type of the objects in the foreign collection
+ * @param <A> The type of the key attributes
+ */
+public class ExistsInResultSet<O, F, A> extends ResultSet<O> {
+
+    /**
+     * The strategies which can be used to join the local collection with the foreign collection.
+     */
+    public enum JoinStrategy {
+        /**
+         * Scan the local collection, and probe the foreign collection once for each local object.
+         * Cheapest when the local collection is small relative to the foreign collection.
+         */
+        LOCAL_PROBE,
+        /**
+         * Build a set of the keys of the matching foreign objects, then scan the local collection and look up the
+         * key of each local object in the set.
+         */
+        HASH_SEMI_JOIN,
+        /**
+         * Build a set of the keys of the matching foreign objects, then retrieve the local objects having each of
+         * those keys from an index on the local key attribute.
+         * Cheapest when few foreign objects match the foreign restrictions.
+         */
+        FOREIGN_DRIVEN
+    }
+
+    /**
+     * The join strategy chosen by the {@link CollectionQueryEngine}, and the estimated costs of the join.
+     */
+    static class JoinPlan {
+        final JoinStrategy joinStrategy;
+        final int retrievalCost;
+        final int mergeCost;
+
+        JoinPlan(JoinStrategy joinStrategy, int retrievalCost, int mergeCost) {
+            this.joinStrategy = joinStrategy;
+            this.retrievalCost = retrievalCost;
+            this.mergeCost = mergeCost;
+        }
+    }
+
+    /**
+     * The types of query options which apply to a query as a whole, rather than to the collection being queried,
+     * and so which are passed on when querying the foreign collection.
+     */
+    static final List<Class<?>> FOREIGN_QUERY_OPTION_TYPES = Collections.unmodifiableList(Arrays.<Class<?>>asList(
+            QueryLog.class, Thresholds.class, FlagsEnabled.class, FlagsDisabled.class, IsolationOption.class
+    ));
+
+    final ExistsIn<O, F, A> query;
+    final QueryOptions queryOptions;
+    final CollectionQueryEngine<O> queryEngine;
+    final ObjectSet<O> objectSet;
+
+    volatile JoinPlan joinPlan = null;
+    volatile Set<A> foreignKeys = null;
+
+    ExistsInResultSet(ExistsIn<O, F, A> query, QueryOptions queryOptions, CollectionQueryEngine<O> queryEngine, ObjectStore<O> objectStore) {
+        this.query = query;
+        this.queryOptions = queryOptions;
+        this.queryEngine = queryEngine;
+        this.objectSet = ObjectSet.fromObjectStore(objectStore, queryOptions);
+    }
+
+    /**
+     * Returns query options for querying the foreign collection, containing those of the given query options whose
+     * types are listed in {@link #FOREIGN_QUERY_OPTION_TYPES}. Other options, such as the persistence and ordering
+     * of the local collection, do not apply to the foreign collection.
+     *
+     * @param queryOptions The query options supplied for the query on the local collection
+     * @return Query options for querying the foreign collection
+     */
+    static QueryOptions foreignQueryOptions(QueryOptions queryOptions) {
+        QueryOptions foreignQueryOptions = new QueryOptions();
+        for (Class<?> optionType : FOREIGN_QUERY_OPTION_TYPES) {
+            Object option = queryOptions.get(optionType);
+            if (option != null) {
+                foreignQueryOptions.put(optionType, option);
+            }
+        }
+        return foreignQueryOptions;
+    }
+
+    /**
+     * Returns the join strategy and costs of this join, choosing them the first time this method is called.
+     */
+    JoinPlan getJoinPlan() {
+        JoinPlan joinPlan = this.joinPlan;
+        if (joinPlan == null) {
+            joinPlan = queryEngine.planExistsIn(query, queryOptions);
+            this.joinPlan = joinPlan;
+        }
+        return joinPlan;
+    }
+
+    @Override
+    public Iterator<O> iterator() {
+        switch (getJoinPlan().joinStrategy) {
+            case FOREIGN_DRIVEN:
+                final Iterator<A> keys = getForeignKeys().iterator();
+                return new LazyIterator<O>() {
+                    ResultSet<O> currentResultSet = null;
+                    Iterator<O> currentIterator = Collections.<O>emptyList().iterator();
+
+                    @Override
+                    protected O computeNext() {
+                        while (!currentIterator.hasNext()) {
+                            if (currentResultSet != null) {
+                                currentResultSet.close();
+                                currentResultSet = null;
+                            }
+                            if (!keys.hasNext()) {
+                                return endOfData();
+                            }
+                            currentResultSet = queryEngine.retrieveSimpleQuery(equal(query.getLocalKeyAttribute(), keys.next()), queryOptions);
+                            currentIterator = currentResultSet.iterator();
+                        }
+                        return currentIterator.next();
+                    }
+                };
+            case HASH_SEMI_JOIN:
+                final Set<A> foreignKeys = getForeignKeys();
+                return new FilteringIterator<O>(objectSet.iterator(), queryOptions) {
+                    @Override
+                    public boolean isValid(O object, QueryOptions queryOptions) {
+                        return hasForeignKey(object, foreignKeys);
+                    }
+                };
+            default:
+                return new FilteringIterator<O>(objectSet.iterator(), queryOptions) {
+                    @Override
+                    public boolean isValid(O object, QueryOptions queryOptions) {
+                        return query.matches(object, queryOptions);
+                    }
+                };
+        }
+    }
+
+    /**
+     * Returns the set of keys of the foreign objects which match the foreign restrictions, building it the first
+     * time this method is called.
+     */
+    Set<A> getForeignKeys() {
+        Set<A> foreignKeys = this.foreignKeys;
+        if (foreignKeys == null) {
+            final Attribute<F, A> foreignKeyAttribute = query.getForeignKeyAttribute();
+            final Query<F> foreignQuery = query.getForeignRestrictions() == null
+                    ? all(foreignKeyAttribute.getObjectType())
+                    : query.getForeignRestrictions();
+            foreignKeys = new HashSet<A>();
+            ResultSet<F> foreignResults = query.getForeignCollection().retrieve(foreignQuery, foreignQueryOptions(queryOptions));
+            try {
+                for (F foreignObject : foreignResults) {
+                    for (A foreignKey : foreignKeyAttribute.getValues(foreignObject, foreignResults.getQueryOptions())) {
+                        foreignKeys.add(foreignKey);
+                    }
+                }
+            }
+            finally {
+                foreignResults.close();
+            }
+            this.foreignKeys = foreignKeys;
+        }
+        return foreignKeys;
+    }
+
+    boolean hasForeignKey(O object, Set<A> foreignKeys) {
+        for (A localKey : query.getLocalKeyAttribute().getValues(object, queryOptions)) {
+            if (foreignKeys.contains(localKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(O object) {
+        return matches(object);
+    }
+
+    @Override
+    public boolean matches(O object) {
+        // Use the set of foreign keys if it was already built, otherwise probe the foreign collection...
+        Set<A> foreignKeys = this.foreignKeys;
+        return foreignKeys != null ? hasForeignKey(object, foreignKeys) : query.matches(object, queryOptions);
+    }
+
+    @Override
+    public Query<O> getQuery() {
+        return query;
+    }
+
+    @Override
+    public QueryOptions getQueryOptions() {
+        return queryOptions;
+    }
+
+    /**
+     * @return The strategy which will be used to join the local collection with the foreign collection
+     */
+    public JoinStrategy getJoinStrategy() {
+        return getJoinPlan().joinStrategy;
+    }
+
+    @Override
+    public int getRetrievalCost() {
+        return getJoinPlan().retrievalCost;
+    }
+
+    @Override
+    public int getMergeCost() {
+        return getJoinPlan().mergeCost;
+    }
+
+    @Override
+    public int size() {
+        return IteratorUtil.countElements(this);
+    }
+
+    @Override
+    public void close() {
+        objectSet.close();
+    }
+}
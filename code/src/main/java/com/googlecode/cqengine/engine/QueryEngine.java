@@ -15,7 +15,9 @@
  */
 package com.googlecode.cqengine.engine;
 
+import com.googlecode.cqengine.explain.QueryPlan;
 import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.metadata.AttributeHistogram;
 import com.googlecode.cqengine.query.Query;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
@@ -38,6 +40,22 @@ public interface QueryEngine<O> {
      */
     public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions);
 
+    /**
+     * Returns a {@link QueryPlan} describing how the given query would be evaluated by
+     * {@link #retrieve(Query, QueryOptions)} with the same query options: the index chosen for each branch of the
+     * query and its estimated costs, the order in which intersections would be evaluated, the merge strategy, and the
+     * ordering and deduplication strategies which would be applied.
+     * <p/>
+     * By default the query is not actually evaluated. If the
+     * {@link com.googlecode.cqengine.query.option.EngineFlags#EXPLAIN_ANALYZE} flag is enabled in the query options,
+     * the query will be evaluated and the plan will additionally include actual row counts and timings.
+     *
+     * @param query A query representing some assertions which sought objects must match
+     * @param queryOptions Optional parameters for the query
+     * @return A {@link QueryPlan} describing how the given query would be evaluated
+     */
+    public QueryPlan<O> explain(Query<O> query, QueryOptions queryOptions);
+
     /**
      * Adds the given index to the collection.
      * <p/>
@@ -56,6 +74,25 @@ public interface QueryEngine<O> {
      */
     public void removeIndex(Index<O> index, QueryOptions queryOptions);
 
+    /**
+     * Adds the given histogram to the collection.
+     * <p/>
+     * Subsequently the histogram will be maintained as objects are added to and removed from the collection, and
+     * will be used to estimate the cardinality of queries on its attribute when planning how to evaluate queries.
+     *
+     * @param histogram The histogram to add
+     * @param queryOptions Optional parameters for the histogram
+     */
+    public void addHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions);
+
+    /**
+     * Removes the given histogram from the collection.
+     *
+     * @param histogram The histogram to remove
+     * @param queryOptions Optional parameters for the histogram
+     */
+    public void removeHistogram(AttributeHistogram<?, O> histogram, QueryOptions queryOptions);
+
     /**
      * Returns the set of indexes which were previously added to the collection via the
      * {@link #addIndex(com.googlecode.cqengine.index.Index, QueryOptions)} method.
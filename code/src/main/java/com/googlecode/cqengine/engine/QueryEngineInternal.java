@@ -28,4 +28,14 @@ public interface QueryEngineInternal<O> extends QueryEngine<O>, ModificationList
      */
     public boolean isMutable();
 
+    /**
+     * Indicates if any histograms have been added to the query engine.
+     * <p/>
+     * Histograms count every object they are notified of, so when this returns true the collection should notify
+     * the query engine only of objects which were actually added to or removed from the object store.
+     *
+     * @return True if any histograms have been added to the query engine, false if none have
+     */
+    public boolean hasHistograms();
+
 }
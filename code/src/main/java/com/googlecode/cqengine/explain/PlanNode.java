@@ -0,0 +1,210 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.explain;
+
+import com.googlecode.cqengine.index.AttributeIndex;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.query.Query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node in a {@link QueryPlan}, describing how one branch of a query would be evaluated.
+ * <p/>
+ * Leaf nodes describe the index chosen to retrieve objects for a query, or a scan of the entire collection.
+ * Other nodes describe how the results of their child nodes are merged. The children of an {@link Type#INTERSECTION}
+ * node are listed in ascending order of merge cost, which is the order in which the intersection is evaluated:
+ * the first child drives the iteration and the remaining children are used to filter its results.
+ * <p/>
+ * Estimated costs are those reported by {@link com.googlecode.cqengine.resultset.ResultSet#getRetrievalCost()} and
+ * {@link com.googlecode.cqengine.resultset.ResultSet#getMergeCost()}, which the query engine uses to make its
+ * decisions. The actual number of rows and the elapsed time are only available if the plan was analyzed, see
+ * {@link com.googlecode.cqengine.query.option.EngineFlags#EXPLAIN_ANALYZE}. In that case each node is evaluated
+ * independently of its parent, so the actual rows of a node which would only be used to filter the results of
+ * another node, is the number of rows it would return if iterated.
+ */
+public class PlanNode<O> {
+
+    /**
+     * The type of operation performed by a {@link PlanNode}.
+     */
+    public enum Type {
+        /** Objects are retrieved from an index. */
+        INDEX_LOOKUP,
+        /** Objects are retrieved by iterating the entire collection. */
+        COLLECTION_SCAN,
+        /** Objects are retrieved by joining the collection with a foreign collection, for an {@link com.googlecode.cqengine.query.simple.ExistsIn} query. */
+        SEMI_JOIN,
+        /** Objects from a child node are filtered by evaluating the query on each object. */
+        FILTER,
+        /** The intersection of child nodes (for {@link com.googlecode.cqengine.query.logical.And}). */
+        INTERSECTION,
+        /** The union of child nodes with logical elimination of duplicates (for {@link com.googlecode.cqengine.query.logical.Or}). */
+        UNION,
+        /** The union of child nodes without deduplication (for {@link com.googlecode.cqengine.query.logical.Or}). */
+        UNION_ALL,
+        /** Objects in the first child node which are not in the second child node (for {@link com.googlecode.cqengine.query.logical.Not}). */
+        DIFFERENCE
+    }
+
+    /**
+     * The strategy used to merge child nodes, see {@link com.googlecode.cqengine.query.option.EngineFlags#PREFER_INDEX_MERGE_STRATEGY}.
+     */
+    public enum MergeStrategy {
+        /** Candidate objects are tested by evaluating the query on them ({@code ResultSet.matches()}). */
+        FILTER,
+        /** Candidate objects are tested by probing indexes ({@code ResultSet.contains()}). */
+        INDEX
+    }
+
+    /**
+     * The value of actual rows and elapsed time when a plan was not analyzed.
+     */
+    public static final long NOT_ANALYZED = -1;
+
+    final Type type;
+    final Query<O> query;
+    final Index<O> index;
+    final MergeStrategy mergeStrategy;
+    final int retrievalCost;
+    final int mergeCost;
+    final List<PlanNode<O>> children;
+    final long actualRows;
+    final long elapsedNanos;
+
+    public PlanNode(Type type, Query<O> query, Index<O> index, MergeStrategy mergeStrategy, int retrievalCost, int mergeCost, List<PlanNode<O>> children, long actualRows, long elapsedNanos) {
+        this.type = type;
+        this.query = query;
+        this.index = index;
+        this.mergeStrategy = mergeStrategy;
+        this.retrievalCost = retrievalCost;
+        this.mergeCost = mergeCost;
+        this.children = Collections.unmodifiableList(children);
+        this.actualRows = actualRows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Query<O> getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The index from which objects are retrieved for a {@link Type#INDEX_LOOKUP} node, otherwise null
+     */
+    public Index<O> getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The strategy used to merge child nodes, or null if this node has fewer than two children
+     */
+    public MergeStrategy getMergeStrategy() {
+        return mergeStrategy;
+    }
+
+    /**
+     * @return The estimated retrieval cost of this node
+     */
+    public int getRetrievalCost() {
+        return retrievalCost;
+    }
+
+    /**
+     * @return The estimated merge cost of this node, which is typically an estimate of the number of rows
+     */
+    public int getMergeCost() {
+        return mergeCost;
+    }
+
+    /**
+     * @return The child nodes, in the order in which they are evaluated
+     */
+    public List<PlanNode<O>> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return True if actual rows and elapsed time were measured for this node
+     */
+    public boolean isAnalyzed() {
+        return actualRows != NOT_ANALYZED;
+    }
+
+    /**
+     * @return The actual number of rows returned by this node, or -1 if the plan was not analyzed
+     */
+    public long getActualRows() {
+        return actualRows;
+    }
+
+    /**
+     * @return The time taken to iterate the rows returned by this node, or -1 if the plan was not analyzed
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns a short description of the given index, consisting of its class name and the name of the attribute on
+     * which it is built if applicable.
+     */
+    public static String describeIndex(Index<?> index) {
+        if (index == null) {
+            return null;
+        }
+        if (index instanceof AttributeIndex) {
+            return index.getClass().getSimpleName() + " on " + ((AttributeIndex<?, ?>) index).getAttribute().getAttributeName();
+        }
+        return index.getClass().getSimpleName();
+    }
+
+    void appendTo(StringBuilder sb, int depth) {
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
+        sb.append(type).append(' ').append(query);
+        sb.append(" [");
+        if (index != null) {
+            sb.append("index=").append(describeIndex(index)).append(", ");
+        }
+        if (mergeStrategy != null) {
+            sb.append("mergeStrategy=").append(mergeStrategy).append(", ");
+        }
+        sb.append("retrievalCost=").append(retrievalCost);
+        sb.append(", mergeCost=").append(mergeCost);
+        if (isAnalyzed()) {
+            sb.append(", actualRows=").append(actualRows);
+            sb.append(", elapsedNanos=").append(elapsedNanos);
+        }
+        sb.append(']');
+        for (PlanNode<O> child : children) {
+            sb.append(System.lineSeparator());
+            child.appendTo(sb, depth + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb, 0);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.explain;
+
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+
+/**
+ * Describes how the query engine would evaluate a query, as returned by
+ * {@link com.googlecode.cqengine.engine.QueryEngine#explain(Query, com.googlecode.cqengine.query.option.QueryOptions)}.
+ * <p/>
+ * The plan consists of a tree of {@link PlanNode}s describing how objects matching the query would be retrieved
+ * from indexes and merged, along with the ordering strategy and deduplication strategy which would be applied to
+ * the results.
+ * <p/>
+ * If the plan was analyzed (see {@link com.googlecode.cqengine.query.option.EngineFlags#EXPLAIN_ANALYZE}), then the
+ * query was actually evaluated, and the actual number of rows it returned and the time taken to retrieve them
+ * is also available.
+ */
+public class QueryPlan<O> {
+
+    /**
+     * The strategy used to order results.
+     */
+    public enum OrderingStrategy {
+        /** Ordering was not requested. */
+        NONE,
+        /** Results are retrieved and then sorted afterwards. */
+        MATERIALIZE,
+        /** An index is used to retrieve results in order. */
+        INDEX
+    }
+
+    final Query<O> query;
+    final PlanNode<O> root;
+    final OrderingStrategy orderingStrategy;
+    final Index<O> indexForOrdering;
+    final Double querySelectivity;
+    final DeduplicationStrategy deduplicationStrategy;
+    final long actualRows;
+    final long elapsedNanos;
+
+    public QueryPlan(Query<O> query, PlanNode<O> root, OrderingStrategy orderingStrategy, Index<O> indexForOrdering, Double querySelectivity, DeduplicationStrategy deduplicationStrategy, long actualRows, long elapsedNanos) {
+        this.query = query;
+        this.root = root;
+        this.orderingStrategy = orderingStrategy;
+        this.indexForOrdering = indexForOrdering;
+        this.querySelectivity = querySelectivity;
+        this.deduplicationStrategy = deduplicationStrategy;
+        this.actualRows = actualRows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Query<O> getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The root of the tree of nodes describing how objects matching the query would be retrieved
+     */
+    public PlanNode<O> getRoot() {
+        return root;
+    }
+
+    public OrderingStrategy getOrderingStrategy() {
+        return orderingStrategy;
+    }
+
+    /**
+     * @return The index which would be used to order results, if the ordering strategy is
+     * {@link OrderingStrategy#INDEX}, otherwise null
+     */
+    public Index<O> getIndexForOrdering() {
+        return indexForOrdering;
+    }
+
+    /**
+     * @return The selectivity of the query which was calculated to choose the ordering strategy, or null if it was not
+     * necessary to calculate it. See {@link com.googlecode.cqengine.query.option.EngineThresholds#INDEX_ORDERING_SELECTIVITY}.
+     */
+    public Double getQuerySelectivity() {
+        return querySelectivity;
+    }
+
+    public DeduplicationStrategy getDeduplicationStrategy() {
+        return deduplicationStrategy;
+    }
+
+    /**
+     * @return True if the query was actually evaluated to measure actual rows and elapsed time
+     */
+    public boolean isAnalyzed() {
+        return actualRows != PlanNode.NOT_ANALYZED;
+    }
+
+    /**
+     * @return The number of rows returned by the query including ordering and deduplication, or -1 if the plan was
+     * not analyzed
+     */
+    public long getActualRows() {
+        return actualRows;
+    }
+
+    /**
+     * @return The time taken to retrieve and iterate all rows returned by the query, or -1 if the plan was not analyzed
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("QueryPlan [orderingStrategy=").append(orderingStrategy);
+        if (indexForOrdering != null) {
+            sb.append(", indexForOrdering=").append(PlanNode.describeIndex(indexForOrdering));
+        }
+        if (querySelectivity != null) {
+            sb.append(", querySelectivity=").append(querySelectivity);
+        }
+        sb.append(", deduplicationStrategy=").append(deduplicationStrategy);
+        if (isAnalyzed()) {
+            sb.append(", actualRows=").append(actualRows);
+            sb.append(", elapsedNanos=").append(elapsedNanos);
+        }
+        sb.append(']').append(System.lineSeparator());
+        root.appendTo(sb, 1);
+        return sb.toString();
+    }
+}
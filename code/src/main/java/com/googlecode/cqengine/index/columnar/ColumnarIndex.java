@@ -0,0 +1,574 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.columnar;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.attribute.SimpleNullableAttribute;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.support.AbstractAttributeIndex;
+import com.googlecode.cqengine.index.support.indextype.OnHeapTypeIndex;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.*;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An index which projects the values of a single-valued numeric or enum attribute into a primitive {@code long[]}
+ * column, and which answers queries by evaluating them over the column in tight loops, producing a selection bitmap.
+ * <p/>
+ * This avoids the per-object virtual calls and pointer chasing of evaluating
+ * {@link Query#matches(Object, QueryOptions)} on every object in the collection, and so is suitable for scan-heavy
+ * workloads on attributes with many distinct values, or for range queries with low selectivity, where maintaining a
+ * {@link com.googlecode.cqengine.index.navigable.NavigableIndex} would not be worthwhile.
+ * <p/>
+ * Values are encoded into the column such that the signed ordering of encoded values is the same as the natural
+ * ordering of the original values: integral values are stored as-is, floating point values are stored as their
+ * IEEE 754 bits adjusted to sort correctly (consistent with {@link Double#compareTo(Double)}), and enums are stored as
+ * their ordinals.
+ * <p/>
+ * Supports query types:
+ * <ul>
+ *     <li>
+ *         {@link Equal}
+ *     </li>
+ *     <li>
+ *         {@link In}
+ *     </li>
+ *     <li>
+ *         {@link LessThan}
+ *     </li>
+ *     <li>
+ *         {@link GreaterThan}
+ *     </li>
+ *     <li>
+ *         {@link Between}
+ *     </li>
+ *     <li>
+ *         {@link Has}
+ *     </li>
+ * </ul>
+ */
+public class ColumnarIndex<A extends Comparable<A>, O> extends AbstractAttributeIndex<A, O> implements OnHeapTypeIndex {
+
+    protected static final int INDEX_RETRIEVAL_COST = 60;
+
+    static final int INITIAL_CAPACITY = 64;
+
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+    final Map<O, Integer> slotsByObject = new HashMap<O, Integer>();
+    long[] values = new long[INITIAL_CAPACITY];
+    Object[] objects = new Object[INITIAL_CAPACITY];
+    long[] occupied = new long[INITIAL_CAPACITY / 64];
+    int[] freeSlots = new int[16];
+    int freeSlotCount = 0;
+    int highWaterMark = 0;
+
+    /**
+     * Package-private constructor, used by static factory methods.
+     */
+    protected ColumnarIndex(Attribute<O, A> attribute) {
+        super(attribute, new HashSet<Class<? extends Query>>() {{
+            add(Equal.class);
+            add(In.class);
+            add(LessThan.class);
+            add(GreaterThan.class);
+            add(Between.class);
+            add(Has.class);
+        }});
+        if (!(attribute instanceof SimpleAttribute || attribute instanceof SimpleNullableAttribute)) {
+            throw new IllegalArgumentException("ColumnarIndex requires a single-valued attribute: " + attribute);
+        }
+        Class<A> attributeType = attribute.getAttributeType();
+        if (!(attributeType.isEnum() || attributeType.equals(Integer.class) || attributeType.equals(Long.class)
+                || attributeType.equals(Short.class) || attributeType.equals(Byte.class) || attributeType.equals(Character.class)
+                || attributeType.equals(Double.class) || attributeType.equals(Float.class))) {
+            throw new IllegalArgumentException("ColumnarIndex does not support attributes of type " + attributeType.getName() + ": " + attribute);
+        }
+    }
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    @Override
+    public boolean isQuantized() {
+        return false;
+    }
+
+    @Override
+    public Index<O> getEffectiveIndex() {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultSet<O> retrieve(final Query<O> query, final QueryOptions queryOptions) {
+        final ColumnPredicate predicate = toColumnPredicate(query);
+        return new ResultSet<O>() {
+            // The number of objects selected, counted when first requested...
+            int count = -1;
+
+            @Override
+            public Iterator<O> iterator() {
+                return new SelectionIterator(predicate);
+            }
+            @Override
+            public boolean contains(O object) {
+                lock.readLock().lock();
+                try {
+                    Integer slot = slotsByObject.get(object);
+                    return slot != null && predicate.test(values[slot]);
+                }
+                finally {
+                    lock.readLock().unlock();
+                }
+            }
+            @Override
+            public boolean matches(O object) {
+                return query.matches(object, queryOptions);
+            }
+            @Override
+            public int size() {
+                return getCount();
+            }
+            @Override
+            public int getRetrievalCost() {
+                return INDEX_RETRIEVAL_COST;
+            }
+            @Override
+            public int getMergeCost() {
+                return getCount();
+            }
+            int getCount() {
+                if (count < 0) {
+                    count = countSelected(predicate);
+                }
+                return count;
+            }
+            @Override
+            public void close() {
+                // No op.
+            }
+            @Override
+            public Query<O> getQuery() {
+                return query;
+            }
+            @Override
+            public QueryOptions getQueryOptions() {
+                return queryOptions;
+            }
+        };
+    }
+
+    /**
+     * Converts the given query into a predicate on encoded column values.
+     */
+    ColumnPredicate toColumnPredicate(Query<O> query) {
+        Class<?> queryClass = query.getClass();
+        if (queryClass.equals(Equal.class)) {
+            long value = encode(((Equal<O, ?>) query).getValue());
+            return new RangePredicate(value, value);
+        }
+        else if (queryClass.equals(In.class)) {
+            Set<?> inValues = ((In<O, ?>) query).getValues();
+            long[] encodedValues = new long[inValues.size()];
+            int i = 0;
+            for (Object value : inValues) {
+                encodedValues[i++] = encode(value);
+            }
+            Arrays.sort(encodedValues);
+            return new SetPredicate(encodedValues);
+        }
+        else if (queryClass.equals(LessThan.class)) {
+            LessThan<O, ?> lessThan = (LessThan<O, ?>) query;
+            return rangePredicate(null, false, lessThan.getValue(), lessThan.isValueInclusive());
+        }
+        else if (queryClass.equals(GreaterThan.class)) {
+            GreaterThan<O, ?> greaterThan = (GreaterThan<O, ?>) query;
+            return rangePredicate(greaterThan.getValue(), greaterThan.isValueInclusive(), null, false);
+        }
+        else if (queryClass.equals(Between.class)) {
+            Between<O, ?> between = (Between<O, ?>) query;
+            return rangePredicate(between.getLowerValue(), between.isLowerInclusive(), between.getUpperValue(), between.isUpperInclusive());
+        }
+        else if (queryClass.equals(Has.class)) {
+            return new RangePredicate(Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported query: " + query);
+        }
+    }
+
+    static ColumnPredicate rangePredicate(Object lowerValue, boolean lowerInclusive, Object upperValue, boolean upperInclusive) {
+        long lower = Long.MIN_VALUE;
+        long upper = Long.MAX_VALUE;
+        if (lowerValue != null) {
+            lower = encode(lowerValue);
+            if (!lowerInclusive) {
+                if (lower == Long.MAX_VALUE) {
+                    return EmptyPredicate.INSTANCE;
+                }
+                lower++;
+            }
+        }
+        if (upperValue != null) {
+            upper = encode(upperValue);
+            if (!upperInclusive) {
+                if (upper == Long.MIN_VALUE) {
+                    return EmptyPredicate.INSTANCE;
+                }
+                upper--;
+            }
+        }
+        return lower > upper ? EmptyPredicate.INSTANCE : new RangePredicate(lower, upper);
+    }
+
+    int countSelected(ColumnPredicate predicate) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int word = 0, words = (highWaterMark + 63) >>> 6; word < words; word++) {
+                count += Long.bitCount(predicate.selectWord(values, occupied, word, highWaterMark));
+            }
+            return count;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Iterates the objects selected by a predicate lazily, evaluating the predicate over a batch of words of the
+     * column each time the read lock is acquired, so that the lock is not held while the application consumes
+     * objects, and so that no list of all of the objects selected is materialized.
+     */
+    class SelectionIterator extends UnmodifiableIterator<O> {
+
+        // The maximum number of words of the column to evaluate each time the read lock is acquired...
+        static final int WORDS_PER_BATCH = 16;
+
+        final ColumnPredicate predicate;
+        final Object[] batch = new Object[WORDS_PER_BATCH << 6];
+        int batchSize = 0;
+        int batchPosition = 0;
+        int nextWord = 0;
+        boolean exhausted = false;
+
+        SelectionIterator(ColumnPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (batchPosition == batchSize && !exhausted) {
+                fillBatch();
+            }
+            return batchPosition < batchSize;
+        }
+
+        @Override
+        public O next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            @SuppressWarnings("unchecked")
+            O object = (O) batch[batchPosition];
+            batch[batchPosition++] = null;
+            return object;
+        }
+
+        void fillBatch() {
+            batchSize = 0;
+            batchPosition = 0;
+            lock.readLock().lock();
+            try {
+                int words = (highWaterMark + 63) >>> 6;
+                int endWord = Math.min(words, nextWord + WORDS_PER_BATCH);
+                for (; nextWord < endWord; nextWord++) {
+                    long bits = predicate.selectWord(values, occupied, nextWord, highWaterMark);
+                    while (bits != 0) {
+                        batch[batchSize++] = objects[(nextWord << 6) + Long.numberOfTrailingZeros(bits)];
+                        bits &= bits - 1;
+                    }
+                }
+                exhausted = nextWord >= words;
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        try {
+            boolean modified = false;
+            lock.writeLock().lock();
+            try {
+                for (O object : objectSet) {
+                    if (slotsByObject.containsKey(object)) {
+                        continue;
+                    }
+                    Iterator<A> attributeValues = getAttribute().getValues(object, queryOptions).iterator();
+                    if (!attributeValues.hasNext()) {
+                        // The object has no value for the attribute, so it cannot match any supported query...
+                        continue;
+                    }
+                    int slot = allocateSlot();
+                    values[slot] = encode(attributeValues.next());
+                    objects[slot] = object;
+                    occupied[slot >>> 6] |= 1L << slot;
+                    slotsByObject.put(object, slot);
+                    modified = true;
+                }
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+            return modified;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        try {
+            boolean modified = false;
+            lock.writeLock().lock();
+            try {
+                for (O object : objectSet) {
+                    Integer slot = slotsByObject.remove(object);
+                    if (slot == null) {
+                        continue;
+                    }
+                    objects[slot] = null;
+                    occupied[slot >>> 6] &= ~(1L << slot);
+                    if (freeSlotCount == freeSlots.length) {
+                        freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+                    }
+                    freeSlots[freeSlotCount++] = slot;
+                    modified = true;
+                }
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+            return modified;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (highWaterMark == values.length) {
+            int newCapacity = values.length * 2;
+            values = Arrays.copyOf(values, newCapacity);
+            objects = Arrays.copyOf(objects, newCapacity);
+            occupied = Arrays.copyOf(occupied, newCapacity / 64);
+        }
+        return highWaterMark++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        addAll(ObjectSet.fromObjectStore(objectStore, queryOptions), queryOptions);
+    }
+
+    /**
+     * This is a no-op for this type of index.
+     * @param queryOptions Optional parameters for the update
+     */
+    @Override
+    public void destroy(QueryOptions queryOptions) {
+        // No-op
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        lock.writeLock().lock();
+        try {
+            slotsByObject.clear();
+            values = new long[INITIAL_CAPACITY];
+            objects = new Object[INITIAL_CAPACITY];
+            occupied = new long[INITIAL_CAPACITY / 64];
+            freeSlotCount = 0;
+            highWaterMark = 0;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Encodes the given attribute value as a long, such that the signed ordering of encoded values is consistent with
+     * the natural ordering of the values.
+     */
+    static long encode(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        else if (value instanceof Double) {
+            long bits = Double.doubleToLongBits((Double) value);
+            return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        else if (value instanceof Float) {
+            int bits = Float.floatToIntBits((Float) value);
+            return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+        }
+        else if (value instanceof Enum) {
+            return ((Enum<?>) value).ordinal();
+        }
+        else if (value instanceof Character) {
+            return (Character) value;
+        }
+        throw new IllegalArgumentException("Unsupported value type: " + (value == null ? null : value.getClass().getName()));
+    }
+
+    /**
+     * A predicate on encoded column values, which can be evaluated over an entire column to produce a selection
+     * bitmap.
+     */
+    static abstract class ColumnPredicate {
+
+        abstract boolean test(long value);
+
+        /**
+         * Returns the selection bitmap for the given word (64 values) of a column of the given length.
+         */
+        abstract long selectWord(long[] values, long[] occupied, int word, int length);
+    }
+
+    /**
+     * Selects values within an inclusive range.
+     */
+    static class RangePredicate extends ColumnPredicate {
+        final long lower;
+        final long width;
+
+        RangePredicate(long lower, long upper) {
+            this.lower = lower;
+            this.width = upper - lower;
+        }
+
+        @Override
+        boolean test(long value) {
+            // A single unsigned comparison checks both bounds...
+            return Long.compareUnsigned(value - lower, width) <= 0;
+        }
+
+        @Override
+        long selectWord(long[] values, long[] occupied, int word, int length) {
+            final long lower = this.lower, width = this.width;
+            int base = word << 6;
+            int end = Math.min(64, length - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                long inRange = Long.compareUnsigned(values[base + i] - lower, width) <= 0 ? 1L : 0L;
+                bits |= inRange << i;
+            }
+            return bits & occupied[word];
+        }
+    }
+
+    /**
+     * Selects values contained in a sorted array of values.
+     */
+    static class SetPredicate extends ColumnPredicate {
+        final long[] sortedValues;
+
+        SetPredicate(long[] sortedValues) {
+            this.sortedValues = sortedValues;
+        }
+
+        @Override
+        boolean test(long value) {
+            return Arrays.binarySearch(sortedValues, value) >= 0;
+        }
+
+        @Override
+        long selectWord(long[] values, long[] occupied, int word, int length) {
+            final long[] sortedValues = this.sortedValues;
+            int base = word << 6;
+            int end = Math.min(64, length - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                long contained = Arrays.binarySearch(sortedValues, values[base + i]) >= 0 ? 1L : 0L;
+                bits |= contained << i;
+            }
+            return bits & occupied[word];
+        }
+    }
+
+    /**
+     * Selects no values, for ranges which are empty.
+     */
+    static class EmptyPredicate extends ColumnPredicate {
+        static final EmptyPredicate INSTANCE = new EmptyPredicate();
+
+        @Override
+        boolean test(long value) {
+            return false;
+        }
+
+        @Override
+        long selectWord(long[] values, long[] occupied, int word, int length) {
+            return 0L;
+        }
+    }
+
+    // ---------- Static factory methods to create ColumnarIndexes ----------
+
+    /**
+     * Creates a new {@link ColumnarIndex} on the specified attribute.
+     * <p/>
+     * @param attribute The attribute on which the index will be built, which must be a single-valued attribute of a
+     * numeric, character or enum type
+     * @param <O> The type of the object containing the attribute
+     * @return A {@link ColumnarIndex} on this attribute
+     */
+    public static <A extends Comparable<A>, O> ColumnarIndex<A, O> onAttribute(Attribute<O, A> attribute) {
+        return new ColumnarIndex<A, O>(attribute);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.compound;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundQuery;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
+import com.googlecode.cqengine.index.compound.support.CompoundValueTuple;
+import com.googlecode.cqengine.index.compound.support.SortedCompoundAttributeIndex;
+import com.googlecode.cqengine.index.support.Factory;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.DeduplicationOption;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.connective.ResultSetUnion;
+import com.googlecode.cqengine.resultset.connective.ResultSetUnionAll;
+import com.googlecode.cqengine.resultset.stored.StoredResultSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A {@link CompoundIndex} backed by a {@link ConcurrentSkipListMap}, which stores {@link CompoundValueTuple} keys
+ * sorted lexicographically: by the value of the first attribute, then by the value of the second attribute, etc.
+ * The values of all attributes must therefore be {@link Comparable}.
+ * <p/>
+ * In addition to the {@link CompoundQuery}s supported by {@link CompoundIndex}, this index supports
+ * {@link CompoundRangeQuery}s: equality conditions on a leftmost prefix of the attributes, optionally combined with
+ * a range condition on the attribute following that prefix. These are answered with a single range scan of the
+ * index. For example an index on {@code (region, timestamp)} can answer
+ * {@code and(equal(region, X), between(timestamp, a, b))}, including when those conditions are part of a larger
+ * {@code and} query. At least two conditions must be answerable by the index: a condition such as
+ * {@code equal(region, X)} alone is left to an index on that attribute, or to the remaining conjuncts.
+ * <p/>
+ * Objects are returned from a range scan in the order of the attribute following the prefix. When all attributes
+ * of the index are single-valued, the query engine uses this to answer such queries which are ordered by that
+ * attribute without sorting the results afterwards.
+ */
+public class SortedCompoundIndex<O> extends CompoundIndex<O> implements SortedCompoundAttributeIndex<O> {
+
+    protected static final int INDEX_RANGE_RETRIEVAL_COST = 30;
+
+    /**
+     * Package-private constructor, used by static factory methods.
+     *
+     * @param indexMapFactory A factory used to create the main map-based data structure used by the index, which
+     * must create maps which are instances of {@link ConcurrentNavigableMap} sorted by {@link #TUPLE_COMPARATOR}
+     * @param valueSetFactory A factory used to create sets to store values in the index
+     * @param attribute The attribute on which the index will be built
+     */
+    protected SortedCompoundIndex(Factory<ConcurrentMap<CompoundValueTuple<O>, StoredResultSet<O>>> indexMapFactory, Factory<StoredResultSet<O>> valueSetFactory, CompoundAttribute<O> attribute) {
+        super(indexMapFactory, valueSetFactory, attribute);
+    }
+
+    /**
+     * Returns true if the given {@link Query} is a {@link CompoundQuery} or a {@link CompoundRangeQuery} based on the
+     * same list of attributes as the {@link CompoundAttribute} on which this index is based, and in the latter case
+     * only if {@link CompoundRangeQuery#isAnswerableByRangeScan()}.
+     */
+    @Override
+    public boolean supportsQuery(Query<O> query, QueryOptions queryOptions) {
+        if (query instanceof CompoundRangeQuery) {
+            CompoundRangeQuery<O> rangeQuery = (CompoundRangeQuery<O>) query;
+            return attribute.equals(rangeQuery.getCompoundAttribute()) && rangeQuery.isAnswerableByRangeScan();
+        }
+        return super.supportsQuery(query, queryOptions);
+    }
+
+    @Override
+    public boolean hasSingleValuedAttributes() {
+        for (Attribute<O, ?> component : attribute.getAttributes()) {
+            // SimpleNullableAttributes are excluded, because objects which have no value are not stored in the index...
+            if (!(component instanceof SimpleAttribute)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        if (query instanceof CompoundRangeQuery) {
+            return retrieve((CompoundRangeQuery<O>) query, queryOptions, false);
+        }
+        return super.retrieve(query, queryOptions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultSet<O> retrieve(final CompoundRangeQuery<O> rangeQuery, final QueryOptions queryOptions, final boolean descending) {
+        if (!supportsQuery(rangeQuery, queryOptions)) {
+            throw new IllegalArgumentException("Unsupported query: " + rangeQuery);
+        }
+        List<Object> prefixValues = rangeQuery.getPrefixValues();
+        final CompoundValueTuple<O> fromKey = rangeQuery.getLowerBound() == null
+                ? new BoundTuple<O>(prefixValues, false)
+                : new BoundTuple<O>(append(prefixValues, rangeQuery.getLowerBound()), !rangeQuery.isLowerInclusive());
+        final CompoundValueTuple<O> toKey = rangeQuery.getUpperBound() == null
+                ? new BoundTuple<O>(prefixValues, true)
+                : new BoundTuple<O>(append(prefixValues, rangeQuery.getUpperBound()), rangeQuery.isUpperInclusive());
+
+        // A view onto the stored sets in the range, which reflects changes to the index...
+        Iterable<StoredResultSet<O>> storedResultSets = new Iterable<StoredResultSet<O>>() {
+            @Override
+            public Iterator<StoredResultSet<O>> iterator() {
+                if (TUPLE_COMPARATOR.compare(fromKey, toKey) > 0) {
+                    // The range is empty...
+                    return Collections.<StoredResultSet<O>>emptyList().iterator();
+                }
+                ConcurrentNavigableMap<CompoundValueTuple<O>, StoredResultSet<O>> range = getNavigableIndexMap().subMap(fromKey, true, toKey, true);
+                return (descending ? range.descendingMap() : range).values().iterator();
+            }
+        };
+        @SuppressWarnings("unchecked")
+        Iterable<ResultSet<O>> results = (Iterable<ResultSet<O>>) (Iterable<? extends ResultSet<O>>) storedResultSets;
+        if (!DeduplicationOption.isLogicalElimination(queryOptions) || hasSingleValuedAttributes()) {
+            // No need to deduplicate...
+            return new ResultSetUnionAll<O>(results, rangeQuery, queryOptions) {
+                @Override
+                public int getRetrievalCost() {
+                    return INDEX_RANGE_RETRIEVAL_COST;
+                }
+            };
+        }
+        // An object can be stored against several tuples in the range, if any attribute is multi-valued...
+        return new ResultSetUnion<O>(results, rangeQuery, queryOptions) {
+            @Override
+            public int getRetrievalCost() {
+                return INDEX_RANGE_RETRIEVAL_COST;
+            }
+        };
+    }
+
+    ConcurrentNavigableMap<CompoundValueTuple<O>, StoredResultSet<O>> getNavigableIndexMap() {
+        return (ConcurrentNavigableMap<CompoundValueTuple<O>, StoredResultSet<O>>) indexMap;
+    }
+
+    static List<Object> append(List<Object> values, Object value) {
+        List<Object> result = new ArrayList<Object>(values.size() + 1);
+        result.addAll(values);
+        result.add(value);
+        return result;
+    }
+
+    /**
+     * A tuple used only as a bound for range scans, which sorts either before or after all tuples which start with
+     * the same values.
+     */
+    static class BoundTuple<O> extends CompoundValueTuple<O> {
+        final boolean high;
+
+        BoundTuple(List<Object> values, boolean high) {
+            super(values);
+            this.high = high;
+        }
+    }
+
+    /**
+     * Compares {@link CompoundValueTuple}s lexicographically, by comparing their values in turn.
+     */
+    public static final Comparator<CompoundValueTuple<?>> TUPLE_COMPARATOR = new Comparator<CompoundValueTuple<?>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(CompoundValueTuple<?> tuple1, CompoundValueTuple<?> tuple2) {
+            Iterator<Object> values1 = tuple1.getAttributeValues().iterator();
+            Iterator<Object> values2 = tuple2.getAttributeValues().iterator();
+            while (values1.hasNext() && values2.hasNext()) {
+                int comparison = ((Comparable<Object>) values1.next()).compareTo(values2.next());
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            // All values in common are equal. Bounds sort before or after the tuples which they prefix...
+            if (values1.hasNext()) {
+                // Only bounds can be shorter than other tuples...
+                return ((BoundTuple<?>) tuple2).high ? -1 : 1;
+            }
+            if (values2.hasNext()) {
+                return ((BoundTuple<?>) tuple1).high ? 1 : -1;
+            }
+            int position1 = tuple1 instanceof BoundTuple ? (((BoundTuple<?>) tuple1).high ? 1 : -1) : 0;
+            int position2 = tuple2 instanceof BoundTuple ? (((BoundTuple<?>) tuple2).high ? 1 : -1) : 0;
+            return position1 - position2;
+        }
+    };
+
+    /**
+     * Creates a new {@link SortedCompoundIndex} on the given combination of attributes.
+     * <p/>
+     * @param attributes The combination of attributes on which index will be built, whose values must be
+     * {@link Comparable}
+     * @param <O> The type of the object containing the attributes
+     * @return A {@link SortedCompoundIndex} based on these attributes
+     */
+    @SafeVarargs
+    public static <O> SortedCompoundIndex<O> onAttributes(Attribute<O, ?>... attributes) {
+        List<Attribute<O, ?>> attributeList = new ArrayList<Attribute<O, ?>>(Arrays.asList(attributes));
+        CompoundAttribute<O> compoundAttribute = new CompoundAttribute<O>(attributeList);
+        return new SortedCompoundIndex<O>(new DefaultIndexMapFactory<O>(), new DefaultValueSetFactory<O>(), compoundAttribute);
+    }
+
+    /**
+     * Creates an index map sorted by {@link #TUPLE_COMPARATOR}.
+     */
+    public static class DefaultIndexMapFactory<O> implements Factory<ConcurrentMap<CompoundValueTuple<O>, StoredResultSet<O>>> {
+        @Override
+        public ConcurrentMap<CompoundValueTuple<O>, StoredResultSet<O>> create() {
+            return new ConcurrentSkipListMap<CompoundValueTuple<O>, StoredResultSet<O>>(TUPLE_COMPARATOR);
+        }
+    }
+}
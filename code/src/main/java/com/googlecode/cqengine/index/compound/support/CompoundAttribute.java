@@ -85,6 +85,13 @@ public class CompoundAttribute<O> implements Attribute<O, CompoundValueTuple<O>>
         return attributes.size();
     }
 
+    /**
+     * @return The attributes grouped by this compound attribute, in order
+     */
+    public List<Attribute<O, ?>> getAttributes() {
+        return Collections.unmodifiableList(attributes);
+    }
+
     @Override
     public Class<O> getObjectType() {
         throw new UnsupportedOperationException("Method not supported by CompoundAttribute");
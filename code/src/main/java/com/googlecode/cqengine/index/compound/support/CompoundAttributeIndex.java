@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.compound.support;
+
+import com.googlecode.cqengine.index.AttributeIndex;
+
+/**
+ * An index on a {@link CompoundAttribute}, which the query engine can use to answer {@link CompoundQuery}s derived
+ * from {@link com.googlecode.cqengine.query.logical.And} queries.
+ *
+ * @param <O> The type of the object containing the attributes
+ */
+public interface CompoundAttributeIndex<O> extends AttributeIndex<CompoundValueTuple<O>, O> {
+
+    /**
+     * Returns the compound attribute indexed by this index.
+     *
+     * @return The compound attribute indexed by this index
+     */
+    @Override
+    CompoundAttribute<O> getAttribute();
+}
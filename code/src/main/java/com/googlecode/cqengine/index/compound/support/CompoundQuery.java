@@ -95,4 +95,26 @@ public class CompoundQuery<O> implements Query<O> {
         return new CompoundQuery<O>(andQuery, compoundAttribute);
     }
 
+    /**
+     * Returns a {@link CompoundQuery} for the subset of the conjuncts of the given {@link And} query which are
+     * {@link Equal} queries on the attributes of the given compound attribute, if there is such a conjunct for every
+     * attribute. The conjuncts used are available from {@link #getAndQuery()}, in the order of the attributes of the
+     * compound attribute; the remaining conjuncts must be evaluated separately.
+     *
+     * @param andQuery The And query
+     * @param compoundAttribute The compound attribute on which a compound index is built
+     * @return A {@link CompoundQuery}, or null if the conjuncts do not cover all attributes of the compound attribute
+     */
+    public static <O> CompoundQuery<O> fromConjunctsIfSuitable(And<O> andQuery, CompoundAttribute<O> compoundAttribute) {
+        List<Query<O>> conjunctsUsed = new ArrayList<Query<O>>(compoundAttribute.size());
+        for (Attribute<O, ?> attribute : compoundAttribute.getAttributes()) {
+            Query<O> equal = CompoundRangeQuery.findEqual(andQuery, attribute);
+            if (equal == null) {
+                return null;
+            }
+            conjunctsUsed.add(equal);
+        }
+        return new CompoundQuery<O>(new And<O>(conjunctsUsed), compoundAttribute);
+    }
+
 }
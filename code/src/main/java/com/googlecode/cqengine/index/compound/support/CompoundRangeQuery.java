@@ -0,0 +1,234 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.compound.support;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.Between;
+import com.googlecode.cqengine.query.simple.Equal;
+import com.googlecode.cqengine.query.simple.GreaterThan;
+import com.googlecode.cqengine.query.simple.LessThan;
+import com.googlecode.cqengine.query.simple.SimpleQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A query which wraps a {@link CompoundAttribute}, used only in the query engine's internal communication
+ * with a {@link com.googlecode.cqengine.index.compound.SortedCompoundIndex}.
+ * <p/>
+ * It represents equality conditions on a leftmost prefix of the attributes of the compound attribute, and optionally
+ * a range condition on the attribute which follows the prefix. For example given a compound attribute on
+ * {@code (region, timestamp, id)}, the query {@code and(equal(region, X), between(timestamp, a, b))} has a prefix
+ * {@code [X]} and a range {@code [a, b]} on {@code timestamp}.
+ */
+public class CompoundRangeQuery<O> implements Query<O> {
+
+    private final And<O> andQuery;
+    private final CompoundAttribute<O> compoundAttribute;
+    private final List<Object> prefixValues;
+    private final Comparable<?> lowerBound;
+    private final boolean lowerInclusive;
+    private final Comparable<?> upperBound;
+    private final boolean upperInclusive;
+
+    public CompoundRangeQuery(And<O> andQuery, CompoundAttribute<O> compoundAttribute, List<Object> prefixValues, Comparable<?> lowerBound, boolean lowerInclusive, Comparable<?> upperBound, boolean upperInclusive) {
+        this.andQuery = andQuery;
+        this.compoundAttribute = compoundAttribute;
+        this.prefixValues = prefixValues;
+        this.lowerBound = lowerBound;
+        this.lowerInclusive = lowerInclusive;
+        this.upperBound = upperBound;
+        this.upperInclusive = upperInclusive;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation tests if the given object matches the {@link And} query from which the
+     * {@link CompoundRangeQuery} was constructed.
+     */
+    @Override
+    public boolean matches(O object, QueryOptions queryOptions) {
+        return andQuery.matches(object, queryOptions);
+    }
+
+    public And<O> getAndQuery() {
+        return andQuery;
+    }
+
+    public CompoundAttribute<O> getCompoundAttribute() {
+        return compoundAttribute;
+    }
+
+    /**
+     * @return The values required of the leftmost attributes of the compound attribute, in order
+     */
+    public List<Object> getPrefixValues() {
+        return prefixValues;
+    }
+
+    /**
+     * @return The attribute which follows the prefix, on which the range (if any) applies, or null if the prefix
+     * covers all attributes of the compound attribute
+     */
+    public Attribute<O, ?> getRangeAttribute() {
+        List<Attribute<O, ?>> attributes = compoundAttribute.getAttributes();
+        return prefixValues.size() < attributes.size() ? attributes.get(prefixValues.size()) : null;
+    }
+
+    /**
+     * @return The lower bound of the range on the attribute following the prefix, or null if unbounded
+     */
+    public Comparable<?> getLowerBound() {
+        return lowerBound;
+    }
+
+    public boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    /**
+     * @return The upper bound of the range on the attribute following the prefix, or null if unbounded
+     */
+    public Comparable<?> getUpperBound() {
+        return upperBound;
+    }
+
+    public boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+
+    /**
+     * Returns true if a range scan of a sorted compound index on the compound attribute finds every object which
+     * matches this query.
+     * <p/>
+     * Objects are stored in a compound index only against tuples which contain a value of every attribute, and so
+     * an object which has no value for an attribute which this query does not constrain is not found by the scan.
+     * This method therefore returns true only if every attribute following the prefix, and the range (if any), is a
+     * {@link SimpleAttribute}, which always has exactly one value.
+     *
+     * @return True if this query can be answered by a range scan, false if it must be answered in some other way
+     */
+    public boolean isAnswerableByRangeScan() {
+        List<Attribute<O, ?>> attributes = compoundAttribute.getAttributes();
+        boolean hasRange = lowerBound != null || upperBound != null;
+        for (int i = prefixValues.size() + (hasRange ? 1 : 0); i < attributes.size(); i++) {
+            if (!(attributes.get(i) instanceof SimpleAttribute)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "compoundRange(" + prefixValues +
+                ", " + (lowerBound == null ? "*" : (lowerInclusive ? "[" : "(") + lowerBound) +
+                ".." + (upperBound == null ? "*" : upperBound + (upperInclusive ? "]" : ")")) +
+                ")";
+    }
+
+    /**
+     * Returns a {@link CompoundRangeQuery} for the given {@link And} query and compound attribute, if every
+     * conjunct of the {@link And} query is either an {@link Equal} query on one of a leftmost prefix of the attributes
+     * of the compound attribute, or a range query ({@link LessThan}, {@link GreaterThan} or {@link Between}) on the
+     * attribute following that prefix.
+     *
+     * @param andQuery The And query
+     * @param compoundAttribute The compound attribute on which a sorted compound index is built
+     * @return A {@link CompoundRangeQuery}, or null if the query is not suitable
+     */
+    public static <O> CompoundRangeQuery<O> fromAndQueryIfSuitable(And<O> andQuery, CompoundAttribute<O> compoundAttribute) {
+        CompoundRangeQuery<O> rangeQuery = fromConjunctsIfSuitable(andQuery, compoundAttribute);
+        return rangeQuery != null && rangeQuery.getAndQuery().size() == andQuery.size() ? rangeQuery : null;
+    }
+
+    /**
+     * Returns a {@link CompoundRangeQuery} for the subset of the conjuncts of the given {@link And} query which
+     * can be answered by a range scan of a sorted compound index on the given compound attribute: {@link Equal}
+     * queries on the longest possible leftmost prefix of its attributes, and up to one lower and one upper bound on
+     * the attribute following that prefix. The conjuncts used are available from {@link #getAndQuery()}; the
+     * remaining conjuncts must be evaluated separately.
+     * <p/>
+     * At least two conjuncts must be answerable by the index. A single condition on the leading attribute, such as
+     * {@code equal(region, X)} alone, is not worth a range scan of the compound index: it is answered at least as
+     * well by an index on that attribute, and the conjuncts used could not be represented as an {@link And} query.
+     *
+     * @param andQuery The And query
+     * @param compoundAttribute The compound attribute on which a sorted compound index is built
+     * @return A {@link CompoundRangeQuery}, or null if fewer than two conjuncts can be answered by the index
+     */
+    public static <O> CompoundRangeQuery<O> fromConjunctsIfSuitable(And<O> andQuery, CompoundAttribute<O> compoundAttribute) {
+        List<Attribute<O, ?>> attributes = compoundAttribute.getAttributes();
+        List<Query<O>> conjunctsUsed = new ArrayList<Query<O>>();
+        List<Object> prefixValues = new ArrayList<Object>();
+        // Find equality conditions on the longest leftmost prefix of the attributes...
+        for (Attribute<O, ?> attribute : attributes) {
+            Equal<O, ?> equal = findEqual(andQuery, attribute);
+            if (equal == null) {
+                break;
+            }
+            conjunctsUsed.add(equal);
+            prefixValues.add(equal.getValue());
+        }
+        // Find range conditions on the attribute following the prefix...
+        Comparable<?> lowerBound = null, upperBound = null;
+        boolean lowerInclusive = false, upperInclusive = false;
+        if (prefixValues.size() < attributes.size()) {
+            Attribute<O, ?> rangeAttribute = attributes.get(prefixValues.size());
+            for (SimpleQuery<O, ?> simpleQuery : andQuery.getSimpleQueries()) {
+                if (!simpleQuery.getAttribute().equals(rangeAttribute)) {
+                    continue;
+                }
+                if (simpleQuery instanceof LessThan && upperBound == null) {
+                    upperBound = ((LessThan<O, ?>) simpleQuery).getValue();
+                    upperInclusive = ((LessThan<O, ?>) simpleQuery).isValueInclusive();
+                    conjunctsUsed.add(simpleQuery);
+                }
+                else if (simpleQuery instanceof GreaterThan && lowerBound == null) {
+                    lowerBound = ((GreaterThan<O, ?>) simpleQuery).getValue();
+                    lowerInclusive = ((GreaterThan<O, ?>) simpleQuery).isValueInclusive();
+                    conjunctsUsed.add(simpleQuery);
+                }
+                else if (simpleQuery instanceof Between && lowerBound == null && upperBound == null) {
+                    Between<O, ?> between = (Between<O, ?>) simpleQuery;
+                    lowerBound = between.getLowerValue();
+                    lowerInclusive = between.isLowerInclusive();
+                    upperBound = between.getUpperValue();
+                    upperInclusive = between.isUpperInclusive();
+                    conjunctsUsed.add(simpleQuery);
+                }
+            }
+        }
+        if (conjunctsUsed.size() < 2) {
+            return null;
+        }
+        return new CompoundRangeQuery<O>(new And<O>(conjunctsUsed), compoundAttribute, prefixValues, lowerBound, lowerInclusive, upperBound, upperInclusive);
+    }
+
+    static <O> Equal<O, ?> findEqual(And<O> andQuery, Attribute<O, ?> attribute) {
+        for (SimpleQuery<O, ?> simpleQuery : andQuery.getSimpleQueries()) {
+            if (simpleQuery instanceof Equal && simpleQuery.getAttribute().equals(attribute)) {
+                return (Equal<O, ?>) simpleQuery;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.compound.support;
+
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+/**
+ * A {@link CompoundAttributeIndex} which stores tuples sorted lexicographically, and so can also answer
+ * {@link CompoundRangeQuery}s with a single range scan, returning objects in the order of the attribute following
+ * the prefix of the query.
+ *
+ * @param <O> The type of the object containing the attributes
+ */
+public interface SortedCompoundAttributeIndex<O> extends CompoundAttributeIndex<O> {
+
+    /**
+     * @return True if all attributes of this index are {@link com.googlecode.cqengine.attribute.SimpleAttribute}s,
+     * which return exactly one value per object, such that range scans return each object exactly once
+     */
+    boolean hasSingleValuedAttributes();
+
+    /**
+     * Retrieves objects matching the given {@link CompoundRangeQuery} with a single range scan of the index,
+     * which must be {@link CompoundRangeQuery#isAnswerableByRangeScan() answerable} by a range scan,
+     * in ascending or descending order of the attribute following the prefix of the query.
+     *
+     * @param rangeQuery The query to evaluate
+     * @param queryOptions Optional parameters for the query
+     * @param descending True to return objects in descending order, false for ascending order
+     * @return A {@link ResultSet} which provides objects matching the query in the requested order
+     */
+    ResultSet<O> retrieve(CompoundRangeQuery<O> rangeQuery, QueryOptions queryOptions, boolean descending);
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.continuous;
+
+import com.googlecode.cqengine.query.Query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of changes to the objects matching a query registered with a {@link ContinuousQueryIndex}, delivered to a
+ * {@link ContinuousQueryListener}.
+ * <p/>
+ * Changes are reported in a single list, in the order in which they were made to the collection, so that listeners
+ * can apply them in order. If the same object was added and then removed within the same batch, the addition will
+ * precede the removal.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public class ChangeBatch<O> {
+
+    final Query<O> query;
+    final List<Change<O>> changes;
+
+    public ChangeBatch(Query<O> query, List<Change<O>> changes) {
+        this.query = query;
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * @return The query which was registered
+     */
+    public Query<O> getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The additions and removals of objects matching the query, in the order in which they were made
+     */
+    public List<Change<O>> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeBatch{" +
+                "query=" + query +
+                ", changes=" + changes +
+                '}';
+    }
+
+    /**
+     * The addition or removal of an object matching the query.
+     *
+     * @param <O> The type of the objects in the collection
+     */
+    public static class Change<O> {
+
+        final O object;
+        final boolean added;
+
+        public Change(O object, boolean added) {
+            this.object = object;
+            this.added = added;
+        }
+
+        /**
+         * @return The object which was added to or removed from the collection
+         */
+        public O getObject() {
+            return object;
+        }
+
+        /**
+         * @return True if the object was added to the collection, false if it was removed
+         */
+        public boolean isAdded() {
+            return added;
+        }
+
+        @Override
+        public String toString() {
+            return (added ? "+" : "-") + object;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.continuous;
+
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.standingquery.PredicateNetwork;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Pushes changes to the objects matching registered queries to subscribers, as objects are added to and removed
+ * from the collection, replacing the need to poll the collection with repeated queries.
+ * <p/>
+ * When added to a collection via {@code addIndex()}, the index is notified of the objects added and removed by each
+ * write, after the other indexes have been updated. Like {@link com.googlecode.cqengine.index.standingquery.StandingQueryIndex},
+ * it determines which registered queries match each object written. Registered queries are indexed in a
+ * {@link PredicateNetwork}, so that each object is evaluated only against the queries it could match, and each
+ * distinct query is evaluated only once per object, regardless of the number of subscribers which registered it.
+ * <p/>
+ * Changes are buffered per subscription, and delivered in {@link ChangeBatch}es of up to a maximum size on the
+ * supplied {@link Executor}, one batch at a time per subscription. If a subscriber falls behind such that the
+ * number of changes buffered for it reaches the maximum, threads writing to the collection will block until the
+ * subscriber catches up or its subscription is cancelled. Listeners are never invoked while the lock of a
+ * subscription is held. If the executor rejects a delivery, the changes pending for the subscription are discarded
+ * and counted in {@link Subscription#getDroppedChanges()}, and the rejection is reported to the writing thread's
+ * uncaught exception handler, so that writers are not left waiting for a delivery which will never run.
+ * <p/>
+ * Note that {@link com.googlecode.cqengine.TransactionalIndexedCollection} adds the new versions of objects before it
+ * removes the old versions, so subscribers will see replaced objects as an addition followed by a removal, in that
+ * order within {@link ChangeBatch#getChanges()}.
+ * <p/>
+ * This index does not support retrieving objects; the query engine does not consult it when evaluating queries.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public class ContinuousQueryIndex<O> implements Index<O> {
+
+    /**
+     * The default maximum number of changes delivered in a single {@link ChangeBatch}.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    /**
+     * The default maximum number of changes buffered per subscription, before writing threads will block.
+     */
+    public static final int DEFAULT_MAX_PENDING_CHANGES = 100000;
+
+    final Executor executor;
+    final int maxBatchSize;
+    final int maxPendingChanges;
+
+    // The subscriptions for each distinct query...
+    final ConcurrentMap<Query<O>, List<Subscription<O>>> subscriptions = new ConcurrentHashMap<Query<O>, List<Subscription<O>>>();
+    final PredicateNetwork<O> predicateNetwork = new PredicateNetwork<O>();
+
+    /**
+     * Package-private constructor, used by static factory methods.
+     */
+    ContinuousQueryIndex(Executor executor, int maxBatchSize, int maxPendingChanges) {
+        if (maxBatchSize < 1 || maxPendingChanges < 1) {
+            throw new IllegalArgumentException("Invalid bounds, maxBatchSize: " + maxBatchSize + ", maxPendingChanges: " + maxPendingChanges);
+        }
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxPendingChanges = maxPendingChanges;
+    }
+
+    /**
+     * Registers the given query, such that changes to the objects matching it will be delivered to the given
+     * listener from now on.
+     *
+     * @param query The query to register
+     * @param listener The listener to which changes should be delivered
+     * @return A {@link Subscription} which can be used to stop the delivery of changes
+     */
+    public Subscription<O> subscribe(Query<O> query, ContinuousQueryListener<O> listener) {
+        final Subscription<O> subscription = new Subscription<O>(this, query, listener);
+        subscriptions.compute(query, new BiFunction<Query<O>, List<Subscription<O>>, List<Subscription<O>>>() {
+            @Override
+            public List<Subscription<O>> apply(Query<O> query, List<Subscription<O>> querySubscriptions) {
+                if (querySubscriptions == null) {
+                    querySubscriptions = new CopyOnWriteArrayList<Subscription<O>>();
+                    predicateNetwork.register(query);
+                }
+                querySubscriptions.add(subscription);
+                return querySubscriptions;
+            }
+        });
+        return subscription;
+    }
+
+    void unsubscribe(final Subscription<O> subscription) {
+        subscriptions.computeIfPresent(subscription.query, new BiFunction<Query<O>, List<Subscription<O>>, List<Subscription<O>>>() {
+            @Override
+            public List<Subscription<O>> apply(Query<O> query, List<Subscription<O>> querySubscriptions) {
+                querySubscriptions.remove(subscription);
+                if (querySubscriptions.isEmpty()) {
+                    predicateNetwork.unregister(query);
+                    return null;
+                }
+                return querySubscriptions;
+            }
+        });
+    }
+
+    /**
+     * @return The number of distinct queries currently registered
+     */
+    public int getQueryCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Evaluates the registered queries against the given objects.
+     *
+     * @return The objects which matched each query, for queries which matched at least one object
+     */
+    Map<Query<O>, List<O>> evaluate(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        Map<Query<O>, List<O>> matches = new HashMap<Query<O>, List<O>>();
+        try {
+            for (O object : objectSet) {
+                for (Query<O> query : predicateNetwork.getMatchingQueries(object, queryOptions)) {
+                    List<O> matchingObjects = matches.get(query);
+                    if (matchingObjects == null) {
+                        matchingObjects = new ArrayList<O>();
+                        matches.put(query, matchingObjects);
+                    }
+                    matchingObjects.add(object);
+                }
+            }
+        }
+        finally {
+            objectSet.close();
+        }
+        return matches;
+    }
+
+    void publish(ObjectSet<O> objectSet, QueryOptions queryOptions, boolean added) {
+        if (subscriptions.isEmpty()) {
+            objectSet.close();
+            return;
+        }
+        for (Map.Entry<Query<O>, List<O>> entry : evaluate(objectSet, queryOptions).entrySet()) {
+            List<Subscription<O>> querySubscriptions = subscriptions.get(entry.getKey());
+            if (querySubscriptions != null) {
+                for (Subscription<O> subscription : querySubscriptions) {
+                    subscription.enqueue(entry.getValue(), added);
+                }
+            }
+        }
+    }
+
+    // -------------------- Index methods --------------------
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    /**
+     * @return False, as this index does not support retrieving objects
+     */
+    @Override
+    public boolean supportsQuery(Query<O> query, QueryOptions queryOptions) {
+        return false;
+    }
+
+    @Override
+    public boolean isQuantized() {
+        return false;
+    }
+
+    /**
+     * @throws UnsupportedOperationException Always, as this index does not support retrieving objects
+     */
+    @Override
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        throw new UnsupportedOperationException("ContinuousQueryIndex does not support retrieving objects: " + query);
+    }
+
+    @Override
+    public Index<O> getEffectiveIndex() {
+        return this;
+    }
+
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        publish(objectSet, queryOptions, true);
+        return false;
+    }
+
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        publish(objectSet, queryOptions, false);
+        return false;
+    }
+
+    /**
+     * Does nothing: objects removed when the collection is cleared are not reported to subscribers.
+     */
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        // No-op
+    }
+
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        // No-op
+    }
+
+    /**
+     * Cancels all subscriptions.
+     */
+    @Override
+    public void destroy(QueryOptions queryOptions) {
+        for (List<Subscription<O>> querySubscriptions : subscriptions.values()) {
+            for (Subscription<O> subscription : querySubscriptions) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ContinuousQueryIndex{" +
+                "maxBatchSize=" + maxBatchSize +
+                ", maxPendingChanges=" + maxPendingChanges +
+                '}';
+    }
+
+    // -------------------- Static factory methods --------------------
+
+    /**
+     * Creates a {@link ContinuousQueryIndex} which delivers changes on the given executor, using the default
+     * maximum batch size and maximum number of pending changes.
+     *
+     * @param executor The executor on which changes should be delivered to listeners. If it rejects a delivery,
+     * the changes pending for the subscription are discarded
+     * @param <O> The type of the objects in the collection
+     * @return A new {@link ContinuousQueryIndex}
+     */
+    public static <O> ContinuousQueryIndex<O> withExecutor(Executor executor) {
+        return new ContinuousQueryIndex<O>(executor, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_PENDING_CHANGES);
+    }
+
+    /**
+     * Creates a {@link ContinuousQueryIndex} which delivers changes on the given executor.
+     *
+     * @param executor The executor on which changes should be delivered to listeners. If it rejects a delivery,
+     * the changes pending for the subscription are discarded
+     * @param maxBatchSize The maximum number of changes delivered in a single {@link ChangeBatch}
+     * @param maxPendingChanges The maximum number of changes buffered per subscription, before writing threads
+     * will block
+     * @param <O> The type of the objects in the collection
+     * @return A new {@link ContinuousQueryIndex}
+     */
+    public static <O> ContinuousQueryIndex<O> withExecutor(Executor executor, int maxBatchSize, int maxPendingChanges) {
+        return new ContinuousQueryIndex<O>(executor, maxBatchSize, maxPendingChanges);
+    }
+
+    // -------------------- Subscriptions --------------------
+
+    /**
+     * A registration of a query with a {@link ContinuousQueryIndex}, which buffers the changes to be delivered to
+     * its listener.
+     *
+     * @param <O> The type of the objects in the collection
+     */
+    public static class Subscription<O> {
+
+        final ContinuousQueryIndex<O> index;
+        final Query<O> query;
+        final ContinuousQueryListener<O> listener;
+
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition notFull = lock.newCondition();
+        // Guarded by lock...
+        final Deque<ChangeBatch.Change<O>> pending = new ArrayDeque<ChangeBatch.Change<O>>();
+        boolean deliveryScheduled = false;
+        long droppedChanges = 0;
+        volatile boolean cancelled = false;
+
+        Subscription(ContinuousQueryIndex<O> index, Query<O> query, ContinuousQueryListener<O> listener) {
+            this.index = index;
+            this.query = query;
+            this.listener = listener;
+        }
+
+        public Query<O> getQuery() {
+            return query;
+        }
+
+        /**
+         * @return The number of changes buffered which have not yet been delivered
+         */
+        public int getPendingChanges() {
+            lock.lock();
+            try {
+                return pending.size();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return The number of changes discarded without being delivered, because the executor rejected their
+         * delivery
+         */
+        public long getDroppedChanges() {
+            lock.lock();
+            try {
+                return droppedChanges;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Stops the delivery of changes to the listener, discarding any changes not yet delivered, and unblocks any
+         * writing threads waiting for this subscription.
+         */
+        public void cancel() {
+            cancelled = true;
+            index.unsubscribe(this);
+            lock.lock();
+            try {
+                pending.clear();
+                notFull.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        void enqueue(List<O> objects, boolean added) {
+            Iterator<O> iterator = objects.iterator();
+            while (iterator.hasNext() && !cancelled) {
+                boolean deliveryRequired;
+                lock.lock();
+                try {
+                    // Apply back-pressure to the writing thread until the listener catches up...
+                    while (pending.size() >= index.maxPendingChanges && deliveryScheduled && !cancelled) {
+                        notFull.awaitUninterruptibly();
+                    }
+                    while (iterator.hasNext() && pending.size() < index.maxPendingChanges && !cancelled) {
+                        pending.add(new ChangeBatch.Change<O>(iterator.next(), added));
+                    }
+                    deliveryRequired = !deliveryScheduled && !pending.isEmpty() && !cancelled;
+                    deliveryScheduled |= deliveryRequired;
+                }
+                finally {
+                    lock.unlock();
+                }
+                if (deliveryRequired) {
+                    scheduleDelivery();
+                }
+            }
+        }
+
+        /**
+         * Submits a delivery to the executor. Must be called without holding the lock, so that listeners are never
+         * invoked while holding it, even by an executor which runs tasks on the calling thread.
+         * <p/>
+         * If the executor rejects the delivery, the listener is not invoked on the calling thread, which is writing to
+         * the collection. Instead the pending changes are discarded and counted, writers waiting for them to be
+         * delivered are released, and the rejection is reported to the calling thread's uncaught exception handler.
+         */
+        void scheduleDelivery() {
+            try {
+                index.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                lock.lock();
+                try {
+                    droppedChanges += pending.size();
+                    pending.clear();
+                    deliveryScheduled = false;
+                    notFull.signalAll();
+                }
+                finally {
+                    lock.unlock();
+                }
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+
+        void deliver() {
+            while (true) {
+                List<ChangeBatch.Change<O>> changes = new ArrayList<ChangeBatch.Change<O>>();
+                lock.lock();
+                try {
+                    for (int i = 0; i < index.maxBatchSize && !pending.isEmpty(); i++) {
+                        changes.add(pending.poll());
+                    }
+                    if (changes.isEmpty()) {
+                        deliveryScheduled = false;
+                        return;
+                    }
+                    notFull.signalAll();
+                }
+                finally {
+                    lock.unlock();
+                }
+                if (!cancelled) {
+                    try {
+                        listener.onChanges(new ChangeBatch<O>(query, changes));
+                    }
+                    catch (RuntimeException e) {
+                        // Report the exception, but continue delivering subsequent batches...
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                }
+            }
+        }
+    }
+}
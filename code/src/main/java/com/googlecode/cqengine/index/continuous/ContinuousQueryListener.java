@@ -0,0 +1,34 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.continuous;
+
+/**
+ * Receives batches of changes to the objects matching a query registered with a {@link ContinuousQueryIndex}.
+ * <p/>
+ * Batches for a given subscription are delivered one at a time, in order, on the executor supplied to the
+ * {@link ContinuousQueryIndex}.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public interface ContinuousQueryListener<O> {
+
+    /**
+     * Called with a batch of changes to the objects matching the registered query.
+     *
+     * @param changes The changes
+     */
+    void onChanges(ChangeBatch<O> changes);
+}
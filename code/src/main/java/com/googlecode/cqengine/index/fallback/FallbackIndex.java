@@ -16,10 +16,12 @@
 package com.googlecode.cqengine.index.fallback;
 
 import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.persistence.support.BlockObjectStore;
 import com.googlecode.cqengine.persistence.support.ObjectSet;
 import com.googlecode.cqengine.persistence.support.ObjectStore;
 import com.googlecode.cqengine.query.ComparativeQuery;
 import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryLog;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.query.simple.All;
 import com.googlecode.cqengine.query.simple.None;
@@ -41,7 +43,8 @@ import java.util.*;
  * and no other index has been added for that attribute that supports the query.
  * <p/>
  * The time complexity of retrievals from this fallback index is usually O(n) - linear, proportional to the number of
- * objects in the collection.
+ * objects in the collection. However if the collection is backed by a {@link BlockObjectStore}, this index will skip
+ * blocks of objects whose zone maps show that they cannot match the query.
  *
  * @author Niall Gallagher
  */
@@ -109,7 +112,10 @@ public class FallbackIndex<O> implements Index<O> {
                     return ((ComparativeQuery<O, ?>)query).getMatches(objectSet, queryOptions).iterator();
                 }
                 else {
-                    return new FilteringIterator<O>(objectSet.iterator(), queryOptions) {
+                    Iterator<O> candidates = objectStore instanceof BlockObjectStore
+                            ? getCandidatesFromBlockObjectStore((BlockObjectStore<O>) objectStore, query, queryOptions)
+                            : objectSet.iterator();
+                    return new FilteringIterator<O>(candidates, queryOptions) {
                         @Override
                         public boolean isValid(O object, QueryOptions queryOptions) {
                             return query.matches(object, queryOptions);
@@ -156,6 +162,20 @@ public class FallbackIndex<O> implements Index<O> {
         };
     }
 
+    /**
+     * Returns an iterator over the objects in blocks of the given {@link BlockObjectStore} which might contain objects
+     * matching the given query, logging the number of blocks scanned to the {@link QueryLog} if one was supplied.
+     * The zone maps are evaluated once, and the blocks selected are used both for the count logged and the iterator.
+     */
+    static <O> Iterator<O> getCandidatesFromBlockObjectStore(BlockObjectStore<O> blockObjectStore, Query<O> query, QueryOptions queryOptions) {
+        BlockObjectStore<O>.BlockIterator candidates = blockObjectStore.iterator(query, queryOptions);
+        final QueryLog queryLog = queryOptions.get(QueryLog.class);
+        if (queryLog != null) {
+            queryLog.log("zoneMapBlocksScanned: " + candidates.getBlockCount() + " of " + blockObjectStore.getBlockCount() + " for " + query);
+        }
+        return candidates;
+    }
+
     /**
      * {@inheritDoc}
      * <p/>
@@ -61,7 +61,9 @@ import static com.googlecode.cqengine.index.support.IndexSupport.deduplicateIfNe
  * The constructor of this index accepts {@link Factory} objects, from which it will create the map and value sets it
  * uses internally. This allows the application to "tune" the construction parameters of these maps/sets,
  * by supplying custom factories.
- * For default settings, supply {@link DefaultIndexMapFactory} and {@link DefaultValueSetFactory}.
+ * For default settings, supply {@link DefaultIndexMapFactory} and {@link DefaultValueSetFactory}. To reduce the memory
+ * used by indexes on attributes with many distinct values, supply {@link BPlusTreeIndexMapFactory} instead of
+ * {@link DefaultIndexMapFactory}.
  *
  * @author Niall Gallagher
  */
@@ -581,6 +583,28 @@ public class NavigableIndex<A extends Comparable<A>, O> extends AbstractMapBased
         }
     }
 
+    /**
+     * Creates an index map backed by a {@link ConcurrentBPlusTreeMap}, which uses less memory per key and scans ranges
+     * faster than the default {@link ConcurrentSkipListMap}, at the expense of serializing writes to the map.
+     */
+    public static class BPlusTreeIndexMapFactory<A, O> implements Factory<ConcurrentNavigableMap<A, StoredResultSet<O>>> {
+
+        final int nodeCapacity;
+
+        public BPlusTreeIndexMapFactory() {
+            this(ConcurrentBPlusTreeMap.DEFAULT_NODE_CAPACITY);
+        }
+
+        public BPlusTreeIndexMapFactory(int nodeCapacity) {
+            this.nodeCapacity = nodeCapacity;
+        }
+
+        @Override
+        public ConcurrentNavigableMap<A, StoredResultSet<O>> create() {
+            return new ConcurrentBPlusTreeMap<A, StoredResultSet<O>>(nodeCapacity);
+        }
+    }
+
     /**
      * Creates a value set using default settings.
      */
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.navigable;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.support.CloseableIterable;
+import com.googlecode.cqengine.index.support.Factory;
+import com.googlecode.cqengine.index.support.KeyValue;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.*;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.common.WrappedResultSet;
+import com.googlecode.cqengine.resultset.connective.ResultSetUnionAll;
+import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
+import com.googlecode.cqengine.resultset.stored.StoredResultSet;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link NavigableIndex} which additionally maintains the number of objects stored against each key in an
+ * order-statistic tree, which stores the sum of the counts in each of its subtrees.
+ * <p/>
+ * This allows the following to be computed in O(log n) time, where n is the number of distinct keys, instead of by
+ * walking over every key and value set in range as a regular {@link NavigableIndex} would:
+ * <ul>
+ *     <li>
+ *         The size and merge cost of {@link LessThan}, {@link GreaterThan}, {@link Between} and {@link Has} queries
+ *         (see {@link #getCountInRange(Comparable, boolean, Comparable, boolean)})
+ *     </li>
+ *     <li>
+ *         The rank of a key in index order (see {@link #getRank(Comparable)})
+ *     </li>
+ *     <li>
+ *         Seeking to the N-th entry in index order, for offset-based pagination
+ *         (see {@link #getKeysAndValuesFromOffset(long, QueryOptions)})
+ *     </li>
+ * </ul>
+ * Retrieval is lock-free as in {@link NavigableIndex}, but writes to this index are serialized, so that the counts
+ * remain consistent with the value sets.
+ * <p/>
+ * For attributes which return multiple values per object, counts are of the entries in the index, and so an object
+ * is counted once for each of its values in range. The size of a result set will be computed from the counts only when
+ * duplicates would not be eliminated from it.
+ */
+public class OrderStatisticNavigableIndex<A extends Comparable<A>, O> extends NavigableIndex<A, O> {
+
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+    final OrderStatisticTree<A> counts = new OrderStatisticTree<A>();
+
+    /**
+     * Package-private constructor, used by static factory methods. Creates a new OrderStatisticNavigableIndex
+     * initialized to index the supplied attribute.
+     *
+     * @param indexMapFactory A factory used to create the main map-based data structure used by the index
+     * @param valueSetFactory A factory used to create sets to store values in the index
+     * @param attribute The attribute on which the index will be built
+     */
+    protected OrderStatisticNavigableIndex(Factory<ConcurrentNavigableMap<A, StoredResultSet<O>>> indexMapFactory, Factory<StoredResultSet<O>> valueSetFactory, Attribute<O, A> attribute) {
+        super(indexMapFactory, valueSetFactory, attribute);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultSet<O> retrieve(final Query<O> query, final QueryOptions queryOptions) {
+        final ResultSet<O> resultSet = super.retrieve(query, queryOptions);
+        if (!(query instanceof LessThan || query instanceof GreaterThan || query instanceof Between || query instanceof Has)) {
+            return resultSet;
+        }
+        // Duplicates are not eliminated from a ResultSetUnionAll, so its size is the number of entries in range...
+        final boolean sizeIsCountInRange = resultSet instanceof ResultSetUnionAll;
+        return new WrappedResultSet<O>(resultSet) {
+            @Override
+            public int size() {
+                return sizeIsCountInRange ? getCountForQuery(query) : super.size();
+            }
+
+            @Override
+            public int getMergeCost() {
+                return getCountForQuery(query);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    int getCountForQuery(Query<O> query) {
+        if (query instanceof LessThan) {
+            LessThan<O, A> lessThan = (LessThan<O, A>) query;
+            return getCountInRange(null, true, lessThan.getValue(), lessThan.isValueInclusive());
+        }
+        else if (query instanceof GreaterThan) {
+            GreaterThan<O, A> greaterThan = (GreaterThan<O, A>) query;
+            return getCountInRange(greaterThan.getValue(), greaterThan.isValueInclusive(), null, true);
+        }
+        else if (query instanceof Between) {
+            Between<O, A> between = (Between<O, A>) query;
+            return getCountInRange(between.getLowerValue(), between.isLowerInclusive(), between.getUpperValue(), between.isUpperInclusive());
+        }
+        else if (query instanceof Has) {
+            return getCountInRange(null, true, null, true);
+        }
+        throw new IllegalStateException("Unsupported query: " + query);
+    }
+
+    /**
+     * Returns the number of entries in the index whose keys are within the given range, in O(log n) time.
+     *
+     * @param lowerBound The lower bound of the range, or null if the range has no lower bound
+     * @param lowerInclusive Whether entries with keys equal to the lower bound should be counted
+     * @param upperBound The upper bound of the range, or null if the range has no upper bound
+     * @param upperInclusive Whether entries with keys equal to the upper bound should be counted
+     * @return The number of entries in the index whose keys are within the given range
+     */
+    public int getCountInRange(A lowerBound, boolean lowerInclusive, A upperBound, boolean upperInclusive) {
+        lock.readLock().lock();
+        try {
+            long upper = upperBound == null ? counts.getTotalCount() : counts.getCountBelow(upperBound, upperInclusive);
+            long lower = lowerBound == null ? 0 : counts.getCountBelow(lowerBound, !lowerInclusive);
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, upper - lower));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the rank of the given key in index order: the number of entries in the index whose keys are less than
+     * the given key, in O(log n) time.
+     *
+     * @param key The key whose rank is requested, which need not be stored in the index
+     * @return The number of entries in the index whose keys are less than the given key
+     */
+    public long getRank(A key) {
+        lock.readLock().lock();
+        try {
+            return counts.getCountBelow(key, false);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the keys and values in the index in ascending order of key, skipping the given number of entries.
+     * The position of the first entry returned is located in O(log n) time, without iterating past earlier entries in
+     * other keys.
+     *
+     * @param offset The number of entries to skip
+     * @param queryOptions Optional parameters for the query
+     * @return The keys and values in the index in ascending order of key, from the given offset
+     */
+    public CloseableIterable<KeyValue<A, O>> getKeysAndValuesFromOffset(long offset, QueryOptions queryOptions) {
+        final A firstKey;
+        final long offsetWithinFirstKey;
+        lock.readLock().lock();
+        try {
+            firstKey = offset < 0 ? null : counts.getKeyAtRank(offset);
+            offsetWithinFirstKey = firstKey == null ? 0 : offset - counts.getCountBelow(firstKey, false);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        if (firstKey == null) {
+            return wrapNonCloseable(Collections.<KeyValue<A, O>>emptyList());
+        }
+        final Iterable<KeyValue<A, O>> keysAndValues = IteratorUtil.flatten(indexMap.tailMap(firstKey, true));
+        return wrapNonCloseable(new Iterable<KeyValue<A, O>>() {
+            @Override
+            public Iterator<KeyValue<A, O>> iterator() {
+                Iterator<KeyValue<A, O>> iterator = keysAndValues.iterator();
+                for (long skipped = 0; skipped < offsetWithinFirstKey && iterator.hasNext(); skipped++) {
+                    iterator.next();
+                }
+                return iterator;
+            }
+        });
+    }
+
+    @Override
+    public Integer getCountOfDistinctKeys(QueryOptions queryOptions) {
+        lock.readLock().lock();
+        try {
+            return counts.getKeyCount();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        try {
+            boolean modified = false;
+            lock.writeLock().lock();
+            try {
+                for (O object : objectSet) {
+                    for (A attributeValue : getAttribute().getValues(object, queryOptions)) {
+                        StoredResultSet<O> valueSet = indexMap.get(attributeValue);
+                        if (valueSet == null) {
+                            valueSet = valueSetFactory.create();
+                            indexMap.put(attributeValue, valueSet);
+                        }
+                        if (valueSet.add(object)) {
+                            counts.adjust(attributeValue, 1);
+                            modified = true;
+                        }
+                    }
+                }
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+            return modified;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        try {
+            boolean modified = false;
+            lock.writeLock().lock();
+            try {
+                for (O object : objectSet) {
+                    for (A attributeValue : getAttribute().getValues(object, queryOptions)) {
+                        StoredResultSet<O> valueSet = indexMap.get(attributeValue);
+                        if (valueSet == null) {
+                            continue;
+                        }
+                        if (valueSet.remove(object)) {
+                            counts.adjust(attributeValue, -1);
+                            modified = true;
+                        }
+                        if (valueSet.isEmpty()) {
+                            indexMap.remove(attributeValue);
+                        }
+                    }
+                }
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+            return modified;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        lock.writeLock().lock();
+        try {
+            super.clear(queryOptions);
+            counts.clear();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------- Static factory methods to create OrderStatisticNavigableIndexes ----------
+
+    /**
+     * Creates a new {@code OrderStatisticNavigableIndex} on the given attribute. The attribute can be a
+     * {@link com.googlecode.cqengine.attribute.SimpleAttribute} or a
+     * {@link com.googlecode.cqengine.attribute.MultiValueAttribute}, as long as the type of the attribute referenced
+     * implements {@link Comparable}.
+     * <p/>
+     * @param attribute The attribute on which the index will be built
+     * @param <A> The type of the attribute
+     * @param <O> The type of the object containing the attribute
+     * @return A new OrderStatisticNavigableIndex which will build an index on this attribute
+     */
+    public static <A extends Comparable<A>, O> OrderStatisticNavigableIndex<A, O> onAttribute(Attribute<O, A> attribute) {
+        return onAttribute(new DefaultIndexMapFactory<A, O>(), new DefaultValueSetFactory<O>(), attribute);
+    }
+
+    /**
+     * Creates a new {@code OrderStatisticNavigableIndex} on the given attribute.
+     * <p/>
+     * @param indexMapFactory A factory used to create the main map-based data structure used by the index
+     * @param valueSetFactory A factory used to create sets to store values in the index
+     * @param attribute The attribute on which the index will be built
+     * @param <A> The type of the attribute
+     * @param <O> The type of the object containing the attribute
+     * @return A new OrderStatisticNavigableIndex which will build an index on this attribute
+     */
+    public static <A extends Comparable<A>, O> OrderStatisticNavigableIndex<A, O> onAttribute(Factory<ConcurrentNavigableMap<A, StoredResultSet<O>>> indexMapFactory, Factory<StoredResultSet<O>> valueSetFactory, Attribute<O, A> attribute) {
+        return new OrderStatisticNavigableIndex<A, O>(indexMapFactory, valueSetFactory, attribute);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.navigable;
+
+import java.util.Random;
+
+/**
+ * A balanced binary search tree (a treap) of keys, which stores a count for each key and maintains the sum of the
+ * counts in each subtree, such that the number of entries in any range of keys, the rank of any key, and the key at
+ * any rank can all be determined in O(log n) time.
+ * <p/>
+ * This class is not thread-safe; callers must synchronize access externally.
+ */
+class OrderStatisticTree<K extends Comparable<K>> {
+
+    static class Node<K> {
+        final K key;
+        final int priority;
+        int count;
+        long subtreeCount;
+        Node<K> left;
+        Node<K> right;
+
+        Node(K key, int count, int priority) {
+            this.key = key;
+            this.count = count;
+            this.priority = priority;
+            this.subtreeCount = count;
+        }
+    }
+
+    final Random random = new Random();
+    Node<K> root = null;
+    int keyCount = 0;
+
+    /**
+     * Adds the given delta to the count for the given key, adding the key if it is not already in the tree, or
+     * removing it if its count falls to zero.
+     */
+    void adjust(K key, int delta) {
+        root = adjust(root, key, delta);
+    }
+
+    /**
+     * @return The sum of the counts of all keys in the tree
+     */
+    long getTotalCount() {
+        return subtreeCount(root);
+    }
+
+    /**
+     * @return The number of distinct keys in the tree
+     */
+    int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * @return The sum of the counts of the keys less than (or equal to, if inclusive) the given key
+     */
+    long getCountBelow(K key, boolean inclusive) {
+        long count = 0;
+        Node<K> node = root;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            }
+            else if (cmp > 0) {
+                count += subtreeCount(node.left) + node.count;
+                node = node.right;
+            }
+            else {
+                count += subtreeCount(node.left) + (inclusive ? node.count : 0);
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the key whose entries span the given zero-based rank, when the entries for all keys are laid out in
+     * ascending order of key.
+     *
+     * @return The key at the given rank, or null if the rank is not less than the total count
+     */
+    K getKeyAtRank(long rank) {
+        Node<K> node = root;
+        while (node != null) {
+            long leftCount = subtreeCount(node.left);
+            if (rank < leftCount) {
+                node = node.left;
+            }
+            else if (rank < leftCount + node.count) {
+                return node.key;
+            }
+            else {
+                rank -= leftCount + node.count;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    void clear() {
+        root = null;
+        keyCount = 0;
+    }
+
+    Node<K> adjust(Node<K> node, K key, int delta) {
+        if (node == null) {
+            if (delta <= 0) {
+                return null;
+            }
+            keyCount++;
+            return new Node<K>(key, delta, random.nextInt());
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp < 0) {
+            node.left = adjust(node.left, key, delta);
+            if (node.left != null && node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        }
+        else if (cmp > 0) {
+            node.right = adjust(node.right, key, delta);
+            if (node.right != null && node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        else {
+            node.count += delta;
+            if (node.count <= 0) {
+                keyCount--;
+                return merge(node.left, node.right);
+            }
+        }
+        updateSubtreeCount(node);
+        return node;
+    }
+
+    static <K> Node<K> merge(Node<K> lower, Node<K> higher) {
+        if (lower == null) {
+            return higher;
+        }
+        if (higher == null) {
+            return lower;
+        }
+        if (lower.priority > higher.priority) {
+            lower.right = merge(lower.right, higher);
+            updateSubtreeCount(lower);
+            return lower;
+        }
+        else {
+            higher.left = merge(lower, higher.left);
+            updateSubtreeCount(higher);
+            return higher;
+        }
+    }
+
+    static <K> Node<K> rotateRight(Node<K> node) {
+        Node<K> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        updateSubtreeCount(node);
+        updateSubtreeCount(left);
+        return left;
+    }
+
+    static <K> Node<K> rotateLeft(Node<K> node) {
+        Node<K> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        updateSubtreeCount(node);
+        updateSubtreeCount(right);
+        return right;
+    }
+
+    static <K> void updateSubtreeCount(Node<K> node) {
+        node.subtreeCount = subtreeCount(node.left) + node.count + subtreeCount(node.right);
+    }
+
+    static <K> long subtreeCount(Node<K> node) {
+        return node == null ? 0 : node.subtreeCount;
+    }
+}
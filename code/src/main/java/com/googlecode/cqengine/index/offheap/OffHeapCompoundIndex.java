@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.offheap;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.compound.support.CompoundAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
+import com.googlecode.cqengine.index.sqlite.SimplifiedSQLiteCompoundIndex;
+import com.googlecode.cqengine.index.support.indextype.OffHeapTypeIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.common.WrappedResultSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A compound index persisted in native memory within the JVM process but outside the Java heap.
+ * <p/>
+ * This index is similar to the on-heap {@link com.googlecode.cqengine.index.compound.SortedCompoundIndex} and supports
+ * the same types of queries. The values of all of the attributes are stored side by side in a single table, so that
+ * a query on several of the attributes can be answered, and its results ordered, by a single scan of one SQLite index.
+ * <p/>
+ * The current implementation of this index is based on {@link com.googlecode.cqengine.index.sqlite.SQLiteCompoundIndex}.
+ */
+public class OffHeapCompoundIndex<O, K extends Comparable<K>> extends SimplifiedSQLiteCompoundIndex<O, K> implements OffHeapTypeIndex {
+
+    // An integer to add or subtract to the retrieval cost returned by SimplifiedSQLiteCompoundIndex.
+    // Therefore the retrieval cost for this index will be 65...
+    static final int INDEX_RETRIEVAL_COST_DELTA = -10;
+
+    OffHeapCompoundIndex(CompoundAttribute<O> attribute, String tableNameSuffix) {
+        super(attribute, tableNameSuffix);
+    }
+
+    @Override
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        return adjustRetrievalCost(super.retrieve(query, queryOptions));
+    }
+
+    @Override
+    public ResultSet<O> retrieve(CompoundRangeQuery<O> rangeQuery, QueryOptions queryOptions, boolean descending) {
+        return adjustRetrievalCost(super.retrieve(rangeQuery, queryOptions, descending));
+    }
+
+    static <O> ResultSet<O> adjustRetrievalCost(ResultSet<O> resultSet) {
+        return new WrappedResultSet<O>(resultSet) {
+            @Override
+            public int getRetrievalCost() {
+                return super.getRetrievalCost() + INDEX_RETRIEVAL_COST_DELTA;
+            }
+        };
+    }
+
+    // ---------- Static factory methods to create OffHeapCompoundIndex ----------
+
+    /**
+     * Creates a new {@link OffHeapCompoundIndex} on the given combination of attributes.
+     *
+     * @param attributes The combination of attributes on which the index will be built, whose values must be
+     * {@link Comparable}. The order of the attributes determines which queries the index can answer: it supports
+     * equality conditions on a leftmost prefix of the attributes, optionally followed by a range condition on the
+     * next attribute
+     * @param <O> The type of the object containing the attributes.
+     * @return A {@link OffHeapCompoundIndex} on the given combination of attributes.
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked") // unchecked, because type K will be provided later via the init() method
+    public static <O> OffHeapCompoundIndex<O, ? extends Comparable<?>> onAttributes(final Attribute<O, ?>... attributes) {
+        return new OffHeapCompoundIndex(new CompoundAttribute<O>(new ArrayList<Attribute<O, ?>>(Arrays.asList(attributes))), "");
+    }
+}
@@ -0,0 +1,641 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.resultcache;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.ComparativeQuery;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.logical.LogicalQuery;
+import com.googlecode.cqengine.query.logical.Or;
+import com.googlecode.cqengine.query.option.DeduplicationOption;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.Equal;
+import com.googlecode.cqengine.query.simple.ExistsIn;
+import com.googlecode.cqengine.query.simple.In;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.common.WrappedResultSet;
+import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the results of queries which are repeated with identical constants, so that they can be served without
+ * evaluating the query again.
+ * <p/>
+ * When added to a collection via {@code addIndex()}, the query engine consults the cache before evaluating a query.
+ * If the results of the query are not cached, the query is evaluated as normal, and its results are stored in the
+ * cache once they have been iterated in full. The results are stored before any ordering is applied, so cached
+ * results can be reused by queries which request different orderings.
+ * <p/>
+ * The cache is notified of objects added to and removed from the collection, like other indexes. An entry is
+ * invalidated only if one of the objects added or removed matches its query. To avoid testing every entry against
+ * every object, entries whose queries can only match objects having particular values of an attribute (such as
+ * {@link Equal} and {@link In} queries, and {@link And} queries containing them) are grouped by those values, and are
+ * tested only against objects which have one of them. Queries whose results can change
+ * without the collection being modified are never cached: this includes {@link ExistsIn} queries, which depend on
+ * a foreign collection, and {@link ComparativeQuery}s, which cannot be evaluated against individual objects.
+ * <p/>
+ * The cache is bounded by both the maximum number of entries, and the maximum total number of objects stored across
+ * all entries. When either bound would be exceeded, entries are evicted according to the {@link EvictionPolicy}.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public class QueryResultCache<O> implements Index<O> {
+
+    /**
+     * The policies which can be used to evict entries from the cache.
+     */
+    public enum EvictionPolicy {
+        /** Evict the entry which was least recently used. */
+        LRU,
+        /** Evict the entry which was least frequently used. */
+        LFU
+    }
+
+    static final int CACHED_RETRIEVAL_COST = 0;
+
+    final int maxEntries;
+    final int maxCachedObjects;
+    final EvictionPolicy evictionPolicy;
+
+    // Access-ordered, so that iteration starts from the least recently used entry. Guarded by synchronizing on itself.
+    final LinkedHashMap<CacheKey<O>, CacheEntry<O>> entries = new LinkedHashMap<CacheKey<O>, CacheEntry<O>>(16, 0.75f, true);
+    int cachedObjects = 0;
+    // The keys of entries whose queries can only match objects having certain values of an attribute, grouped by
+    // attribute and by value, and the keys of all other entries. Guarded by synchronizing on entries...
+    final Map<Attribute<O, ?>, Map<Object, Set<CacheKey<O>>>> keysByAttributeValue = new HashMap<Attribute<O, ?>, Map<Object, Set<CacheKey<O>>>>();
+    final Set<CacheKey<O>> unbucketedKeys = new HashSet<CacheKey<O>>();
+
+    // Incremented on every modification to the collection, so that results which were being collected while the
+    // collection was modified are not stored...
+    final AtomicLong modificationCount = new AtomicLong();
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Package-private constructor, used by static factory methods.
+     */
+    QueryResultCache(int maxEntries, int maxCachedObjects, EvictionPolicy evictionPolicy) {
+        if (maxEntries < 1 || maxCachedObjects < 1) {
+            throw new IllegalArgumentException("Invalid bounds for cache, maxEntries: " + maxEntries + ", maxCachedObjects: " + maxCachedObjects);
+        }
+        this.maxEntries = maxEntries;
+        this.maxCachedObjects = maxCachedObjects;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    // -------------------- Methods used by the query engine --------------------
+
+    /**
+     * Indicates if the results of the given query can be cached.
+     *
+     * @param query The query
+     * @param queryOptions The query options
+     * @return True if the results of the query can be cached
+     */
+    public boolean isCacheable(Query<O> query, QueryOptions queryOptions) {
+        if (query instanceof ComparativeQuery || query instanceof ExistsIn) {
+            return false;
+        }
+        if (query instanceof LogicalQuery) {
+            for (Query<O> childQuery : ((LogicalQuery<O>) query).getChildQueries()) {
+                if (!isCacheable(childQuery, queryOptions)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the cached results of the given query, or null if they are not cached.
+     *
+     * @param query The query
+     * @param queryOptions The query options
+     * @return The cached results of the given query, or null
+     */
+    public ResultSet<O> getCachedResults(final Query<O> query, final QueryOptions queryOptions) {
+        CacheEntry<O> entry;
+        synchronized (entries) {
+            entry = entries.get(new CacheKey<O>(query, queryOptions));
+            if (entry != null) {
+                entry.hits++;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new CachedResultSet<O>(entry, query, queryOptions);
+    }
+
+    /**
+     * Wraps the given results of a query which were not cached, such that they will be stored in the cache once they
+     * have been iterated in full, provided that the collection was not modified in the meantime.
+     *
+     * @param results The results of the query
+     * @param queryOptions The query options
+     * @return A ResultSet which stores the results in the cache when they have been iterated in full
+     */
+    public ResultSet<O> cacheOnCompletion(final ResultSet<O> results, final QueryOptions queryOptions) {
+        final CacheKey<O> key = new CacheKey<O>(results.getQuery(), queryOptions);
+        final long modificationCountAtStart = modificationCount.get();
+        return new WrappedResultSet<O>(results) {
+            @Override
+            public Iterator<O> iterator() {
+                final Iterator<O> iterator = super.iterator();
+                return new UnmodifiableIterator<O>() {
+                    List<O> collected = new ArrayList<O>();
+
+                    @Override
+                    public boolean hasNext() {
+                        boolean hasNext = iterator.hasNext();
+                        if (!hasNext && collected != null) {
+                            store(key, collected, modificationCountAtStart);
+                            collected = null;
+                        }
+                        return hasNext;
+                    }
+
+                    @Override
+                    public O next() {
+                        O next = iterator.next();
+                        if (collected != null) {
+                            // Stop collecting if the results would not fit in the cache...
+                            collected = collected.size() < maxCachedObjects ? collected : null;
+                            if (collected != null) {
+                                collected.add(next);
+                            }
+                        }
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+
+    void store(CacheKey<O> key, List<O> results, long modificationCountAtStart) {
+        Map<Attribute<O, ?>, Set<Object>> requiredValues = getRequiredValues(key.query);
+        synchronized (entries) {
+            if (modificationCount.get() != modificationCountAtStart || entries.containsKey(key)) {
+                return;
+            }
+            while (!entries.isEmpty() && (entries.size() >= maxEntries || cachedObjects + results.size() > maxCachedObjects)) {
+                evict();
+            }
+            entries.put(key, new CacheEntry<O>(Collections.unmodifiableList(results), requiredValues));
+            cachedObjects += results.size();
+            if (requiredValues == null) {
+                unbucketedKeys.add(key);
+            }
+            else {
+                for (Map.Entry<Attribute<O, ?>, Set<Object>> attributeValues : requiredValues.entrySet()) {
+                    Map<Object, Set<CacheKey<O>>> keysByValue = keysByAttributeValue.get(attributeValues.getKey());
+                    if (keysByValue == null) {
+                        keysByValue = new HashMap<Object, Set<CacheKey<O>>>();
+                        keysByAttributeValue.put(attributeValues.getKey(), keysByValue);
+                    }
+                    for (Object value : attributeValues.getValue()) {
+                        Set<CacheKey<O>> keys = keysByValue.get(value);
+                        if (keys == null) {
+                            keys = new HashSet<CacheKey<O>>();
+                            keysByValue.put(value, keys);
+                        }
+                        keys.add(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns values of attributes, at least one of which an object must have to match the given query, or null if
+     * the query could match objects without any particular values. For an {@link And} query, these are the fewest
+     * values required by any of its children, and for an {@link Or} query, the values required by any of its
+     * children.
+     */
+    static <O> Map<Attribute<O, ?>, Set<Object>> getRequiredValues(Query<O> query) {
+        Class<?> queryClass = query.getClass();
+        if (queryClass.equals(Equal.class)) {
+            Equal<O, ?> equal = (Equal<O, ?>) query;
+            Map<Attribute<O, ?>, Set<Object>> requiredValues = new HashMap<Attribute<O, ?>, Set<Object>>();
+            requiredValues.put(equal.getAttribute(), Collections.<Object>singleton(equal.getValue()));
+            return requiredValues;
+        }
+        else if (queryClass.equals(In.class)) {
+            In<O, ?> in = (In<O, ?>) query;
+            Map<Attribute<O, ?>, Set<Object>> requiredValues = new HashMap<Attribute<O, ?>, Set<Object>>();
+            requiredValues.put(in.getAttribute(), new HashSet<Object>(in.getValues()));
+            return requiredValues;
+        }
+        else if (query instanceof And) {
+            Map<Attribute<O, ?>, Set<Object>> fewestRequiredValues = null;
+            for (Query<O> childQuery : ((And<O>) query).getChildQueries()) {
+                Map<Attribute<O, ?>, Set<Object>> requiredValues = getRequiredValues(childQuery);
+                if (requiredValues != null && (fewestRequiredValues == null || countValues(requiredValues) < countValues(fewestRequiredValues))) {
+                    fewestRequiredValues = requiredValues;
+                }
+            }
+            return fewestRequiredValues;
+        }
+        else if (query instanceof Or) {
+            Map<Attribute<O, ?>, Set<Object>> anyRequiredValues = new HashMap<Attribute<O, ?>, Set<Object>>();
+            for (Query<O> childQuery : ((Or<O>) query).getChildQueries()) {
+                Map<Attribute<O, ?>, Set<Object>> requiredValues = getRequiredValues(childQuery);
+                if (requiredValues == null) {
+                    return null;
+                }
+                for (Map.Entry<Attribute<O, ?>, Set<Object>> attributeValues : requiredValues.entrySet()) {
+                    Set<Object> values = anyRequiredValues.get(attributeValues.getKey());
+                    if (values == null) {
+                        values = new HashSet<Object>();
+                        anyRequiredValues.put(attributeValues.getKey(), values);
+                    }
+                    values.addAll(attributeValues.getValue());
+                }
+            }
+            return anyRequiredValues;
+        }
+        return null;
+    }
+
+    static int countValues(Map<?, Set<Object>> requiredValues) {
+        int count = 0;
+        for (Set<Object> values : requiredValues.values()) {
+            count += values.size();
+        }
+        return count;
+    }
+
+    // Must be called while synchronized on entries...
+    void removeEntry(CacheKey<O> key) {
+        CacheEntry<O> entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        cachedObjects -= entry.results.size();
+        if (entry.requiredValues == null) {
+            unbucketedKeys.remove(key);
+            return;
+        }
+        for (Map.Entry<Attribute<O, ?>, Set<Object>> attributeValues : entry.requiredValues.entrySet()) {
+            Map<Object, Set<CacheKey<O>>> keysByValue = keysByAttributeValue.get(attributeValues.getKey());
+            for (Object value : attributeValues.getValue()) {
+                Set<CacheKey<O>> keys = keysByValue.get(value);
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByValue.remove(value);
+                }
+            }
+            if (keysByValue.isEmpty()) {
+                keysByAttributeValue.remove(attributeValues.getKey());
+            }
+        }
+    }
+
+    // Must be called while synchronized on entries...
+    void evict() {
+        Iterator<Map.Entry<CacheKey<O>, CacheEntry<O>>> iterator = entries.entrySet().iterator();
+        Map.Entry<CacheKey<O>, CacheEntry<O>> victim = iterator.next(); // the least recently used entry
+        if (evictionPolicy == EvictionPolicy.LFU) {
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey<O>, CacheEntry<O>> candidate = iterator.next();
+                if (candidate.getValue().hits < victim.getValue().hits) {
+                    victim = candidate;
+                }
+            }
+        }
+        removeEntry(victim.getKey());
+        evictions.increment();
+    }
+
+    /**
+     * Invalidates the entries whose queries match any of the given objects.
+     */
+    void invalidate(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        modificationCount.incrementAndGet();
+        try {
+            synchronized (entries) {
+                if (entries.isEmpty()) {
+                    return;
+                }
+                List<CacheKey<O>> matchingKeys = new ArrayList<CacheKey<O>>();
+                for (O object : objectSet) {
+                    // Only entries which do not require particular values, or which require values the object has,
+                    // can match the object...
+                    addMatchingKeys(unbucketedKeys, object, queryOptions, matchingKeys);
+                    for (Map.Entry<Attribute<O, ?>, Map<Object, Set<CacheKey<O>>>> keysByValue : keysByAttributeValue.entrySet()) {
+                        for (Object value : keysByValue.getKey().getValues(object, queryOptions)) {
+                            Set<CacheKey<O>> keys = keysByValue.getValue().get(value);
+                            if (keys != null) {
+                                addMatchingKeys(keys, object, queryOptions, matchingKeys);
+                            }
+                        }
+                    }
+                    for (CacheKey<O> key : matchingKeys) {
+                        if (entries.containsKey(key)) {
+                            removeEntry(key);
+                            invalidations.increment();
+                        }
+                    }
+                    matchingKeys.clear();
+                    if (entries.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    static <O> void addMatchingKeys(Set<CacheKey<O>> keys, O object, QueryOptions queryOptions, List<CacheKey<O>> matchingKeys) {
+        for (CacheKey<O> key : keys) {
+            if (key.query.matches(object, queryOptions)) {
+                matchingKeys.add(key);
+            }
+        }
+    }
+
+    // -------------------- Statistics --------------------
+
+    /**
+     * @return The number of entries currently cached
+     */
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The total number of objects currently cached across all entries
+     */
+    public int getCachedObjectCount() {
+        synchronized (entries) {
+            return cachedObjects;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    // -------------------- Index methods --------------------
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    /**
+     * @return True if the results of the given query are currently cached
+     */
+    @Override
+    public boolean supportsQuery(Query<O> query, QueryOptions queryOptions) {
+        synchronized (entries) {
+            return entries.containsKey(new CacheKey<O>(query, queryOptions));
+        }
+    }
+
+    @Override
+    public boolean isQuantized() {
+        return false;
+    }
+
+    /**
+     * Returns the cached results of the given query.
+     *
+     * @throws IllegalStateException If the results of the query are not cached
+     */
+    @Override
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        ResultSet<O> results = getCachedResults(query, queryOptions);
+        if (results == null) {
+            throw new IllegalStateException("The results of the query are not cached: " + query);
+        }
+        return results;
+    }
+
+    @Override
+    public Index<O> getEffectiveIndex() {
+        return this;
+    }
+
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        invalidate(objectSet, queryOptions);
+        return false;
+    }
+
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        invalidate(objectSet, queryOptions);
+        return false;
+    }
+
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        modificationCount.incrementAndGet();
+        synchronized (entries) {
+            invalidations.add(entries.size());
+            entries.clear();
+            keysByAttributeValue.clear();
+            unbucketedKeys.clear();
+            cachedObjects = 0;
+        }
+    }
+
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        clear(queryOptions);
+    }
+
+    @Override
+    public void destroy(QueryOptions queryOptions) {
+        clear(queryOptions);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryResultCache{" +
+                "maxEntries=" + maxEntries +
+                ", maxCachedObjects=" + maxCachedObjects +
+                ", evictionPolicy=" + evictionPolicy +
+                '}';
+    }
+
+    // -------------------- Static factory methods --------------------
+
+    /**
+     * Creates a {@link QueryResultCache} which evicts the least recently used entries when either bound is exceeded.
+     *
+     * @param maxEntries The maximum number of queries whose results will be cached
+     * @param maxCachedObjects The maximum total number of objects which will be stored across all entries
+     * @param <O> The type of the objects in the collection
+     * @return A new {@link QueryResultCache}
+     */
+    public static <O> QueryResultCache<O> withMaximumSize(int maxEntries, int maxCachedObjects) {
+        return new QueryResultCache<O>(maxEntries, maxCachedObjects, EvictionPolicy.LRU);
+    }
+
+    /**
+     * Creates a {@link QueryResultCache} which evicts entries according to the given policy when either bound is
+     * exceeded.
+     *
+     * @param maxEntries The maximum number of queries whose results will be cached
+     * @param maxCachedObjects The maximum total number of objects which will be stored across all entries
+     * @param evictionPolicy The policy which determines the entries to evict
+     * @param <O> The type of the objects in the collection
+     * @return A new {@link QueryResultCache}
+     */
+    public static <O> QueryResultCache<O> withMaximumSize(int maxEntries, int maxCachedObjects, EvictionPolicy evictionPolicy) {
+        return new QueryResultCache<O>(maxEntries, maxCachedObjects, evictionPolicy);
+    }
+
+    // -------------------- Supporting classes --------------------
+
+    static class CacheKey<O> {
+        final Query<O> query;
+        // Logical elimination of duplicates changes the results returned by the query engine...
+        final boolean logicalElimination;
+
+        CacheKey(Query<O> query, QueryOptions queryOptions) {
+            this.query = query;
+            this.logicalElimination = DeduplicationOption.isLogicalElimination(queryOptions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+
+            CacheKey<?> cacheKey = (CacheKey<?>) o;
+            return logicalElimination == cacheKey.logicalElimination && query.equals(cacheKey.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + (logicalElimination ? 1 : 0);
+        }
+    }
+
+    static class CacheEntry<O> {
+        // The results in the order they were retrieved, which can contain duplicates...
+        final List<O> results;
+        final Map<Attribute<O, ?>, Set<Object>> requiredValues;
+        // The distinct results, for contains(), built when first needed...
+        volatile Set<O> distinctResults = null;
+        // Guarded by synchronizing on the entries map...
+        long hits = 0;
+
+        CacheEntry(List<O> results, Map<Attribute<O, ?>, Set<Object>> requiredValues) {
+            this.results = results;
+            this.requiredValues = requiredValues;
+        }
+
+        Set<O> getDistinctResults() {
+            Set<O> distinctResults = this.distinctResults;
+            if (distinctResults == null) {
+                distinctResults = new HashSet<O>(results);
+                this.distinctResults = distinctResults;
+            }
+            return distinctResults;
+        }
+    }
+
+    static class CachedResultSet<O> extends ResultSet<O> {
+        final CacheEntry<O> entry;
+        final List<O> results;
+        final Query<O> query;
+        final QueryOptions queryOptions;
+
+        CachedResultSet(CacheEntry<O> entry, Query<O> query, QueryOptions queryOptions) {
+            this.entry = entry;
+            this.results = entry.results;
+            this.query = query;
+            this.queryOptions = queryOptions;
+        }
+
+        @Override
+        public Iterator<O> iterator() {
+            return results.iterator();
+        }
+
+        @Override
+        public boolean contains(O object) {
+            return entry.getDistinctResults().contains(object);
+        }
+
+        @Override
+        public boolean matches(O object) {
+            return query.matches(object, queryOptions);
+        }
+
+        @Override
+        public Query<O> getQuery() {
+            return query;
+        }
+
+        @Override
+        public QueryOptions getQueryOptions() {
+            return queryOptions;
+        }
+
+        @Override
+        public int getRetrievalCost() {
+            return CACHED_RETRIEVAL_COST;
+        }
+
+        @Override
+        public int getMergeCost() {
+            return results.size();
+        }
+
+        @Override
+        public int size() {
+            return results.size();
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.sqlite;
+
+import com.googlecode.concurrenttrees.common.LazyIterator;
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.compound.support.CompoundAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundQuery;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
+import com.googlecode.cqengine.index.compound.support.CompoundValueTuple;
+import com.googlecode.cqengine.index.compound.support.SortedCompoundAttributeIndex;
+import com.googlecode.cqengine.index.sqlite.support.DBQueries;
+import com.googlecode.cqengine.index.sqlite.support.DBUtils;
+import com.googlecode.cqengine.index.support.CloseableRequestResources;
+import com.googlecode.cqengine.index.support.CloseableRequestResources.CloseableResourceGroup;
+import com.googlecode.cqengine.index.support.indextype.NonHeapTypeIndex;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.googlecode.cqengine.index.sqlite.support.DBQueries.Row;
+import static com.googlecode.cqengine.index.sqlite.support.DBUtils.sanitizeForTableName;
+
+/**
+ * A compound index backed by a single table in a SQLite database, which stores the values of several attributes of
+ * each object side by side, in one row per object (or one row per combination of values, for multi-valued
+ * attributes).
+ * <p>
+ * A {@link SQLiteIndex} stores each attribute in its own table, so a query on several attributes must look up
+ * each table separately and then combine the results. This index instead answers such queries with a single scan
+ * of a covering SQLite index, which includes every column of the table, so the table itself is never read.
+ * It supports the same queries as the on-heap {@link com.googlecode.cqengine.index.compound.SortedCompoundIndex}:
+ * equality conditions on a leftmost prefix of the attributes, optionally combined with a range condition on the
+ * attribute following that prefix, for example {@code and(equal(manufacturer, X), between(price, a, b))} for an
+ * index on {@code (manufacturer, price, ...)}. Objects are returned in the order of the attribute following the
+ * prefix, and so the query engine can also use this index to order such results without sorting them.
+ * </p>
+ * <h1>
+ *     Index implementation
+ * </h1>
+ *      This index is persisted in a SQLite table with the following schema:
+ * <pre>
+ * CREATE TABLE ${table_name} (
+ *      objectKey ${objectKey_type},
+ *      value0 ${value0_type},
+ *      value1 ${value1_type},
+ *      ...
+ *      PRIMARY KEY (objectKey, value0, value1, ...)
+ * ) WITHOUT ROWID;
+ *
+ * CREATE INDEX idx_${table}_value ON ${table} (value0, value1, ..., objectKey);
+ * </pre>
+ * Where <i>table_name</i> is "cqtbl_compound_" followed by the names of the attributes, stripped of non
+ * alpha-numeric chars and separated by "_".
+ * <p>
+ * Like {@link SQLiteIndex}, this index allows the database to be supplied by the application in request-scope via
+ * {@link QueryOptions}. Applications where CQEngine manages the SQLite database should probably use
+ * {@link com.googlecode.cqengine.index.disk.DiskCompoundIndex} or
+ * {@link com.googlecode.cqengine.index.offheap.OffHeapCompoundIndex} instead.
+ * </p>
+ */
+public class SQLiteCompoundIndex<O, K> implements SortedCompoundAttributeIndex<O>, NonHeapTypeIndex {
+
+    // Lower than the cost of a SQLiteIndex, because a single lookup answers conditions on several attributes...
+    static final int INDEX_RETRIEVAL_COST = 75;
+
+    final CompoundAttribute<O> attribute;
+    final String tableName;
+    final SimpleAttribute<O, K> primaryKeyAttribute;
+    final SimpleAttribute<K, O> foreignKeyAttribute;
+    final List<Class<?>> valueTypes;
+
+    SQLiteConfig.SynchronousMode pragmaSynchronous;
+    SQLiteConfig.JournalMode pragmaJournalMode;
+    boolean canModifySyncAndJournaling;
+
+    /**
+     * Constructor. Note the index should normally be created via the static factory methods instead.
+     *
+     * @param attribute The {@link CompoundAttribute} on which the index will be built.
+     * @param primaryKeyAttribute The {@link SimpleAttribute} with which the index will retrieve the object key.
+     * @param foreignKeyAttribute The {@link SimpleAttribute} to map a query result into the domain object.
+     * @param tableNameSuffix An optional string to append the end of the table name used by this index;
+     *                        This can be an empty string, but cannot be null; If not an empty string, the string
+     *                        should only contain characters suitable for use in a SQLite table name; therefore see
+     *                        {@link DBUtils#sanitizeForTableName(String)}
+     */
+    public SQLiteCompoundIndex(final CompoundAttribute<O> attribute,
+                               final SimpleAttribute<O, K> primaryKeyAttribute,
+                               final SimpleAttribute<K, O> foreignKeyAttribute,
+                               final String tableNameSuffix) {
+        StringBuilder tableName = new StringBuilder("compound");
+        List<Class<?>> valueTypes = new ArrayList<Class<?>>(attribute.size());
+        for (Attribute<O, ?> component : attribute.getAttributes()) {
+            tableName.append('_').append(sanitizeForTableName(component.getAttributeName()));
+            valueTypes.add(component.getAttributeType());
+        }
+        this.attribute = attribute;
+        this.tableName = tableName.append(tableNameSuffix).toString();
+        this.primaryKeyAttribute = primaryKeyAttribute;
+        this.foreignKeyAttribute = foreignKeyAttribute;
+        this.valueTypes = valueTypes;
+    }
+
+    @Override
+    public CompoundAttribute<O> getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Returns true if the given {@link Query} is a {@link CompoundQuery} or a {@link CompoundRangeQuery} based on the
+     * same list of attributes as the {@link CompoundAttribute} on which this index is based, and in the latter case
+     * only if {@link CompoundRangeQuery#isAnswerableByRangeScan()}, because objects which have no value for one of
+     * the attributes have no rows in the table.
+     */
+    @Override
+    public boolean supportsQuery(Query<O> query, QueryOptions queryOptions) {
+        if (query instanceof CompoundQuery) {
+            return attribute.equals(((CompoundQuery<O>) query).getCompoundAttribute());
+        }
+        if (query instanceof CompoundRangeQuery) {
+            CompoundRangeQuery<O> rangeQuery = (CompoundRangeQuery<O>) query;
+            return attribute.equals(rangeQuery.getCompoundAttribute()) && rangeQuery.isAnswerableByRangeScan();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasSingleValuedAttributes() {
+        return hasSingleValuedAttributes(attribute);
+    }
+
+    static <O> boolean hasSingleValuedAttributes(CompoundAttribute<O> attribute) {
+        for (Attribute<O, ?> component : attribute.getAttributes()) {
+            // SimpleNullableAttributes are excluded, because objects which have no value have no rows in the table...
+            if (!(component instanceof SimpleAttribute)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    @Override
+    public boolean isQuantized() {
+        return false;
+    }
+
+    @Override
+    public Index<O> getEffectiveIndex() {
+        return this;
+    }
+
+    @Override
+    public ResultSet<O> retrieve(final Query<O> query, final QueryOptions queryOptions) {
+        if (query instanceof CompoundRangeQuery) {
+            return retrieve((CompoundRangeQuery<O>) query, queryOptions, false);
+        }
+        if (query instanceof CompoundQuery && supportsQuery(query, queryOptions)) {
+            // An exact match is a range query whose prefix covers all attributes...
+            CompoundRangeQuery<O> rangeQuery = CompoundRangeQuery.fromConjunctsIfSuitable(((CompoundQuery<O>) query).getAndQuery(), attribute);
+            return retrieve(rangeQuery, query, queryOptions, false);
+        }
+        throw new IllegalArgumentException("Unsupported query: " + query);
+    }
+
+    @Override
+    public ResultSet<O> retrieve(final CompoundRangeQuery<O> rangeQuery, final QueryOptions queryOptions, final boolean descending) {
+        if (!supportsQuery(rangeQuery, queryOptions)) {
+            throw new IllegalArgumentException("Unsupported query: " + rangeQuery);
+        }
+        return retrieve(rangeQuery, rangeQuery, queryOptions, descending);
+    }
+
+    ResultSet<O> retrieve(final CompoundRangeQuery<O> rangeQuery, final Query<O> query, final QueryOptions queryOptions, final boolean descending) {
+        final ConnectionManager connectionManager = getConnectionManager(queryOptions);
+        final CloseableResourceGroup closeableResourceGroup = CloseableRequestResources.forQueryOptions(queryOptions).addGroup();
+        // Objects can have several rows matching the query only if an attribute is multi-valued...
+        final boolean distinct = !hasSingleValuedAttributes();
+
+        return new ResultSet<O>() {
+
+            @Override
+            public Iterator<O> iterator() {
+                final Connection searchConnection = connectionManager.getConnection(SQLiteCompoundIndex.this, queryOptions);
+
+                final java.sql.ResultSet searchResultSet = DBQueries.searchCompound(rangeQuery, distinct, descending, tableName, searchConnection);
+                closeableResourceGroup.add(DBUtils.wrapAsCloseable(searchResultSet));
+
+                return new LazyIterator<O>() {
+                    @Override
+                    protected O computeNext() {
+                        try {
+                            if (!searchResultSet.next()) {
+                                close();
+                                return endOfData();
+                            }
+                            final K objectKey = DBUtils.getValueFromResultSet(1, searchResultSet, primaryKeyAttribute.getAttributeType());
+                            return foreignKeyAttribute.getValue(objectKey, queryOptions);
+                        } catch (Exception e) {
+                            endOfData();
+                            close();
+                            throw new IllegalStateException("Unable to retrieve the ResultSet item.", e);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public int getRetrievalCost() {
+                return INDEX_RETRIEVAL_COST;
+            }
+
+            @Override
+            public int getMergeCost() {
+                final Connection connection = connectionManager.getConnection(SQLiteCompoundIndex.this, queryOptions);
+                return DBQueries.countCompound(rangeQuery, false, tableName, connection); // no need to eliminate duplicates
+            }
+
+            @Override
+            public boolean contains(O object) {
+                final K objectKey = primaryKeyAttribute.getValue(object, queryOptions);
+                final Connection connection = connectionManager.getConnection(SQLiteCompoundIndex.this, queryOptions);
+                return DBQueries.containsCompound(objectKey, rangeQuery, tableName, connection);
+            }
+
+            @Override
+            public BitSet containsAll(List<O> objects) {
+                final List<K> objectKeys = new ArrayList<K>(objects.size());
+                for (O object : objects) {
+                    objectKeys.add(primaryKeyAttribute.getValue(object, queryOptions));
+                }
+                final Connection connection = connectionManager.getConnection(SQLiteCompoundIndex.this, queryOptions);
+                return SQLiteIndex.toBitSet(objectKeys, DBQueries.containsAllCompound(objectKeys, primaryKeyAttribute.getAttributeType(), rangeQuery, tableName, connection));
+            }
+
+            @Override
+            public boolean matches(O object) {
+                return query.matches(object, queryOptions);
+            }
+
+            @Override
+            public int size() {
+                final Connection connection = connectionManager.getConnection(SQLiteCompoundIndex.this, queryOptions);
+                return DBQueries.countCompound(rangeQuery, distinct, tableName, connection);
+            }
+
+            @Override
+            public void close() {
+                closeableResourceGroup.close();
+            }
+
+            @Override
+            public Query<O> getQuery() {
+                return query;
+            }
+
+            @Override
+            public QueryOptions getQueryOptions() {
+                return queryOptions;
+            }
+        };
+    }
+
+    @Override
+    public boolean addAll(final ObjectSet<O> objectSet, final QueryOptions queryOptions) {
+        return doAddAll(objectSet, queryOptions, false);
+    }
+
+    boolean doAddAll(final ObjectSet<O> objectSet, final QueryOptions queryOptions, boolean isInit) {
+        try {
+            ConnectionManager connectionManager = getConnectionManager(queryOptions);
+            if (!connectionManager.isApplyUpdateForIndexEnabled(this)) {
+                return false;
+            }
+
+            final Connection connection = connectionManager.getConnection(this, queryOptions);
+
+            if (!SQLiteIndex.FORCE_REINIT_OF_PREEXISTING_INDEXES) {
+                if (isInit && DBQueries.indexTableExists(tableName, connection)) {
+                    // init() was called, but index table already exists. Skip initializing it...
+                    return false;
+                }
+            }
+            createTableIndexIfNeeded(connection);
+
+            Iterable<Row<K, Iterable<Object>>> rows = rowIterable(objectSet, queryOptions);
+            final int rowsModified = DBQueries.bulkAddCompound(rows, valueTypes.size(), tableName, connection);
+            return rowsModified > 0;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    /**
+     * Transforms domain objects into {@link Row}s composed by object id and the values of the attributes of the
+     * compound attribute, one row per tuple generated by the compound attribute.
+     */
+    Iterable<Row<K, Iterable<Object>>> rowIterable(final Iterable<O> objects, final QueryOptions queryOptions) {
+        return new Iterable<Row<K, Iterable<Object>>>() {
+            @Override
+            public Iterator<Row<K, Iterable<Object>>> iterator() {
+                return new LazyIterator<Row<K, Iterable<Object>>>() {
+
+                    final Iterator<O> objectIterator = objects.iterator();
+                    Iterator<CompoundValueTuple<O>> tuplesIterator = null;
+                    K currentObjectKey;
+
+                    @Override
+                    protected Row<K, Iterable<Object>> computeNext() {
+                        while (tuplesIterator == null || !tuplesIterator.hasNext()) {
+                            if (!objectIterator.hasNext()) {
+                                return endOfData();
+                            }
+                            O object = objectIterator.next();
+                            currentObjectKey = primaryKeyAttribute.getValue(object, queryOptions);
+                            tuplesIterator = attribute.getValues(object, queryOptions).iterator();
+                        }
+                        return new Row<K, Iterable<Object>>(currentObjectKey, tuplesIterator.next().getAttributeValues());
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean removeAll(final ObjectSet<O> objectSet, final QueryOptions queryOptions) {
+        try {
+            ConnectionManager connectionManager = getConnectionManager(queryOptions);
+            if (!connectionManager.isApplyUpdateForIndexEnabled(this)) {
+                return false;
+            }
+
+            final Connection connection = connectionManager.getConnection(this, queryOptions);
+            createTableIndexIfNeeded(connection);
+
+            Iterable<K> objectKeys = SQLiteIndex.objectKeyIterable(objectSet, primaryKeyAttribute, queryOptions);
+            int rowsModified = DBQueries.bulkRemove(objectKeys, tableName, connection);
+            return rowsModified > 0;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        ConnectionManager connectionManager = getConnectionManager(queryOptions);
+        if (!connectionManager.isApplyUpdateForIndexEnabled(this)) {
+            return;
+        }
+
+        final Connection connection = connectionManager.getConnection(this, queryOptions);
+        createTableIndexIfNeeded(connection);
+        DBQueries.clearIndexTable(tableName, connection);
+    }
+
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        final ConnectionManager connectionManager = getConnectionManager(queryOptions);
+        final Connection connection = connectionManager.getConnection(this, queryOptions);
+        pragmaJournalMode = DBQueries.getPragmaJournalModeOrNull(connection);
+        pragmaSynchronous = DBQueries.getPragmaSynchronousOrNull(connection);
+        canModifySyncAndJournaling = pragmaJournalMode != null && pragmaSynchronous != null;
+
+        doAddAll(ObjectSet.fromObjectStore(objectStore, queryOptions), queryOptions, true);
+    }
+
+    /**
+     * Drops the table which underpins this index from the SQLite database.
+     *
+     * @param queryOptions Optional parameters for the update
+     */
+    @Override
+    public void destroy(QueryOptions queryOptions) {
+        ConnectionManager connectionManager = getConnectionManager(queryOptions);
+        if (!connectionManager.isApplyUpdateForIndexEnabled(this)) {
+            return;
+        }
+
+        final Connection connection = connectionManager.getConnection(this, queryOptions);
+        DBQueries.dropIndexTable(tableName, connection);
+    }
+
+    void createTableIndexIfNeeded(final Connection connection) {
+        DBQueries.createCompoundIndexTable(tableName, primaryKeyAttribute.getAttributeType(), valueTypes, connection);
+        DBQueries.createCompoundIndexOnTable(tableName, valueTypes.size(), connection);
+        if (canModifySyncAndJournaling) {
+            // Explicitly (re-)set the configured sync and journaling settings, which can be lost after DDL
+            // operations. For more details see: https://github.com/npgall/cqengine/issues/227
+            DBQueries.setSyncAndJournaling(connection, pragmaSynchronous, pragmaJournalMode);
+        }
+    }
+
+    ConnectionManager getConnectionManager(final QueryOptions queryOptions) {
+        ConnectionManager connectionManager = queryOptions.get(ConnectionManager.class);
+        if (connectionManager == null)
+            throw new IllegalStateException("A ConnectionManager is required but was not provided in the QueryOptions.");
+        return connectionManager;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SQLiteCompoundIndex that = (SQLiteCompoundIndex) o;
+
+        if (!attribute.equals(that.attribute)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getClass().hashCode();
+        result = 31 * result + attribute.hashCode();
+        return result;
+    }
+
+    // ---------- Static factory methods to create SQLiteCompoundIndex ----------
+
+    /**
+     * Creates a new {@link SQLiteCompoundIndex} on the given combination of attributes.
+     *
+     * @param objectKeyAttribute The {@link SimpleAttribute} used to retrieve the object key.
+     * @param foreignKeyAttribute The {@link SimpleAttribute} to map a query result into the domain object.
+     * @param attributes The combination of attributes on which the index will be built, whose values must be
+     * {@link Comparable} and of types supported by SQLite
+     * @param <O> The type of the object containing the attributes.
+     * @param <K> The type of the object key.
+     * @return a new instance of the {@link SQLiteCompoundIndex}
+     */
+    @SafeVarargs
+    public static <O, K> SQLiteCompoundIndex<O, K> onAttributes(final SimpleAttribute<O, K> objectKeyAttribute,
+                                                                final SimpleAttribute<K, O> foreignKeyAttribute,
+                                                                final Attribute<O, ?>... attributes) {
+        CompoundAttribute<O> compoundAttribute = new CompoundAttribute<O>(new ArrayList<Attribute<O, ?>>(Arrays.asList(attributes)));
+        return new SQLiteCompoundIndex<O, K>(compoundAttribute, objectKeyAttribute, foreignKeyAttribute, "");
+    }
+}
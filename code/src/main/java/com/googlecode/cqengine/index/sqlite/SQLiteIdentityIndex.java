@@ -18,20 +18,32 @@ package com.googlecode.cqengine.index.sqlite;
 import com.googlecode.cqengine.attribute.Attribute;
 import com.googlecode.cqengine.attribute.SimpleAttribute;
 import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.sqlite.support.DBQueries;
+import com.googlecode.cqengine.index.sqlite.support.DBUtils;
 import com.googlecode.cqengine.persistence.support.serialization.PersistenceConfig;
 import com.googlecode.cqengine.persistence.support.serialization.PojoSerializer;
 import com.googlecode.cqengine.index.support.CloseableIterable;
+import com.googlecode.cqengine.index.support.CloseableIterator;
+import com.googlecode.cqengine.index.support.CloseableRequestResources;
 import com.googlecode.cqengine.index.support.KeyStatistics;
 import com.googlecode.cqengine.index.support.KeyValue;
 import com.googlecode.cqengine.index.support.SortedKeyStatisticsAttributeIndex;
 import com.googlecode.cqengine.index.support.indextype.NonHeapTypeIndex;
 import com.googlecode.cqengine.persistence.support.ObjectSet;
 import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.persistence.support.sqlite.ObjectCache;
 import com.googlecode.cqengine.query.Query;
 import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.Equal;
 import com.googlecode.cqengine.resultset.ResultSet;
 
 import java.lang.reflect.Constructor;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import static com.googlecode.cqengine.query.QueryFactory.equal;
 import static com.googlecode.cqengine.query.QueryFactory.noQueryOptions;
@@ -52,8 +64,18 @@ public class SQLiteIdentityIndex<A extends Comparable<A>, O> implements Identity
     final SimpleAttribute<O, A> primaryKeyAttribute;
     final SimpleAttribute<A, O> foreignKeyAttribute;
     final PojoSerializer<O> pojoSerializer;
+    final ObjectCache<A, O> objectCache;
 
     public SQLiteIdentityIndex(final SimpleAttribute<O, A> primaryKeyAttribute) {
+        this(primaryKeyAttribute, null);
+    }
+
+    /**
+     * @param primaryKeyAttribute The primary key attribute
+     * @param objectCache An optional cache of deserialized objects, consulted when objects are retrieved by
+     * primary key via an {@link Equal} query, and kept coherent as objects are added and removed; can be null
+     */
+    public SQLiteIdentityIndex(final SimpleAttribute<O, A> primaryKeyAttribute, final ObjectCache<A, O> objectCache) {
         this.sqLiteIndex = new SQLiteIndex<A, O, byte[]>(
                 primaryKeyAttribute,
                 new SerializingAttribute(primaryKeyAttribute.getObjectType(), byte[].class),
@@ -69,6 +91,11 @@ public class SQLiteIdentityIndex<A extends Comparable<A>, O> implements Identity
         this.primaryKeyAttribute = primaryKeyAttribute;
         this.foreignKeyAttribute = new ForeignKeyAttribute();
         this.pojoSerializer = createSerializer(objectType);
+        this.objectCache = objectCache;
+    }
+
+    public ObjectCache<A, O> getObjectCache() {
+        return objectCache;
     }
 
     public SimpleAttribute<A, O> getForeignKeyAttribute() {
@@ -105,24 +132,78 @@ public class SQLiteIdentityIndex<A extends Comparable<A>, O> implements Identity
 
     @Override
     public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        if (objectCache != null && query instanceof Equal && primaryKeyAttribute.equals(((Equal<O, ?>) query).getAttribute())) {
+            @SuppressWarnings("unchecked")
+            Equal<O, A> equal = (Equal<O, A>) query;
+            return new CachingPrimaryKeyResultSet(equal, queryOptions);
+        }
         return sqLiteIndex.retrieve(query, queryOptions);
     }
 
+    /**
+     * Reads a page of up to {@code fetchSize} objects from this index in ascending order of primary key, starting
+     * after the given primary key, using the given connection. All of the objects in the page are read and
+     * deserialized before this method returns, so the connection is not needed afterwards.
+     *
+     * @param afterPrimaryKey The primary key after which the page should start, or null to read the first page
+     * @param fetchSize The maximum number of objects to read
+     * @param connection The connection to the database containing this index
+     * @return The objects in the page, in ascending order of primary key; fewer than {@code fetchSize} objects
+     * indicates that this is the last page
+     */
+    public List<O> retrievePage(A afterPrimaryKey, int fetchSize, Connection connection) {
+        java.sql.ResultSet searchResultSet = null;
+        try {
+            searchResultSet = DBQueries.getIndexEntriesPage(sqLiteIndex.tableName, afterPrimaryKey, fetchSize, connection);
+            List<O> page = new ArrayList<O>(fetchSize);
+            while (searchResultSet.next()) {
+                page.add(pojoSerializer.deserialize(searchResultSet.getBytes(1)));
+            }
+            return page;
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Unable to retrieve page of objects after primary key: " + afterPrimaryKey, e);
+        }
+        finally {
+            DBUtils.closeQuietly(searchResultSet);
+        }
+    }
+
     @Override
     public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        invalidateCachedObjects(objectSet, queryOptions);
         return sqLiteIndex.addAll(objectSet, queryOptions);
     }
 
     @Override
     public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        invalidateCachedObjects(objectSet, queryOptions);
         return sqLiteIndex.removeAll(objectSet, queryOptions);
     }
 
     @Override
     public void clear(QueryOptions queryOptions) {
+        if (objectCache != null) {
+            objectCache.invalidateAllForRequest(queryOptions);
+        }
         sqLiteIndex.clear(queryOptions);
     }
 
+    void invalidateCachedObjects(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        if (objectCache == null) {
+            return;
+        }
+        CloseableIterator<O> iterator = objectSet.iterator();
+        try {
+            while (iterator.hasNext()) {
+                objectCache.invalidateForRequest(primaryKeyAttribute.getValue(iterator.next(), queryOptions), queryOptions);
+            }
+        }
+        finally {
+            CloseableRequestResources.closeQuietly(iterator);
+        }
+    }
+
     @Override
     public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
         sqLiteIndex.init(objectStore, queryOptions);
@@ -217,8 +298,15 @@ public class SQLiteIdentityIndex<A extends Comparable<A>, O> implements Identity
         return result;
     }
 
+    /**
+     * Creates the {@link PojoSerializer} configured for the given object type by its {@link PersistenceConfig}
+     * annotation, or the default serializer if it is not annotated.
+     *
+     * @param objectType The type of the objects to serialize
+     * @return A serializer for the given object type
+     */
     @SuppressWarnings("unchecked")
-    static <O> PojoSerializer<O> createSerializer(Class<O> objectType) {
+    public static <O> PojoSerializer<O> createSerializer(Class<O> objectType) {
         Class<? extends PojoSerializer> serializerClass = null;
         try {
             // Read the configured serializer from the @PersistenceConfig annotation...
@@ -286,6 +374,96 @@ public class SQLiteIdentityIndex<A extends Comparable<A>, O> implements Identity
         }
     }
 
+    /**
+     * A ResultSet for an {@link Equal} query on the primary key, which looks up the object in the
+     * {@link ObjectCache} before reading it from SQLite, and stores it in the cache if it was read from SQLite.
+     * The lookup is deferred until the object is required, and is performed at most once.
+     */
+    class CachingPrimaryKeyResultSet extends ResultSet<O> {
+
+        final Equal<O, A> query;
+        final QueryOptions queryOptions;
+        boolean lookedUp = false;
+        O object = null;
+
+        CachingPrimaryKeyResultSet(Equal<O, A> query, QueryOptions queryOptions) {
+            this.query = query;
+            this.queryOptions = queryOptions;
+        }
+
+        O lookup() {
+            if (lookedUp) {
+                return object;
+            }
+            A primaryKey = query.getValue();
+            object = objectCache.get(primaryKey);
+            if (object == null) {
+                // The object may be read from a snapshot taken when the request's transaction started...
+                long invalidationStamp = objectCache.getInvalidationStamp(primaryKey, queryOptions);
+                ResultSet<O> results = sqLiteIndex.retrieve(query, queryOptions);
+                try {
+                    Iterator<O> iterator = results.iterator();
+                    object = iterator.hasNext() ? iterator.next() : null;
+                }
+                finally {
+                    results.close();
+                }
+                if (object != null) {
+                    objectCache.putIfNotInvalidatedSince(primaryKey, object, invalidationStamp);
+                }
+            }
+            lookedUp = true;
+            return object;
+        }
+
+        @Override
+        public Iterator<O> iterator() {
+            O object = lookup();
+            return object == null ? Collections.<O>emptyIterator() : Collections.singleton(object).iterator();
+        }
+
+        @Override
+        public boolean contains(O object) {
+            return query.getValue().equals(primaryKeyAttribute.getValue(object, queryOptions)) && lookup() != null;
+        }
+
+        @Override
+        public boolean matches(O object) {
+            return query.matches(object, queryOptions);
+        }
+
+        @Override
+        public Query<O> getQuery() {
+            return query;
+        }
+
+        @Override
+        public QueryOptions getQueryOptions() {
+            return queryOptions;
+        }
+
+        @Override
+        public int getRetrievalCost() {
+            return SQLiteIndex.INDEX_RETRIEVAL_COST;
+        }
+
+        @Override
+        public int getMergeCost() {
+            // There is at most one object for a primary key...
+            return 1;
+        }
+
+        @Override
+        public int size() {
+            return lookup() == null ? 0 : 1;
+        }
+
+        @Override
+        public void close() {
+            // No resources are held open...
+        }
+    }
+
     /**
      * Creates a new {@link SQLiteIdentityIndex} for the given primary key attribute.
      *
@@ -41,9 +41,14 @@ import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
 import com.googlecode.cqengine.index.support.CloseableRequestResources.CloseableResourceGroup;
 import org.sqlite.SQLiteConfig;
 
+import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import static com.googlecode.cqengine.index.sqlite.support.DBQueries.Row;
 import static com.googlecode.cqengine.index.sqlite.support.DBUtils.sanitizeForTableName;
@@ -377,6 +382,13 @@ public class SQLiteIndex<A extends Comparable<A>, O, K> extends AbstractAttribut
                     return DBQueries.contains(objectKey, query, tableName, connection);
                 }
 
+                @Override
+                public BitSet containsAll(List<O> objects) {
+                    final List<K> objectKeys = getObjectKeys(objects, queryOptions);
+                    final Connection connection = connectionManager.getConnection(SQLiteIndex.this, queryOptions);
+                    return toBitSet(objectKeys, DBQueries.containsAll(objectKeys, primaryKeyAttribute.getAttributeType(), query, tableName, connection));
+                }
+
                 @Override
                 public boolean matches(O object) {
                     return query.matches(object, queryOptions);
@@ -414,6 +426,33 @@ public class SQLiteIndex<A extends Comparable<A>, O, K> extends AbstractAttribut
         }
     }
 
+    List<K> getObjectKeys(List<O> objects, QueryOptions queryOptions) {
+        List<K> objectKeys = new ArrayList<K>(objects.size());
+        for (O object : objects) {
+            objectKeys.add(primaryKeyAttribute.getValue(object, queryOptions));
+        }
+        return objectKeys;
+    }
+
+    static <K> BitSet toBitSet(List<K> objectKeys, Set<K> containedKeys) {
+        // Keys stored as byte arrays (as by SQLiteIdentityIndex) must be compared by content...
+        Set<Object> containedKeysByContent = new HashSet<Object>(containedKeys.size());
+        for (K containedKey : containedKeys) {
+            containedKeysByContent.add(keyByContent(containedKey));
+        }
+        BitSet contained = new BitSet(objectKeys.size());
+        for (int i = 0; i < objectKeys.size(); i++) {
+            if (containedKeysByContent.contains(keyByContent(objectKeys.get(i)))) {
+                contained.set(i);
+            }
+        }
+        return contained;
+    }
+
+    static Object keyByContent(Object objectKey) {
+        return objectKey instanceof byte[] ? ByteBuffer.wrap((byte[]) objectKey) : objectKey;
+    }
+
     /**
      * {@inheritDoc}
      * <p/>
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.sqlite;
+
+import com.googlecode.concurrenttrees.common.LazyIterator;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.sqlite.support.DBQueries;
+import com.googlecode.cqengine.index.sqlite.support.DBUtils;
+import com.googlecode.cqengine.index.support.CloseableRequestResources;
+import com.googlecode.cqengine.index.support.CloseableRequestResources.CloseableResourceGroup;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.logical.Or;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.*;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+import java.sql.Connection;
+import java.util.*;
+
+/**
+ * A {@link ResultSet} which evaluates an entire {@link And} or {@link Or} query in a single SQL statement, when all
+ * of the simple queries it contains are answered by {@link SQLiteIndex}es in the same database. SQLite then performs
+ * the set algebra using INTERSECT, UNION and EXCEPT, and only the object keys matching the entire query are returned,
+ * instead of each simple query being retrieved separately and the results being merged in Java.
+ * <p/>
+ * {@link com.googlecode.cqengine.query.logical.Not} queries are supported as children of an {@link And} query which has
+ * at least one other child which is not a Not query.
+ *
+ * @param <O> The type of the object containing attributes
+ * @param <K> The type of the object keys
+ */
+public class SQLiteLogicalQueryResultSet<O, K> extends ResultSet<O> {
+
+    // SQLite's default limit on the number of terms in a compound SELECT statement...
+    public static final int MAX_SIMPLE_QUERIES = 500;
+
+    final Query<O> query;
+    final QueryOptions queryOptions;
+    final SQLiteIndex<?, O, K> primaryIndex;
+    final Map<SimpleQuery<O, ?>, String> tableNames;
+    final ConnectionManager connectionManager;
+    final CloseableResourceGroup closeableResourceGroup;
+
+    /**
+     * @param query An {@link And} or {@link Or} query
+     * @param leafIndexes The {@link SQLiteIndex} which answers each simple query contained in the query, all of which
+     * must be stored in the same database
+     * @param queryOptions Optional parameters for the query
+     */
+    @SuppressWarnings("unchecked")
+    public SQLiteLogicalQueryResultSet(Query<O> query, Map<SimpleQuery<O, ?>, SQLiteIndex<?, O, ?>> leafIndexes, QueryOptions queryOptions) {
+        this.query = query;
+        this.queryOptions = queryOptions;
+        this.primaryIndex = (SQLiteIndex<?, O, K>) leafIndexes.values().iterator().next();
+        this.tableNames = new HashMap<SimpleQuery<O, ?>, String>(leafIndexes.size());
+        for (Map.Entry<SimpleQuery<O, ?>, SQLiteIndex<?, O, ?>> entry : leafIndexes.entrySet()) {
+            tableNames.put(entry.getKey(), entry.getValue().tableName);
+        }
+        this.connectionManager = primaryIndex.getConnectionManager(queryOptions);
+        this.closeableResourceGroup = CloseableRequestResources.forQueryOptions(queryOptions).addGroup();
+    }
+
+    @Override
+    public Iterator<O> iterator() {
+        final Connection searchConnection = connectionManager.getConnection(primaryIndex, queryOptions);
+        final java.sql.ResultSet searchResultSet = DBQueries.searchLogicalQuery(query, tableNames, searchConnection); // eliminates duplicates
+        closeableResourceGroup.add(DBUtils.wrapAsCloseable(searchResultSet));
+
+        return new LazyIterator<O>() {
+            @Override
+            protected O computeNext() {
+                try {
+                    if (!searchResultSet.next()) {
+                        close();
+                        return endOfData();
+                    }
+                    final K objectKey = DBUtils.getValueFromResultSet(1, searchResultSet, primaryIndex.primaryKeyAttribute.getAttributeType());
+                    return primaryIndex.foreignKeyAttribute.getValue(objectKey, queryOptions);
+                } catch (Exception e) {
+                    endOfData();
+                    close();
+                    throw new IllegalStateException("Unable to retrieve the ResultSet item.", e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(O object) {
+        final K objectKey = primaryIndex.primaryKeyAttribute.getValue(object, queryOptions);
+        final Connection connection = connectionManager.getConnection(primaryIndex, queryOptions);
+        return DBQueries.containsLogicalQuery(objectKey, query, tableNames, connection);
+    }
+
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        final List<K> objectKeys = primaryIndex.getObjectKeys(objects, queryOptions);
+        final Connection connection = connectionManager.getConnection(primaryIndex, queryOptions);
+        return SQLiteIndex.toBitSet(objectKeys, DBQueries.containsAllLogicalQuery(objectKeys, primaryIndex.primaryKeyAttribute.getAttributeType(), query, tableNames, connection));
+    }
+
+    @Override
+    public boolean matches(O object) {
+        return query.matches(object, queryOptions);
+    }
+
+    @Override
+    public int getRetrievalCost() {
+        return SQLiteIndex.INDEX_RETRIEVAL_COST;
+    }
+
+    @Override
+    public int getMergeCost() {
+        return size();
+    }
+
+    @Override
+    public int size() {
+        final Connection connection = connectionManager.getConnection(primaryIndex, queryOptions);
+        return DBQueries.countLogicalQuery(query, tableNames, connection);
+    }
+
+    @Override
+    public void close() {
+        closeableResourceGroup.close();
+    }
+
+    @Override
+    public Query<O> getQuery() {
+        return query;
+    }
+
+    @Override
+    public QueryOptions getQueryOptions() {
+        return queryOptions;
+    }
+
+    /**
+     * Returns the {@link SQLiteIndex} which stores the given index's data, if the given index is a {@link SQLiteIndex}
+     * or is backed by one, such as a {@link com.googlecode.cqengine.index.disk.DiskIndex} or
+     * {@link com.googlecode.cqengine.index.offheap.OffHeapIndex}.
+     *
+     * @param index An index added to a collection
+     * @return The SQLiteIndex storing the index's data, or null if the index is not stored in SQLite
+     */
+    public static <O> SQLiteIndex<?, O, ?> getSQLiteIndex(Index<O> index) {
+        if (index instanceof SQLiteIndex) {
+            return (SQLiteIndex<?, O, ?>) index;
+        }
+        if (index instanceof SimplifiedSQLiteIndex) {
+            return ((SimplifiedSQLiteIndex<?, O, ?>) index).backingIndex();
+        }
+        return null;
+    }
+
+    /**
+     * @param query A simple query
+     * @return True if the given query can be evaluated in SQL by {@link SQLiteIndex}, as opposed to by filtering
+     */
+    public static boolean isSupportedInSQL(SimpleQuery<?, ?> query) {
+        Class<?> queryClass = query.getClass();
+        return queryClass == Equal.class || queryClass == In.class || queryClass == LessThan.class
+                || queryClass == GreaterThan.class || queryClass == Between.class
+                || queryClass == StringStartsWith.class || queryClass == Has.class;
+    }
+}
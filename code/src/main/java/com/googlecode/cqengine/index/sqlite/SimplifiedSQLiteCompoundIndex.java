@@ -0,0 +1,161 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.sqlite;
+
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.engine.QueryEngine;
+import com.googlecode.cqengine.index.AttributeIndex;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.compound.support.CompoundAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
+import com.googlecode.cqengine.index.compound.support.SortedCompoundAttributeIndex;
+import com.googlecode.cqengine.index.support.indextype.NonHeapTypeIndex;
+import com.googlecode.cqengine.persistence.Persistence;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+/**
+ * An abstract class which wraps a {@link SQLiteCompoundIndex}, and simplifies its configuration options in the same
+ * way as {@link SimplifiedSQLiteIndex} does for {@link SQLiteIndex}.
+ * <p/>
+ * The primary key to be used, and the database to connect to, is obtained from the IndexedCollection.
+ */
+public abstract class SimplifiedSQLiteCompoundIndex<O, K extends Comparable<K>> implements SortedCompoundAttributeIndex<O>, NonHeapTypeIndex {
+
+    final CompoundAttribute<O> attribute;
+    final String tableNameSuffix;
+    volatile SQLiteCompoundIndex<O, K> backingIndex;
+
+    protected SimplifiedSQLiteCompoundIndex(CompoundAttribute<O> attribute, String tableNameSuffix) {
+        this.attribute = attribute;
+        this.tableNameSuffix = tableNameSuffix;
+    }
+
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        Persistence<O, K> persistence = SimplifiedSQLiteIndex.<O, K>getPersistenceFromQueryOptions(queryOptions);
+        QueryEngine<O> queryEngine = SimplifiedSQLiteIndex.getQueryEngineFromQueryOptions(queryOptions);
+        final String indexDescription = getClass().getSimpleName() + " on attributes " + attribute;
+
+        final SimpleAttribute<O, K> primaryKeyAttribute = SimplifiedSQLiteIndex.getPrimaryKeyFromPersistence(persistence, indexDescription);
+        final AttributeIndex<K, O> primaryKeyIndex = SimplifiedSQLiteIndex.getPrimaryKeyIndexFromQueryEngine(primaryKeyAttribute, queryEngine, indexDescription);
+        final SimpleAttribute<K, O> foreignKeyAttribute = SimplifiedSQLiteIndex.createForeignKeyAttribute(primaryKeyAttribute, primaryKeyIndex);
+        backingIndex = new SQLiteCompoundIndex<O, K>(this.attribute, primaryKeyAttribute, foreignKeyAttribute, tableNameSuffix) {
+            // Override getEffectiveIndex() in the backing index to return a reference to this index...
+            @Override
+            public Index<O> getEffectiveIndex() {
+                return SimplifiedSQLiteCompoundIndex.this.getEffectiveIndex();
+            }
+        };
+        backingIndex.init(objectStore, queryOptions);
+    }
+
+    /**
+     * Calls {@link SQLiteCompoundIndex#destroy(QueryOptions)} on the wrapped index.
+     *
+     * @param queryOptions Optional parameters for the update
+     */
+    @Override
+    public void destroy(QueryOptions queryOptions) {
+        backingIndex().destroy(queryOptions);
+    }
+
+    @Override
+    public Index<O> getEffectiveIndex() {
+        return this;
+    }
+
+    SQLiteCompoundIndex<O, K> backingIndex() {
+        SQLiteCompoundIndex<O, K> backingIndex = this.backingIndex;
+        if (backingIndex == null) {
+            throw new IllegalStateException("This index can only be used after it has been added to an IndexedCollection");
+        }
+        return backingIndex;
+    }
+
+    @Override
+    public CompoundAttribute<O> getAttribute() {
+        return attribute;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    @Override
+    public boolean isQuantized() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSingleValuedAttributes() {
+        // Does not require the backing index, as the query engine may call this before the index is initialized...
+        return SQLiteCompoundIndex.hasSingleValuedAttributes(attribute);
+    }
+
+    @Override
+    public boolean supportsQuery(Query<O> query, QueryOptions queryOptions) {
+        return backingIndex().supportsQuery(query, queryOptions);
+    }
+
+    @Override
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        return backingIndex().retrieve(query, queryOptions);
+    }
+
+    @Override
+    public ResultSet<O> retrieve(CompoundRangeQuery<O> rangeQuery, QueryOptions queryOptions, boolean descending) {
+        return backingIndex().retrieve(rangeQuery, queryOptions, descending);
+    }
+
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        return backingIndex().addAll(objectSet, queryOptions);
+    }
+
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        return backingIndex().removeAll(objectSet, queryOptions);
+    }
+
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        backingIndex().clear(queryOptions);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SimplifiedSQLiteCompoundIndex that = (SimplifiedSQLiteCompoundIndex) o;
+
+        if (!attribute.equals(that.attribute)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getClass().hashCode();
+        result = 31 * result + attribute.hashCode();
+        return result;
+    }
+}
@@ -56,14 +56,10 @@ public abstract class SimplifiedSQLiteIndex<A extends Comparable<A>, O, K extend
         Persistence<O, K> persistence = SimplifiedSQLiteIndex.<O, K>getPersistenceFromQueryOptions(queryOptions);
         QueryEngine<O> queryEngine = getQueryEngineFromQueryOptions(queryOptions);
 
-        final SimpleAttribute<O, K> primaryKeyAttribute = getPrimaryKeyFromPersistence(persistence);
-        final AttributeIndex<K, O> primaryKeyIndex = getPrimaryKeyIndexFromQueryEngine(primaryKeyAttribute, queryEngine, queryOptions);
-        final SimpleAttribute<K, O> foreignKeyAttribute = new SimpleAttribute<K, O>(primaryKeyAttribute.getAttributeType(), primaryKeyAttribute.getObjectType()) {
-            @Override
-            public O getValue(K primaryKeyValue, QueryOptions queryOptions) {
-                return primaryKeyIndex.retrieve(QueryFactory.equal(primaryKeyAttribute, primaryKeyValue), queryOptions).uniqueResult();
-            }
-        };
+        final String indexDescription = getIndexDescription();
+        final SimpleAttribute<O, K> primaryKeyAttribute = getPrimaryKeyFromPersistence(persistence, indexDescription);
+        final AttributeIndex<K, O> primaryKeyIndex = getPrimaryKeyIndexFromQueryEngine(primaryKeyAttribute, queryEngine, indexDescription);
+        final SimpleAttribute<K, O> foreignKeyAttribute = createForeignKeyAttribute(primaryKeyAttribute, primaryKeyIndex);
         backingIndex = new SQLiteIndex<A, O, K>(this.attribute, primaryKeyAttribute, foreignKeyAttribute, tableNameSuffix) {
             // Override getEffectiveIndex() in the backing index to return a reference to this index...
             @Override
@@ -107,15 +103,19 @@ public abstract class SimplifiedSQLiteIndex<A extends Comparable<A>, O, K extend
         return queryEngine;
     }
 
-    SimpleAttribute<O, K> getPrimaryKeyFromPersistence(Persistence<O, K> persistence) {
+    String getIndexDescription() {
+        return getClass().getSimpleName() + " on attribute '" + attribute.getAttributeName() + "'";
+    }
+
+    static <O, K extends Comparable<K>> SimpleAttribute<O, K> getPrimaryKeyFromPersistence(Persistence<O, K> persistence, String indexDescription) {
         SimpleAttribute<O, K> primaryKey = persistence.getPrimaryKeyAttribute();
         if (primaryKey == null) {
-            throw new IllegalStateException("This index " + getClass().getSimpleName() + " on attribute '" + attribute.getAttributeName() + "' cannot be added to the IndexedCollection, because the configured persistence was not configured with a primary key attribute.");
+            throw new IllegalStateException("This index " + indexDescription + " cannot be added to the IndexedCollection, because the configured persistence was not configured with a primary key attribute.");
         }
         return primaryKey;
     }
 
-    AttributeIndex<K, O> getPrimaryKeyIndexFromQueryEngine(SimpleAttribute<O, K> primaryKeyAttribute, QueryEngine<O> queryEngine, QueryOptions queryOptions) {
+    static <O, K> AttributeIndex<K, O> getPrimaryKeyIndexFromQueryEngine(SimpleAttribute<O, K> primaryKeyAttribute, QueryEngine<O> queryEngine, String indexDescription) {
         for (Index<O> index : queryEngine.getIndexes()) {
             if (index instanceof AttributeIndex) {
                 @SuppressWarnings("unchecked")
@@ -125,7 +125,20 @@ public abstract class SimplifiedSQLiteIndex<A extends Comparable<A>, O, K extend
                 }
             }
         }
-        throw new IllegalStateException("This index " + getClass().getSimpleName() + " on attribute '" + attribute.getAttributeName() + "' cannot be added to the IndexedCollection yet, because it requires that an index on the primary key to be added first.");
+        throw new IllegalStateException("This index " + indexDescription + " cannot be added to the IndexedCollection yet, because it requires that an index on the primary key to be added first.");
+    }
+
+    /**
+     * Returns an attribute which materializes objects from their primary keys, by retrieving them from the given
+     * index on the primary key.
+     */
+    static <O, K> SimpleAttribute<K, O> createForeignKeyAttribute(final SimpleAttribute<O, K> primaryKeyAttribute, final AttributeIndex<K, O> primaryKeyIndex) {
+        return new SimpleAttribute<K, O>(primaryKeyAttribute.getAttributeType(), primaryKeyAttribute.getObjectType()) {
+            @Override
+            public O getValue(K primaryKeyValue, QueryOptions queryOptions) {
+                return primaryKeyIndex.retrieve(QueryFactory.equal(primaryKeyAttribute, primaryKeyValue), queryOptions).uniqueResult();
+            }
+        };
     }
 
     SQLiteIndex<A, O, K> backingIndex() {
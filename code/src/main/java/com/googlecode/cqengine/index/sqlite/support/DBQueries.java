@@ -16,15 +16,22 @@
 package com.googlecode.cqengine.index.sqlite.support;
 
 import com.googlecode.concurrenttrees.common.CharSequences;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
 import com.googlecode.cqengine.index.sqlite.SQLiteIndex;
 import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.logical.Not;
+import com.googlecode.cqengine.query.logical.Or;
 import com.googlecode.cqengine.query.simple.*;
 import org.sqlite.SQLiteConfig;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -34,6 +41,13 @@ import java.util.Set;
  */
 public class DBQueries {
 
+    /**
+     * The maximum number of object keys bound into a single {@code objectKey IN (...)} clause by the
+     * {@code containsAll} methods. Larger lists of keys are checked in several statements. This is kept well below the
+     * limit SQLite places on the number of parameters in a statement.
+     */
+    public static final int CONTAINS_ALL_BATCH_SIZE = 500;
+
     /**
      * Represents a table row (objectId, value).
      *
@@ -377,130 +391,96 @@ public class DBQueries {
                                                                          final Query<O> query,
                                                                          final Connection connection) throws SQLException {
 
-        int bindingIndex = 1;
+        List<Object> valuesToBind = new ArrayList<Object>();
         StringBuilder stringBuilder = new StringBuilder(selectPrefix).append(' ');
-        StringBuilder suffix = new StringBuilder();
-        final Class queryClass = query.getClass();
-        PreparedStatement statement;
-
-        if (queryClass == Has.class){
-            // Has is a special case, because there is no WHERE clause by default.
-            if (additionalWhereClauses.isEmpty()){
-                suffix.append(groupingAndSorting);
-                suffix.append(';');
-            }else{
-                stringBuilder.append("WHERE ");
-                for (Iterator<WhereClause> iterator = additionalWhereClauses.iterator(); iterator.hasNext(); ) {
-                    WhereClause additionalWhereClause = iterator.next();
-                    suffix.append(additionalWhereClause.whereClause);
-                    if (iterator.hasNext()) {
-                        suffix.append(" AND ");
-                    }
-                }
-                suffix.append(groupingAndSorting);
-                suffix.append(';');
-            }
-            stringBuilder.append(suffix);
-            statement = connection.prepareStatement(stringBuilder.toString());
-
-        }else {
-            // Other queries have a WHERE clause by default.
-            if (additionalWhereClauses.isEmpty()){
-                suffix.append(groupingAndSorting);
-                suffix.append(';');
-            }else{
-                for (WhereClause additionalWhereClause : additionalWhereClauses){
-                    suffix.append(" AND ").append(additionalWhereClause.whereClause);
-                }
-                suffix.append(groupingAndSorting);
-                suffix.append(';');
-            }
-            if (queryClass == Equal.class) {
-                @SuppressWarnings("unchecked")
-                final Equal<O, A> equal = (Equal<O, A>) query;
-                stringBuilder.append("WHERE value = ?").append(suffix);
-                statement = connection.prepareStatement(stringBuilder.toString());
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, equal.getValue());
-            } else if (queryClass == In.class){
-                @SuppressWarnings("unchecked")
-                final In<O, A> in = (In<O, A>) query;
-                Set<A> values = in.getValues();
-                stringBuilder.append("WHERE value IN ( ");
-                for (int i=0; i<values.size(); i++){
-                    if (i > 0){
-                        stringBuilder.append(", ");
-                    }
-                    stringBuilder.append("?");
-                }
-                stringBuilder.append(")").append(suffix);
-                statement = connection.prepareStatement(stringBuilder.toString());
-                bindingIndex = DBUtils.setValuesToPreparedStatement(bindingIndex, statement, values);
-            } else if (queryClass == LessThan.class) {
-                @SuppressWarnings("unchecked")
-                final LessThan<O, ? extends Comparable<A>> lessThan = (LessThan<O, ? extends Comparable<A>>) query;
-                boolean isValueInclusive = lessThan.isValueInclusive();
-                if (isValueInclusive) {
-                    stringBuilder.append("WHERE value <= ?").append(suffix);
-                } else {
-                    stringBuilder.append("WHERE value < ?").append(suffix);
-                }
-                statement = connection.prepareStatement(stringBuilder.toString());
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, lessThan.getValue());
-
-            } else if (queryClass == StringStartsWith.class) {
-                final StringStartsWith<O, ? extends CharSequence> stringStartsWith = (StringStartsWith<O, ? extends CharSequence>) query;
-                stringBuilder.append("WHERE value >= ? AND value < ?").append(suffix);
-                final String lowerBoundInclusive = CharSequences.toString(stringStartsWith.getValue());
-                final int len = lowerBoundInclusive.length();
-                final String allButLast = lowerBoundInclusive.substring(0, len - 1);
-                final String upperBoundExclusive = allButLast + Character.toChars(lowerBoundInclusive.charAt(len - 1) + 1)[0];
-
-                statement = connection.prepareStatement(stringBuilder.toString());
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, lowerBoundInclusive);
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, upperBoundExclusive);
-
-            } else if (queryClass == GreaterThan.class) {
-                @SuppressWarnings("unchecked")
-                final GreaterThan<O, ? extends Comparable<A>> greaterThan = (GreaterThan<O, ? extends Comparable<A>>) query;
-                boolean isValueInclusive = greaterThan.isValueInclusive();
-                if (isValueInclusive) {
-                    stringBuilder.append("WHERE value >= ?").append(suffix);
-                } else {
-                    stringBuilder.append("WHERE value > ?").append(suffix);
-                }
-                statement = connection.prepareStatement(stringBuilder.toString());
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, greaterThan.getValue());
-
-            } else if (queryClass == Between.class) {
-                @SuppressWarnings("unchecked")
-                final Between<O, ? extends Comparable<A>> between = (Between<O, ? extends Comparable<A>>) query;
-                if (between.isLowerInclusive()) {
-                    stringBuilder.append("WHERE value >= ?");
-                } else {
-                    stringBuilder.append("WHERE value > ?");
-                }
-                if (between.isUpperInclusive()) {
-                    stringBuilder.append(" AND value <= ?");
-                } else {
-                    stringBuilder.append(" AND value < ?");
-                }
-                stringBuilder.append(suffix);
-                statement = connection.prepareStatement(stringBuilder.toString());
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, between.getLowerValue());
-                DBUtils.setValueToPreparedStatement(bindingIndex++, statement, between.getUpperValue());
-
-            } else {
-                throw new IllegalStateException("Query " + queryClass + " not supported.");
+        StringBuilder whereClause = new StringBuilder();
+        appendValueCondition(whereClause, valuesToBind, query);
+        for (WhereClause additionalWhereClause : additionalWhereClauses){
+            if (whereClause.length() > 0) {
+                whereClause.append(" AND ");
             }
+            whereClause.append(additionalWhereClause.whereClause);
+            valuesToBind.add(additionalWhereClause.objectToBind);
         }
-
-        for (WhereClause additionalWhereClause : additionalWhereClauses){
-            DBUtils.setValueToPreparedStatement(bindingIndex++, statement, additionalWhereClause.objectToBind);
+        if (whereClause.length() > 0) {
+            stringBuilder.append("WHERE ").append(whereClause);
         }
+        stringBuilder.append(groupingAndSorting).append(';');
 
+        PreparedStatement statement = connection.prepareStatement(stringBuilder.toString());
+        DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
         return statement;
     }
 
+    /**
+     * Appends the condition on the value column of an index table which selects the rows matching the given query,
+     * and adds the values to be bound to its parameters to the given list. Appends nothing for a {@link Has} query,
+     * which matches all rows.
+     *
+     * @param stringBuilder The SQL being built
+     * @param valuesToBind The values to be bound to the parameters in the SQL, in order
+     * @param query The query to translate
+     * @throws IllegalStateException If the query is not supported
+     */
+    static <O, A> void appendValueCondition(final StringBuilder stringBuilder, final List<Object> valuesToBind, final Query<O> query) {
+        final Class queryClass = query.getClass();
+        if (queryClass == Has.class) {
+            // Has is a special case, because there is no condition.
+            return;
+        }
+        if (queryClass == Equal.class) {
+            @SuppressWarnings("unchecked")
+            final Equal<O, A> equal = (Equal<O, A>) query;
+            stringBuilder.append("value = ?");
+            valuesToBind.add(equal.getValue());
+        } else if (queryClass == In.class){
+            @SuppressWarnings("unchecked")
+            final In<O, A> in = (In<O, A>) query;
+            Set<A> values = in.getValues();
+            stringBuilder.append("value IN ( ");
+            for (int i=0; i<values.size(); i++){
+                if (i > 0){
+                    stringBuilder.append(", ");
+                }
+                stringBuilder.append("?");
+            }
+            stringBuilder.append(")");
+            valuesToBind.addAll(values);
+        } else if (queryClass == LessThan.class) {
+            @SuppressWarnings("unchecked")
+            final LessThan<O, ? extends Comparable<A>> lessThan = (LessThan<O, ? extends Comparable<A>>) query;
+            stringBuilder.append(lessThan.isValueInclusive() ? "value <= ?" : "value < ?");
+            valuesToBind.add(lessThan.getValue());
+
+        } else if (queryClass == StringStartsWith.class) {
+            final StringStartsWith<O, ? extends CharSequence> stringStartsWith = (StringStartsWith<O, ? extends CharSequence>) query;
+            stringBuilder.append("value >= ? AND value < ?");
+            final String lowerBoundInclusive = CharSequences.toString(stringStartsWith.getValue());
+            final int len = lowerBoundInclusive.length();
+            final String allButLast = lowerBoundInclusive.substring(0, len - 1);
+            final String upperBoundExclusive = allButLast + Character.toChars(lowerBoundInclusive.charAt(len - 1) + 1)[0];
+            valuesToBind.add(lowerBoundInclusive);
+            valuesToBind.add(upperBoundExclusive);
+
+        } else if (queryClass == GreaterThan.class) {
+            @SuppressWarnings("unchecked")
+            final GreaterThan<O, ? extends Comparable<A>> greaterThan = (GreaterThan<O, ? extends Comparable<A>>) query;
+            stringBuilder.append(greaterThan.isValueInclusive() ? "value >= ?" : "value > ?");
+            valuesToBind.add(greaterThan.getValue());
+
+        } else if (queryClass == Between.class) {
+            @SuppressWarnings("unchecked")
+            final Between<O, ? extends Comparable<A>> between = (Between<O, ? extends Comparable<A>>) query;
+            stringBuilder.append(between.isLowerInclusive() ? "value >= ?" : "value > ?");
+            stringBuilder.append(between.isUpperInclusive() ? " AND value <= ?" : " AND value < ?");
+            valuesToBind.add(between.getLowerValue());
+            valuesToBind.add(between.getUpperValue());
+
+        } else {
+            throw new IllegalStateException("Query " + queryClass + " not supported.");
+        }
+    }
+
     public static <O> int count(final Query<O> query, final String tableName, final Connection connection) {
 
         final String selectSql = String.format("SELECT COUNT(objectKey) FROM cqtbl_%s", tableName);
@@ -559,6 +539,123 @@ public class DBQueries {
 
     }
 
+    /**
+     * Appends a SELECT statement which returns the distinct object keys matching the given {@link And}, {@link Or} or
+     * {@link SimpleQuery}, using INTERSECT, UNION and EXCEPT to evaluate logical queries across the index tables of
+     * the given simple queries. {@link Not} queries are supported only as children of an {@link And} query which has
+     * at least one other child which is not a {@link Not} query.
+     *
+     * @param stringBuilder The SQL being built
+     * @param valuesToBind The values to be bound to the parameters in the SQL, in order
+     * @param query The query to translate
+     * @param tableNames The names of the index tables from which to retrieve the object keys matching each simple query
+     */
+    public static <O> void appendLogicalQuerySelect(final StringBuilder stringBuilder, final List<Object> valuesToBind, final Query<O> query, final Map<? extends Query<O>, String> tableNames) {
+        if (query instanceof SimpleQuery) {
+            stringBuilder.append("SELECT objectKey FROM cqtbl_").append(tableNames.get(query));
+            StringBuilder valueCondition = new StringBuilder();
+            appendValueCondition(valueCondition, valuesToBind, query);
+            if (valueCondition.length() > 0) {
+                stringBuilder.append(" WHERE ").append(valueCondition);
+            }
+        }
+        else if (query instanceof And) {
+            // Compound operators have equal precedence and are evaluated left to right,
+            // so append all INTERSECT operands before any EXCEPT operands...
+            String operator = "";
+            for (Query<O> childQuery : ((And<O>) query).getChildQueries()) {
+                if (!(childQuery instanceof Not)) {
+                    stringBuilder.append(operator);
+                    appendCompoundOperand(stringBuilder, valuesToBind, childQuery, tableNames);
+                    operator = " INTERSECT ";
+                }
+            }
+            for (Query<O> childQuery : ((And<O>) query).getChildQueries()) {
+                if (childQuery instanceof Not) {
+                    stringBuilder.append(" EXCEPT ");
+                    appendCompoundOperand(stringBuilder, valuesToBind, ((Not<O>) childQuery).getNegatedQuery(), tableNames);
+                }
+            }
+        }
+        else if (query instanceof Or) {
+            String operator = "";
+            for (Query<O> childQuery : ((Or<O>) query).getChildQueries()) {
+                stringBuilder.append(operator);
+                appendCompoundOperand(stringBuilder, valuesToBind, childQuery, tableNames);
+                operator = " UNION ";
+            }
+        }
+        else {
+            throw new IllegalStateException("Query " + query.getClass() + " not supported.");
+        }
+    }
+
+    static <O> void appendCompoundOperand(final StringBuilder stringBuilder, final List<Object> valuesToBind, final Query<O> query, final Map<? extends Query<O>, String> tableNames) {
+        if (query instanceof SimpleQuery) {
+            appendLogicalQuerySelect(stringBuilder, valuesToBind, query, tableNames);
+        }
+        else {
+            // Nested compound selects must be wrapped in a subquery...
+            stringBuilder.append("SELECT objectKey FROM (");
+            appendLogicalQuerySelect(stringBuilder, valuesToBind, query, tableNames);
+            stringBuilder.append(')');
+        }
+    }
+
+    public static <O> java.sql.ResultSet searchLogicalQuery(final Query<O> query, final Map<? extends Query<O>, String> tableNames, final Connection connection){
+        PreparedStatement statement = null;
+        try{
+            List<Object> valuesToBind = new ArrayList<Object>();
+            StringBuilder stringBuilder = new StringBuilder();
+            appendLogicalQuerySelect(stringBuilder, valuesToBind, query, tableNames);
+            statement = connection.prepareStatement(stringBuilder.append(';').toString());
+            DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+            return statement.executeQuery();
+        }catch(Exception e){
+            DBUtils.closeQuietly(statement);
+            throw new IllegalStateException("Unable to execute search. Query: " + query, e);
+        }
+        // In case of success we leave the statement and result-set open because the iteration of an Index ResultSet is lazy.
+    }
+
+    public static <O> int countLogicalQuery(final Query<O> query, final Map<? extends Query<O>, String> tableNames, final Connection connection){
+        PreparedStatement statement = null;
+        try{
+            List<Object> valuesToBind = new ArrayList<Object>();
+            StringBuilder stringBuilder = new StringBuilder("SELECT COUNT(objectKey) FROM (");
+            appendLogicalQuerySelect(stringBuilder, valuesToBind, query, tableNames);
+            statement = connection.prepareStatement(stringBuilder.append(");").toString());
+            DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+            java.sql.ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next()){
+                throw new IllegalStateException("Unable to execute count. The ResultSet returned no row. Query: " + query);
+            }
+            return resultSet.getInt(1);
+        }catch(Exception e){
+            throw new IllegalStateException("Unable to execute count. Query: " + query, e);
+        }finally {
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    public static <K, O> boolean containsLogicalQuery(final K objectKey, final Query<O> query, final Map<? extends Query<O>, String> tableNames, final Connection connection){
+        PreparedStatement statement = null;
+        try{
+            List<Object> valuesToBind = new ArrayList<Object>();
+            StringBuilder stringBuilder = new StringBuilder("SELECT objectKey FROM (");
+            appendLogicalQuerySelect(stringBuilder, valuesToBind, query, tableNames);
+            statement = connection.prepareStatement(stringBuilder.append(") WHERE objectKey = ? LIMIT 1;").toString());
+            valuesToBind.add(objectKey);
+            DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+            java.sql.ResultSet resultSet = statement.executeQuery();
+            return resultSet.next();
+        }catch (SQLException e){
+            throw new IllegalStateException("Unable to execute contains. Query: " + query, e);
+        }finally{
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
     public static <O> java.sql.ResultSet getDistinctKeys(final Query<O> query, boolean descending, final String tableName, final Connection connection){
         final String selectSql = String.format("SELECT DISTINCT value FROM cqtbl_%s",tableName);
         PreparedStatement statement = null;
@@ -633,6 +730,35 @@ public class DBQueries {
 
     }
 
+    /**
+     * Looks up a page of up to {@code limit} index entries in ascending order of value, starting after the given
+     * value. This allows all entries to be read in a series of short statements (keyset pagination), without holding
+     * a statement open between pages.
+     *
+     * @param tableName The name of the index table
+     * @param afterValue The value after which the page should start, or null to read the first page
+     * @param limit The maximum number of entries to read
+     * @param connection The connection to use
+     * @return A ResultSet whose rows contain (objectKey, value)
+     */
+    public static <A> java.sql.ResultSet getIndexEntriesPage(final String tableName, final A afterValue, final int limit, final Connection connection){
+        final String selectSql = String.format("SELECT objectKey, value FROM cqtbl_%s%s ORDER BY value LIMIT ?;", tableName, afterValue == null ? "" : " WHERE value > ?");
+        PreparedStatement statement = null;
+        try{
+            statement = connection.prepareStatement(selectSql);
+            int parameterIndex = 1;
+            if (afterValue != null) {
+                DBUtils.setValueToPreparedStatement(parameterIndex++, statement, afterValue);
+            }
+            statement.setInt(parameterIndex, limit);
+            return statement.executeQuery();
+        }catch(Exception e){
+            DBUtils.closeQuietly(statement);
+            throw new IllegalStateException("Unable to look up index entries.", e);
+        }
+        // In case of success we leave the statement and result-set open, and the caller is responsible for closing them.
+    }
+
     public static <K> java.sql.ResultSet getIndexEntryByObjectKey(final K key , final String tableName, final Connection connection){
         final String selectSql = String.format("SELECT objectKey, value FROM cqtbl_%s WHERE objectKey = ?",tableName);
         PreparedStatement statement = null;
@@ -663,6 +789,302 @@ public class DBQueries {
         }
     }
 
+    /**
+     * Checks which of the given object keys are contained in the rows of the index table matching the given query,
+     * using one statement per {@link #CONTAINS_ALL_BATCH_SIZE} keys.
+     *
+     * @return The subset of the given object keys which are contained in the rows matching the query
+     */
+    public static <K, O> Set<K> containsAll(final List<K> objectKeys, final Class<K> objectKeyType, final Query<O> query, final String tableName, final Connection connection){
+        List<Object> valuesToBind = new ArrayList<Object>();
+        StringBuilder whereClause = new StringBuilder();
+        appendValueCondition(whereClause, valuesToBind, query);
+        StringBuilder stringBuilder = new StringBuilder("SELECT DISTINCT objectKey FROM cqtbl_").append(tableName).append(" WHERE ");
+        if (whereClause.length() > 0) {
+            stringBuilder.append(whereClause).append(" AND ");
+        }
+        return selectContainedKeys(stringBuilder.toString(), valuesToBind, objectKeys, objectKeyType, query, connection);
+    }
+
+    /**
+     * Checks which of the given object keys are contained in the results of the given {@link And} or {@link Or}
+     * query, evaluated as in {@link #appendLogicalQuerySelect(StringBuilder, List, Query, Map)}, using one statement
+     * per {@link #CONTAINS_ALL_BATCH_SIZE} keys.
+     *
+     * @return The subset of the given object keys which are contained in the results of the query
+     */
+    public static <K, O> Set<K> containsAllLogicalQuery(final List<K> objectKeys, final Class<K> objectKeyType, final Query<O> query, final Map<? extends Query<O>, String> tableNames, final Connection connection){
+        List<Object> valuesToBind = new ArrayList<Object>();
+        StringBuilder stringBuilder = new StringBuilder("SELECT objectKey FROM (");
+        appendLogicalQuerySelect(stringBuilder, valuesToBind, query, tableNames);
+        stringBuilder.append(") WHERE ");
+        return selectContainedKeys(stringBuilder.toString(), valuesToBind, objectKeys, objectKeyType, query, connection);
+    }
+
+    static <K, O> Set<K> selectContainedKeys(final String selectPrefix, final List<Object> valuesToBind, final List<K> objectKeys, final Class<K> objectKeyType, final Query<O> query, final Connection connection) {
+        Set<K> containedKeys = new HashSet<K>();
+        PreparedStatement statement = null;
+        int statementBatchSize = -1;
+        try {
+            for (int from = 0; from < objectKeys.size(); from += CONTAINS_ALL_BATCH_SIZE) {
+                List<K> batch = objectKeys.subList(from, Math.min(from + CONTAINS_ALL_BATCH_SIZE, objectKeys.size()));
+                if (batch.size() != statementBatchSize) {
+                    // Only the last batch can differ in size, so at most two statements are prepared...
+                    DBUtils.closeQuietly(statement);
+                    StringBuilder stringBuilder = new StringBuilder(selectPrefix).append("objectKey IN (");
+                    for (int i = 0; i < batch.size(); i++) {
+                        stringBuilder.append(i == 0 ? "?" : ", ?");
+                    }
+                    statement = connection.prepareStatement(stringBuilder.append(");").toString());
+                    statementBatchSize = batch.size();
+                }
+                DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+                DBUtils.setValuesToPreparedStatement(valuesToBind.size() + 1, statement, batch);
+                java.sql.ResultSet resultSet = statement.executeQuery();
+                try {
+                    while (resultSet.next()) {
+                        containedKeys.add(DBUtils.getValueFromResultSet(1, resultSet, objectKeyType));
+                    }
+                }
+                finally {
+                    resultSet.close();
+                }
+            }
+            return containedKeys;
+        }catch (SQLException e){
+            throw new IllegalStateException("Unable to execute contains. Query: " + query, e);
+        }finally{
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    // ---------- Compound index tables, which store several attribute values per row ----------
+
+    /**
+     * Creates a table for a compound index, with an {@code objectKey} column followed by one column per attribute of
+     * the compound attribute ({@code value0}, {@code value1}, ...).
+     */
+    public static <K> void createCompoundIndexTable(final String tableName, final Class<K> objectKeyClass, final List<Class<?>> valueClasses, final Connection connection){
+        StringBuilder columns = new StringBuilder("objectKey ").append(DBUtils.getDBTypeForClass(objectKeyClass));
+        StringBuilder primaryKey = new StringBuilder("objectKey");
+        for (int i = 0; i < valueClasses.size(); i++) {
+            columns.append(", value").append(i).append(' ').append(DBUtils.getDBTypeForClass(valueClasses.get(i)));
+            primaryKey.append(", value").append(i);
+        }
+        final String sqlCreateTable = String.format(
+                "CREATE TABLE IF NOT EXISTS cqtbl_%s (%s, PRIMARY KEY (%s)) WITHOUT ROWID;",
+                tableName,
+                columns,
+                primaryKey);
+
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.executeUpdate(sqlCreateTable);
+        }catch (SQLException e){
+            throw new IllegalStateException("Unable to create compound index table: " + tableName, e);
+        }finally {
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Creates a covering index on a compound index table, on all of the value columns in order followed by the
+     * {@code objectKey} column, so that queries on a leftmost prefix of the values can be answered from the index
+     * alone. The index has the same name as the one created by {@link #createIndexOnTable(String, Connection)}, so
+     * it can be dropped in the same way.
+     */
+    public static void createCompoundIndexOnTable(final String tableName, final int valueCount, final Connection connection){
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < valueCount; i++) {
+            columns.append("value").append(i).append(", ");
+        }
+        columns.append("objectKey");
+        final String sqlCreateIndex = String.format(
+                "CREATE INDEX IF NOT EXISTS cqidx_%s_value ON cqtbl_%s (%s);",
+                tableName,
+                tableName,
+                columns);
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.executeUpdate(sqlCreateIndex);
+        }catch (SQLException e){
+            throw new IllegalStateException("Unable to add index on compound index table: " + tableName, e);
+        }finally {
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Adds rows to a compound index table. The value of each row is the list of values of the attributes of the
+     * compound attribute, in order.
+     */
+    public static <K> int bulkAddCompound(Iterable<Row<K, Iterable<Object>>> rows, final int valueCount, final String tableName, final Connection connection){
+        StringBuilder parameters = new StringBuilder("?");
+        for (int i = 0; i < valueCount; i++) {
+            parameters.append(", ?");
+        }
+        final String sql = String.format("INSERT OR IGNORE INTO cqtbl_%s values(%s);", tableName, parameters);
+        PreparedStatement statement = null;
+        int totalRowsModified = 0;
+        try {
+            statement = connection.prepareStatement(sql);
+
+            for (Row<K, Iterable<Object>> row : rows) {
+                statement.setObject(1, row.getObjectKey());
+                DBUtils.setValuesToPreparedStatement(2, statement, row.getValue());
+                statement.addBatch();
+            }
+            int[] rowsModified = statement.executeBatch();
+            for (int m : rowsModified) {
+                ensureNotNegative(m);
+                totalRowsModified += m;
+            }
+            return totalRowsModified;
+        }
+        catch (NullPointerException e) {
+            // Note: here we catch a and rethrow NullPointerException,
+            // to allow compatibility with Java Collections Framework,
+            // which requires NPE to be thrown for null arguments...
+            boolean rolledBack = DBUtils.rollback(connection);
+            NullPointerException npe = new NullPointerException("Unable to bulk add rows containing a null object to the compound index table: "+ tableName + ". Rolled back: " + rolledBack);
+            npe.initCause(e);
+            throw npe;
+        }
+        catch (Exception e){
+            boolean rolledBack = DBUtils.rollback(connection);
+            throw new IllegalStateException("Unable to bulk add rows to the compound index table: "+ tableName + ". Rolled back: " + rolledBack, e);
+        }finally {
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Appends the condition on the value columns of a compound index table which selects the rows matching the given
+     * {@link CompoundRangeQuery}: equality conditions on the columns of its prefix, and a range condition on the
+     * following column, if any. Appends nothing if the query has neither.
+     */
+    static <O> void appendCompoundCondition(final StringBuilder stringBuilder, final List<Object> valuesToBind, final CompoundRangeQuery<O> rangeQuery) {
+        List<Object> prefixValues = rangeQuery.getPrefixValues();
+        List<String> conditions = new ArrayList<String>();
+        for (int i = 0; i < prefixValues.size(); i++) {
+            conditions.add("value" + i + " = ?");
+            valuesToBind.add(prefixValues.get(i));
+        }
+        String rangeColumn = "value" + prefixValues.size();
+        if (rangeQuery.getLowerBound() != null) {
+            conditions.add(rangeColumn + (rangeQuery.isLowerInclusive() ? " >= ?" : " > ?"));
+            valuesToBind.add(rangeQuery.getLowerBound());
+        }
+        if (rangeQuery.getUpperBound() != null) {
+            conditions.add(rangeColumn + (rangeQuery.isUpperInclusive() ? " <= ?" : " < ?"));
+            valuesToBind.add(rangeQuery.getUpperBound());
+        }
+        for (int i = 0; i < conditions.size(); i++) {
+            stringBuilder.append(i == 0 ? "" : " AND ").append(conditions.get(i));
+        }
+    }
+
+    static <O> String compoundSelect(final String selectPrefix, final List<Object> valuesToBind, final CompoundRangeQuery<O> rangeQuery, final String tableName, final String additionalCondition) {
+        StringBuilder stringBuilder = new StringBuilder(String.format(selectPrefix, tableName));
+        StringBuilder whereClause = new StringBuilder();
+        appendCompoundCondition(whereClause, valuesToBind, rangeQuery);
+        if (additionalCondition != null) {
+            whereClause.append(whereClause.length() == 0 ? "" : " AND ").append(additionalCondition);
+        }
+        if (whereClause.length() > 0) {
+            stringBuilder.append(" WHERE ").append(whereClause);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Returns the object keys of the rows of a compound index table matching the given {@link CompoundRangeQuery}.
+     * This is answered from the covering index on the table, without reading the table itself.
+     *
+     * @param rangeQuery The query to evaluate
+     * @param distinct True if objects can have several rows matching the query, so that duplicate keys must be
+     * eliminated; false to return the keys of the matching rows in order of the column following the prefix
+     * @param descending True to return keys in descending order of the column following the prefix, ignored if
+     * {@code distinct} is true
+     * @param tableName The name of the compound index table
+     * @param connection The connection to use
+     * @return A result set with one column holding the object keys
+     */
+    public static <O> java.sql.ResultSet searchCompound(final CompoundRangeQuery<O> rangeQuery, final boolean distinct, final boolean descending, final String tableName, final Connection connection){
+        List<Object> valuesToBind = new ArrayList<Object>();
+        String sql = compoundSelect(distinct ? "SELECT DISTINCT objectKey FROM cqtbl_%s" : "SELECT objectKey FROM cqtbl_%s", valuesToBind, rangeQuery, tableName, null);
+        if (!distinct && rangeQuery.getRangeAttribute() != null) {
+            // The covering index returns rows in this order already, so this does not require sorting...
+            sql += " ORDER BY value" + rangeQuery.getPrefixValues().size() + (descending ? " DESC" : "");
+        }
+        PreparedStatement statement = null;
+        try{
+            statement = connection.prepareStatement(sql + ";");
+            DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+            return statement.executeQuery();
+        }catch(Exception e){
+            DBUtils.closeQuietly(statement);
+            throw new IllegalStateException("Unable to execute search. Query: " + rangeQuery, e);
+        }
+        // In case of success we leave the statement and result-set open because the iteration of an Index ResultSet is lazy.
+    }
+
+    /**
+     * Counts the rows of a compound index table matching the given {@link CompoundRangeQuery}, or the distinct
+     * object keys of those rows if {@code distinct} is true.
+     */
+    public static <O> int countCompound(final CompoundRangeQuery<O> rangeQuery, final boolean distinct, final String tableName, final Connection connection){
+        List<Object> valuesToBind = new ArrayList<Object>();
+        String sql = compoundSelect(distinct ? "SELECT COUNT(DISTINCT objectKey) FROM cqtbl_%s" : "SELECT COUNT(objectKey) FROM cqtbl_%s", valuesToBind, rangeQuery, tableName, null);
+        PreparedStatement statement = null;
+        try{
+            statement = connection.prepareStatement(sql + ";");
+            DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+            java.sql.ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next()){
+                throw new IllegalStateException("Unable to execute count. The ResultSet returned no row. Query: " + rangeQuery);
+            }
+            return resultSet.getInt(1);
+        }catch(Exception e){
+            throw new IllegalStateException("Unable to execute count. Query: " + rangeQuery, e);
+        }finally {
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    public static <K, O> boolean containsCompound(final K objectKey, final CompoundRangeQuery<O> rangeQuery, final String tableName, final Connection connection){
+        List<Object> valuesToBind = new ArrayList<Object>();
+        String sql = compoundSelect("SELECT objectKey FROM cqtbl_%s", valuesToBind, rangeQuery, tableName, "objectKey = ?");
+        valuesToBind.add(objectKey);
+        PreparedStatement statement = null;
+        try{
+            statement = connection.prepareStatement(sql + " LIMIT 1;");
+            DBUtils.setValuesToPreparedStatement(1, statement, valuesToBind);
+            java.sql.ResultSet resultSet = statement.executeQuery();
+            return resultSet.next();
+        }catch (SQLException e){
+            throw new IllegalStateException("Unable to execute contains. Query: " + rangeQuery, e);
+        }finally{
+            DBUtils.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Checks which of the given object keys are contained in the rows of a compound index table matching the given
+     * {@link CompoundRangeQuery}, using one statement per {@link #CONTAINS_ALL_BATCH_SIZE} keys.
+     *
+     * @return The subset of the given object keys which are contained in the rows matching the query
+     */
+    public static <K, O> Set<K> containsAllCompound(final List<K> objectKeys, final Class<K> objectKeyType, final CompoundRangeQuery<O> rangeQuery, final String tableName, final Connection connection){
+        List<Object> valuesToBind = new ArrayList<Object>();
+        String sql = compoundSelect("SELECT DISTINCT objectKey FROM cqtbl_%s", valuesToBind, rangeQuery, tableName, null);
+        // Every condition binds at least one value, so there is a WHERE clause if and only if there are values...
+        sql += valuesToBind.isEmpty() ? " WHERE " : " AND ";
+        return selectContainedKeys(sql, valuesToBind, objectKeys, objectKeyType, rangeQuery, connection);
+    }
+
     static void ensureNotNegative(int value) {
         if (value < 0) throw new IllegalStateException("Update returned error code: " + value);
     }
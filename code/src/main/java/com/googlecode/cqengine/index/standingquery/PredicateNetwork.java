@@ -0,0 +1,495 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.standingquery;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.logical.Or;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.Between;
+import com.googlecode.cqengine.query.simple.Equal;
+import com.googlecode.cqengine.query.simple.GreaterThan;
+import com.googlecode.cqengine.query.simple.In;
+import com.googlecode.cqengine.query.simple.LessThan;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Determines which of a large number of registered queries match an object, without evaluating every registered
+ * query against the object.
+ * <p/>
+ * When a query is registered, the network extracts from it a set of <i>leaves</i>: equality ({@link Equal},
+ * {@link In}) and range ({@link LessThan}, {@link GreaterThan}, {@link Between}) conditions, at least one of which
+ * an object must satisfy for the query to match it. For an {@link And} query any single conjunct which has leaves
+ * will do, and equality conjuncts are preferred as they are the most discriminating. For an {@link Or} query, every
+ * disjunct must have leaves. Queries for which no leaves can be extracted are evaluated against every object.
+ * <p/>
+ * The leaves of all registered queries are indexed by attribute: equality leaves by value, and range leaves in an
+ * interval tree ordered by lower bound, each node of which records the greatest upper bound beneath it. Then to
+ * match an object, the network reads each indexed attribute from the object once, looks up the queries whose leaves
+ * are satisfied by the attribute values, and evaluates only those candidate queries in full. Finding the range
+ * leaves which contain a value takes time logarithmic in the number of range leaves on the attribute, plus time
+ * proportional to the number found.
+ * <p/>
+ * Registering and unregistering queries updates the index of leaves incrementally: equality leaves are added to or
+ * removed from concurrent maps, and range leaves are inserted into or deleted from the interval tree in logarithmic
+ * time, by copying the path to the affected node and then publishing the new root. Matching objects is thread-safe,
+ * does not block, and may proceed concurrently with registration.
+ *
+ * @param <O> The type of the objects to be matched
+ */
+public class PredicateNetwork<O> {
+
+    // Leaves extracted from each registered query, or null if none could be extracted, guarded by this...
+    final Map<Query<O>, List<LeafOfQuery<O>>> registeredQueries = new HashMap<Query<O>, List<LeafOfQuery<O>>>();
+    // The registered queries for which no leaves could be extracted...
+    final Set<Query<O>> unconditionalQueries = Collections.newSetFromMap(new ConcurrentHashMap<Query<O>, Boolean>());
+    // The leaves of the other registered queries, indexed by attribute...
+    final ConcurrentMap<Attribute<O, ?>, AttributeLeaves<O>> leavesByAttribute = new ConcurrentHashMap<Attribute<O, ?>, AttributeLeaves<O>>();
+    // Assigned to range leaves in order of registration, to order leaves having the same lower bound, guarded by this...
+    long nextSequence = 0;
+
+    volatile int queryCount = 0;
+
+    /**
+     * Registers the given query with the network.
+     *
+     * @param query The query to register
+     * @return True if the query was registered, false if it was already registered
+     */
+    public synchronized boolean register(Query<O> query) {
+        if (registeredQueries.containsKey(query)) {
+            return false;
+        }
+        List<Leaf<O>> leaves = extractLeaves(query);
+        if (leaves == null) {
+            registeredQueries.put(query, null);
+            unconditionalQueries.add(query);
+        }
+        else {
+            List<LeafOfQuery<O>> leavesOfQuery = new ArrayList<LeafOfQuery<O>>(leaves.size());
+            for (Leaf<O> leaf : leaves) {
+                LeafOfQuery<O> leafOfQuery = new LeafOfQuery<O>(leaf, query, nextSequence++);
+                AttributeLeaves<O> attributeLeaves = leavesByAttribute.get(leaf.attribute);
+                if (attributeLeaves == null) {
+                    attributeLeaves = new AttributeLeaves<O>(leaf.attribute);
+                    leavesByAttribute.put(leaf.attribute, attributeLeaves);
+                }
+                attributeLeaves.add(leafOfQuery);
+                leavesOfQuery.add(leafOfQuery);
+            }
+            registeredQueries.put(query, leavesOfQuery);
+        }
+        queryCount = registeredQueries.size();
+        return true;
+    }
+
+    /**
+     * Unregisters the given query from the network.
+     *
+     * @param query The query to unregister
+     * @return True if the query was unregistered, false if it was not registered
+     */
+    public synchronized boolean unregister(Query<O> query) {
+        if (!registeredQueries.containsKey(query)) {
+            return false;
+        }
+        List<LeafOfQuery<O>> leavesOfQuery = registeredQueries.remove(query);
+        if (leavesOfQuery == null) {
+            unconditionalQueries.remove(query);
+        }
+        else {
+            for (LeafOfQuery<O> leafOfQuery : leavesOfQuery) {
+                AttributeLeaves<O> attributeLeaves = leavesByAttribute.get(leafOfQuery.leaf.attribute);
+                attributeLeaves.remove(leafOfQuery);
+                if (attributeLeaves.leafCount == 0) {
+                    leavesByAttribute.remove(leafOfQuery.leaf.attribute);
+                }
+            }
+        }
+        queryCount = registeredQueries.size();
+        return true;
+    }
+
+    /**
+     * @return The number of queries registered
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return The number of registered queries for which no leaves could be extracted, and which are therefore
+     * evaluated against every object
+     */
+    public int getUnconditionalQueryCount() {
+        return unconditionalQueries.size();
+    }
+
+    /**
+     * Returns the registered queries which match the given object.
+     *
+     * @param object The object to match
+     * @param queryOptions The query options to supply to attributes and queries
+     * @return The registered queries which match the object
+     */
+    public List<Query<O>> getMatchingQueries(O object, QueryOptions queryOptions) {
+        List<Query<O>> matchingQueries = new ArrayList<Query<O>>();
+        for (Query<O> query : getCandidateQueries(object, queryOptions)) {
+            if (query.matches(object, queryOptions)) {
+                matchingQueries.add(query);
+            }
+        }
+        return matchingQueries;
+    }
+
+    /**
+     * Returns the registered queries having a leaf which is satisfied by the given object, and the registered
+     * queries which have no leaves.
+     */
+    Collection<Query<O>> getCandidateQueries(O object, QueryOptions queryOptions) {
+        if (leavesByAttribute.isEmpty()) {
+            return unconditionalQueries;
+        }
+        // Use a LinkedHashSet as an Or query can have several leaves satisfied by the same object...
+        Set<Query<O>> candidateQueries = new LinkedHashSet<Query<O>>(unconditionalQueries);
+        for (AttributeLeaves<O> attributeLeaves : leavesByAttribute.values()) {
+            RangeNode<O> rangeLeaves = attributeLeaves.rangeLeaves;
+            for (Object value : attributeLeaves.attribute.getValues(object, queryOptions)) {
+                Set<Query<O>> queries = attributeLeaves.queriesByValue.get(value);
+                if (queries != null) {
+                    candidateQueries.addAll(queries);
+                }
+                RangeNode.addQueriesContaining(rangeLeaves, value, candidateQueries);
+            }
+        }
+        return candidateQueries;
+    }
+
+    /**
+     * Returns leaves at least one of which an object must satisfy for the given query to match it, or null if no
+     * such leaves can be determined.
+     */
+    static <O> List<Leaf<O>> extractLeaves(Query<O> query) {
+        if (query instanceof Equal) {
+            Equal<O, ?> equal = (Equal<O, ?>) query;
+            return Collections.singletonList(Leaf.<O>forValues(equal.getAttribute(), Collections.<Object>singleton(equal.getValue())));
+        }
+        if (query instanceof In) {
+            In<O, ?> in = (In<O, ?>) query;
+            return Collections.singletonList(Leaf.<O>forValues(in.getAttribute(), new HashSet<Object>(in.getValues())));
+        }
+        if (query instanceof LessThan) {
+            LessThan<O, ?> lessThan = (LessThan<O, ?>) query;
+            return Collections.singletonList(Leaf.<O>forRange(lessThan.getAttribute(), null, false, lessThan.getValue(), lessThan.isValueInclusive()));
+        }
+        if (query instanceof GreaterThan) {
+            GreaterThan<O, ?> greaterThan = (GreaterThan<O, ?>) query;
+            return Collections.singletonList(Leaf.<O>forRange(greaterThan.getAttribute(), greaterThan.getValue(), greaterThan.isValueInclusive(), null, false));
+        }
+        if (query instanceof Between) {
+            Between<O, ?> between = (Between<O, ?>) query;
+            return Collections.singletonList(Leaf.<O>forRange(between.getAttribute(), between.getLowerValue(), between.isLowerInclusive(), between.getUpperValue(), between.isUpperInclusive()));
+        }
+        if (query instanceof And) {
+            // Any conjunct's leaves are necessary for the And to match; prefer equality leaves...
+            List<Leaf<O>> bestLeaves = null;
+            for (Query<O> childQuery : ((And<O>) query).getChildQueries()) {
+                List<Leaf<O>> childLeaves = extractLeaves(childQuery);
+                if (childLeaves != null && (bestLeaves == null || (!isEqualityOnly(bestLeaves) && isEqualityOnly(childLeaves)))) {
+                    bestLeaves = childLeaves;
+                }
+            }
+            return bestLeaves;
+        }
+        if (query instanceof Or) {
+            // Every disjunct must have leaves, as an object could match the Or via any of them...
+            List<Leaf<O>> leaves = new ArrayList<Leaf<O>>();
+            for (Query<O> childQuery : ((Or<O>) query).getChildQueries()) {
+                List<Leaf<O>> childLeaves = extractLeaves(childQuery);
+                if (childLeaves == null) {
+                    return null;
+                }
+                leaves.addAll(childLeaves);
+            }
+            return leaves;
+        }
+        return null;
+    }
+
+    static <O> boolean isEqualityOnly(List<Leaf<O>> leaves) {
+        for (Leaf<O> leaf : leaves) {
+            if (leaf.values == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A condition on the values of an attribute: either membership of a set of values, or a range of values.
+     */
+    static class Leaf<O> {
+        final Attribute<O, ?> attribute;
+        // Non-null for equality leaves...
+        final Set<Object> values;
+        // For range leaves, either bound may be null if the range is unbounded on that side...
+        final Comparable<Object> lowerBound;
+        final boolean lowerInclusive;
+        final Comparable<Object> upperBound;
+        final boolean upperInclusive;
+
+        Leaf(Attribute<O, ?> attribute, Set<Object> values, Comparable<Object> lowerBound, boolean lowerInclusive, Comparable<Object> upperBound, boolean upperInclusive) {
+            this.attribute = attribute;
+            this.values = values;
+            this.lowerBound = lowerBound;
+            this.lowerInclusive = lowerInclusive;
+            this.upperBound = upperBound;
+            this.upperInclusive = upperInclusive;
+        }
+
+        static <O> Leaf<O> forValues(Attribute<O, ?> attribute, Set<Object> values) {
+            return new Leaf<O>(attribute, values, null, false, null, false);
+        }
+
+        @SuppressWarnings("unchecked")
+        static <O> Leaf<O> forRange(Attribute<O, ?> attribute, Comparable<?> lowerBound, boolean lowerInclusive, Comparable<?> upperBound, boolean upperInclusive) {
+            return new Leaf<O>(attribute, null, (Comparable<Object>) lowerBound, lowerInclusive, (Comparable<Object>) upperBound, upperInclusive);
+        }
+
+        boolean isAboveLowerBound(Object value) {
+            int comparison = lowerBound.compareTo(value);
+            return lowerInclusive ? comparison <= 0 : comparison < 0;
+        }
+
+        boolean isBelowUpperBound(Object value) {
+            int comparison = upperBound.compareTo(value);
+            return upperInclusive ? comparison >= 0 : comparison > 0;
+        }
+
+        /**
+         * Compares the lower bounds of range leaves, where an unbounded lower bound is the least, and an inclusive
+         * bound is less than an exclusive bound on the same value.
+         */
+        static <O> int compareLowerBounds(Leaf<O> first, Leaf<O> second) {
+            if (first.lowerBound == null || second.lowerBound == null) {
+                return first.lowerBound == null ? (second.lowerBound == null ? 0 : -1) : 1;
+            }
+            int comparison = first.lowerBound.compareTo(second.lowerBound);
+            if (comparison != 0 || first.lowerInclusive == second.lowerInclusive) {
+                return comparison;
+            }
+            return first.lowerInclusive ? -1 : 1;
+        }
+
+        /**
+         * Compares the upper bounds of range leaves, where an unbounded upper bound is the greatest, and an inclusive
+         * bound is greater than an exclusive bound on the same value.
+         */
+        static <O> int compareUpperBounds(Leaf<O> first, Leaf<O> second) {
+            if (first.upperBound == null || second.upperBound == null) {
+                return first.upperBound == null ? (second.upperBound == null ? 0 : 1) : -1;
+            }
+            int comparison = first.upperBound.compareTo(second.upperBound);
+            if (comparison != 0 || first.upperInclusive == second.upperInclusive) {
+                return comparison;
+            }
+            return first.upperInclusive ? 1 : -1;
+        }
+    }
+
+    /**
+     * The leaves of registered queries on one attribute. Updated only while holding the lock on the network, but
+     * read without locking.
+     */
+    static class AttributeLeaves<O> {
+        final Attribute<O, ?> attribute;
+        // Attribute value -> queries having an equality leaf on that value...
+        final ConcurrentMap<Object, Set<Query<O>>> queriesByValue = new ConcurrentHashMap<Object, Set<Query<O>>>();
+        // The root of the interval tree of range leaves, replaced when range leaves are added or removed...
+        volatile RangeNode<O> rangeLeaves = null;
+        // The number of equality and range leaves, guarded by the lock on the network...
+        int leafCount = 0;
+
+        AttributeLeaves(Attribute<O, ?> attribute) {
+            this.attribute = attribute;
+        }
+
+        void add(LeafOfQuery<O> leafOfQuery) {
+            Leaf<O> leaf = leafOfQuery.leaf;
+            if (leaf.values != null) {
+                for (Object value : leaf.values) {
+                    Set<Query<O>> queries = queriesByValue.get(value);
+                    if (queries == null) {
+                        queries = Collections.newSetFromMap(new ConcurrentHashMap<Query<O>, Boolean>());
+                        queriesByValue.put(value, queries);
+                    }
+                    queries.add(leafOfQuery.query);
+                }
+            }
+            else {
+                rangeLeaves = RangeNode.insert(rangeLeaves, leafOfQuery);
+            }
+            leafCount++;
+        }
+
+        void remove(LeafOfQuery<O> leafOfQuery) {
+            Leaf<O> leaf = leafOfQuery.leaf;
+            if (leaf.values != null) {
+                for (Object value : leaf.values) {
+                    Set<Query<O>> queries = queriesByValue.get(value);
+                    if (queries != null) {
+                        queries.remove(leafOfQuery.query);
+                        if (queries.isEmpty()) {
+                            queriesByValue.remove(value);
+                        }
+                    }
+                }
+            }
+            else {
+                rangeLeaves = RangeNode.delete(rangeLeaves, leafOfQuery);
+            }
+            leafCount--;
+        }
+    }
+
+    /**
+     * An immutable node of an interval tree of range leaves, which is a treap ordered by the lower bounds of the
+     * leaves. Each node records the leaf having the greatest upper bound in its subtree, so that subtrees containing
+     * no leaf whose range extends as far as a value can be skipped when finding the leaves which contain the value.
+     * <p/>
+     * Nodes are never modified: inserting or deleting a leaf copies the nodes on the path to it, and returns a new
+     * root.
+     */
+    static class RangeNode<O> {
+        final LeafOfQuery<O> leafOfQuery;
+        final int priority;
+        final RangeNode<O> left;
+        final RangeNode<O> right;
+        final Leaf<O> maxUpperLeaf;
+
+        RangeNode(LeafOfQuery<O> leafOfQuery, int priority, RangeNode<O> left, RangeNode<O> right) {
+            this.leafOfQuery = leafOfQuery;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            Leaf<O> maxUpperLeaf = leafOfQuery.leaf;
+            if (left != null && Leaf.compareUpperBounds(left.maxUpperLeaf, maxUpperLeaf) > 0) {
+                maxUpperLeaf = left.maxUpperLeaf;
+            }
+            if (right != null && Leaf.compareUpperBounds(right.maxUpperLeaf, maxUpperLeaf) > 0) {
+                maxUpperLeaf = right.maxUpperLeaf;
+            }
+            this.maxUpperLeaf = maxUpperLeaf;
+        }
+
+        static <O> RangeNode<O> insert(RangeNode<O> node, LeafOfQuery<O> leafOfQuery) {
+            if (node == null) {
+                // Derive a pseudo-random priority from the sequence, which keeps the tree balanced in expectation...
+                return new RangeNode<O>(leafOfQuery, Long.hashCode(leafOfQuery.sequence * 0x9E3779B97F4A7C15L), null, null);
+            }
+            if (LeafOfQuery.compare(leafOfQuery, node.leafOfQuery) < 0) {
+                RangeNode<O> left = insert(node.left, leafOfQuery);
+                if (left.priority > node.priority) {
+                    // Rotate right...
+                    return new RangeNode<O>(left.leafOfQuery, left.priority, left.left, new RangeNode<O>(node.leafOfQuery, node.priority, left.right, node.right));
+                }
+                return new RangeNode<O>(node.leafOfQuery, node.priority, left, node.right);
+            }
+            else {
+                RangeNode<O> right = insert(node.right, leafOfQuery);
+                if (right.priority > node.priority) {
+                    // Rotate left...
+                    return new RangeNode<O>(right.leafOfQuery, right.priority, new RangeNode<O>(node.leafOfQuery, node.priority, node.left, right.left), right.right);
+                }
+                return new RangeNode<O>(node.leafOfQuery, node.priority, node.left, right);
+            }
+        }
+
+        static <O> RangeNode<O> delete(RangeNode<O> node, LeafOfQuery<O> leafOfQuery) {
+            if (node == null) {
+                return null;
+            }
+            int comparison = LeafOfQuery.compare(leafOfQuery, node.leafOfQuery);
+            if (comparison < 0) {
+                return new RangeNode<O>(node.leafOfQuery, node.priority, delete(node.left, leafOfQuery), node.right);
+            }
+            else if (comparison > 0) {
+                return new RangeNode<O>(node.leafOfQuery, node.priority, node.left, delete(node.right, leafOfQuery));
+            }
+            return merge(node.left, node.right);
+        }
+
+        static <O> RangeNode<O> merge(RangeNode<O> left, RangeNode<O> right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                return new RangeNode<O>(left.leafOfQuery, left.priority, left.left, merge(left.right, right));
+            }
+            return new RangeNode<O>(right.leafOfQuery, right.priority, merge(left, right.left), right.right);
+        }
+
+        /**
+         * Adds the queries of the leaves in the given subtree whose ranges contain the given value to the given
+         * collection.
+         */
+        static <O> void addQueriesContaining(RangeNode<O> node, Object value, Collection<Query<O>> queries) {
+            while (node != null) {
+                if (node.maxUpperLeaf.upperBound != null && !node.maxUpperLeaf.isBelowUpperBound(value)) {
+                    // No leaf in this subtree extends as far as the value...
+                    return;
+                }
+                addQueriesContaining(node.left, value, queries);
+                Leaf<O> leaf = node.leafOfQuery.leaf;
+                if (leaf.lowerBound != null && !leaf.isAboveLowerBound(value)) {
+                    // This leaf, and every leaf in the right subtree, starts after the value...
+                    return;
+                }
+                if (leaf.upperBound == null || leaf.isBelowUpperBound(value)) {
+                    queries.add(node.leafOfQuery.query);
+                }
+                node = node.right;
+            }
+        }
+    }
+
+    static class LeafOfQuery<O> {
+        final Leaf<O> leaf;
+        final Query<O> query;
+        final long sequence;
+
+        LeafOfQuery(Leaf<O> leaf, Query<O> query, long sequence) {
+            this.leaf = leaf;
+            this.query = query;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Orders range leaves by lower bound, and then in order of registration.
+         */
+        static <O> int compare(LeafOfQuery<O> first, LeafOfQuery<O> second) {
+            int comparison = Leaf.compareLowerBounds(first.leaf, second.leaf);
+            return comparison != 0 ? comparison : Long.compare(first.sequence, second.sequence);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.stored.StoredResultSet;
 import com.googlecode.cqengine.resultset.stored.StoredSetBasedResultSet;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -163,6 +164,36 @@ public class StandingQueryIndex<O> implements Index<O>, OnHeapTypeIndex {
         }
     }
 
+    /**
+     * Adds the given objects, which are already known to match the standing query, without evaluating the query.
+     * <p/>
+     * This is used by {@link StandingQueryIndexGroup} after it has matched objects via a {@link PredicateNetwork}.
+     *
+     * @param matchingObjects Objects which match the standing query
+     * @return True if the index was modified as a result
+     */
+    public boolean addMatchingObjects(Collection<O> matchingObjects) {
+        boolean modified = false;
+        for (O object : matchingObjects) {
+            modified |= storedResultSet.add(object);
+        }
+        return modified;
+    }
+
+    /**
+     * Removes the given objects, which are already known to match the standing query, without evaluating the query.
+     *
+     * @param matchingObjects Objects which match the standing query
+     * @return True if the index was modified as a result
+     */
+    public boolean removeMatchingObjects(Collection<O> matchingObjects) {
+        boolean modified = false;
+        for (O object : matchingObjects) {
+            modified |= storedResultSet.remove(object);
+        }
+        return modified;
+    }
+
     /**
      * {@inheritDoc}
      * @param queryOptions
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.standingquery;
+
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Updates a group of {@link StandingQueryIndex}es together, using a {@link PredicateNetwork} to determine which
+ * standing queries each object written to the collection matches, instead of evaluating every standing query against
+ * every object.
+ * <p/>
+ * The query engine routes writes to standing query indexes through this group, so that with a large number of
+ * standing queries on a collection, each write evaluates only the standing queries which it could affect.
+ * <p/>
+ * This index does not support retrieving objects; queries are answered by the standing query indexes themselves.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public class StandingQueryIndexGroup<O> implements Index<O> {
+
+    final PredicateNetwork<O> predicateNetwork = new PredicateNetwork<O>();
+    final ConcurrentMap<Query<O>, StandingQueryIndex<O>> standingQueryIndexes = new ConcurrentHashMap<Query<O>, StandingQueryIndex<O>>();
+
+    /**
+     * Adds the given standing query index to the group.
+     *
+     * @param standingQueryIndex The index to add
+     */
+    public void add(StandingQueryIndex<O> standingQueryIndex) {
+        Query<O> standingQuery = standingQueryIndex.getStandingQuery();
+        standingQueryIndexes.put(standingQuery, standingQueryIndex);
+        predicateNetwork.register(standingQuery);
+    }
+
+    /**
+     * Removes the given standing query index from the group.
+     *
+     * @param standingQueryIndex The index to remove
+     * @return True if the index was removed, false if it was not in the group
+     */
+    public boolean remove(StandingQueryIndex<O> standingQueryIndex) {
+        Query<O> standingQuery = standingQueryIndex.getStandingQuery();
+        if (!standingQueryIndexes.remove(standingQuery, standingQueryIndex)) {
+            return false;
+        }
+        predicateNetwork.unregister(standingQuery);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean contains(Index<O> index) {
+        return index instanceof StandingQueryIndex
+                && standingQueryIndexes.get(((StandingQueryIndex<O>) index).getStandingQuery()) == index;
+    }
+
+    public boolean isEmpty() {
+        return standingQueryIndexes.isEmpty();
+    }
+
+    public PredicateNetwork<O> getPredicateNetwork() {
+        return predicateNetwork;
+    }
+
+    /**
+     * Groups the given objects by the standing queries which they match.
+     */
+    Map<Query<O>, List<O>> getMatchingObjects(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        Map<Query<O>, List<O>> matchingObjects = new HashMap<Query<O>, List<O>>();
+        try {
+            for (O object : objectSet) {
+                for (Query<O> query : predicateNetwork.getMatchingQueries(object, queryOptions)) {
+                    List<O> objects = matchingObjects.get(query);
+                    if (objects == null) {
+                        objects = new ArrayList<O>();
+                        matchingObjects.put(query, objects);
+                    }
+                    objects.add(object);
+                }
+            }
+        }
+        finally {
+            objectSet.close();
+        }
+        return matchingObjects;
+    }
+
+    // -------------------- Index methods --------------------
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    /**
+     * @return False, as this index does not support retrieving objects
+     */
+    @Override
+    public boolean supportsQuery(Query<O> query, QueryOptions queryOptions) {
+        return false;
+    }
+
+    @Override
+    public boolean isQuantized() {
+        return false;
+    }
+
+    /**
+     * @throws UnsupportedOperationException Always, as this index does not support retrieving objects
+     */
+    @Override
+    public ResultSet<O> retrieve(Query<O> query, QueryOptions queryOptions) {
+        throw new UnsupportedOperationException("StandingQueryIndexGroup does not support retrieving objects: " + query);
+    }
+
+    @Override
+    public Index<O> getEffectiveIndex() {
+        return this;
+    }
+
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        if (standingQueryIndexes.isEmpty()) {
+            objectSet.close();
+            return false;
+        }
+        boolean modified = false;
+        for (Map.Entry<Query<O>, List<O>> entry : getMatchingObjects(objectSet, queryOptions).entrySet()) {
+            StandingQueryIndex<O> standingQueryIndex = standingQueryIndexes.get(entry.getKey());
+            if (standingQueryIndex != null) {
+                modified |= standingQueryIndex.addMatchingObjects(entry.getValue());
+            }
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        if (standingQueryIndexes.isEmpty()) {
+            objectSet.close();
+            return false;
+        }
+        boolean modified = false;
+        for (Map.Entry<Query<O>, List<O>> entry : getMatchingObjects(objectSet, queryOptions).entrySet()) {
+            StandingQueryIndex<O> standingQueryIndex = standingQueryIndexes.get(entry.getKey());
+            if (standingQueryIndex != null) {
+                modified |= standingQueryIndex.removeMatchingObjects(entry.getValue());
+            }
+        }
+        return modified;
+    }
+
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        for (StandingQueryIndex<O> standingQueryIndex : standingQueryIndexes.values()) {
+            standingQueryIndex.clear(queryOptions);
+        }
+    }
+
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        for (StandingQueryIndex<O> standingQueryIndex : standingQueryIndexes.values()) {
+            standingQueryIndex.init(objectStore, queryOptions);
+        }
+    }
+
+    @Override
+    public void destroy(QueryOptions queryOptions) {
+        for (StandingQueryIndex<O> standingQueryIndex : standingQueryIndexes.values()) {
+            standingQueryIndex.destroy(queryOptions);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StandingQueryIndexGroup{" +
+                "standingQueries=" + standingQueryIndexes.size() +
+                '}';
+    }
+}
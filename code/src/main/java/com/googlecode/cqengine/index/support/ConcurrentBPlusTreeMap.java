@@ -0,0 +1,1284 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.support;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link ConcurrentNavigableMap} backed by a B+tree, which can be used instead of a
+ * {@link java.util.concurrent.ConcurrentSkipListMap} as the map in a
+ * {@link com.googlecode.cqengine.index.navigable.NavigableIndex}, via
+ * {@link com.googlecode.cqengine.index.navigable.NavigableIndex.BPlusTreeIndexMapFactory}.
+ * <p/>
+ * Keys and values are stored in sorted arrays in leaf nodes, which are linked to their neighbours in both directions.
+ * Compared with a skip list, which allocates a node and a tower of index nodes per key, this uses much less memory
+ * per key and range scans read contiguous arrays instead of chasing a pointer per key.
+ * <p/>
+ * Each leaf has its own {@link StampedLock}, and the tree has a structure lock. Writes which modify a single leaf in
+ * place (inserting a key into a leaf which is not full, removing a key from a leaf which does not become empty, or
+ * replacing a value) hold the structure lock for reading and the leaf's lock for writing, so writes to different
+ * leaves proceed concurrently. Only writes which split a full leaf or remove an empty one, about one in every
+ * {@code nodeCapacity / 2} insertions of distinct keys, hold the structure lock for writing. This matters for a
+ * {@link com.googlecode.cqengine.index.navigable.NavigableIndex} on an attribute with mostly distinct values (such as
+ * timestamps), where every object added or removed inserts or removes a key.
+ * <p/>
+ * Reads do not acquire locks. They descend the tree and read leaves optimistically, validating the stamp of the
+ * structure lock and of each leaf they read, and retry if a write intervened. Only if writes intervene repeatedly do
+ * they hold the structure lock for reading, and each leaf's lock for reading while they copy from it. Iterators and
+ * views are weakly consistent, as in {@link java.util.concurrent.ConcurrentSkipListMap}: they copy the entries of one
+ * leaf at a time, and locate the next leaf by the last key they returned, so they never throw
+ * {@link ConcurrentModificationException} and reflect some of the writes made after they were created. Run
+ * {@code ConcurrentBPlusTreeMapBenchmark} (in the test sources) to compare the throughput with
+ * {@link java.util.concurrent.ConcurrentSkipListMap} for varying numbers of threads and proportions of writes on the
+ * hardware of interest. Inserting keys in ascending order concentrates writes on the last leaf, whose lock then
+ * serializes them.
+ * <p/>
+ * Leaves which become empty are unlinked from the tree, but nodes are not otherwise merged when entries are removed.
+ * Keys must implement {@link Comparable} and must not be null; custom comparators are not supported.
+ */
+public class ConcurrentBPlusTreeMap<K, V> extends AbstractMap<K, V> implements ConcurrentNavigableMap<K, V> {
+
+    public static final int DEFAULT_NODE_CAPACITY = 64;
+
+    final Tree tree;
+    // The bounds of this view onto the tree, in the natural ordering of keys (null if unbounded)...
+    final K lowerBound;
+    final boolean lowerInclusive;
+    final K upperBound;
+    final boolean upperInclusive;
+    final boolean descending;
+
+    /**
+     * Creates a new empty map, with nodes of capacity {@link #DEFAULT_NODE_CAPACITY}.
+     */
+    public ConcurrentBPlusTreeMap() {
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty map.
+     *
+     * @param nodeCapacity The maximum number of entries in a leaf node, and of children of an internal node
+     */
+    public ConcurrentBPlusTreeMap(int nodeCapacity) {
+        this(new Tree(nodeCapacity), null, false, null, false, false);
+    }
+
+    ConcurrentBPlusTreeMap(Tree tree, K lowerBound, boolean lowerInclusive, K upperBound, boolean upperInclusive, boolean descending) {
+        this.tree = tree;
+        this.lowerBound = lowerBound;
+        this.lowerInclusive = lowerInclusive;
+        this.upperBound = upperBound;
+        this.upperInclusive = upperInclusive;
+        this.descending = descending;
+    }
+
+    // ---------- Map and ConcurrentMap methods ----------
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return inRange(key) ? (V) tree.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        checkInRange(key, value);
+        return (V) tree.put(key, value, false);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        checkInRange(key, value);
+        return (V) tree.put(key, value, true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        return inRange(key) ? (V) tree.remove(key, null) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return value != null && inRange(key) && tree.remove(key, value) != null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkInRange(key, newValue);
+        if (oldValue == null) {
+            throw new NullPointerException();
+        }
+        return tree.replace(key, oldValue, newValue) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        checkInRange(key, value);
+        return (V) tree.replace(key, null, value);
+    }
+
+    @Override
+    public int size() {
+        if (isUnbounded()) {
+            return tree.size();
+        }
+        return tree.countRange(lowerBound, lowerInclusive, upperBound, upperInclusive);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return firstInRange(null, false) == null;
+    }
+
+    @Override
+    public void clear() {
+        if (isUnbounded()) {
+            tree.clear();
+            return;
+        }
+        for (Iterator<Entry<K, V>> iterator = entryIterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return entryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentBPlusTreeMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return ConcurrentBPlusTreeMap.this.isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                ConcurrentBPlusTreeMap.this.clear();
+            }
+        };
+    }
+
+    // ---------- SortedMap and NavigableMap methods ----------
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Comparator<? super K> comparator() {
+        return descending ? (Comparator<? super K>) Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public K firstKey() {
+        return keyOrThrow(firstEntry());
+    }
+
+    @Override
+    public K lastKey() {
+        return keyOrThrow(lastEntry());
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return descending ? lastInRange(null, false) : firstInRange(null, false);
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return descending ? firstInRange(null, false) : lastInRange(null, false);
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+        return poll(true);
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+        return poll(false);
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return descending ? firstInRange(key, false) : lastInRange(key, false);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(lowerEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return descending ? firstInRange(key, true) : lastInRange(key, true);
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(floorEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return descending ? lastInRange(key, true) : firstInRange(key, true);
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return descending ? lastInRange(key, false) : firstInRange(key, false);
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(higherEntry(key));
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (fromKey == null || toKey == null) {
+            throw new NullPointerException();
+        }
+        return descending
+                ? view(toKey, toInclusive, fromKey, fromInclusive, true)
+                : view(fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        if (toKey == null) {
+            throw new NullPointerException();
+        }
+        return descending
+                ? view(toKey, inclusive, null, false, true)
+                : view(null, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        if (fromKey == null) {
+            throw new NullPointerException();
+        }
+        return descending
+                ? view(null, false, fromKey, inclusive, true)
+                : view(fromKey, inclusive, null, false, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> descendingMap() {
+        return new ConcurrentBPlusTreeMap<K, V>(tree, lowerBound, lowerInclusive, upperBound, upperInclusive, !descending);
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<K>(this);
+    }
+
+    @Override
+    public NavigableSet<K> keySet() {
+        return new KeySet<K>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return new KeySet<K>(descendingMap());
+    }
+
+    // ---------- Support for views ----------
+
+    boolean isUnbounded() {
+        return lowerBound == null && upperBound == null;
+    }
+
+    boolean tooLow(Object key) {
+        if (lowerBound == null) {
+            return false;
+        }
+        int cmp = compare(key, lowerBound);
+        return cmp < 0 || (cmp == 0 && !lowerInclusive);
+    }
+
+    boolean tooHigh(Object key) {
+        if (upperBound == null) {
+            return false;
+        }
+        int cmp = compare(key, upperBound);
+        return cmp > 0 || (cmp == 0 && !upperInclusive);
+    }
+
+    boolean inRange(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    void checkInRange(Object key, Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (!inRange(key)) {
+            throw new IllegalArgumentException("Key out of range: " + key);
+        }
+    }
+
+    /**
+     * Returns a view of the given range in natural ordering, which must be within the range of this view.
+     */
+    ConcurrentNavigableMap<K, V> view(K from, boolean fromInclusive, K to, boolean toInclusive, boolean descending) {
+        if (lowerBound != null) {
+            if (from == null) {
+                from = lowerBound;
+                fromInclusive = lowerInclusive;
+            }
+            else {
+                int cmp = compare(from, lowerBound);
+                if (cmp < 0 || (cmp == 0 && !lowerInclusive && fromInclusive)) {
+                    throw new IllegalArgumentException("Key out of range: " + from);
+                }
+            }
+        }
+        if (upperBound != null) {
+            if (to == null) {
+                to = upperBound;
+                toInclusive = upperInclusive;
+            }
+            else {
+                int cmp = compare(to, upperBound);
+                if (cmp > 0 || (cmp == 0 && !upperInclusive && toInclusive)) {
+                    throw new IllegalArgumentException("Key out of range: " + to);
+                }
+            }
+        }
+        return new ConcurrentBPlusTreeMap<K, V>(tree, from, fromInclusive, to, toInclusive, descending);
+    }
+
+    /**
+     * Returns the entry with the least key in range, which is greater than (or equal to, if inclusive) the given key,
+     * or null if there is none. If the given key is null, returns the entry with the least key in range.
+     */
+    @SuppressWarnings("unchecked")
+    Entry<K, V> firstInRange(K fromKey, boolean inclusive) {
+        Object from = lowerBound;
+        boolean fromInclusive = lowerInclusive;
+        if (fromKey != null && !tooLow(fromKey)) {
+            from = fromKey;
+            fromInclusive = inclusive;
+        }
+        Entry<K, V> entry = (Entry<K, V>) tree.firstEntryFrom(from, fromInclusive, false);
+        return entry == null || tooHigh(entry.getKey()) ? null : entry;
+    }
+
+    /**
+     * Returns the entry with the greatest key in range, which is less than (or equal to, if inclusive) the given key,
+     * or null if there is none. If the given key is null, returns the entry with the greatest key in range.
+     */
+    @SuppressWarnings("unchecked")
+    Entry<K, V> lastInRange(K fromKey, boolean inclusive) {
+        Object from = upperBound;
+        boolean fromInclusive = upperInclusive;
+        if (fromKey != null && !tooHigh(fromKey)) {
+            from = fromKey;
+            fromInclusive = inclusive;
+        }
+        Entry<K, V> entry = (Entry<K, V>) tree.firstEntryFrom(from, fromInclusive, true);
+        return entry == null || tooLow(entry.getKey()) ? null : entry;
+    }
+
+    Entry<K, V> poll(boolean first) {
+        while (true) {
+            Entry<K, V> entry = first ? firstEntry() : lastEntry();
+            if (entry == null) {
+                return null;
+            }
+            if (tree.remove(entry.getKey(), entry.getValue()) != null) {
+                return entry;
+            }
+            // The entry was modified or removed concurrently, retry...
+        }
+    }
+
+    Iterator<Entry<K, V>> entryIterator() {
+        return new EntryIterator();
+    }
+
+    static <K> K keyOrNull(Entry<K, ?> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    static <K> K keyOrThrow(Entry<K, ?> entry) {
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.getKey();
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compare(Object key1, Object key2) {
+        return ((Comparable<Object>) key1).compareTo(key2);
+    }
+
+    /**
+     * Iterates the entries in range, in the order of this view, by copying the entries from one leaf at a time.
+     */
+    class EntryIterator implements Iterator<Entry<K, V>> {
+        List<Entry<Object, Object>> chunk = Collections.emptyList();
+        int position = 0;
+        Object resumeKey = descending ? upperBound : lowerBound;
+        boolean resumeInclusive = descending ? upperInclusive : lowerInclusive;
+        boolean exhausted = false;
+        Entry<K, V> next = null;
+        Entry<K, V> lastReturned = null;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !exhausted) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = null;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            tree.remove(lastReturned.getKey(), null);
+            lastReturned = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Entry<K, V> computeNext() {
+            if (position == chunk.size()) {
+                chunk = tree.readChunk(resumeKey, resumeInclusive, descending);
+                position = 0;
+                if (chunk.isEmpty()) {
+                    exhausted = true;
+                    return null;
+                }
+                resumeKey = chunk.get(chunk.size() - 1).getKey();
+                resumeInclusive = false;
+            }
+            Entry<K, V> entry = (Entry<K, V>) (Entry<?, ?>) chunk.get(position++);
+            if (descending ? tooLow(entry.getKey()) : tooHigh(entry.getKey())) {
+                exhausted = true;
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * A {@link NavigableSet} view of the keys in a {@link ConcurrentBPlusTreeMap}.
+     */
+    static class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+
+        final ConcurrentNavigableMap<K, ?> map;
+
+        KeySet(ConcurrentNavigableMap<K, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            final Iterator<? extends Entry<K, ?>> entries = map.entrySet().iterator();
+            return new Iterator<K>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return map.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public K lower(K k) {
+            return map.lowerKey(k);
+        }
+
+        @Override
+        public K floor(K k) {
+            return map.floorKey(k);
+        }
+
+        @Override
+        public K ceiling(K k) {
+            return map.ceilingKey(k);
+        }
+
+        @Override
+        public K higher(K k) {
+            return map.higherKey(k);
+        }
+
+        @Override
+        public K pollFirst() {
+            return keyOrNull(map.pollFirstEntry());
+        }
+
+        @Override
+        public K pollLast() {
+            return keyOrNull(map.pollLastEntry());
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public K first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public K last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() {
+            return new KeySet<K>(map.descendingMap());
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return new KeySet<K>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return new KeySet<K>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return new KeySet<K>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    // ---------- The B+tree ----------
+
+    static abstract class Node {
+        // The number of keys in a leaf, or of children in an internal node...
+        int size;
+    }
+
+    static class Leaf extends Node {
+        // Guards the entries of the leaf against writes which modify the leaf in place...
+        final StampedLock lock = new StampedLock();
+        final Object[] keys;
+        final Object[] values;
+        Leaf previous;
+        Leaf next;
+
+        Leaf(int capacity) {
+            // One extra slot allows an entry to be inserted before the leaf is split...
+            this.keys = new Object[capacity + 1];
+            this.values = new Object[capacity + 1];
+        }
+    }
+
+    static class InternalNode extends Node {
+        // keys[i] is the least key in children[i + 1]...
+        final Object[] keys;
+        final Node[] children;
+
+        InternalNode(int capacity) {
+            this.keys = new Object[capacity];
+            this.children = new Node[capacity + 1];
+        }
+    }
+
+    /**
+     * The result of splitting a node: the new node to the right of the node split, and the least key in it.
+     */
+    static class Split {
+        final Object separator;
+        final Node right;
+
+        Split(Object separator, Node right) {
+            this.separator = separator;
+            this.right = right;
+        }
+    }
+
+    /**
+     * A read of the tree, which can be performed optimistically or while holding locks.
+     */
+    static abstract class LeafRead {
+        /**
+         * @param optimistic True if the read should validate optimistic stamps of the leaves it reads, false if it
+         * should lock them for reading
+         * @return The result of the read, or {@link Tree#RETRY} if an optimistic read observed a write to a leaf
+         */
+        abstract Object read(boolean optimistic);
+    }
+
+    /**
+     * The tree shared by a map and its views.
+     * <p/>
+     * Writes which modify a single leaf in place (inserting into a leaf which is not full, removing from a leaf which
+     * does not become empty, or replacing a value) hold the structure lock for reading and the lock of the leaf for
+     * writing, so writes to different leaves proceed concurrently. Writes which split nodes or remove empty leaves hold
+     * the structure lock for writing. Reads validate optimistic stamps of the structure lock and of each leaf they
+     * read, and only if a write intervenes repeatedly do they hold the structure lock for reading and lock each leaf
+     * for reading while they copy from it.
+     */
+    static class Tree {
+        static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+        // Returned by an optimistic read which observed a concurrent write to a leaf...
+        static final Object RETRY = new Object();
+
+        final int capacity;
+        final StampedLock structureLock = new StampedLock();
+        // All of the following are guarded by the structure lock...
+        Node root;
+        Leaf firstLeaf;
+        Leaf lastLeaf;
+        final AtomicInteger size = new AtomicInteger();
+
+        Tree(int capacity) {
+            if (capacity < 4) {
+                throw new IllegalArgumentException("Node capacity must be at least 4: " + capacity);
+            }
+            this.capacity = capacity;
+            clearUnlocked();
+        }
+
+        Object get(final Object key) {
+            return read(new LeafRead() {
+                @Override
+                Object read(boolean optimistic) {
+                    Leaf leaf = findLeaf(key);
+                    long leafStamp = beginLeafRead(leaf, optimistic);
+                    Object value = null;
+                    boolean valid = false;
+                    try {
+                        int index = search(leaf.keys, leaf.size, key);
+                        value = index >= 0 ? leaf.values[index] : null;
+                    }
+                    finally {
+                        valid = endLeafRead(leaf, leafStamp, optimistic);
+                    }
+                    return valid ? value : RETRY;
+                }
+            });
+        }
+
+        int size() {
+            return size.get();
+        }
+
+        /**
+         * Counts the entries whose keys are within the given bounds (null if unbounded), by adding the sizes of the
+         * leaves spanned by the range, so that only the leaves at either end of the range are searched.
+         */
+        int countRange(final Object lowerKey, final boolean lowerInclusive, final Object upperKey, final boolean upperInclusive) {
+            return (Integer) read(new LeafRead() {
+                @Override
+                Object read(boolean optimistic) {
+                    Leaf leaf = lowerKey == null ? firstLeaf : findLeaf(lowerKey);
+                    boolean firstLeafInRange = true;
+                    int count = 0;
+                    while (leaf != null) {
+                        long leafStamp = beginLeafRead(leaf, optimistic);
+                        int index = 0, end = 0;
+                        boolean rangeEnds = false, valid = false;
+                        Leaf next = null;
+                        try {
+                            if (firstLeafInRange && lowerKey != null) {
+                                int position = search(leaf.keys, leaf.size, lowerKey);
+                                index = position >= 0 ? (lowerInclusive ? position : position + 1) : -position - 1;
+                            }
+                            end = leaf.size;
+                            if (upperKey != null && leaf.size > 0 && compare(leaf.keys[leaf.size - 1], upperKey) >= 0) {
+                                // The range ends in this leaf...
+                                int position = search(leaf.keys, leaf.size, upperKey);
+                                end = position >= 0 ? (upperInclusive ? position + 1 : position) : -position - 1;
+                                rangeEnds = true;
+                            }
+                            next = leaf.next;
+                        }
+                        finally {
+                            valid = endLeafRead(leaf, leafStamp, optimistic);
+                        }
+                        if (!valid) {
+                            return RETRY;
+                        }
+                        count += Math.max(0, end - index);
+                        if (rangeEnds) {
+                            break;
+                        }
+                        leaf = next;
+                        firstLeafInRange = false;
+                    }
+                    return count;
+                }
+            });
+        }
+
+        Object put(Object key, Object value, boolean onlyIfAbsent) {
+            long structureStamp = structureLock.readLock();
+            try {
+                Leaf leaf = findLeaf(key);
+                long leafStamp = leaf.lock.writeLock();
+                try {
+                    int position = search(leaf.keys, leaf.size, key);
+                    if (position >= 0) {
+                        Object previousValue = leaf.values[position];
+                        if (!onlyIfAbsent) {
+                            leaf.values[position] = value;
+                        }
+                        return previousValue;
+                    }
+                    if (leaf.size < capacity) {
+                        insertIntoLeaf(leaf, -position - 1, key, value);
+                        return null;
+                    }
+                }
+                finally {
+                    leaf.lock.unlockWrite(leafStamp);
+                }
+            }
+            finally {
+                structureLock.unlockRead(structureStamp);
+            }
+            // The leaf is full and must be split, which changes the structure of the tree...
+            long stamp = structureLock.writeLock();
+            try {
+                Object[] previousValue = new Object[1];
+                Split split = insert(root, key, value, onlyIfAbsent, previousValue);
+                if (split != null) {
+                    InternalNode newRoot = new InternalNode(capacity);
+                    newRoot.children[0] = root;
+                    newRoot.children[1] = split.right;
+                    newRoot.keys[0] = split.separator;
+                    newRoot.size = 2;
+                    root = newRoot;
+                }
+                return previousValue[0];
+            }
+            finally {
+                structureLock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Removes the entry for the given key, if its value is equal to the expected value or the expected value is
+         * null, and returns the value removed or null.
+         */
+        Object remove(Object key, Object expectedValue) {
+            long structureStamp = structureLock.readLock();
+            try {
+                Leaf leaf = findLeaf(key);
+                long leafStamp = leaf.lock.writeLock();
+                try {
+                    int index = search(leaf.keys, leaf.size, key);
+                    if (index < 0 || (expectedValue != null && !expectedValue.equals(leaf.values[index]))) {
+                        return null;
+                    }
+                    if (leaf.size > 1) {
+                        return deleteFromLeaf(leaf, index);
+                    }
+                }
+                finally {
+                    leaf.lock.unlockWrite(leafStamp);
+                }
+            }
+            finally {
+                structureLock.unlockRead(structureStamp);
+            }
+            // The leaf would become empty and must be removed, which changes the structure of the tree...
+            long stamp = structureLock.writeLock();
+            try {
+                Object[] removedValue = new Object[1];
+                if (delete(root, key, expectedValue, removedValue) && root instanceof InternalNode) {
+                    // All leaves were removed...
+                    clearUnlocked();
+                }
+                // Remove internal nodes with a single child from the top of the tree...
+                while (root instanceof InternalNode && root.size == 1) {
+                    root = ((InternalNode) root).children[0];
+                }
+                return removedValue[0];
+            }
+            finally {
+                structureLock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Replaces the value for the given key, if its value is equal to the expected value or the expected value is
+         * null, and returns the value replaced or null.
+         */
+        Object replace(Object key, Object expectedValue, Object newValue) {
+            long structureStamp = structureLock.readLock();
+            try {
+                Leaf leaf = findLeaf(key);
+                long leafStamp = leaf.lock.writeLock();
+                try {
+                    int index = search(leaf.keys, leaf.size, key);
+                    if (index < 0 || (expectedValue != null && !expectedValue.equals(leaf.values[index]))) {
+                        return null;
+                    }
+                    Object previousValue = leaf.values[index];
+                    leaf.values[index] = newValue;
+                    return previousValue;
+                }
+                finally {
+                    leaf.lock.unlockWrite(leafStamp);
+                }
+            }
+            finally {
+                structureLock.unlockRead(structureStamp);
+            }
+        }
+
+        void clear() {
+            long stamp = structureLock.writeLock();
+            try {
+                clearUnlocked();
+            }
+            finally {
+                structureLock.unlockWrite(stamp);
+            }
+        }
+
+        void clearUnlocked() {
+            Leaf leaf = new Leaf(capacity);
+            root = leaf;
+            firstLeaf = leaf;
+            lastLeaf = leaf;
+            size.set(0);
+        }
+
+        /**
+         * Returns the first entry encountered when scanning from the given key (in ascending or descending order), or
+         * null if there is none. If the given key is null, scans from the start or end of the tree.
+         */
+        Entry<Object, Object> firstEntryFrom(Object fromKey, boolean inclusive, boolean descending) {
+            List<Entry<Object, Object>> chunk = readChunk(fromKey, inclusive, descending);
+            return chunk.isEmpty() ? null : chunk.get(0);
+        }
+
+        /**
+         * Copies the entries from the first leaf containing entries after (or before, if descending) the given key.
+         * If the given key is null, copies the entries from the first (or last, if descending) non-empty leaf.
+         *
+         * @return The entries copied, in the order of the scan, or an empty list if there are no more entries
+         */
+        @SuppressWarnings("unchecked")
+        List<Entry<Object, Object>> readChunk(final Object fromKey, final boolean inclusive, final boolean descending) {
+            return (List<Entry<Object, Object>>) read(new LeafRead() {
+                @Override
+                Object read(boolean optimistic) {
+                    Leaf leaf = fromKey == null ? (descending ? lastLeaf : firstLeaf) : findLeaf(fromKey);
+                    boolean firstLeafScanned = true;
+                    while (leaf != null) {
+                        long leafStamp = beginLeafRead(leaf, optimistic);
+                        List<Entry<Object, Object>> entries = null;
+                        Leaf next = null;
+                        boolean valid = false;
+                        try {
+                            int index;
+                            if (!firstLeafScanned || fromKey == null) {
+                                index = descending ? leaf.size - 1 : 0;
+                            }
+                            else {
+                                int position = search(leaf.keys, leaf.size, fromKey);
+                                if (position >= 0) {
+                                    index = inclusive ? position : (descending ? position - 1 : position + 1);
+                                }
+                                else {
+                                    index = descending ? -position - 2 : -position - 1;
+                                }
+                            }
+                            if (descending && index >= 0) {
+                                entries = new ArrayList<Entry<Object, Object>>(index + 1);
+                                for (int i = index; i >= 0; i--) {
+                                    entries.add(new SimpleImmutableEntry<Object, Object>(leaf.keys[i], leaf.values[i]));
+                                }
+                            }
+                            else if (!descending && index < leaf.size) {
+                                entries = new ArrayList<Entry<Object, Object>>(leaf.size - index);
+                                for (int i = index; i < leaf.size; i++) {
+                                    entries.add(new SimpleImmutableEntry<Object, Object>(leaf.keys[i], leaf.values[i]));
+                                }
+                            }
+                            next = descending ? leaf.previous : leaf.next;
+                        }
+                        finally {
+                            valid = endLeafRead(leaf, leafStamp, optimistic);
+                        }
+                        if (!valid) {
+                            return RETRY;
+                        }
+                        if (entries != null) {
+                            return entries;
+                        }
+                        leaf = next;
+                        firstLeafScanned = false;
+                    }
+                    return Collections.emptyList();
+                }
+            });
+        }
+
+        /**
+         * Performs the given read optimistically, without acquiring any locks, retrying if a write intervened. If
+         * writes intervene repeatedly, performs the read while holding the structure lock for reading, which also
+         * rethrows any exception not caused by reading the tree while it was being modified.
+         */
+        Object read(LeafRead leafRead) {
+            for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+                long structureStamp = structureLock.tryOptimisticRead();
+                if (structureStamp == 0) {
+                    // The structure is being modified...
+                    Thread.onSpinWait();
+                    continue;
+                }
+                try {
+                    Object result = leafRead.read(true);
+                    if (result != RETRY && structureLock.validate(structureStamp)) {
+                        return result;
+                    }
+                }
+                catch (RuntimeException e) {
+                    // The tree was probably modified concurrently while it was being read; retry...
+                }
+            }
+            long structureStamp = structureLock.readLock();
+            try {
+                return leafRead.read(false);
+            }
+            finally {
+                structureLock.unlockRead(structureStamp);
+            }
+        }
+
+        /**
+         * Begins reading the given leaf: returns an optimistic stamp for it, or locks it for reading.
+         */
+        static long beginLeafRead(Leaf leaf, boolean optimistic) {
+            return optimistic ? leaf.lock.tryOptimisticRead() : leaf.lock.readLock();
+        }
+
+        /**
+         * Ends reading the given leaf: validates the optimistic stamp for it, or unlocks it.
+         *
+         * @return True if the contents read from the leaf are consistent, false if the read must be retried
+         */
+        static boolean endLeafRead(Leaf leaf, long leafStamp, boolean optimistic) {
+            if (optimistic) {
+                return leafStamp != 0 && leaf.lock.validate(leafStamp);
+            }
+            leaf.lock.unlockRead(leafStamp);
+            return true;
+        }
+
+        void insertIntoLeaf(Leaf leaf, int index, Object key, Object value) {
+            System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.size - index);
+            System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.size - index);
+            leaf.keys[index] = key;
+            leaf.values[index] = value;
+            leaf.size++;
+            size.incrementAndGet();
+        }
+
+        Object deleteFromLeaf(Leaf leaf, int index) {
+            Object removedValue = leaf.values[index];
+            System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.size - index - 1);
+            System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.size - index - 1);
+            leaf.size--;
+            leaf.keys[leaf.size] = null;
+            leaf.values[leaf.size] = null;
+            size.decrementAndGet();
+            return removedValue;
+        }
+
+        Leaf findLeaf(Object key) {
+            Node node = root;
+            while (node instanceof InternalNode) {
+                InternalNode internalNode = (InternalNode) node;
+                node = internalNode.children[childIndex(internalNode, key)];
+            }
+            return (Leaf) node;
+        }
+
+        Split insert(Node node, Object key, Object value, boolean onlyIfAbsent, Object[] previousValue) {
+            if (node instanceof Leaf) {
+                Leaf leaf = (Leaf) node;
+                int position = search(leaf.keys, leaf.size, key);
+                if (position >= 0) {
+                    previousValue[0] = leaf.values[position];
+                    if (!onlyIfAbsent) {
+                        leaf.values[position] = value;
+                    }
+                    return null;
+                }
+                insertIntoLeaf(leaf, -position - 1, key, value);
+                return leaf.size > capacity ? splitLeaf(leaf) : null;
+            }
+            InternalNode internalNode = (InternalNode) node;
+            int childIndex = childIndex(internalNode, key);
+            Split childSplit = insert(internalNode.children[childIndex], key, value, onlyIfAbsent, previousValue);
+            if (childSplit == null) {
+                return null;
+            }
+            // Insert the new child to the right of the child which was split...
+            int childCount = internalNode.size;
+            System.arraycopy(internalNode.children, childIndex + 1, internalNode.children, childIndex + 2, childCount - childIndex - 1);
+            System.arraycopy(internalNode.keys, childIndex, internalNode.keys, childIndex + 1, childCount - 1 - childIndex);
+            internalNode.children[childIndex + 1] = childSplit.right;
+            internalNode.keys[childIndex] = childSplit.separator;
+            internalNode.size++;
+            return internalNode.size > capacity ? splitInternalNode(internalNode) : null;
+        }
+
+        Split splitLeaf(Leaf leaf) {
+            Leaf right = new Leaf(capacity);
+            int keep = leaf.size / 2;
+            int move = leaf.size - keep;
+            System.arraycopy(leaf.keys, keep, right.keys, 0, move);
+            System.arraycopy(leaf.values, keep, right.values, 0, move);
+            Arrays.fill(leaf.keys, keep, leaf.size, null);
+            Arrays.fill(leaf.values, keep, leaf.size, null);
+            right.size = move;
+            leaf.size = keep;
+            right.next = leaf.next;
+            right.previous = leaf;
+            if (leaf.next != null) {
+                leaf.next.previous = right;
+            }
+            else {
+                lastLeaf = right;
+            }
+            leaf.next = right;
+            return new Split(right.keys[0], right);
+        }
+
+        Split splitInternalNode(InternalNode node) {
+            InternalNode right = new InternalNode(capacity);
+            int keepChildren = node.size / 2;
+            int moveChildren = node.size - keepChildren;
+            // The key between the children kept and the children moved, moves up to the parent...
+            Object separator = node.keys[keepChildren - 1];
+            System.arraycopy(node.children, keepChildren, right.children, 0, moveChildren);
+            System.arraycopy(node.keys, keepChildren, right.keys, 0, moveChildren - 1);
+            Arrays.fill(node.children, keepChildren, node.size, null);
+            Arrays.fill(node.keys, keepChildren - 1, node.size - 1, null);
+            right.size = moveChildren;
+            node.size = keepChildren;
+            return new Split(separator, right);
+        }
+
+        /**
+         * Deletes the entry for the key from the subtree rooted at the given node.
+         *
+         * @return True if the node became empty and should be removed from its parent
+         */
+        boolean delete(Node node, Object key, Object expectedValue, Object[] removedValue) {
+            if (node instanceof Leaf) {
+                Leaf leaf = (Leaf) node;
+                int index = search(leaf.keys, leaf.size, key);
+                if (index < 0 || (expectedValue != null && !expectedValue.equals(leaf.values[index]))) {
+                    return false;
+                }
+                removedValue[0] = deleteFromLeaf(leaf, index);
+                return leaf.size == 0;
+            }
+            InternalNode internalNode = (InternalNode) node;
+            int childIndex = childIndex(internalNode, key);
+            Node child = internalNode.children[childIndex];
+            if (!delete(child, key, expectedValue, removedValue)) {
+                return false;
+            }
+            if (child instanceof Leaf) {
+                unlinkLeaf((Leaf) child);
+            }
+            // Remove the empty child, and the key which separates it from a neighbour...
+            int childCount = internalNode.size;
+            int keyIndex = childIndex == 0 ? 0 : childIndex - 1;
+            System.arraycopy(internalNode.children, childIndex + 1, internalNode.children, childIndex, childCount - childIndex - 1);
+            System.arraycopy(internalNode.keys, keyIndex + 1, internalNode.keys, keyIndex, Math.max(0, childCount - keyIndex - 2));
+            internalNode.size--;
+            internalNode.children[internalNode.size] = null;
+            if (internalNode.size > 0) {
+                internalNode.keys[internalNode.size - 1] = null;
+            }
+            return internalNode.size == 0;
+        }
+
+        void unlinkLeaf(Leaf leaf) {
+            if (leaf.previous != null) {
+                leaf.previous.next = leaf.next;
+            }
+            else {
+                firstLeaf = leaf.next;
+            }
+            if (leaf.next != null) {
+                leaf.next.previous = leaf.previous;
+            }
+            else {
+                lastLeaf = leaf.previous;
+            }
+        }
+
+        /**
+         * Returns the index of the child of the given node whose subtree would contain the given key: the number of
+         * keys in the node which are less than or equal to the given key.
+         */
+        static int childIndex(InternalNode node, Object key) {
+            int low = 0, high = node.size - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(node.keys[mid], key) <= 0) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Binary search in the first {@code length} elements of the given array, with the same contract as
+         * {@link Arrays#binarySearch(Object[], int, int, Object)}.
+         */
+        static int search(Object[] keys, int length, Object key) {
+            int low = 0, high = length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(keys[mid], key);
+                if (cmp < 0) {
+                    low = mid + 1;
+                }
+                else if (cmp > 0) {
+                    high = mid - 1;
+                }
+                else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event which records the time a thread spent waiting to acquire the lock which guards
+ * connections to a SQLite database, in persistence implementations which use such a lock.
+ */
+@Name("com.googlecode.cqengine.ConnectionWait")
+@Label("SQLite Connection Wait")
+@Category({"CQEngine", "Persistence"})
+@Description("Time spent waiting to acquire the lock guarding a SQLite connection")
+public class ConnectionWaitEvent extends Event {
+
+    @Label("Persistence")
+    public String persistence;
+
+    @Label("Read Lock")
+    @Description("True if a read lock was requested, false if a write lock was requested")
+    public boolean readLock;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event which records a batch of objects being added to or removed from a single index,
+ * or an index being cleared.
+ */
+@Name("com.googlecode.cqengine.IndexUpdate")
+@Label("Index Update")
+@Category({"CQEngine", "Index"})
+@Description("A batch of objects added to or removed from an index")
+@StackTrace(false)
+public class IndexUpdateEvent extends Event {
+
+    @Label("Index")
+    public String index;
+
+    @Label("Operation")
+    @Description("One of addAll, removeAll or clear")
+    public String operation;
+
+    @Label("Modified")
+    @Description("True if the index reported that it was modified")
+    public boolean modified;
+}
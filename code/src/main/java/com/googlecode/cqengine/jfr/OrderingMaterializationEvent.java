@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event which records results being copied into memory and sorted, when the
+ * <i>materialize</i> ordering strategy is used.
+ */
+@Name("com.googlecode.cqengine.OrderingMaterialization")
+@Label("Ordering Materialization")
+@Category({"CQEngine", "Query"})
+@Description("Results copied into memory and sorted by the materialize ordering strategy")
+@StackTrace(false)
+public class OrderingMaterializationEvent extends Event {
+
+    @Label("Query")
+    public String query;
+
+    @Label("Rows")
+    @Description("The number of objects which were sorted")
+    public long rows;
+}
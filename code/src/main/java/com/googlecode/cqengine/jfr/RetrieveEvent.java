@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.jfr;
+
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.common.WrappedResultSet;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Iterator;
+
+/**
+ * A Java Flight Recorder event which records a query submitted to
+ * {@link com.googlecode.cqengine.engine.CollectionQueryEngine#retrieve(Query, com.googlecode.cqengine.query.option.QueryOptions)}.
+ * <p/>
+ * The duration of the event spans from when the query was submitted until the {@link ResultSet} returned for it was
+ * closed, and so it includes the time taken by the application to iterate the results. The number of rows recorded
+ * is the number of objects actually returned by iterators over the {@link ResultSet}.
+ * <p/>
+ * The plan recorded is the ordering strategy, followed by a description of the tree of {@link PlanNode}s which
+ * {@link com.googlecode.cqengine.IndexedCollection#explain(Query)} would return for the query: the index from
+ * which each leaf is retrieved, and the merge strategy of each intersection or union. When an index is used for
+ * ordering, the leaves are retrieved separately for each range of that index as the results are iterated, and so
+ * only the index used for ordering is recorded.
+ * <p/>
+ * The event is only committed if the {@link ResultSet} is closed.
+ */
+@Name("com.googlecode.cqengine.Retrieve")
+@Label("Retrieve")
+@Category({"CQEngine", "Query"})
+@Description("A query evaluated by CQEngine, from retrieval until the ResultSet was closed")
+@StackTrace(false)
+public class RetrieveEvent extends Event {
+
+    @Label("Query")
+    public String query;
+
+    @Label("Plan")
+    @Description("The ordering strategy and the index used for ordering if any, followed by the index used for each leaf of the query and the merge strategy of each intersection or union")
+    public String plan;
+
+    @Label("Rows")
+    @Description("The number of objects returned by iterators over the ResultSet")
+    public long rows;
+
+    /**
+     * Describes the given {@link PlanNode} and its children on a single line, for example
+     * {@code INTERSECTION [mergeStrategy=INDEX](INDEX_LOOKUP equal("manufacturer", "Ford") [index=HashIndex on manufacturer], ...)}.
+     *
+     * @param node The root of the plan to describe
+     * @return A description of the plan
+     */
+    public static String describePlan(PlanNode<?> node) {
+        StringBuilder sb = new StringBuilder();
+        appendPlan(sb, node);
+        return sb.toString();
+    }
+
+    static void appendPlan(StringBuilder sb, PlanNode<?> node) {
+        sb.append(node.getType());
+        if (node.getChildren().isEmpty()) {
+            sb.append(' ').append(node.getQuery());
+        }
+        if (node.getIndex() != null) {
+            sb.append(" [index=").append(PlanNode.describeIndex(node.getIndex())).append(']');
+        }
+        if (node.getMergeStrategy() != null) {
+            sb.append(" [mergeStrategy=").append(node.getMergeStrategy()).append(']');
+        }
+        if (!node.getChildren().isEmpty()) {
+            sb.append('(');
+            boolean first = true;
+            for (PlanNode<?> child : node.getChildren()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                appendPlan(sb, child);
+                first = false;
+            }
+            sb.append(')');
+        }
+    }
+
+    /**
+     * Wraps the given {@link ResultSet} such that objects returned by its iterators are counted, and such that the
+     * given event will be committed when the {@link ResultSet} is closed.
+     * <p/>
+     * This should only be called if {@link #isEnabled()} returned true for the given event, so that the overhead of
+     * counting rows is not incurred when the event is not being recorded.
+     *
+     * @param resultSet The {@link ResultSet} to wrap
+     * @param event The event which was begun when the query was submitted
+     * @return A {@link ResultSet} which will commit the event when closed
+     */
+    public static <O> ResultSet<O> recordOnClose(ResultSet<O> resultSet, final RetrieveEvent event) {
+        return new WrappedResultSet<O>(resultSet) {
+            @Override
+            public Iterator<O> iterator() {
+                final Iterator<O> iterator = super.iterator();
+                return new Iterator<O>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public O next() {
+                        O next = iterator.next();
+                        event.rows++;
+                        return next;
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                super.close();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.commit();
+                }
+            }
+        };
+    }
+}
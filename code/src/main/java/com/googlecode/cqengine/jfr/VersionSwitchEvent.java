@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event which records a writing thread in
+ * {@link com.googlecode.cqengine.TransactionalIndexedCollection} switching to a new MVCC version.
+ * <p/>
+ * The duration of the event is the time the writing thread spent waiting for threads reading the previous version
+ * to finish reading it.
+ */
+@Name("com.googlecode.cqengine.VersionSwitch")
+@Label("MVCC Version Switch")
+@Category({"CQEngine", "Transaction"})
+@Description("A writer switching TransactionalIndexedCollection to a new version, and waiting for readers of the previous version")
+public class VersionSwitchEvent extends Event {
+
+    @Label("Previous Version")
+    public long previousVersion;
+
+    @Label("New Version")
+    public long newVersion;
+
+    @Label("Excludes Objects")
+    @Description("True if readers of the new version must exclude objects which are being written")
+    public boolean excludesObjects;
+}
@@ -0,0 +1,698 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.metadata;
+
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.engine.ModificationListener;
+import com.googlecode.cqengine.persistence.support.ObjectSet;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.*;
+
+import java.util.*;
+
+/**
+ * Statistics about the distribution of the values of an attribute, which the query engine uses to estimate the
+ * cardinality of queries on the attribute without retrieving them.
+ * <p/>
+ * A histogram is added to a collection via {@link IndexedCollection#addHistogram(AttributeHistogram)}. It is notified
+ * of objects added to and removed from the collection in the same way as indexes, but it is not an index, and is
+ * never used to retrieve objects.
+ * <p/>
+ * The histogram maintains:
+ * <ul>
+ *     <li>
+ *         An equi-depth histogram, whose bucket boundaries are derived from a fixed-size reservoir sample of the
+ *         values in the collection, and whose bucket counts are maintained exactly on every addition and removal.
+ *         Values removed are also removed from the sample. The boundaries are recomputed from the sample whenever the
+ *         number of values doubles, or when the buckets become unbalanced. Within a bucket, values of numeric,
+ *         character, date and enum types are assumed to be uniformly distributed, unless all of the values sampled
+ *         in the bucket were the same value.
+ *     </li>
+ *     <li>
+ *         A HyperLogLog sketch of the number of distinct values, used to estimate the cardinality of {@link Equal}
+ *         queries on values which are not frequent enough to appear repeatedly in the sample.
+ *     </li>
+ * </ul>
+ * The sketch, and the minimum and maximum values, cannot be maintained on removal. Instead, once the number of values
+ * removed exceeds half of the number remaining, all of the statistics are recomputed by scanning the collection. The
+ * cost of these scans is proportional to the number of values removed.
+ * <p/>
+ * Cumulative bucket counts are maintained in a Fenwick tree, so estimates are computed, and bucket counts updated, in
+ * time proportional to the logarithm of the number of buckets, regardless of the size of the collection.
+ * <p/>
+ * Supports estimating the cardinality of query types:
+ * <ul>
+ *     <li>
+ *         {@link Equal}
+ *     </li>
+ *     <li>
+ *         {@link In}
+ *     </li>
+ *     <li>
+ *         {@link LessThan}
+ *     </li>
+ *     <li>
+ *         {@link GreaterThan}
+ *     </li>
+ *     <li>
+ *         {@link Between}
+ *     </li>
+ *     <li>
+ *         {@link Has}
+ *     </li>
+ * </ul>
+ * For attributes which return multiple values per object, estimates are of the number of matching values, capped at
+ * the number of objects which have values.
+ */
+public class AttributeHistogram<A extends Comparable<A>, O> implements ModificationListener<O> {
+
+    public static final int DEFAULT_BUCKET_COUNT = 64;
+    public static final int DEFAULT_SAMPLE_SIZE = 4096;
+
+    static final int UNBALANCED_BUCKET_FACTOR = 4;
+
+    final Attribute<O, A> attribute;
+    final int bucketCount;
+    final int sampleSize;
+    final Random random = new Random();
+
+    // All of the following are guarded by synchronizing on this histogram...
+    ObjectStore<O> objectStore = null;
+    final List<A> sample = new ArrayList<A>();
+    // The slots in the sample which hold each value, and the index of each slot within the list of slots for its value,
+    // to find and remove values from the sample without scanning it...
+    final Map<A, List<Integer>> sampleSlots = new HashMap<A, List<Integer>>();
+    final int[] sampleSlotIndexes;
+    long valuesSampled = 0;
+    List<A> sortedSample = Collections.emptyList();
+    List<A> upperBounds = Collections.emptyList();
+    long[] bucketCounts = new long[1];
+    // A Fenwick tree over bucketCounts, from which the number of values in the buckets preceding a bucket is read...
+    long[] bucketCountTree = new long[2];
+    boolean[] singleValueBuckets = new boolean[1];
+    long valueCount = 0;
+    long objectCount = 0;
+    long nextRebuildAt = 1;
+    long writesSinceRebuild = 0;
+    long removalsSinceRescan = 0;
+    A minValue = null;
+    A maxValue = null;
+    final DistinctValueSketch distinctValues = new DistinctValueSketch();
+
+    /**
+     * Package-private constructor, used by static factory methods.
+     */
+    protected AttributeHistogram(Attribute<O, A> attribute, int bucketCount, int sampleSize) {
+        if (bucketCount < 1 || sampleSize < bucketCount) {
+            throw new IllegalArgumentException("Invalid bucketCount or sampleSize: " + bucketCount + ", " + sampleSize);
+        }
+        this.attribute = attribute;
+        this.bucketCount = bucketCount;
+        this.sampleSize = sampleSize;
+        this.sampleSlotIndexes = new int[sampleSize];
+    }
+
+    /**
+     * @return The attribute whose values this histogram describes
+     */
+    public Attribute<O, A> getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Estimates the number of objects which would match the given query.
+     *
+     * @param query A query on the attribute which this histogram describes
+     * @return The estimated number of objects which would match the query, or null if the query is not on the
+     * attribute which this histogram describes, or is not of a type supported by this histogram
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Double estimateCount(Query<O> query) {
+        if (!(query instanceof SimpleQuery) || !getAttribute().equals(((SimpleQuery<?, ?>) query).getAttribute())) {
+            return null;
+        }
+        final double estimate;
+        if (query instanceof Equal) {
+            estimate = estimateEqual(((Equal<O, A>) query).getValue());
+        }
+        else if (query instanceof In) {
+            double sum = 0.0;
+            for (A value : ((In<O, A>) query).getValues()) {
+                sum += estimateEqual(value);
+            }
+            estimate = Math.min(sum, valueCount);
+        }
+        else if (query instanceof LessThan) {
+            LessThan<O, A> lessThan = (LessThan<O, A>) query;
+            estimate = lessThan.isValueInclusive() ? estimateAtMost(lessThan.getValue()) : estimateLessThan(lessThan.getValue());
+        }
+        else if (query instanceof GreaterThan) {
+            GreaterThan<O, A> greaterThan = (GreaterThan<O, A>) query;
+            estimate = valueCount - (greaterThan.isValueInclusive() ? estimateLessThan(greaterThan.getValue()) : estimateAtMost(greaterThan.getValue()));
+        }
+        else if (query instanceof Between) {
+            Between<O, A> between = (Between<O, A>) query;
+            double upper = between.isUpperInclusive() ? estimateAtMost(between.getUpperValue()) : estimateLessThan(between.getUpperValue());
+            double lower = between.isLowerInclusive() ? estimateLessThan(between.getLowerValue()) : estimateAtMost(between.getLowerValue());
+            estimate = upper - lower;
+        }
+        else if (query instanceof Has) {
+            return (double) objectCount;
+        }
+        else {
+            return null;
+        }
+        return Math.max(0.0, Math.min(estimate, objectCount));
+    }
+
+    /**
+     * @return The number of objects which have at least one value for the attribute
+     */
+    public synchronized long getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * @return The estimated number of distinct values of the attribute
+     */
+    public synchronized long getDistinctValueCount() {
+        return Math.max(Math.min(Math.round(distinctValues.estimate()), valueCount), valueCount == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return The number of buckets in the histogram currently; this may be less than the configured bucket count if
+     * the collection contains few distinct values
+     */
+    public synchronized int getBucketCount() {
+        return bucketCounts.length;
+    }
+
+    double estimateEqual(A value) {
+        if (valueCount == 0 || value.compareTo(minValue) < 0 || value.compareTo(maxValue) > 0) {
+            return 0.0;
+        }
+        int occurrencesInSample = countOccurrencesInSortedSample(value);
+        if (occurrencesInSample > 1) {
+            // The value is frequent enough to have been sampled repeatedly, so estimate from its frequency...
+            return valueCount * (occurrencesInSample / (double) sortedSample.size());
+        }
+        return valueCount / (double) getDistinctValueCount();
+    }
+
+    double estimateAtMost(A value) {
+        if (valueCount == 0 || value.compareTo(minValue) < 0) {
+            return 0.0;
+        }
+        if (value.compareTo(maxValue) >= 0) {
+            return valueCount;
+        }
+        int bucket = bucketOf(value);
+        long countInPrecedingBuckets = countInBucketsBefore(bucket);
+        A bucketLower = bucket == 0 ? minValue : upperBounds.get(bucket - 1);
+        A bucketUpper = bucket == upperBounds.size() ? maxValue : upperBounds.get(bucket);
+        double fractionOfBucket = singleValueBuckets[bucket]
+                ? (value.compareTo(bucketUpper) >= 0 ? 1.0 : 0.0)
+                : fractionOfBucketAtMost(bucketLower, bucketUpper, value);
+        return countInPrecedingBuckets + bucketCounts[bucket] * fractionOfBucket;
+    }
+
+    double estimateLessThan(A value) {
+        return Math.max(0.0, estimateAtMost(value) - estimateEqual(value));
+    }
+
+    /**
+     * Returns the fraction of the values in a bucket spanning the given bounds which are expected to be less than or
+     * equal to the given value, by linear interpolation for types which can be converted to a number, or 0.5 otherwise.
+     */
+    static double fractionOfBucketAtMost(Object bucketLower, Object bucketUpper, Object value) {
+        double lower = toDouble(bucketLower), upper = toDouble(bucketUpper), point = toDouble(value);
+        if (Double.isNaN(lower) || Double.isNaN(upper) || Double.isNaN(point) || Double.isInfinite(upper - lower)) {
+            return 0.5;
+        }
+        if (upper <= lower) {
+            return 1.0;
+        }
+        return Math.max(0.0, Math.min(1.0, (point - lower) / (upper - lower)));
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        else if (value instanceof Character) {
+            return (Character) value;
+        }
+        else if (value instanceof Enum) {
+            return ((Enum<?>) value).ordinal();
+        }
+        else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the index of the bucket for the given value: the first bucket whose upper bound is greater than or
+     * equal to the value, or the last bucket (which has no upper bound) if there is none.
+     */
+    int bucketOf(A value) {
+        int low = 0, high = upperBounds.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (upperBounds.get(mid).compareTo(value) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int countOccurrencesInSortedSample(A value) {
+        int first = Collections.binarySearch(sortedSample, value);
+        if (first < 0) {
+            return 0;
+        }
+        int last = first;
+        while (first > 0 && sortedSample.get(first - 1).compareTo(value) == 0) {
+            first--;
+        }
+        while (last < sortedSample.size() - 1 && sortedSample.get(last + 1).compareTo(value) == 0) {
+            last++;
+        }
+        return last - first + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        try {
+            synchronized (this) {
+                return addObjects(objectSet, queryOptions);
+            }
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    boolean addObjects(Iterable<O> objects, QueryOptions queryOptions) {
+        boolean modified = false;
+        for (O object : objects) {
+            boolean hasValues = false;
+            for (A value : getAttribute().getValues(object, queryOptions)) {
+                addValue(value);
+                hasValues = true;
+            }
+            if (hasValues) {
+                objectCount++;
+                modified = true;
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(ObjectSet<O> objectSet, QueryOptions queryOptions) {
+        try {
+            boolean modified = false;
+            synchronized (this) {
+                for (O object : objectSet) {
+                    boolean hasValues = false;
+                    for (A value : getAttribute().getValues(object, queryOptions)) {
+                        removeValue(value);
+                        hasValues = true;
+                    }
+                    if (hasValues) {
+                        objectCount = Math.max(0, objectCount - 1);
+                        modified = true;
+                    }
+                }
+                if (objectStore != null && removalsSinceRescan > valueCount / 2) {
+                    rescan(queryOptions);
+                }
+            }
+            return modified;
+        }
+        finally {
+            objectSet.close();
+        }
+    }
+
+    void addValue(A value) {
+        valueCount++;
+        writesSinceRebuild++;
+        if (minValue == null || value.compareTo(minValue) < 0) {
+            minValue = value;
+        }
+        if (maxValue == null || value.compareTo(maxValue) > 0) {
+            maxValue = value;
+        }
+        distinctValues.add(value);
+        // Maintain a uniform sample of the values added, using reservoir sampling. Removals can leave the sample
+        // with fewer values than it can hold, in which case the free slots are filled at the same rate as values
+        // are replaced...
+        valuesSampled++;
+        long slot = valuesSampled <= sampleSize ? sample.size() : (long) (random.nextDouble() * valuesSampled);
+        if (slot < sample.size()) {
+            removeSampleSlot((int) slot);
+            sample.set((int) slot, value);
+            addSampleSlot((int) slot);
+        }
+        else if (slot < sampleSize) {
+            sample.add(value);
+            addSampleSlot(sample.size() - 1);
+        }
+        int bucket = bucketOf(value);
+        adjustBucketCount(bucket, 1);
+        if (valueCount >= nextRebuildAt
+                || (bucketCounts.length > 1 && bucketCounts[bucket] > UNBALANCED_BUCKET_FACTOR * (valueCount / bucketCounts.length) && writesSinceRebuild > valueCount / 8)) {
+            rebuildBuckets();
+        }
+    }
+
+    void removeValue(A value) {
+        if (valueCount == 0) {
+            return;
+        }
+        valueCount--;
+        writesSinceRebuild++;
+        removalsSinceRescan++;
+        int bucket = bucketOf(value);
+        if (bucketCounts[bucket] > 0) {
+            adjustBucketCount(bucket, -1);
+        }
+        // Remove the value from the sample if it was sampled, so that bucket boundaries are not recomputed from
+        // values which are no longer in the collection. The last slot is moved into the freed slot...
+        List<Integer> slots = sampleSlots.get(value);
+        if (slots != null) {
+            int slot = slots.get(slots.size() - 1);
+            removeSampleSlot(slot);
+            int lastSlot = sample.size() - 1;
+            A last = sample.remove(lastSlot);
+            if (slot < lastSlot) {
+                sample.set(slot, last);
+                moveSampleSlot(last, lastSlot, slot);
+            }
+        }
+        valuesSampled = Math.max(sample.size(), valuesSampled - 1);
+    }
+
+    /**
+     * Records that the given slot in the sample holds the value currently stored in it.
+     */
+    void addSampleSlot(int slot) {
+        A value = sample.get(slot);
+        List<Integer> slots = sampleSlots.get(value);
+        if (slots == null) {
+            slots = new ArrayList<Integer>(2);
+            sampleSlots.put(value, slots);
+        }
+        sampleSlotIndexes[slot] = slots.size();
+        slots.add(slot);
+    }
+
+    /**
+     * Forgets that the given slot in the sample holds the value currently stored in it, in constant time, by moving the
+     * last slot recorded for the value into the position of the given slot in its list of slots.
+     */
+    void removeSampleSlot(int slot) {
+        A value = sample.get(slot);
+        List<Integer> slots = sampleSlots.get(value);
+        int index = sampleSlotIndexes[slot];
+        int lastSlot = slots.remove(slots.size() - 1);
+        if (index < slots.size()) {
+            slots.set(index, lastSlot);
+            sampleSlotIndexes[lastSlot] = index;
+        }
+        if (slots.isEmpty()) {
+            sampleSlots.remove(value);
+        }
+    }
+
+    /**
+     * Records that the given value, which was held in one slot of the sample, is now held in another.
+     */
+    void moveSampleSlot(A value, int fromSlot, int toSlot) {
+        int index = sampleSlotIndexes[fromSlot];
+        sampleSlots.get(value).set(index, toSlot);
+        sampleSlotIndexes[toSlot] = index;
+    }
+
+    /**
+     * Adds the given delta to the count of values in the given bucket, and to the Fenwick tree of cumulative counts.
+     */
+    void adjustBucketCount(int bucket, long delta) {
+        bucketCounts[bucket] += delta;
+        for (int i = bucket + 1; i < bucketCountTree.length; i += i & -i) {
+            bucketCountTree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of values in the buckets preceding the given bucket, from the Fenwick tree.
+     */
+    long countInBucketsBefore(int bucket) {
+        long count = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            count += bucketCountTree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Builds the Fenwick tree of cumulative counts from the current bucket counts, in time linear in the number of
+     * buckets.
+     */
+    void rebuildBucketCountTree() {
+        long[] tree = new long[bucketCounts.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += bucketCounts[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        bucketCountTree = tree;
+    }
+
+    /**
+     * Recomputes all of the statistics from the objects in the collection, which removes values from the distinct
+     * value sketch and tightens the minimum and maximum values after values have been removed.
+     */
+    void rescan(QueryOptions queryOptions) {
+        resetStatistics();
+        ObjectSet<O> objectSet = ObjectSet.fromObjectStore(objectStore, queryOptions);
+        try {
+            addObjects(objectSet, queryOptions);
+        }
+        finally {
+            objectSet.close();
+        }
+        if (valueCount > 0) {
+            rebuildBuckets();
+        }
+    }
+
+    /**
+     * Recomputes the bucket boundaries such that each bucket would contain an equal share of the values in the
+     * sample, and distributes the current number of values between the new buckets in proportion to the sample.
+     */
+    void rebuildBuckets() {
+        if (sample.isEmpty()) {
+            // Every value sampled has been removed, so keep the current boundaries until values are sampled again...
+            return;
+        }
+        List<A> sorted = new ArrayList<A>(sample);
+        Collections.sort(sorted);
+        List<A> bounds = new ArrayList<A>(bucketCount - 1);
+        int sampleCount = sorted.size();
+        for (int i = 1; i < bucketCount; i++) {
+            A candidate = sorted.get(Math.max(0, (int) ((long) i * sampleCount / bucketCount) - 1));
+            // Skip duplicate boundaries, so that frequent values occupy a single bucket...
+            if (bounds.isEmpty() || candidate.compareTo(bounds.get(bounds.size() - 1)) > 0) {
+                bounds.add(candidate);
+            }
+        }
+        upperBounds = bounds;
+        sortedSample = sorted;
+        long[] sampleCounts = new long[bounds.size() + 1];
+        // Identify buckets in which all sampled values are the same (frequent values), so that values are not
+        // assumed to be distributed uniformly within them...
+        boolean[] singleValues = new boolean[sampleCounts.length];
+        A previous = null;
+        for (A value : sorted) {
+            int bucket = bucketOf(value);
+            if (sampleCounts[bucket]++ == 0) {
+                singleValues[bucket] = true;
+            }
+            else if (value.compareTo(previous) != 0) {
+                singleValues[bucket] = false;
+            }
+            previous = value;
+        }
+        singleValueBuckets = singleValues;
+        long[] counts = new long[sampleCounts.length];
+        long assigned = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = sampleCount == 0 ? 0 : sampleCounts[i] * valueCount / sampleCount;
+            assigned += counts[i];
+        }
+        // Assign any remainder lost to rounding to the last bucket...
+        counts[counts.length - 1] += valueCount - assigned;
+        bucketCounts = counts;
+        rebuildBucketCountTree();
+        writesSinceRebuild = 0;
+        nextRebuildAt = Math.max(1, valueCount * 2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init(ObjectStore<O> objectStore, QueryOptions queryOptions) {
+        synchronized (this) {
+            this.objectStore = objectStore;
+        }
+        addAll(ObjectSet.fromObjectStore(objectStore, queryOptions), queryOptions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void destroy(QueryOptions queryOptions) {
+        objectStore = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear(QueryOptions queryOptions) {
+        resetStatistics();
+    }
+
+    void resetStatistics() {
+        sample.clear();
+        sampleSlots.clear();
+        valuesSampled = 0;
+        sortedSample = Collections.emptyList();
+        upperBounds = Collections.emptyList();
+        bucketCounts = new long[1];
+        bucketCountTree = new long[2];
+        singleValueBuckets = new boolean[1];
+        valueCount = 0;
+        objectCount = 0;
+        nextRebuildAt = 1;
+        writesSinceRebuild = 0;
+        removalsSinceRescan = 0;
+        minValue = null;
+        maxValue = null;
+        distinctValues.clear();
+    }
+
+    /**
+     * A HyperLogLog sketch which estimates the number of distinct values added to it, in constant space.
+     */
+    static class DistinctValueSketch {
+
+        static final int PRECISION = 11;
+        static final int REGISTER_COUNT = 1 << PRECISION;
+
+        final byte[] registers = new byte[REGISTER_COUNT];
+
+        void add(Object value) {
+            long hash = mix(value.hashCode());
+            int register = (int) (hash >>> (64 - PRECISION));
+            int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+            if (rank > registers[register]) {
+                registers[register] = (byte) rank;
+            }
+        }
+
+        double estimate() {
+            double sum = 0.0;
+            int zeroRegisters = 0;
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeroRegisters++;
+                }
+            }
+            double alpha = 0.7213 / (1.0 + 1.079 / REGISTER_COUNT);
+            double estimate = alpha * REGISTER_COUNT * REGISTER_COUNT / sum;
+            if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+                // Use linear counting for small cardinalities...
+                estimate = REGISTER_COUNT * Math.log(REGISTER_COUNT / (double) zeroRegisters);
+            }
+            return estimate;
+        }
+
+        void clear() {
+            Arrays.fill(registers, (byte) 0);
+        }
+
+        /**
+         * Spreads the bits of a hash code over 64 bits (the finalization step of MurmurHash3).
+         */
+        static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb93fe53e4a63L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+
+    // ---------- Static factory methods to create AttributeHistograms ----------
+
+    /**
+     * Creates a new {@link AttributeHistogram} on the specified attribute, with {@link #DEFAULT_BUCKET_COUNT} buckets
+     * and a sample of {@link #DEFAULT_SAMPLE_SIZE} values.
+     * <p/>
+     * @param attribute The attribute whose values the histogram will describe
+     * @param <O> The type of the object containing the attribute
+     * @return An {@link AttributeHistogram} on this attribute
+     */
+    public static <A extends Comparable<A>, O> AttributeHistogram<A, O> onAttribute(Attribute<O, A> attribute) {
+        return new AttributeHistogram<A, O>(attribute, DEFAULT_BUCKET_COUNT, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Creates a new {@link AttributeHistogram} on the specified attribute.
+     * <p/>
+     * @param attribute The attribute whose values the histogram will describe
+     * @param bucketCount The maximum number of buckets in the histogram
+     * @param sampleSize The number of values to sample, from which bucket boundaries will be computed; must be at
+     * least as large as the number of buckets
+     * @param <O> The type of the object containing the attribute
+     * @return An {@link AttributeHistogram} on this attribute
+     */
+    public static <A extends Comparable<A>, O> AttributeHistogram<A, O> onAttribute(Attribute<O, A> attribute, int bucketCount, int sampleSize) {
+        return new AttributeHistogram<A, O>(attribute, bucketCount, sampleSize);
+    }
+}
@@ -23,8 +23,11 @@ import com.googlecode.cqengine.index.sqlite.SQLitePersistence;
 import com.googlecode.cqengine.index.sqlite.support.DBQueries;
 import com.googlecode.cqengine.index.sqlite.support.DBUtils;
 import com.googlecode.cqengine.index.support.indextype.DiskTypeIndex;
+import com.googlecode.cqengine.jfr.ConnectionWaitEvent;
 import com.googlecode.cqengine.persistence.support.ObjectStore;
+import com.googlecode.cqengine.persistence.support.sqlite.ConnectionPool;
 import com.googlecode.cqengine.persistence.support.sqlite.LockReleasingConnection;
+import com.googlecode.cqengine.persistence.support.sqlite.ObjectCache;
 import com.googlecode.cqengine.persistence.support.sqlite.SQLiteDiskIdentityIndex;
 import com.googlecode.cqengine.persistence.support.sqlite.SQLiteObjectStore;
 import com.googlecode.cqengine.query.option.QueryOptions;
@@ -87,6 +90,42 @@ import static com.googlecode.cqengine.query.option.FlagsEnabled.isFlagEnabled;
  *         and leaving this enabled can prevent exceptions being thrown due to attempts to
  *         write concurrently.
  *     </li>
+ *     <li>
+ *         {@code connection_pool_size} = integer (default is 0)<br/>
+ *         When greater than zero, connections are drawn from a {@link ConnectionPool} which retains up to this
+ *         many idle connections to the database file, instead of a new connection being opened for every
+ *         request. Each pooled connection also caches the statements prepared on it, so that repeated
+ *         queries and updates skip SQL parsing and planning. Like {@code persistent_connection}, this keeps
+ *         the database file open between transactions, and so it is recommended to call {@link #close()}
+ *         when the application is finished using the collection.
+ *     </li>
+ *     <li>
+ *         {@code statement_cache_size} = integer (default is 64)<br/>
+ *         The number of distinct SQL statements cached per pooled connection, when
+ *         {@code connection_pool_size} is greater than zero.
+ *     </li>
+ *     <li>
+ *         {@code fetch_size} = integer (default is 0)<br/>
+ *         When greater than zero, iterating all objects in the collection (for example via
+ *         {@code IndexedCollection.iterator()}, or a query which must scan the collection) reads the objects in
+ *         pages of this many objects, in ascending order of primary key, using a separate short-lived connection
+ *         for each page. The next page is read on a background thread while the application consumes the
+ *         current one. In the default WAL journal mode, this prevents long iterations from holding a connection
+ *         and read transaction open, at the expense of the iteration not seeing a single consistent snapshot of
+ *         the collection. It is recommended to combine this with {@code connection_pool_size}. This is ignored
+ *         in shared-cache mode when the read-write lock is used, because a background read could deadlock with
+ *         the lock held by the iterating thread.
+ *     </li>
+ *     <li>
+ *         {@code object_cache_size} = integer (default is 0)<br/>
+ *         When greater than zero, an {@link ObjectCache} of up to this many deserialized objects is placed in
+ *         front of the object store. Objects which are materialized by primary key, as happens for every object
+ *         returned by a {@link com.googlecode.cqengine.index.disk.DiskIndex}, are then served from the cache
+ *         when possible, instead of being read from SQLite and deserialized. The cache uses W-TinyLFU admission
+ *         and eviction, and is kept coherent as objects are added, removed and updated via the collection.
+ *         Its hit and miss counts can be read via {@link #getObjectCache()}. Note that cached objects are shared
+ *         between requests, so the application must not mutate objects it retrieves.
+ *     </li>
  * </ul>
  * </p>
  *
@@ -118,7 +157,24 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
     volatile Connection persistentConnection;
     volatile boolean closed = false;
 
+    // If connection_pool_size > 0, connections are drawn from this pool, otherwise this is null...
+    final ConnectionPool connectionPool;
+
+    // If fetch_size > 0, the object store iterates objects in pages of this size, otherwise this is 0...
+    final int fetchSize;
+
+    // If object_cache_size > 0, objects retrieved by primary key are cached in this cache, otherwise this is null...
+    final ObjectCache<A, O> objectCache;
+
     protected DiskPersistence(SimpleAttribute<O, A> primaryKeyAttribute, File file, Properties overrideProperties) {
+        this(primaryKeyAttribute, file, overrideProperties, null);
+    }
+
+    /**
+     * @param objectCache If not null, the cache to use for objects retrieved by primary key, in place of one
+     * configured by the {@code object_cache_size} property
+     */
+    protected DiskPersistence(SimpleAttribute<O, A> primaryKeyAttribute, File file, Properties overrideProperties, ObjectCache<A, O> objectCache) {
         Properties effectiveProperties = new Properties();
         effectiveProperties.putAll(DEFAULT_PROPERTIES);
         effectiveProperties.putAll(overrideProperties);
@@ -133,6 +189,8 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
         boolean openPersistentConnection = "true".equals(effectiveProperties.getProperty("persistent_connection")); //default false
         boolean useSharedCache = "true".equals(effectiveProperties.getProperty("shared_cache")); // default false
         boolean useReadWriteLock = !"false".equals(effectiveProperties.getProperty("use_read_write_lock")); // default true
+        int connectionPoolSize = Integer.parseInt(effectiveProperties.getProperty("connection_pool_size", "0"));
+        int statementCacheSize = Integer.parseInt(effectiveProperties.getProperty("statement_cache_size", String.valueOf(ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE)));
         if (useSharedCache) {
             // If shared_cache mode is enabled, by default we also use a read-write lock,
             // unless using the read-write lock has been explicitly disabled...
@@ -144,6 +202,11 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
             sqLiteDataSource.setUrl("jdbc:sqlite:file:" + file);
             this.useReadWriteLock = false;
         }
+        // Paged iteration reads pages on a background thread, which cannot share the read-write lock...
+        this.fetchSize = this.useReadWriteLock ? 0 : Integer.parseInt(effectiveProperties.getProperty("fetch_size", "0"));
+        int objectCacheSize = Integer.parseInt(effectiveProperties.getProperty("object_cache_size", "0"));
+        this.objectCache = objectCache != null ? objectCache : objectCacheSize > 0 ? new ObjectCache<A, O>(objectCacheSize) : null;
+        this.connectionPool = connectionPoolSize > 0 ? new ConnectionPool(sqLiteDataSource, connectionPoolSize, statementCacheSize) : null;
         if (useSharedCache || openPersistentConnection) {
             // If shared_cache is enabled, we always open a persistent connection regardless...
             this.persistentConnection = getConnectionWithoutRWLock(null, noQueryOptions());
@@ -159,6 +222,20 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
         return file;
     }
 
+    /**
+     * @return The number of objects read per page when iterating all objects, or 0 if objects are not read in pages
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @return The cache of objects retrieved by primary key, or null if objects are not cached
+     */
+    public ObjectCache<A, O> getObjectCache() {
+        return objectCache;
+    }
+
     @Override
     public Connection getConnection(Index<?> index, QueryOptions queryOptions) {
         return useReadWriteLock
@@ -168,10 +245,18 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
 
     protected Connection getConnectionWithRWLock(Index<?> index, QueryOptions queryOptions) {
         // Acquire a read lock IFF the READ_REQUEST flag has been set, otherwise acquire a write lock by default...
-        final Lock connectionLock = isFlagEnabled(queryOptions, READ_REQUEST)
-                                        ? readWriteLock.readLock() : readWriteLock.writeLock();
+        final boolean readRequest = isFlagEnabled(queryOptions, READ_REQUEST);
+        final Lock connectionLock = readRequest ? readWriteLock.readLock() : readWriteLock.writeLock();
 
+        ConnectionWaitEvent connectionWaitEvent = new ConnectionWaitEvent();
+        connectionWaitEvent.begin();
         connectionLock.lock();
+        connectionWaitEvent.end();
+        if (connectionWaitEvent.shouldCommit()) {
+            connectionWaitEvent.persistence = getClass().getSimpleName();
+            connectionWaitEvent.readLock = readRequest;
+            connectionWaitEvent.commit();
+        }
         Connection connection;
         try {
             connection = getConnectionWithoutRWLock(index, queryOptions);
@@ -188,7 +273,7 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
             throw new IllegalStateException("DiskPersistence has been closed: " + this.toString());
         }
         try {
-            return sqLiteDataSource.getConnection();
+            return connectionPool != null ? connectionPool.getConnection() : sqLiteDataSource.getConnection();
         }
         catch (SQLException e) {
             throw new IllegalStateException("Failed to open SQLite connection for file: " + file, e);
@@ -205,7 +290,7 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
     }
 
     /**
-     * Closes the persistent connection, if there is an open persistent connection.
+     * Closes the persistent connection, if there is an open persistent connection, and any idle pooled connections.
      * After calling this, the DiskPersistence can no longer be used, and attempts to do
      * so will result in {@link IllegalStateException}s being thrown.
      */
@@ -214,6 +299,9 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
         DBUtils.closeQuietly(persistentConnection);
         this.persistentConnection = null;
         this.closed = true;
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
     }
 
     /**
@@ -290,12 +378,14 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
 
     @Override
     public ObjectStore<O> createObjectStore() {
-        return new SQLiteObjectStore<O, A>(this);
+        return new SQLiteObjectStore<O, A>(this, fetchSize);
     }
 
     @Override
     public SQLiteDiskIdentityIndex<A, O> createIdentityIndex() {
-        return SQLiteDiskIdentityIndex.onAttribute(primaryKeyAttribute);
+        return objectCache == null
+                ? SQLiteDiskIdentityIndex.onAttribute(primaryKeyAttribute)
+                : SQLiteDiskIdentityIndex.onAttributeWithCache(primaryKeyAttribute, objectCache);
     }
 
     /**
@@ -304,10 +394,18 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
      * This allows the application to supply its own implementation of {@link ConnectionManager} to override the default
      * if necessary.
      *
+     * <p/>
+     * If objects are cached, this also records the current invalidation epoch of the cache in the query options,
+     * before the request's connection is opened. The request's transaction reads from a snapshot which can be taken
+     * before its reads, so objects it reads are not cached if they were invalidated since the request began.
+     *
      * @param queryOptions The query options supplied with the request into CQEngine.
      */
     @Override
     public void openRequestScopeResources(QueryOptions queryOptions) {
+        if (objectCache != null) {
+            objectCache.beginRequest(queryOptions);
+        }
         if (queryOptions.get(ConnectionManager.class) == null) {
             queryOptions.put(ConnectionManager.class, new RequestScopeConnectionManager(this));
         }
@@ -315,7 +413,8 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
 
     /**
      * Closes a {@link RequestScopeConnectionManager} if it is present in the given query options with key
-     * {@link ConnectionManager}.
+     * {@link ConnectionManager}. If objects are cached, then after the request has been committed this also
+     * invalidates again any cached objects which the request added or removed.
      *
      * @param queryOptions The query options supplied with the request into CQEngine.
      */
@@ -326,6 +425,10 @@ public class DiskPersistence<O, A extends Comparable<A>> implements SQLitePersis
             ((RequestScopeConnectionManager) connectionManager).close();
             queryOptions.remove(ConnectionManager.class);
         }
+        if (objectCache != null) {
+            objectCache.invalidatePendingForRequest(queryOptions);
+            objectCache.endRequest(queryOptions);
+        }
     }
 
     /**
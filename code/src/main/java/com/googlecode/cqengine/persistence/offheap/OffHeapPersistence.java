@@ -24,7 +24,9 @@ import com.googlecode.cqengine.index.sqlite.SQLitePersistence;
 import com.googlecode.cqengine.index.sqlite.support.DBQueries;
 import com.googlecode.cqengine.index.sqlite.support.DBUtils;
 import com.googlecode.cqengine.index.support.indextype.OffHeapTypeIndex;
+import com.googlecode.cqengine.jfr.ConnectionWaitEvent;
 import com.googlecode.cqengine.persistence.disk.DiskPersistence;
+import com.googlecode.cqengine.persistence.support.sqlite.ConnectionPool;
 import com.googlecode.cqengine.persistence.support.sqlite.LockReleasingConnection;
 import com.googlecode.cqengine.persistence.support.sqlite.SQLiteObjectStore;
 import com.googlecode.cqengine.persistence.support.sqlite.SQLiteOffHeapIdentityIndex;
@@ -33,12 +35,14 @@ import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
 import java.io.Closeable;
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.googlecode.cqengine.persistence.support.PersistenceFlags.READ_REQUEST;
@@ -86,6 +90,29 @@ import static com.googlecode.cqengine.query.option.FlagsEnabled.isFlagEnabled;
  * As a workaround, any applications requiring more concurrency with an in-memory persistence, for example concurrent
  * reads and concurrent writes which don't block each other, could consider using {@link DiskPersistence} instead with
  * the persistence file located on a ram disk.
+ * <p/>
+ * Alternatively, the following properties can be supplied via {@link #onPrimaryKeyWithProperties(SimpleAttribute, Properties)}:
+ * <ul>
+ *     <li>
+ *         {@code concurrent_reads} = true|false (default is false)<br/>
+ *         Instead of a shared-cache in-memory database, the data is stored in a temporary database file in
+ *         Write-Ahead-Logging mode, located in a memory-backed file system ({@code /dev/shm} by default). Each request
+ *         then uses its own connection without shared-cache table-level locking, reads do not acquire any lock, and
+ *         reads run concurrently with each other and with a writer. Writes are still performed sequentially.
+ *         The file is deleted when {@link #close()} is called, or when this object is garbage collected.
+ *     </li>
+ *     <li>
+ *         {@code concurrent_reads_directory} = path (default is {@code /dev/shm} if it exists, otherwise the
+ *         {@code java.io.tmpdir} directory)<br/>
+ *         The directory in which the database file is created when {@code concurrent_reads} is enabled. This should be
+ *         on a memory-backed file system (such as tmpfs), otherwise the data will be written to disk.
+ *     </li>
+ *     <li>
+ *         {@code connection_pool_size} and {@code statement_cache_size}<br/>
+ *         Draw connections from a {@link ConnectionPool}, with the same meaning as for {@link DiskPersistence}.
+ *         This is recommended when {@code concurrent_reads} is enabled.
+ *     </li>
+ * </ul>
  *
  * @author niall.gallagher
  */
@@ -100,22 +127,54 @@ public class OffHeapPersistence<O, A extends Comparable<A>> implements SQLitePer
     // Note we don't configure a default busy_wait property, because SQLite's in-memory database does not support it.
     static final Properties DEFAULT_PROPERTIES = new Properties();
 
+    static final Properties CONCURRENT_READS_DEFAULT_PROPERTIES = new Properties();
+    static {
+        CONCURRENT_READS_DEFAULT_PROPERTIES.setProperty("busy_timeout", String.valueOf(Integer.MAX_VALUE)); // Wait indefinitely to acquire locks
+        CONCURRENT_READS_DEFAULT_PROPERTIES.setProperty("journal_mode", "WAL"); // Use Write-Ahead-Logging which supports concurrent reads and writes
+        CONCURRENT_READS_DEFAULT_PROPERTIES.setProperty("synchronous", "OFF"); // The database file is temporary, so durability is not required
+    }
+
+    static final String[] DATABASE_FILE_SUFFIXES = {"", "-wal", "-shm"};
+
+    // If concurrent_reads=true, the temporary database file, otherwise null...
+    final File file;
+    // If concurrent_reads=true, readers do not acquire any lock and only writers are serialized by this lock...
+    final boolean concurrentReads;
+    final Lock writerLock = new ReentrantLock(true);
+    // If connection_pool_size > 0, connections are drawn from this pool, otherwise this is null...
+    final ConnectionPool connectionPool;
+
     // A connection which we keep open to prevent SQLite from freeing the in-memory database
     // until this object is garbage-collected, or close() is called explicitly on this object...
     volatile Connection persistentConnection;
     volatile boolean closed = false;
 
     protected OffHeapPersistence(SimpleAttribute<O, A> primaryKeyAttribute, Properties overrideProperties) {
+        boolean concurrentReads = "true".equals(overrideProperties.getProperty("concurrent_reads")); // default false
         Properties effectiveProperties = new Properties(DEFAULT_PROPERTIES);
+        if (concurrentReads) {
+            effectiveProperties.putAll(CONCURRENT_READS_DEFAULT_PROPERTIES);
+        }
         effectiveProperties.putAll(overrideProperties);
         SQLiteConfig sqLiteConfig = new SQLiteConfig(effectiveProperties);
         SQLiteDataSource sqLiteDataSource = new SQLiteDataSource(sqLiteConfig);
         String instanceName = "cqengine_" + INSTANCE_ID_GENERATOR.incrementAndGet();
-        sqLiteDataSource.setUrl("jdbc:sqlite:file:" + instanceName + "?mode=memory&cache=shared");
+        if (concurrentReads) {
+            this.file = createTempFile(instanceName, effectiveProperties.getProperty("concurrent_reads_directory"));
+            sqLiteDataSource.setUrl("jdbc:sqlite:file:" + file);
+        }
+        else {
+            this.file = null;
+            sqLiteDataSource.setUrl("jdbc:sqlite:file:" + instanceName + "?mode=memory&cache=shared");
+        }
+        int connectionPoolSize = Integer.parseInt(effectiveProperties.getProperty("connection_pool_size", "0"));
+        int statementCacheSize = Integer.parseInt(effectiveProperties.getProperty("statement_cache_size", String.valueOf(ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE)));
 
         this.primaryKeyAttribute = primaryKeyAttribute;
         this.instanceName = instanceName;
         this.sqLiteDataSource = sqLiteDataSource;
+        this.concurrentReads = concurrentReads;
+        this.connectionPool = connectionPoolSize > 0 ? new ConnectionPool(sqLiteDataSource, connectionPoolSize, statementCacheSize) : null;
         this.persistentConnection = getConnectionInternal(null, noQueryOptions());
     }
 
@@ -128,16 +187,35 @@ public class OffHeapPersistence<O, A extends Comparable<A>> implements SQLitePer
         return instanceName;
     }
 
+    /**
+     * @return The temporary database file if {@code concurrent_reads} is enabled, otherwise null
+     */
+    public File getFile() {
+        return file;
+    }
+
     final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
 
     // Wraps access to the SQLite in-memory database in a read-write lock.
+    // If concurrent_reads=true, only writers acquire a lock.
     @Override
     public Connection getConnection(Index<?> index, QueryOptions queryOptions) {
         // Acquire a read lock IFF the READ_REQUEST flag has been set, otherwise acquire a write lock by default...
-        final Lock connectionLock = isFlagEnabled(queryOptions, READ_REQUEST)
-                                        ? readWriteLock.readLock() : readWriteLock.writeLock();
+        final boolean readRequest = isFlagEnabled(queryOptions, READ_REQUEST);
+        if (concurrentReads && readRequest) {
+            return getConnectionInternal(index, queryOptions);
+        }
+        final Lock connectionLock = concurrentReads ? writerLock : readRequest ? readWriteLock.readLock() : readWriteLock.writeLock();
 
+        ConnectionWaitEvent connectionWaitEvent = new ConnectionWaitEvent();
+        connectionWaitEvent.begin();
         connectionLock.lock();
+        connectionWaitEvent.end();
+        if (connectionWaitEvent.shouldCommit()) {
+            connectionWaitEvent.persistence = getClass().getSimpleName();
+            connectionWaitEvent.readLock = readRequest;
+            connectionWaitEvent.commit();
+        }
         Connection connection;
         try {
             connection = getConnectionInternal(index, queryOptions);
@@ -154,13 +232,30 @@ public class OffHeapPersistence<O, A extends Comparable<A>> implements SQLitePer
             throw new IllegalStateException("OffHeapPersistence has been closed: " + this.toString());
         }
         try {
-            return sqLiteDataSource.getConnection();
+            return connectionPool != null ? connectionPool.getConnection() : sqLiteDataSource.getConnection();
         }
         catch (SQLException e) {
             throw new IllegalStateException("Failed to open SQLite connection for memory instance: " + instanceName, e);
         }
     }
 
+    static File createTempFile(String instanceName, String directoryName) {
+        File directory = directoryName != null ? new File(directoryName) : new File("/dev/shm");
+        if (directoryName == null && !(directory.isDirectory() && directory.canWrite())) {
+            directory = new File(System.getProperty("java.io.tmpdir"));
+        }
+        try {
+            File tempFile = File.createTempFile(instanceName + "_", ".db", directory);
+            for (String suffix : DATABASE_FILE_SUFFIXES) {
+                new File(tempFile.getPath() + suffix).deleteOnExit();
+            }
+            return tempFile;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Failed to create temp file for OffHeapPersistence in directory: " + directory, e);
+        }
+    }
+
     /**
      * @param index The {@link Index} for which a connection is required.
      * @return True if the given index is an {@link OffHeapTypeIndex}. Otherwise false.
@@ -170,11 +265,24 @@ public class OffHeapPersistence<O, A extends Comparable<A>> implements SQLitePer
         return index instanceof OffHeapTypeIndex;
     }
 
+    /**
+     * Closes the persistent connection, which frees the memory used by the database. If {@code concurrent_reads} is
+     * enabled, also deletes the temporary database file.
+     */
     @Override
     public void close() {
         DBUtils.closeQuietly(persistentConnection);
         this.persistentConnection = null;
         this.closed = true;
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        if (file != null) {
+            for (String suffix : DATABASE_FILE_SUFFIXES) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(file.getPath() + suffix).delete();
+            }
+        }
     }
 
     @Override
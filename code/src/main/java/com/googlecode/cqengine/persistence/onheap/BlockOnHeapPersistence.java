@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.onheap;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.persistence.support.BlockObjectStore;
+import com.googlecode.cqengine.persistence.support.ObjectStore;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Specifies that a collection should be persisted on-heap in a {@link BlockObjectStore}, which maintains zone maps
+ * on selected attributes so that scans of the collection for queries on those attributes can skip blocks of objects
+ * which cannot match.
+ * <p/>
+ * This is useful for ad-hoc queries on attributes which are not indexed, which would otherwise be answered by
+ * scanning the entire collection.
+ */
+public class BlockOnHeapPersistence<O, A extends Comparable<A>> extends OnHeapPersistence<O, A> {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    final int blockSize;
+    final List<Attribute<O, ?>> zoneMapAttributes;
+
+    public BlockOnHeapPersistence(SimpleAttribute<O, A> primaryKeyAttribute, int blockSize, List<Attribute<O, ?>> zoneMapAttributes) {
+        super(primaryKeyAttribute);
+        this.blockSize = blockSize;
+        this.zoneMapAttributes = Collections.unmodifiableList(zoneMapAttributes);
+    }
+
+    @Override
+    public ObjectStore<O> createObjectStore() {
+        return new BlockObjectStore<O>(blockSize, zoneMapAttributes);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public List<Attribute<O, ?>> getZoneMapAttributes() {
+        return zoneMapAttributes;
+    }
+
+    /**
+     * Creates a {@link BlockOnHeapPersistence} object which persists to the Java heap in blocks of
+     * {@link #DEFAULT_BLOCK_SIZE} objects, maintaining zone maps on the given attributes.
+     *
+     * @param zoneMapAttributes The attributes on which zone maps should be maintained
+     * @return A {@link BlockOnHeapPersistence} object which persists to the Java heap
+     */
+    @SafeVarargs
+    public static <O> BlockOnHeapPersistence<O, ? extends Comparable> withZoneMaps(Attribute<O, ?>... zoneMapAttributes) {
+        return withZoneMaps(DEFAULT_BLOCK_SIZE, zoneMapAttributes);
+    }
+
+    /**
+     * Creates a {@link BlockOnHeapPersistence} object which persists to the Java heap in blocks of the given size,
+     * maintaining zone maps on the given attributes.
+     *
+     * @param blockSize The maximum number of objects to store in each block
+     * @param zoneMapAttributes The attributes on which zone maps should be maintained
+     * @return A {@link BlockOnHeapPersistence} object which persists to the Java heap
+     */
+    @SafeVarargs
+    public static <O> BlockOnHeapPersistence<O, ? extends Comparable> withZoneMaps(int blockSize, Attribute<O, ?>... zoneMapAttributes) {
+        return withZoneMaps_Internal(null, blockSize, zoneMapAttributes);
+    }
+
+    /**
+     * Creates a {@link BlockOnHeapPersistence} object which persists to the Java heap in blocks of the given size,
+     * maintaining zone maps on the given attributes, with the given primary key.
+     *
+     * @param primaryKeyAttribute An attribute which returns the primary key of objects in the collection
+     * @param blockSize The maximum number of objects to store in each block
+     * @param zoneMapAttributes The attributes on which zone maps should be maintained
+     * @return A {@link BlockOnHeapPersistence} object which persists to the Java heap
+     */
+    @SafeVarargs
+    public static <O, A extends Comparable<A>> BlockOnHeapPersistence<O, A> onPrimaryKeyWithZoneMaps(SimpleAttribute<O, A> primaryKeyAttribute, int blockSize, Attribute<O, ?>... zoneMapAttributes) {
+        return withZoneMaps_Internal(primaryKeyAttribute, blockSize, zoneMapAttributes);
+    }
+
+    static <O, A extends Comparable<A>> BlockOnHeapPersistence<O, A> withZoneMaps_Internal(SimpleAttribute<O, A> primaryKeyAttribute, int blockSize, Attribute<O, ?>[] zoneMapAttributes) {
+        return new BlockOnHeapPersistence<O, A>(primaryKeyAttribute, blockSize, Arrays.asList(zoneMapAttributes));
+    }
+}
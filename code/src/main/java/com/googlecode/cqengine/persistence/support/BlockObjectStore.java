@@ -0,0 +1,509 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.support.CloseableIterator;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.logical.Or;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.query.simple.Between;
+import com.googlecode.cqengine.query.simple.Equal;
+import com.googlecode.cqengine.query.simple.GreaterThan;
+import com.googlecode.cqengine.query.simple.In;
+import com.googlecode.cqengine.query.simple.LessThan;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An on-heap {@link ObjectStore} which organizes objects into fixed-size blocks, and which maintains a <i>zone map</i>
+ * for each block on selected attributes: the minimum and maximum values of the attribute in the block, and a bloom
+ * filter of those values.
+ * <p/>
+ * The {@link #iterator(Query, QueryOptions)} method uses the zone maps to skip blocks which cannot contain any objects
+ * matching {@link Equal}, {@link In}, {@link LessThan}, {@link GreaterThan} or {@link Between} queries on those
+ * attributes, or {@link And} and {@link Or} queries composed of them. The
+ * {@link com.googlecode.cqengine.index.fallback.FallbackIndex} uses this method when it scans a collection backed by
+ * this object store, which accelerates queries on attributes which are not indexed.
+ * <p/>
+ * Zone maps are widened when objects are added to a block, but are not narrowed when objects are removed; they are
+ * reset when a block becomes empty. Zone maps therefore remain correct (they never cause matching objects to be
+ * skipped). To stop blocks from becoming sparse and less selective in collections with a high rate of removals,
+ * blocks which become at most half full are refilled: when the block receiving new objects is full, the next block
+ * with free space receives new objects instead of a new block, and its zone maps are first recomputed from the
+ * objects which remain in it.
+ * <p/>
+ * Reads are lock-free. Writes are serialized.
+ */
+public class BlockObjectStore<O> implements ObjectStore<O> {
+
+    static final int BLOOM_FILTER_BITS = 1024;
+    static final int BLOOM_FILTER_HASHES = 3;
+
+    final int blockSize;
+    final List<Attribute<O, ?>> zoneMapAttributes;
+    final ConcurrentMap<O, Block<O>> blocksByObject = new ConcurrentHashMap<O, Block<O>>();
+    final List<Block<O>> blocks = new CopyOnWriteArrayList<Block<O>>();
+    final Object writeMutex = new Object();
+    // Blocks other than the current block which are at most half full, to be refilled in the order they became so...
+    final Set<Block<O>> blocksWithFreeSpace = new LinkedHashSet<Block<O>>();
+    Block<O> currentBlock = null;
+
+    /**
+     * Creates a new {@link BlockObjectStore}.
+     *
+     * @param blockSize The maximum number of objects to store in each block
+     * @param zoneMapAttributes The attributes on which zone maps should be maintained
+     */
+    public BlockObjectStore(int blockSize, List<? extends Attribute<O, ?>> zoneMapAttributes) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.zoneMapAttributes = Collections.unmodifiableList(new ArrayList<Attribute<O, ?>>(zoneMapAttributes));
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public List<Attribute<O, ?>> getZoneMapAttributes() {
+        return zoneMapAttributes;
+    }
+
+    /**
+     * @return The number of non-empty blocks in the store
+     */
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    @Override
+    public int size(QueryOptions queryOptions) {
+        return blocksByObject.size();
+    }
+
+    @Override
+    public boolean contains(Object o, QueryOptions queryOptions) {
+        return blocksByObject.containsKey(o);
+    }
+
+    @Override
+    public CloseableIterator<O> iterator(QueryOptions queryOptions) {
+        return new BlockIterator(new ArrayList<Block<O>>(blocks));
+    }
+
+    /**
+     * Returns an iterator over the objects in blocks which, according to their zone maps, might contain objects
+     * matching the given query. The iterator may return objects which do not match the query, so the caller is
+     * responsible for filtering the objects returned.
+     * <p/>
+     * The zone maps are evaluated once, when this method is called. The number of blocks selected is available from
+     * {@link BlockIterator#getBlockCount()}.
+     *
+     * @param query The query which objects must match
+     * @param queryOptions Optional parameters for the query
+     * @return An iterator over the objects in blocks which might contain objects matching the query
+     */
+    public BlockIterator iterator(Query<O> query, QueryOptions queryOptions) {
+        return new BlockIterator(getCandidateBlocks(query));
+    }
+
+    /**
+     * Returns the number of blocks which would be scanned by {@link #iterator(Query, QueryOptions)} for the given
+     * query.
+     *
+     * @param query The query which objects must match
+     * @return The number of blocks which might contain objects matching the query
+     */
+    public int getCandidateBlockCount(Query<O> query) {
+        return getCandidateBlocks(query).size();
+    }
+
+    List<Block<O>> getCandidateBlocks(Query<O> query) {
+        List<Block<O>> candidateBlocks = new ArrayList<Block<O>>();
+        for (Block<O> block : blocks) {
+            if (!canSkip(block, query)) {
+                candidateBlocks.add(block);
+            }
+        }
+        return candidateBlocks;
+    }
+
+    @Override
+    public boolean isEmpty(QueryOptions queryOptions) {
+        return blocksByObject.isEmpty();
+    }
+
+    @Override
+    public boolean add(O object, QueryOptions queryOptions) {
+        synchronized (writeMutex) {
+            if (blocksByObject.containsKey(object)) {
+                return false;
+            }
+            Block<O> block = currentBlock;
+            if (block == null || block.objects.size() >= blockSize) {
+                block = nextBlockWithFreeSpace(queryOptions);
+                currentBlock = block;
+            }
+            // Widen the zone maps before the object becomes visible to readers...
+            widenZoneMaps(block, object, queryOptions);
+            block.objects.add(object);
+            blocksByObject.put(object, block);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o, QueryOptions queryOptions) {
+        synchronized (writeMutex) {
+            Block<O> block = blocksByObject.remove(o);
+            if (block == null) {
+                return false;
+            }
+            block.objects.remove(o);
+            if (block.objects.isEmpty()) {
+                if (block == currentBlock) {
+                    block.resetZoneMaps();
+                }
+                else {
+                    blocks.remove(block);
+                    blocksWithFreeSpace.remove(block);
+                }
+            }
+            else if (block != currentBlock && block.objects.size() <= blockSize / 2) {
+                blocksWithFreeSpace.add(block);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the block which should receive new objects when the current block is full: the block which became
+     * at most half full the longest time ago, replaced by a copy whose zone maps have been recomputed from the objects
+     * remaining in it, or a new block if no blocks have free space. Must be called while holding the write mutex.
+     */
+    Block<O> nextBlockWithFreeSpace(QueryOptions queryOptions) {
+        Iterator<Block<O>> iterator = blocksWithFreeSpace.iterator();
+        if (!iterator.hasNext()) {
+            Block<O> block = new Block<O>(zoneMapAttributes.size());
+            blocks.add(block);
+            return block;
+        }
+        Block<O> sparseBlock = iterator.next();
+        iterator.remove();
+        // Build the replacement fully before publishing it, so that readers see either the old or the new block...
+        Block<O> block = new Block<O>(zoneMapAttributes.size());
+        for (O object : sparseBlock.objects) {
+            widenZoneMaps(block, object, queryOptions);
+            block.objects.add(object);
+        }
+        blocks.set(blocks.indexOf(sparseBlock), block);
+        for (O object : block.objects) {
+            blocksByObject.put(object, block);
+        }
+        return block;
+    }
+
+    void widenZoneMaps(Block<O> block, O object, QueryOptions queryOptions) {
+        for (int i = 0; i < zoneMapAttributes.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Attribute<O, Object> attribute = (Attribute<O, Object>) zoneMapAttributes.get(i);
+            for (Object value : attribute.getValues(object, queryOptions)) {
+                block.zoneMaps[i].add(value);
+            }
+        }
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c, QueryOptions queryOptions) {
+        for (Object o : c) {
+            if (!blocksByObject.containsKey(o)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends O> c, QueryOptions queryOptions) {
+        boolean modified = false;
+        for (O object : c) {
+            modified |= add(object, queryOptions);
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c, QueryOptions queryOptions) {
+        boolean modified = false;
+        for (O object : blocksByObject.keySet()) {
+            if (!c.contains(object)) {
+                modified |= remove(object, queryOptions);
+            }
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c, QueryOptions queryOptions) {
+        boolean modified = false;
+        for (Object o : c) {
+            modified |= remove(o, queryOptions);
+        }
+        return modified;
+    }
+
+    @Override
+    public void clear(QueryOptions queryOptions) {
+        synchronized (writeMutex) {
+            blocks.clear();
+            blocksWithFreeSpace.clear();
+            blocksByObject.clear();
+            currentBlock = null;
+        }
+    }
+
+    /**
+     * Returns true if the zone maps of the given block prove that the block cannot contain any objects matching the
+     * given query.
+     */
+    boolean canSkip(Block<O> block, Query<O> query) {
+        if (query instanceof And) {
+            for (Query<O> child : ((And<O>) query).getChildQueries()) {
+                if (canSkip(block, child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (query instanceof Or) {
+            for (Query<O> child : ((Or<O>) query).getChildQueries()) {
+                if (!canSkip(block, child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (query instanceof Equal) {
+            Equal<O, ?> equal = (Equal<O, ?>) query;
+            ZoneMap zoneMap = getZoneMap(block, equal.getAttribute());
+            return zoneMap != null && !zoneMap.mightContain(equal.getValue());
+        }
+        if (query instanceof In) {
+            In<O, ?> in = (In<O, ?>) query;
+            ZoneMap zoneMap = getZoneMap(block, in.getAttribute());
+            if (zoneMap == null) {
+                return false;
+            }
+            for (Object value : in.getValues()) {
+                if (zoneMap.mightContain(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (query instanceof LessThan) {
+            LessThan<O, ?> lessThan = (LessThan<O, ?>) query;
+            ZoneMap zoneMap = getZoneMap(block, lessThan.getAttribute());
+            return zoneMap != null && !zoneMap.mightOverlap(null, false, lessThan.getValue(), lessThan.isValueInclusive());
+        }
+        if (query instanceof GreaterThan) {
+            GreaterThan<O, ?> greaterThan = (GreaterThan<O, ?>) query;
+            ZoneMap zoneMap = getZoneMap(block, greaterThan.getAttribute());
+            return zoneMap != null && !zoneMap.mightOverlap(greaterThan.getValue(), greaterThan.isValueInclusive(), null, false);
+        }
+        if (query instanceof Between) {
+            Between<O, ?> between = (Between<O, ?>) query;
+            ZoneMap zoneMap = getZoneMap(block, between.getAttribute());
+            return zoneMap != null && !zoneMap.mightOverlap(between.getLowerValue(), between.isLowerInclusive(), between.getUpperValue(), between.isUpperInclusive());
+        }
+        return false;
+    }
+
+    ZoneMap getZoneMap(Block<O> block, Attribute<O, ?> attribute) {
+        int position = zoneMapAttributes.indexOf(attribute);
+        return position < 0 ? null : block.zoneMaps[position];
+    }
+
+    static class Block<O> {
+        final Set<O> objects = Collections.newSetFromMap(new ConcurrentHashMap<O, Boolean>());
+        final ZoneMap[] zoneMaps;
+
+        Block(int zoneMapCount) {
+            this.zoneMaps = new ZoneMap[zoneMapCount];
+            for (int i = 0; i < zoneMapCount; i++) {
+                zoneMaps[i] = new ZoneMap();
+            }
+        }
+
+        void resetZoneMaps() {
+            for (int i = 0; i < zoneMaps.length; i++) {
+                zoneMaps[i] = new ZoneMap();
+            }
+        }
+    }
+
+    /**
+     * The minimum and maximum values of an attribute within a block, and a bloom filter of its values.
+     * Values which are not {@link Comparable} are recorded in the bloom filter only, and disable range checks.
+     */
+    static class ZoneMap {
+        final long[] bloomFilter = new long[BLOOM_FILTER_BITS / 64];
+        volatile Comparable<Object> min = null;
+        volatile Comparable<Object> max = null;
+        volatile boolean hasValues = false;
+        volatile boolean rangeCheckable = true;
+
+        @SuppressWarnings("unchecked")
+        void add(Object value) {
+            int hash = value.hashCode();
+            for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+                int bit = bloomFilterBit(hash, i);
+                bloomFilter[bit >>> 6] |= 1L << bit;
+            }
+            if (rangeCheckable) {
+                if (value instanceof Comparable) {
+                    Comparable<Object> comparable = (Comparable<Object>) value;
+                    if (min == null || comparable.compareTo(min) < 0) {
+                        min = comparable;
+                    }
+                    if (max == null || comparable.compareTo(max) > 0) {
+                        max = comparable;
+                    }
+                }
+                else {
+                    rangeCheckable = false;
+                }
+            }
+            hasValues = true;
+        }
+
+        boolean mightContain(Object value) {
+            if (!hasValues) {
+                return false;
+            }
+            if (rangeCheckable && !mightOverlap(value, true, value, true)) {
+                return false;
+            }
+            int hash = value.hashCode();
+            for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+                int bit = bloomFilterBit(hash, i);
+                if ((bloomFilter[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean mightOverlap(Object lowerBound, boolean lowerInclusive, Object upperBound, boolean upperInclusive) {
+            if (!hasValues) {
+                return false;
+            }
+            if (!rangeCheckable) {
+                return true;
+            }
+            if (lowerBound != null) {
+                int comparison = max.compareTo(lowerBound);
+                if (comparison < 0 || (comparison == 0 && !lowerInclusive)) {
+                    return false;
+                }
+            }
+            if (upperBound != null) {
+                int comparison = min.compareTo(upperBound);
+                if (comparison > 0 || (comparison == 0 && !upperInclusive)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        static int bloomFilterBit(int hash, int i) {
+            // Derive each hash function from the object's hash code using double hashing...
+            int h1 = hash * 0x9E3779B9;
+            int h2 = Integer.rotateLeft(hash, 16) * 0x85EBCA6B | 1;
+            return ((h1 + i * h2) >>> 1) % BLOOM_FILTER_BITS;
+        }
+    }
+
+    /**
+     * An iterator over the objects in a list of blocks, which was determined when the iterator was created.
+     */
+    public class BlockIterator implements CloseableIterator<O> {
+        final int blockCount;
+        final Iterator<Block<O>> blockIterator;
+        Iterator<O> objectIterator = Collections.<O>emptyList().iterator();
+        O next = null;
+        O lastReturned = null;
+
+        BlockIterator(List<Block<O>> blocksToScan) {
+            this.blockCount = blocksToScan.size();
+            this.blockIterator = blocksToScan.iterator();
+        }
+
+        /**
+         * @return The number of blocks which this iterator scans
+         */
+        public int getBlockCount() {
+            return blockCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (objectIterator.hasNext()) {
+                    next = objectIterator.next();
+                }
+                else if (blockIterator.hasNext()) {
+                    objectIterator = blockIterator.next().objects.iterator();
+                }
+                else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public O next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = null;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            BlockObjectStore.this.remove(lastReturned, null);
+            lastReturned = null;
+        }
+
+        @Override
+        public void close() {
+            // No op
+        }
+    }
+}
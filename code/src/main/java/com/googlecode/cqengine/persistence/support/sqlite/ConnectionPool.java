@@ -0,0 +1,394 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support.sqlite;
+
+import com.googlecode.cqengine.index.sqlite.support.DBUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of SQLite connections, each of which caches the {@link PreparedStatement}s which have been prepared on it.
+ * <p/>
+ * {@link #getConnection()} returns a proxy to an idle physical connection if one is available, or otherwise opens a new
+ * physical connection. Calling {@link Connection#close()} on the proxy rolls back any uncommitted transaction, restores
+ * auto-commit mode, and returns the physical connection to the pool, instead of closing it. At most
+ * {@code maxIdleConnections} physical connections are retained in the pool; surplus connections are closed when they
+ * are returned.
+ * <p/>
+ * Calls to {@link Connection#prepareStatement(String)} on the proxy are served from a cache of idle statements which
+ * were previously prepared on the same physical connection with exactly the same SQL, so that repeated queries skip
+ * parsing and planning in SQLite. The SQL string identifies both the table and the operation, and so it is used as
+ * the cache key. Calling {@link PreparedStatement#close()} on a statement obtained this way closes its open result
+ * set, clears its parameters and returns it to the cache. A statement is never handed out to more than one caller
+ * at the same time. Up to {@code statementCacheSize} distinct SQL strings are cached per connection, with the least
+ * recently used evicted first.
+ * <p/>
+ * Statements which remain open when the connection proxy is closed are returned to the cache automatically.
+ */
+public class ConnectionPool implements Closeable {
+
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    final DataSource dataSource;
+    final int maxIdleConnections;
+    final int statementCacheSize;
+
+    final Deque<PooledConnection> idleConnections = new ArrayDeque<PooledConnection>();
+    boolean closed = false;
+
+    final AtomicLong connectionsOpened = new AtomicLong();
+    final AtomicLong statementsPrepared = new AtomicLong();
+    final AtomicLong statementCacheHits = new AtomicLong();
+
+    public ConnectionPool(DataSource dataSource, int maxIdleConnections, int statementCacheSize) {
+        if (maxIdleConnections < 1) {
+            throw new IllegalArgumentException("Invalid maxIdleConnections: " + maxIdleConnections);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid statementCacheSize: " + statementCacheSize);
+        }
+        this.dataSource = dataSource;
+        this.maxIdleConnections = maxIdleConnections;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Returns a connection from the pool, opening a new physical connection if no idle connection is available.
+     *
+     * @return A connection which will be returned to the pool when it is closed
+     * @throws SQLException If a new physical connection could not be opened
+     * @throws IllegalStateException If the pool has been closed
+     */
+    public Connection getConnection() throws SQLException {
+        PooledConnection pooledConnection;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("ConnectionPool has been closed");
+            }
+            pooledConnection = idleConnections.pollFirst();
+        }
+        if (pooledConnection == null) {
+            pooledConnection = new PooledConnection(dataSource.getConnection());
+            connectionsOpened.incrementAndGet();
+        }
+        return new ConnectionHandle(pooledConnection).proxy;
+    }
+
+    void release(PooledConnection pooledConnection) {
+        synchronized (this) {
+            if (!closed && idleConnections.size() < maxIdleConnections) {
+                // Most recently used connections are reused first, so that surplus connections age out...
+                idleConnections.addFirst(pooledConnection);
+                return;
+            }
+        }
+        pooledConnection.closePhysically();
+    }
+
+    /**
+     * Closes all idle connections in the pool. Connections which are currently in use will be closed when they are
+     * returned. After calling this, {@link #getConnection()} will throw {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> connectionsToClose;
+        synchronized (this) {
+            closed = true;
+            connectionsToClose = new ArrayList<PooledConnection>(idleConnections);
+            idleConnections.clear();
+        }
+        for (PooledConnection pooledConnection : connectionsToClose) {
+            pooledConnection.closePhysically();
+        }
+    }
+
+    public synchronized int getIdleConnectionCount() {
+        return idleConnections.size();
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public long getStatementsPrepared() {
+        return statementsPrepared.get();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * A physical connection and the cache of idle statements which have been prepared on it. Accessed by only one
+     * thread at a time, the one which currently holds the {@link ConnectionHandle}.
+     */
+    class PooledConnection {
+        final Connection connection;
+        final LinkedHashMap<String, Deque<PreparedStatement>> idleStatements = new LinkedHashMap<String, Deque<PreparedStatement>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Deque<PreparedStatement>> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                for (PreparedStatement statement : eldest.getValue()) {
+                    DBUtils.closeQuietly(statement);
+                }
+                return true;
+            }
+        };
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        PreparedStatement acquireStatement(String sql) throws SQLException {
+            Deque<PreparedStatement> statements = idleStatements.get(sql);
+            PreparedStatement statement = statements == null ? null : statements.pollFirst();
+            if (statement != null) {
+                statementCacheHits.incrementAndGet();
+                return statement;
+            }
+            statement = connection.prepareStatement(sql);
+            statementsPrepared.incrementAndGet();
+            return statement;
+        }
+
+        void releaseStatement(String sql, PreparedStatement statement) {
+            if (statementCacheSize == 0) {
+                DBUtils.closeQuietly(statement);
+                return;
+            }
+            Deque<PreparedStatement> statements = idleStatements.get(sql);
+            if (statements == null) {
+                statements = new ArrayDeque<PreparedStatement>(1);
+                idleStatements.put(sql, statements);
+            }
+            statements.addFirst(statement);
+        }
+
+        void closePhysically() {
+            for (Deque<PreparedStatement> statements : idleStatements.values()) {
+                for (PreparedStatement statement : statements) {
+                    DBUtils.closeQuietly(statement);
+                }
+            }
+            idleStatements.clear();
+            DBUtils.closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Handles calls to the {@link Connection} proxy handed out by {@link #getConnection()}, for the duration of a
+     * single checkout of a {@link PooledConnection}.
+     */
+    class ConnectionHandle implements InvocationHandler {
+        final PooledConnection pooledConnection;
+        final Connection proxy;
+        final Set<StatementHandle> openStatements = new LinkedHashSet<StatementHandle>();
+        boolean closed = false;
+
+        ConnectionHandle(PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    this
+            );
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String methodName = m.getName();
+            if (m.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(this, proxy, m, args);
+            }
+            if (methodName.equals("close")) {
+                if (!closed) {
+                    closed = true;
+                    release();
+                }
+                return null;
+            }
+            if (methodName.equals("isClosed")) {
+                return closed;
+            }
+            if (closed) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (methodName.equals("prepareStatement") && args.length == 1) {
+                String sql = (String) args[0];
+                StatementHandle statementHandle = new StatementHandle(this, sql, pooledConnection.acquireStatement(sql));
+                openStatements.add(statementHandle);
+                return statementHandle.proxy;
+            }
+            return invokeTarget(pooledConnection.connection, m, args);
+        }
+
+        void release() {
+            for (StatementHandle statementHandle : new ArrayList<StatementHandle>(openStatements)) {
+                statementHandle.release();
+            }
+            Connection connection = pooledConnection.connection;
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+            catch (Exception e) {
+                // The connection is in an unknown state, so don't return it to the pool...
+                pooledConnection.closePhysically();
+                return;
+            }
+            ConnectionPool.this.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Handles calls to a {@link PreparedStatement} proxy, for the duration of a single checkout of a cached statement.
+     */
+    class StatementHandle implements InvocationHandler {
+        final ConnectionHandle connectionHandle;
+        final String sql;
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+        ResultSet currentResultSet = null;
+        boolean closed = false;
+
+        StatementHandle(ConnectionHandle connectionHandle, String sql, PreparedStatement statement) {
+            this.connectionHandle = connectionHandle;
+            this.sql = sql;
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    this
+            );
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String methodName = m.getName();
+            if (m.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(this, proxy, m, args);
+            }
+            if (methodName.equals("close")) {
+                release();
+                return null;
+            }
+            if (methodName.equals("isClosed")) {
+                return closed;
+            }
+            if (closed) {
+                throw new SQLException("Statement has been closed");
+            }
+            if (methodName.equals("getConnection")) {
+                return connectionHandle.proxy;
+            }
+            Object result = invokeTarget(statement, m, args);
+            if (result instanceof ResultSet) {
+                // Wrap result sets so that ResultSet.getStatement() returns the proxy, not the cached statement...
+                currentResultSet = (ResultSet) result;
+                return wrapResultSet(currentResultSet);
+            }
+            return result;
+        }
+
+        void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connectionHandle.openStatements.remove(this);
+            try {
+                if (currentResultSet != null) {
+                    currentResultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            catch (Exception e) {
+                // The statement is in an unknown state, so don't return it to the cache...
+                DBUtils.closeQuietly(statement);
+                return;
+            }
+            connectionHandle.pooledConnection.releaseStatement(sql, statement);
+        }
+
+        // The driver may reuse the same ResultSet object for subsequent executions of the statement, so once the
+        // statement has been returned to the cache, the wrapper must no longer delegate to it...
+        ResultSet wrapResultSet(final ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+                            String methodName = m.getName();
+                            if (m.getDeclaringClass() == Object.class) {
+                                return invokeObjectMethod(this, proxy, m, args);
+                            }
+                            if (methodName.equals("getStatement")) {
+                                return StatementHandle.this.proxy;
+                            }
+                            if (closed) {
+                                if (methodName.equals("close")) {
+                                    return null;
+                                }
+                                if (methodName.equals("isClosed")) {
+                                    return true;
+                                }
+                                throw new SQLException("ResultSet has been closed");
+                            }
+                            return invokeTarget(resultSet, m, args);
+                        }
+                    }
+            );
+        }
+    }
+
+
+    static Object invokeTarget(Object target, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    static Object invokeObjectMethod(InvocationHandler handler, Object proxy, Method m, Object[] args) {
+        String methodName = m.getName();
+        if (methodName.equals("equals")) {
+            return proxy == args[0];
+        }
+        if (methodName.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        return handler.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support.sqlite;
+
+import com.googlecode.cqengine.query.option.QueryOptions;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of deserialized objects keyed by primary key, which can be placed in front of the
+ * {@link SQLiteDiskIdentityIndex} of a disk persistence, so that objects which are read repeatedly are not read from
+ * SQLite and deserialized every time.
+ * <p/>
+ * Admission and eviction follow the W-TinyLFU policy. New objects enter a small LRU <i>window</i> (1% of capacity).
+ * Objects evicted from the window compete for a place in the <i>main</i> segmented LRU, which is split into a
+ * <i>probation</i> segment and a <i>protected</i> segment (80% of the main segment). An object evicted from the
+ * window is admitted to the main segment only if it has been accessed more frequently than the object which would
+ * be evicted from the main segment to make room for it. Access frequencies are estimated by a count-min sketch of
+ * 4-bit counters, which are halved periodically so that the estimates favour recent accesses. Objects accessed
+ * while on probation are promoted to the protected segment. This protects the cache from being flushed by scans
+ * of objects which are read only once, while letting frequently read objects in quickly.
+ * <p/>
+ * <b>Concurrency</b><br/>
+ * Objects are looked up in a {@link ConcurrentHashMap} without locking. Accesses are recorded in a buffer, and are
+ * applied to the frequency sketch and the segments in batches, by whichever thread next acquires the lock which
+ * guards the policy, without waiting for it. If the buffer is full because the lock is busy, further accesses are
+ * not recorded until it has been drained; this affects only the accuracy of the policy. Updates to the cache
+ * acquire the lock.
+ * <p/>
+ * <b>Coherence</b><br/>
+ * The objects cached for primary keys which are added or removed are invalidated as the update is applied, and
+ * again after the request which applied it has committed (see {@link #invalidateForRequest(Object, QueryOptions)}
+ * and {@link #invalidatePendingForRequest(QueryOptions)}). Objects read from SQLite are only stored if the primary
+ * key has not been invalidated since the read started (see {@link #putIfNotInvalidatedSince(Object, Object, long)}).
+ * This prevents an object read before an update from being stored after it. Invalidations are tracked per stripe of
+ * primary keys, so that writes to some objects do not prevent other objects which are being read concurrently from
+ * being stored.
+ * <p/>
+ * A request which reads in a transaction can read objects from a snapshot taken when its transaction started, which
+ * can be earlier than the read itself. Such requests should call {@link #beginRequest(QueryOptions)} before their
+ * transaction starts, and obtain stamps from {@link #getInvalidationStamp(Object, QueryOptions)}, so that objects
+ * invalidated at any time since then are not stored.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @param <K> The type of the primary key
+ * @param <O> The type of the objects cached
+ */
+public class ObjectCache<K, O> {
+
+    static final int INVALIDATION_STRIPES = 1024;
+    static final int READ_BUFFER_DRAIN_THRESHOLD = 64;
+    static final int READ_BUFFER_MAX_SIZE = 4096;
+
+    final int maximumSize;
+    final int maxWindowSize;
+    final int maxProtectedSize;
+
+    // The objects cached, which can be read without locking...
+    final ConcurrentHashMap<K, O> data = new ConcurrentHashMap<K, O>();
+
+    // The following are guarded by policyLock. Insertion-ordered, and re-inserted on access, so that iteration
+    // starts from the least recently used key...
+    final ReentrantLock policyLock = new ReentrantLock();
+    final LinkedHashMap<K, Boolean> window = new LinkedHashMap<K, Boolean>();
+    final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<K, Boolean>();
+    final LinkedHashMap<K, Boolean> protectedSegment = new LinkedHashMap<K, Boolean>();
+    final FrequencySketch frequencySketch;
+
+    // Keys which were read, and which have not yet been applied to the policy...
+    final Queue<K> readBuffer = new ConcurrentLinkedQueue<K>();
+    final AtomicInteger readBufferSize = new AtomicInteger();
+
+    // Incremented on every invalidation. Each stripe holds the epoch of the latest invalidation of a key in the
+    // stripe, so that objects read before an invalidation are not stored after it...
+    final AtomicLong invalidationEpoch = new AtomicLong();
+    final AtomicLongArray invalidationStamps = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    // The key under which the invalidation epoch when a request began is stored in its query options...
+    final Object requestEpochKey = new Object();
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize The maximum number of objects to cache
+     */
+    public ObjectCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum size for cache: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.maxWindowSize = Math.max(1, maximumSize / 100);
+        this.maxProtectedSize = (int) ((maximumSize - maxWindowSize) * 0.8);
+        this.frequencySketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the object cached for the given primary key, and records the access.
+     *
+     * @param key The primary key
+     * @return The object cached for the given primary key, or null if no object is cached for it
+     */
+    public O get(K key) {
+        O object = data.get(key);
+        if (object == null) {
+            misses.increment();
+        }
+        else {
+            hits.increment();
+        }
+        recordAccess(key);
+        return object;
+    }
+
+    /**
+     * Returns a stamp which should be read before reading the object for the given primary key from SQLite, and
+     * later supplied to {@link #putIfNotInvalidatedSince(Object, Object, long)}.
+     *
+     * @param key The primary key
+     */
+    public long getInvalidationStamp(K key) {
+        return invalidationStamps.get(stripeOf(key));
+    }
+
+    /**
+     * Returns a stamp which should be supplied to {@link #putIfNotInvalidatedSince(Object, Object, long)} when storing
+     * an object read by the given request. If {@link #beginRequest(QueryOptions)} was called for the request, objects
+     * for primary keys invalidated since then will be rejected; otherwise this is the same as
+     * {@link #getInvalidationStamp(Object)}.
+     *
+     * @param key The primary key
+     * @param queryOptions The query options for the request
+     */
+    public long getInvalidationStamp(K key, QueryOptions queryOptions) {
+        Long requestEpoch = (Long) queryOptions.get(requestEpochKey);
+        return requestEpoch != null ? requestEpoch : getInvalidationStamp(key);
+    }
+
+    /**
+     * Records in the given query options the current invalidation epoch, before the request starts a transaction in
+     * which it may read objects from a snapshot. Has no effect if the request has already begun.
+     *
+     * @param queryOptions The query options for the request
+     */
+    public void beginRequest(QueryOptions queryOptions) {
+        if (queryOptions.get(requestEpochKey) == null) {
+            queryOptions.put(requestEpochKey, invalidationEpoch.get());
+        }
+    }
+
+    /**
+     * Removes the invalidation epoch recorded by {@link #beginRequest(QueryOptions)} from the given query options,
+     * after the request's transaction has ended.
+     *
+     * @param queryOptions The query options for the request
+     */
+    public void endRequest(QueryOptions queryOptions) {
+        queryOptions.remove(requestEpochKey);
+    }
+
+    /**
+     * Stores the given object, which was read from SQLite, for the given primary key, unless the primary key has
+     * been invalidated since the given stamp was obtained.
+     *
+     * @param key The primary key
+     * @param object The object read
+     * @param invalidationStamp The stamp returned by {@link #getInvalidationStamp(Object)} before the object was read,
+     * or by {@link #getInvalidationStamp(Object, QueryOptions)} for the request which read it
+     * @return True if the object was stored, false if the primary key had been invalidated in the meantime
+     */
+    public boolean putIfNotInvalidatedSince(K key, O object, long invalidationStamp) {
+        Eviction<K, O> eviction = null;
+        policyLock.lock();
+        try {
+            drainReadBuffer();
+            // Invalidations advance the stamp before acquiring the lock to remove the object, so the object is
+            // either rejected here, or stored and then removed by the invalidation...
+            if (invalidationStamps.get(stripeOf(key)) > invalidationStamp) {
+                return false;
+            }
+            if (data.put(key, object) == null) {
+                window.put(key, Boolean.TRUE);
+                if (window.size() > maxWindowSize) {
+                    eviction = evictFromWindow();
+                }
+            }
+        }
+        finally {
+            policyLock.unlock();
+        }
+        if (eviction != null) {
+            // Notify subclasses without holding the lock, so that they do not block other threads...
+            onEviction(eviction.key, eviction.object, eviction.invalidationStamp);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the object cached for the given primary key, if any.
+     *
+     * @param key The primary key
+     */
+    public void invalidate(K key) {
+        advanceInvalidationStamp(stripeOf(key));
+        policyLock.lock();
+        try {
+            if (data.remove(key) != null) {
+                if (window.remove(key) == null && probation.remove(key) == null) {
+                    protectedSegment.remove(key);
+                }
+            }
+            // Advance the stamp again, in case the object was evicted before the lock was acquired and has not yet
+            // been passed to onEviction()...
+            advanceInvalidationStamp(stripeOf(key));
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached objects.
+     */
+    public void invalidateAll() {
+        advanceAllInvalidationStamps();
+        policyLock.lock();
+        try {
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            advanceAllInvalidationStamps();
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the object cached for the given primary key, and records in the given query options that it must be
+     * removed again by {@link #invalidatePendingForRequest(QueryOptions)} once the request has committed.
+     *
+     * @param key The primary key of an object being added or removed by the request
+     * @param queryOptions The query options for the request
+     */
+    public void invalidateForRequest(K key, QueryOptions queryOptions) {
+        invalidate(key);
+        getPendingInvalidations(queryOptions).keys.add(key);
+    }
+
+    /**
+     * Removes all cached objects, and records in the given query options that they must be removed again by
+     * {@link #invalidatePendingForRequest(QueryOptions)} once the request has committed.
+     *
+     * @param queryOptions The query options for the request
+     */
+    public void invalidateAllForRequest(QueryOptions queryOptions) {
+        invalidateAll();
+        getPendingInvalidations(queryOptions).all = true;
+    }
+
+    /**
+     * Removes the objects cached for the primary keys recorded by {@link #invalidateForRequest(Object, QueryOptions)}
+     * or {@link #invalidateAllForRequest(QueryOptions)} in the given query options. This should be called after the
+     * request has committed, so that objects read by other requests before the commit are not retained.
+     *
+     * @param queryOptions The query options for the request
+     */
+    public void invalidatePendingForRequest(QueryOptions queryOptions) {
+        @SuppressWarnings("unchecked")
+        PendingInvalidations<K> pendingInvalidations = (PendingInvalidations<K>) queryOptions.get(this);
+        if (pendingInvalidations == null) {
+            return;
+        }
+        queryOptions.remove(this);
+        if (pendingInvalidations.all) {
+            invalidateAll();
+        }
+        else {
+            for (K key : pendingInvalidations.keys) {
+                invalidate(key);
+            }
+        }
+    }
+
+    PendingInvalidations<K> getPendingInvalidations(QueryOptions queryOptions) {
+        // Keyed by this cache, in case several caches are involved in the same request...
+        @SuppressWarnings("unchecked")
+        PendingInvalidations<K> pendingInvalidations = (PendingInvalidations<K>) queryOptions.get(this);
+        if (pendingInvalidations == null) {
+            pendingInvalidations = new PendingInvalidations<K>();
+            queryOptions.put(this, pendingInvalidations);
+        }
+        return pendingInvalidations;
+    }
+
+    static class PendingInvalidations<K> {
+        final Set<K> keys = new HashSet<K>();
+        boolean all = false;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    void advanceInvalidationStamp(int stripe) {
+        advanceInvalidationStamp(stripe, invalidationEpoch.incrementAndGet());
+    }
+
+    void advanceAllInvalidationStamps() {
+        long epoch = invalidationEpoch.incrementAndGet();
+        for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+            advanceInvalidationStamp(i, epoch);
+        }
+    }
+
+    void advanceInvalidationStamp(int stripe, long epoch) {
+        // Stamps must never go backwards, in case a concurrent invalidation obtained a later epoch first...
+        long stamp;
+        do {
+            stamp = invalidationStamps.get(stripe);
+        } while (stamp < epoch && !invalidationStamps.compareAndSet(stripe, stamp, epoch));
+    }
+
+    static int stripeOf(Object key) {
+        return FrequencySketch.spread(key.hashCode()) & (INVALIDATION_STRIPES - 1);
+    }
+
+    void recordAccess(K key) {
+        if (readBufferSize.get() < READ_BUFFER_MAX_SIZE) {
+            readBuffer.add(key);
+            if (readBufferSize.incrementAndGet() < READ_BUFFER_DRAIN_THRESHOLD) {
+                return;
+            }
+        }
+        // Apply the buffered accesses unless another thread holds the lock, in which case it will do so later...
+        if (policyLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            }
+            finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    // Must be called while holding policyLock...
+    void drainReadBuffer() {
+        K key;
+        while ((key = readBuffer.poll()) != null) {
+            readBufferSize.decrementAndGet();
+            frequencySketch.increment(key);
+            if (window.remove(key) != null) {
+                window.put(key, Boolean.TRUE);
+            }
+            else if (protectedSegment.remove(key) != null) {
+                protectedSegment.put(key, Boolean.TRUE);
+            }
+            else if (probation.remove(key) != null) {
+                promoteToProtected(key);
+            }
+        }
+    }
+
+    // Must be called while holding policyLock...
+    void promoteToProtected(K key) {
+        protectedSegment.put(key, Boolean.TRUE);
+        if (protectedSegment.size() > maxProtectedSize) {
+            // Demote the least recently used protected object back to probation...
+            Iterator<K> iterator = protectedSegment.keySet().iterator();
+            K demoted = iterator.next();
+            iterator.remove();
+            probation.put(demoted, Boolean.TRUE);
+        }
+    }
+
+    // Must be called while holding policyLock. Returns the object evicted, if any...
+    Eviction<K, O> evictFromWindow() {
+        Iterator<K> windowIterator = window.keySet().iterator();
+        K candidate = windowIterator.next();
+        windowIterator.remove();
+        if (probation.size() + protectedSegment.size() < maximumSize - maxWindowSize) {
+            probation.put(candidate, Boolean.TRUE);
+            return null;
+        }
+        evictions.increment();
+        LinkedHashMap<K, Boolean> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        if (victimSegment.isEmpty()) {
+            // The cache is too small to have a main segment, so the candidate is discarded...
+            return evict(candidate);
+        }
+        Iterator<K> victimIterator = victimSegment.keySet().iterator();
+        K victim = victimIterator.next();
+        if (frequencySketch.frequency(candidate) > frequencySketch.frequency(victim)) {
+            victimIterator.remove();
+            probation.put(candidate, Boolean.TRUE);
+            return evict(victim);
+        }
+        else {
+            return evict(candidate);
+        }
+    }
+
+    // Must be called while holding policyLock...
+    Eviction<K, O> evict(K key) {
+        return new Eviction<K, O>(key, data.remove(key), invalidationStamps.get(stripeOf(key)));
+    }
+
+    /**
+     * Called when an object is evicted from the cache to make room for another, after the lock which guards the
+     * eviction policy has been released.
+     * Not called when objects are invalidated. This implementation does nothing; subclasses can override it, for
+     * example to move evicted objects to a slower tier of storage.
+     * <p/>
+     * The object might have been invalidated after it was evicted. Subclasses which retain the object should compare
+     * the given stamp with {@link #getInvalidationStamp(Object)} while holding a lock which they also acquire in
+     * {@link #invalidate(Object)}, and discard the object if the stamps differ.
+     *
+     * @param key The primary key of the evicted object
+     * @param object The evicted object
+     * @param invalidationStamp The invalidation stamp for the key when the object was evicted
+     */
+    protected void onEviction(K key, O object, long invalidationStamp) {
+        // No op
+    }
+
+    static class Eviction<K, O> {
+        final K key;
+        final O object;
+        final long invalidationStamp;
+
+        Eviction(K key, O object, long invalidationStamp) {
+            this.key = key;
+            this.object = object;
+            this.invalidationStamp = invalidationStamp;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectCache{" +
+                "maximumSize=" + maximumSize +
+                ", size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters (held in bytes for simplicity), which estimates how frequently keys have
+     * been accessed. All counters are halved after a number of increments proportional to the size of the cache,
+     * so that the estimates reflect recent accesses.
+     */
+    static class FrequencySketch {
+
+        static final int DEPTH = 4;
+        static final int MAX_COUNT = 15;
+        static final int[] SEEDS = {0x97cb3127, 0xb3ac2e39, 0x6b5f3c49, 0x2e5d1a75};
+
+        final byte[] counters;
+        final int mask;
+        final int resetThreshold;
+        int increments = 0;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) * 2 - 1);
+            this.counters = new byte[width * DEPTH];
+            this.mask = width - 1;
+            this.resetThreshold = (int) Math.min(Integer.MAX_VALUE, 10L * maximumSize);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean incremented = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    incremented = true;
+                }
+            }
+            if (incremented && ++increments >= resetThreshold) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = (byte) (counters[i] >>> 1);
+            }
+            increments /= 2;
+        }
+
+        int indexOf(int hash, int row) {
+            int rowHash = (hash ^ SEEDS[row]) * SEEDS[row];
+            rowHash ^= rowHash >>> 16;
+            return row * (mask + 1) + (rowHash & mask);
+        }
+
+        static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+    }
+}
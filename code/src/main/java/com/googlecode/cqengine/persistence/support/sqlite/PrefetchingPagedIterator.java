@@ -0,0 +1,157 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support.sqlite;
+
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.index.sqlite.SQLiteIdentityIndex;
+import com.googlecode.cqengine.index.sqlite.SQLitePersistence;
+import com.googlecode.cqengine.index.sqlite.support.DBUtils;
+import com.googlecode.cqengine.index.support.CloseableIterator;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An iterator over all of the objects in a {@link SQLiteObjectStore}, which reads them in pages of a fixed size in
+ * ascending order of primary key, rather than through a single statement held open for the whole iteration.
+ * <p/>
+ * Each page is read using its own connection obtained from the persistence, which is closed as soon as the page has
+ * been read. So in WAL mode a long iteration does not keep a read transaction open, which would prevent the WAL
+ * from being checkpointed, and it does not hold a connection while the application processes each page. While the
+ * application consumes one page, the next page is read and deserialized on a background thread.
+ * <p/>
+ * Because each page is read in its own transaction, the iteration does not see a single snapshot of the store.
+ * Objects added or removed concurrently may or may not be returned, depending on whether their primary keys fall
+ * into a page which has already been read. Each object is returned at most once.
+ */
+public class PrefetchingPagedIterator<O, A extends Comparable<A>> extends UnmodifiableIterator<O> implements CloseableIterator<O> {
+
+    static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "cqengine-page-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    final SQLitePersistence<O, A> persistence;
+    final SQLiteIdentityIndex<A, O> backingIndex;
+    final SimpleAttribute<O, A> primaryKeyAttribute;
+    final int fetchSize;
+    final QueryOptions queryOptions;
+
+    Iterator<O> currentPage = Collections.<O>emptyIterator();
+    Future<List<O>> nextPage = null;
+    boolean started = false;
+    volatile boolean closed = false;
+
+    public PrefetchingPagedIterator(SQLitePersistence<O, A> persistence, SQLiteIdentityIndex<A, O> backingIndex, int fetchSize, QueryOptions queryOptions) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+        }
+        this.persistence = persistence;
+        this.backingIndex = backingIndex;
+        this.primaryKeyAttribute = persistence.getPrimaryKeyAttribute();
+        this.fetchSize = fetchSize;
+        this.queryOptions = queryOptions;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            // Read the first page on the calling thread...
+            started = true;
+            startPage(readPage(null));
+        }
+        while (!currentPage.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            List<O> page = awaitNextPage();
+            nextPage = null;
+            startPage(page);
+        }
+        return true;
+    }
+
+    @Override
+    public O next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    /**
+     * Stops the iteration, abandoning any page which is being read in the background. A background read in progress
+     * completes and closes its connection by itself.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+        currentPage = Collections.<O>emptyIterator();
+    }
+
+    void startPage(List<O> page) {
+        if (closed) {
+            return;
+        }
+        currentPage = page.iterator();
+        if (page.size() == fetchSize) {
+            // There may be more objects, so start reading the next page in the background...
+            final A lastPrimaryKey = primaryKeyAttribute.getValue(page.get(page.size() - 1), queryOptions);
+            nextPage = PREFETCH_EXECUTOR.submit(() -> readPage(lastPrimaryKey));
+        }
+    }
+
+    List<O> readPage(A afterPrimaryKey) {
+        Connection connection = persistence.getConnection(backingIndex, queryOptions);
+        try {
+            return backingIndex.retrievePage(afterPrimaryKey, fetchSize, connection);
+        }
+        finally {
+            DBUtils.closeQuietly(connection);
+        }
+    }
+
+    List<O> awaitNextPage() {
+        try {
+            return nextPage.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next page of objects", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Failed to read the next page of objects", cause);
+        }
+    }
+}
@@ -33,6 +33,10 @@ public class SQLiteDiskIdentityIndex<A extends Comparable<A>, O> extends SQLiteI
         super(primaryKeyAttribute);
     }
 
+    public SQLiteDiskIdentityIndex(SimpleAttribute<O, A> primaryKeyAttribute, ObjectCache<A, O> objectCache) {
+        super(primaryKeyAttribute, objectCache);
+    }
+
     @Override
     public Index<O> getEffectiveIndex() {
         return this;
@@ -49,4 +53,18 @@ public class SQLiteDiskIdentityIndex<A extends Comparable<A>, O> extends SQLiteI
     public static <A extends Comparable<A>, O> SQLiteDiskIdentityIndex<A, O> onAttribute(final SimpleAttribute<O, A> primaryKeyAttribute) {
         return new SQLiteDiskIdentityIndex<A, O>(primaryKeyAttribute);
     }
+
+    /**
+     * Creates a new {@link SQLiteDiskIdentityIndex} for the given primary key attribute, which caches objects
+     * retrieved by primary key in the given {@link ObjectCache}.
+     *
+     * @param primaryKeyAttribute The {@link SimpleAttribute} representing a primary key on which the index will be built.
+     * @param objectCache The cache in which to cache objects retrieved by primary key
+     * @param <A> The type of the attribute.
+     * @param <O> The type of the object containing the attributes.
+     * @return a new instance of {@link SQLiteDiskIdentityIndex}
+     */
+    public static <A extends Comparable<A>, O> SQLiteDiskIdentityIndex<A, O> onAttributeWithCache(final SimpleAttribute<O, A> primaryKeyAttribute, final ObjectCache<A, O> objectCache) {
+        return new SQLiteDiskIdentityIndex<A, O>(primaryKeyAttribute, objectCache);
+    }
 }
@@ -39,12 +39,23 @@ public class SQLiteObjectStore<O, A extends Comparable<A>> implements ObjectStor
     final SQLiteIdentityIndex<A, O> backingIndex;
     final SimpleAttribute<O, A> primaryKeyAttribute;
     final Class<O> objectType;
+    final int fetchSize;
 
     public SQLiteObjectStore(final SQLitePersistence<O, A> persistence) {
+        this(persistence, 0);
+    }
+
+    /**
+     * @param persistence The persistence in which objects are stored
+     * @param fetchSize If greater than zero, {@link #iterator(QueryOptions)} reads objects in pages of this size, using
+     * a {@link PrefetchingPagedIterator}; otherwise it reads all objects through a single statement
+     */
+    public SQLiteObjectStore(final SQLitePersistence<O, A> persistence, final int fetchSize) {
         this.persistence = persistence;
         this.objectType = persistence.getPrimaryKeyAttribute().getObjectType();
         this.primaryKeyAttribute = persistence.getPrimaryKeyAttribute();
         this.backingIndex = persistence.createIdentityIndex();
+        this.fetchSize = fetchSize;
     }
 
     public void init(QueryOptions queryOptions) {
@@ -74,6 +85,9 @@ public class SQLiteObjectStore<O, A extends Comparable<A>> implements ObjectStor
 
     @Override
     public CloseableIterator<O> iterator(QueryOptions queryOptions) {
+        if (fetchSize > 0) {
+            return new PrefetchingPagedIterator<O, A>(persistence, backingIndex, fetchSize, queryOptions);
+        }
         final ResultSet<O> rs = backingIndex.retrieve(has(primaryKeyAttribute), queryOptions);
         final Iterator<O> i = rs.iterator();
         class CloseableIteratorImpl extends UnmodifiableIterator<O> implements CloseableIterator<O> {
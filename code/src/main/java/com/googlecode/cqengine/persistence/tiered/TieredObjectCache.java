@@ -0,0 +1,364 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.tiered;
+
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.index.sqlite.SQLiteIdentityIndex;
+import com.googlecode.cqengine.persistence.support.serialization.PojoSerializer;
+import com.googlecode.cqengine.persistence.support.sqlite.ObjectCache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link ObjectCache} which keeps the objects it evicts from the heap in a second, larger tier off-heap, from
+ * which they are promoted back onto the heap when they are next accessed. Objects evicted from the off-heap tier are
+ * discarded, in least recently demoted order, and must then be read from disk again.
+ * <p/>
+ * An object is held in at most one of the two tiers at a time. The off-heap tier holds each demoted object serialized
+ * by the {@link PojoSerializer} configured for the object type, in a direct {@link ByteBuffer} keyed by its primary
+ * key. Each off-heap entry records the invalidation stamp of its key when it was evicted from the heap, and is only
+ * promoted if its key has not been invalidated since, so the coherence guarantees of {@link ObjectCache} apply to
+ * both tiers. Invalidating an object also removes it from the off-heap tier, to release its memory.
+ * <p/>
+ * Objects evicted from the heap are demoted on a background thread, so that threads which read objects do not
+ * serialize the objects they cause to be evicted. Until it is demoted, an evicted object can be promoted back onto the
+ * heap directly from the queue of objects awaiting demotion.
+ * <p/>
+ * This class is thread-safe. The off-heap tier is split into stripes by primary key, each guarded by its own lock,
+ * which is never acquired while holding the lock which guards the heap tier. Small off-heap tiers have a single
+ * stripe; larger ones have up to {@link #MAX_OFF_HEAP_STRIPES} stripes, each of which holds an equal share of the
+ * capacity and evicts in least recently demoted order independently.
+ *
+ * @param <O> The type of the objects cached
+ * @param <A> The type of the primary key
+ */
+public class TieredObjectCache<O, A extends Comparable<A>> extends ObjectCache<A, O> {
+
+    static final int MAX_OFF_HEAP_STRIPES = 16;
+    static final int MIN_OFF_HEAP_STRIPE_CAPACITY = 1024;
+
+    static final ExecutorService DEMOTION_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cqengine-tiered-demotion");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    final SimpleAttribute<O, A> primaryKeyAttribute;
+    final int offHeapCapacity;
+    final PojoSerializer<O> serializer;
+    final OffHeapStripe<A>[] offHeapStripes;
+    final AtomicInteger offHeapSize = new AtomicInteger();
+
+    // Objects evicted from the heap which have not yet been demoted, by primary key and in order of eviction...
+    final ConcurrentHashMap<A, Demotion<A, O>> pendingDemotions = new ConcurrentHashMap<A, Demotion<A, O>>();
+    final ConcurrentLinkedQueue<Demotion<A, O>> demotionQueue = new ConcurrentLinkedQueue<Demotion<A, O>>();
+    final AtomicBoolean demotionScheduled = new AtomicBoolean();
+    final ReentrantLock demotionLock = new ReentrantLock();
+    volatile boolean closed = false;
+
+    final LongAdder offHeapHits = new LongAdder();
+    final LongAdder demotions = new LongAdder();
+    final LongAdder offHeapEvictions = new LongAdder();
+
+    /**
+     * @param primaryKeyAttribute An attribute which returns the primary key of objects in the collection
+     * @param heapCapacity The maximum number of objects to keep on the heap
+     * @param offHeapCapacity The maximum number of objects to keep off-heap
+     */
+    @SuppressWarnings("unchecked")
+    public TieredObjectCache(SimpleAttribute<O, A> primaryKeyAttribute, int heapCapacity, int offHeapCapacity) {
+        super(heapCapacity);
+        if (offHeapCapacity < 1) {
+            throw new IllegalArgumentException("Invalid off-heap capacity for cache: " + offHeapCapacity);
+        }
+        this.primaryKeyAttribute = primaryKeyAttribute;
+        this.offHeapCapacity = offHeapCapacity;
+        this.serializer = SQLiteIdentityIndex.createSerializer(primaryKeyAttribute.getObjectType());
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_OFF_HEAP_STRIPES, offHeapCapacity / MIN_OFF_HEAP_STRIPE_CAPACITY)));
+        this.offHeapStripes = new OffHeapStripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            offHeapStripes[i] = new OffHeapStripe<A>((offHeapCapacity + stripeCount - 1) / stripeCount);
+        }
+    }
+
+    /**
+     * Returns the object cached on the heap for the given primary key, or otherwise the object held off-heap or
+     * awaiting demotion for it, which is promoted back onto the heap.
+     *
+     * @param key The primary key
+     * @return The object cached in either tier for the given primary key, or null if neither tier holds it
+     */
+    @Override
+    public O get(A key) {
+        O object = super.get(key);
+        if (object != null) {
+            return object;
+        }
+        final long invalidationStamp;
+        Demotion<A, O> demotion = pendingDemotions.remove(key);
+        if (demotion != null) {
+            object = demotion.object;
+            invalidationStamp = demotion.invalidationStamp;
+        }
+        else {
+            OffHeapEntry entry = takeFromOffHeap(key);
+            if (entry == null) {
+                return null;
+            }
+            object = serializer.deserialize(entry.read());
+            invalidationStamp = entry.invalidationStamp;
+        }
+        // Promote the object only if its key has not been invalidated since it was evicted from the heap...
+        if (!putIfNotInvalidatedSince(key, object, invalidationStamp)) {
+            return null;
+        }
+        offHeapHits.increment();
+        return object;
+    }
+
+    /**
+     * Removes the object cached for the given primary key from both tiers, if any.
+     *
+     * @param key The primary key
+     */
+    @Override
+    public void invalidate(A key) {
+        super.invalidate(key);
+        pendingDemotions.remove(key);
+        takeFromOffHeap(key);
+    }
+
+    /**
+     * Removes all objects cached in both tiers.
+     */
+    @Override
+    public void invalidateAll() {
+        super.invalidateAll();
+        pendingDemotions.clear();
+        for (OffHeapStripe<A> stripe : offHeapStripes) {
+            synchronized (stripe) {
+                offHeapSize.addAndGet(-stripe.entries.size());
+                stripe.entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Queues the evicted object to be demoted to the off-heap tier on a background thread.
+     */
+    @Override
+    protected void onEviction(A key, O object, long invalidationStamp) {
+        if (closed) {
+            return;
+        }
+        Demotion<A, O> demotion = new Demotion<A, O>(key, object, invalidationStamp);
+        pendingDemotions.put(key, demotion);
+        demotionQueue.add(demotion);
+        if (demotionScheduled.compareAndSet(false, true)) {
+            DEMOTION_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    demotionScheduled.set(false);
+                    drainDemotions();
+                }
+            });
+        }
+    }
+
+    /**
+     * Demotes the objects awaiting demotion to the off-heap tier on the calling thread, after waiting for any
+     * demotions in progress on the background thread to complete. Statistics about the off-heap tier are exact after
+     * this returns, until more objects are evicted from the heap.
+     */
+    public void drainDemotions() {
+        demotionLock.lock();
+        try {
+            Demotion<A, O> demotion;
+            while ((demotion = demotionQueue.poll()) != null) {
+                // Skip objects which were promoted, invalidated or evicted again while awaiting demotion...
+                if (pendingDemotions.remove(demotion.key, demotion)) {
+                    demote(demotion.key, serializer.serialize(demotion.object), demotion.invalidationStamp);
+                }
+            }
+        }
+        finally {
+            demotionLock.unlock();
+        }
+    }
+
+    /**
+     * Stores the serialized object in the off-heap tier, evicting the least recently demoted object from its stripe
+     * if the stripe is full. The object is discarded if it was invalidated after it was evicted from the heap.
+     */
+    void demote(A key, byte[] serializedObject, long invalidationStamp) {
+        OffHeapStripe<A> stripe = stripeOf(key);
+        synchronized (stripe) {
+            // Invalidations update the stamp before removing the key from the off-heap tier, which they do while
+            // synchronized on its stripe, so either the object is discarded here or it is removed by the invalidation...
+            if (closed || getInvalidationStamp(key) != invalidationStamp) {
+                return;
+            }
+            if (stripe.entries.put(key, new OffHeapEntry(serializedObject, invalidationStamp)) == null) {
+                offHeapSize.incrementAndGet();
+            }
+            demotions.increment();
+            if (stripe.entries.size() > stripe.capacity) {
+                Iterator<Map.Entry<A, OffHeapEntry>> eldest = stripe.entries.entrySet().iterator();
+                eldest.next();
+                eldest.remove();
+                offHeapSize.decrementAndGet();
+                offHeapEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes the entry held off-heap for the given primary key, if any, and returns it.
+     */
+    OffHeapEntry takeFromOffHeap(A key) {
+        OffHeapStripe<A> stripe = stripeOf(key);
+        synchronized (stripe) {
+            OffHeapEntry entry = stripe.entries.remove(key);
+            if (entry != null) {
+                offHeapSize.decrementAndGet();
+            }
+            return entry;
+        }
+    }
+
+    OffHeapStripe<A> stripeOf(A key) {
+        int hash = key.hashCode();
+        return offHeapStripes[(hash ^ (hash >>> 16)) & (offHeapStripes.length - 1)];
+    }
+
+    /**
+     * Releases the memory used by the off-heap tier. The cache can no longer be used afterwards.
+     */
+    public void close() {
+        closed = true;
+        pendingDemotions.clear();
+        demotionQueue.clear();
+        for (OffHeapStripe<A> stripe : offHeapStripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+            }
+        }
+        offHeapSize.set(0);
+    }
+
+    public int getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    /**
+     * @return The number of objects held off-heap, excluding objects awaiting demotion
+     */
+    public int getOffHeapSize() {
+        return offHeapSize.get();
+    }
+
+    /**
+     * @return The number of objects which were not found on the heap but were promoted from the off-heap tier, or
+     * while awaiting demotion to it. These are also counted by {@link #getMissCount()}, which counts misses on the
+     * heap.
+     */
+    public long getOffHeapHitCount() {
+        return offHeapHits.sum();
+    }
+
+    /**
+     * @return The number of objects which were found in neither tier, and so had to be read from disk
+     */
+    public long getDiskReadCount() {
+        return getMissCount() - getOffHeapHitCount();
+    }
+
+    public long getDemotionCount() {
+        return demotions.sum();
+    }
+
+    public long getOffHeapEvictionCount() {
+        return offHeapEvictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TieredObjectCache{" +
+                "heapCapacity=" + getMaximumSize() +
+                ", offHeapCapacity=" + offHeapCapacity +
+                '}';
+    }
+
+    /**
+     * A stripe of the off-heap tier, whose entries are guarded by synchronizing on the stripe.
+     */
+    static class OffHeapStripe<A> {
+        final int capacity;
+        // The entries in the order in which they were demoted...
+        final LinkedHashMap<A, OffHeapEntry> entries = new LinkedHashMap<A, OffHeapEntry>();
+
+        OffHeapStripe(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * A serialized object held in a direct buffer outside of the Java heap.
+     */
+    static class OffHeapEntry {
+        final ByteBuffer buffer;
+        final long invalidationStamp;
+
+        OffHeapEntry(byte[] serializedObject, long invalidationStamp) {
+            this.buffer = ByteBuffer.allocateDirect(serializedObject.length);
+            this.buffer.put(serializedObject).flip();
+            this.invalidationStamp = invalidationStamp;
+        }
+
+        byte[] read() {
+            byte[] serializedObject = new byte[buffer.remaining()];
+            buffer.duplicate().get(serializedObject);
+            return serializedObject;
+        }
+    }
+
+    static class Demotion<A, O> {
+        final A key;
+        final O object;
+        final long invalidationStamp;
+
+        Demotion(A key, O object, long invalidationStamp) {
+            this.key = key;
+            this.object = object;
+            this.invalidationStamp = invalidationStamp;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.tiered;
+
+import com.googlecode.cqengine.attribute.SimpleAttribute;
+import com.googlecode.cqengine.persistence.composite.CompositePersistence;
+import com.googlecode.cqengine.persistence.disk.DiskPersistence;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Specifies that a collection should be persisted to a file on disk, while the objects which are accessed most
+ * often are kept on the Java heap, and the objects which are accessed less often are kept off-heap, so that
+ * neither have to be read from disk when they are accessed again.
+ * <p/>
+ * Unlike {@link CompositePersistence}, which fixes the persistence in which each object is stored, objects here
+ * move between tiers according to how they are accessed:
+ * <ul>
+ *     <li>
+ *         The <b>heap</b> tier holds up to {@code heapCapacity} deserialized objects, admitted and evicted
+ *         according to the W-TinyLFU policy of {@link com.googlecode.cqengine.persistence.support.sqlite.ObjectCache}.
+ *     </li>
+ *     <li>
+ *         Objects evicted from the heap are demoted to the <b>off-heap</b> tier, which holds up to
+ *         {@code offHeapCapacity} serialized objects in direct byte buffers, keyed by primary key. Objects are
+ *         demoted on a background thread, and objects accessed while off-heap are promoted back onto the heap.
+ *         Objects evicted from the off-heap tier are discarded.
+ *     </li>
+ *     <li>
+ *         The <b>disk</b> tier always holds every object in the collection, as with {@link DiskPersistence},
+ *         and objects which are in neither of the other tiers are read from it.
+ *     </li>
+ * </ul>
+ * Because the disk tier is authoritative, indexes do not need to track which tier holds an object. Indexes must be
+ * disk indexes (see {@link com.googlecode.cqengine.index.disk.DiskIndex}), which store primary keys and materialize
+ * objects by primary key, via the heap and off-heap tiers. Objects added, removed or updated via the collection are
+ * removed from the heap and off-heap tiers, so they stay consistent with the disk tier and its indexes.
+ * <p/>
+ * All of the properties supported by {@link DiskPersistence} are supported, except that {@code object_cache_size}
+ * is superseded by the capacities of the heap and off-heap tiers. Statistics about the tiers can be read via
+ * {@link #getObjectCache()}. Note that objects on the heap tier are shared between requests, so the application
+ * must not mutate objects it retrieves. It is recommended to call {@link #close()} when the application is
+ * finished using the collection, to release the memory used by the off-heap tier.
+ *
+ * @param <O> The type of the objects in the collection
+ * @param <A> The type of the primary key
+ */
+public class TieredPersistence<O, A extends Comparable<A>> extends DiskPersistence<O, A> {
+
+    final TieredObjectCache<O, A> tieredObjectCache;
+
+    protected TieredPersistence(SimpleAttribute<O, A> primaryKeyAttribute, File file, Properties overrideProperties, TieredObjectCache<O, A> tieredObjectCache) {
+        super(primaryKeyAttribute, file, overrideProperties, tieredObjectCache);
+        this.tieredObjectCache = tieredObjectCache;
+    }
+
+    /**
+     * @return The heap and off-heap tiers, from which statistics about the tiers can be read
+     */
+    @Override
+    public TieredObjectCache<O, A> getObjectCache() {
+        return tieredObjectCache;
+    }
+
+    /**
+     * Closes the disk tier as described in {@link DiskPersistence#close()}, and releases the memory used by the
+     * off-heap tier.
+     */
+    @Override
+    public void close() {
+        super.close();
+        tieredObjectCache.close();
+    }
+
+    @Override
+    public String toString() {
+        return "TieredPersistence{" +
+                "primaryKeyAttribute=" + getPrimaryKeyAttribute() +
+                ", file=" + getFile() +
+                ", objectCache=" + tieredObjectCache +
+                '}';
+    }
+
+    /**
+     * Creates a {@link TieredPersistence} object which persists to a temp file on disk.
+     *
+     * @param primaryKeyAttribute An attribute which returns the primary key of objects in the collection
+     * @param heapCapacity The maximum number of objects to keep on the heap
+     * @param offHeapCapacity The maximum number of objects to keep off-heap
+     * @return A {@link TieredPersistence} object which persists to a temp file on disk
+     */
+    public static <O, A extends Comparable<A>> TieredPersistence<O, A> onPrimaryKey(SimpleAttribute<O, A> primaryKeyAttribute, int heapCapacity, int offHeapCapacity) {
+        return TieredPersistence.onPrimaryKeyInFile(primaryKeyAttribute, createTempFile(), heapCapacity, offHeapCapacity);
+    }
+
+    /**
+     * Creates a {@link TieredPersistence} object which persists to a given file on disk.
+     *
+     * @param primaryKeyAttribute An attribute which returns the primary key of objects in the collection
+     * @param file The file on disk to which data should be persisted
+     * @param heapCapacity The maximum number of objects to keep on the heap
+     * @param offHeapCapacity The maximum number of objects to keep off-heap
+     * @return A {@link TieredPersistence} object which persists to the given file on disk
+     */
+    public static <O, A extends Comparable<A>> TieredPersistence<O, A> onPrimaryKeyInFile(SimpleAttribute<O, A> primaryKeyAttribute, File file, int heapCapacity, int offHeapCapacity) {
+        return TieredPersistence.onPrimaryKeyInFileWithProperties(primaryKeyAttribute, file, heapCapacity, offHeapCapacity, new Properties());
+    }
+
+    /**
+     * Creates a {@link TieredPersistence} object which persists to a given file on disk.
+     *
+     * @param primaryKeyAttribute An attribute which returns the primary key of objects in the collection
+     * @param file The file on disk to which data should be persisted
+     * @param heapCapacity The maximum number of objects to keep on the heap
+     * @param offHeapCapacity The maximum number of objects to keep off-heap
+     * @param overrideProperties Optional properties to override default settings of the disk tier (can be empty to
+     *                           use all default settings, but cannot be null)
+     * @return A {@link TieredPersistence} object which persists to the given file on disk
+     */
+    public static <O, A extends Comparable<A>> TieredPersistence<O, A> onPrimaryKeyInFileWithProperties(SimpleAttribute<O, A> primaryKeyAttribute, File file, int heapCapacity, int offHeapCapacity, Properties overrideProperties) {
+        TieredObjectCache<O, A> tieredObjectCache = new TieredObjectCache<O, A>(primaryKeyAttribute, heapCapacity, offHeapCapacity);
+        return new TieredPersistence<O, A>(primaryKeyAttribute, file, overrideProperties, tieredObjectCache);
+    }
+}
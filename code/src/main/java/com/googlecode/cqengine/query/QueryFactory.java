@@ -645,6 +645,18 @@ public class QueryFactory {
         return new ArgumentValidationOption(strategy);
     }
 
+    /**
+     * Creates an {@link ApproximateCountOption} query option, which when supplied to the query engine allows the
+     * sizes of intersections and unions of results to be estimated by sampling, within the given error bounds.
+     *
+     * @param maxError The maximum error of the estimated fraction of sampled objects which match, for example 0.01
+     * @param confidence The probability that the error will not exceed {@code maxError}, for example 0.95
+     * @return An {@link ApproximateCountOption} query option
+     */
+    public static ApproximateCountOption approximateCount(double maxError, double confidence) {
+        return new ApproximateCountOption(maxError, confidence);
+    }
+
     /**
      * A convenience method to encapsulate several objects together as {@link com.googlecode.cqengine.query.option.QueryOptions},
      * where the class of the object will become its key in the QueryOptions map.
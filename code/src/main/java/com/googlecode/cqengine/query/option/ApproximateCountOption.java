@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.query.option;
+
+/**
+ * An option which allows the {@code size()} of intersections and unions of result sets to be estimated by sampling,
+ * instead of being counted exactly.
+ * <p/>
+ * The size of an intersection is estimated by probing a systematic sample of the objects in its smallest underlying
+ * result set, whose size is read from the index, and scaling the fraction of sampled objects which are contained in
+ * the other result sets. Unions are estimated similarly, for each underlying result set in turn. The number of objects
+ * sampled is chosen so that, with the given confidence, the estimated fraction is within {@code maxError} of the
+ * actual fraction; that is, the estimate is within {@code maxError} multiplied by the size of the result set sampled.
+ * Result sets which are no larger than the sample size are counted exactly.
+ */
+public class ApproximateCountOption {
+
+    private final double maxError;
+    private final double confidence;
+    private final int sampleSize;
+
+    /**
+     * Creates a new {@link ApproximateCountOption}.
+     *
+     * @param maxError The maximum error of the estimated fraction of objects sampled which match, between 0 and 1
+     * exclusive, for example 0.01
+     * @param confidence The probability that the error will not exceed {@code maxError}, between 0 and 1 exclusive,
+     * for example 0.95
+     */
+    public ApproximateCountOption(double maxError, double confidence) {
+        if (!(maxError > 0.0 && maxError < 1.0)) {
+            throw new IllegalArgumentException("The max error must be between 0 and 1 exclusive: " + maxError);
+        }
+        if (!(confidence > 0.0 && confidence < 1.0)) {
+            throw new IllegalArgumentException("The confidence must be between 0 and 1 exclusive: " + confidence);
+        }
+        this.maxError = maxError;
+        this.confidence = confidence;
+        // The worst-case sample size to estimate a proportion, which occurs when the proportion is 0.5...
+        double z = standardNormalQuantile(1.0 - (1.0 - confidence) / 2.0);
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, Math.ceil(z * z * 0.25 / (maxError * maxError)));
+    }
+
+    public double getMaxError() {
+        return maxError;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return The number of objects which will be sampled from a result set to estimate the fraction which match
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns an approximation of the quantile function of the standard normal distribution, accurate to within
+     * 4.5e-4 (Abramowitz and Stegun, formula 26.2.23).
+     */
+    static double standardNormalQuantile(double p) {
+        if (p < 0.5) {
+            return -standardNormalQuantile(1.0 - p);
+        }
+        double t = Math.sqrt(-2.0 * Math.log(1.0 - p));
+        return t - (2.515517 + 0.802853 * t + 0.010328 * t * t) / (1.0 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+    }
+
+    /**
+     * Utility method to extract an {@link ApproximateCountOption} object from the query options provided.
+     *
+     * @param queryOptions The query options to check, which may be null
+     * @return The {@link ApproximateCountOption} in the given query options, or null if there is none
+     */
+    public static ApproximateCountOption get(QueryOptions queryOptions) {
+        return queryOptions == null ? null : queryOptions.get(ApproximateCountOption.class);
+    }
+
+    @Override
+    public String toString() {
+        return "approximateCount(" + maxError + ", " + confidence + ")";
+    }
+}
@@ -77,5 +77,16 @@ public enum EngineFlags {
      * ordering. This will improve retrieval speed, at the expense of allowing the relative ordering of objects having
      * one attribute value in common, and having other differing attribute values, to be slightly inexact.
      */
-    INDEX_ORDERING_ALLOW_FAST_ORDERING_OF_MULTI_VALUED_ATTRIBUTES
+    INDEX_ORDERING_ALLOW_FAST_ORDERING_OF_MULTI_VALUED_ATTRIBUTES,
+
+    /**
+     * A flag which can be supplied to {@link com.googlecode.cqengine.engine.QueryEngine#explain} to request that the
+     * query is actually evaluated, so that the {@link com.googlecode.cqengine.explain.QueryPlan} returned will include
+     * the actual number of rows returned and the time taken, for the query overall and for each node in the plan.
+     * <p/>
+     * This is equivalent to <code>EXPLAIN ANALYZE</code> in some SQL databases. Note that the cost of evaluating the
+     * plan this way can be considerably higher than the cost of evaluating the query itself, because every node in
+     * the plan is evaluated independently.
+     */
+    EXPLAIN_ANALYZE
 }
@@ -45,7 +45,21 @@ public enum EngineThresholds {
      * then it will use an index to order results. When query selectivity is higher than this threshold then it will
      * retrieve all results and order them afterwards.
      */
-    INDEX_ORDERING_SELECTIVITY(0.0);
+    INDEX_ORDERING_SELECTIVITY(0.0),
+
+    /**
+     * The cost of probing a foreign collection once to evaluate an
+     * {@link com.googlecode.cqengine.query.simple.ExistsIn} query for a single object, relative to the cost of
+     * visiting one object during a scan or looking up one key in a hash set.
+     * <p/>
+     * CQEngine uses this threshold, together with the cardinalities of both collections, to choose the strategy to
+     * join the collections: probing the foreign collection once per local object, building a set of foreign keys and
+     * scanning the local collection (a hash semi-join), or building a set of foreign keys and retrieving the local
+     * objects having those keys from an index on the local key attribute.
+     * <p/>
+     * Increasing this threshold favours the strategies which build a set of foreign keys.
+     */
+    JOIN_PROBE_COST(10.0);
 
     final double thresholdDefault;
 
@@ -52,6 +52,25 @@ final IndexedCollection<F> foreignCollection;
         this.foreignRestrictions = foreignRestrictions; // ..this may be null
     }
 
+    public IndexedCollection<F> getForeignCollection() {
+        return foreignCollection;
+    }
+
+    public Attribute<O, A> getLocalKeyAttribute() {
+        return localKeyAttribute;
+    }
+
+    public Attribute<F, A> getForeignKeyAttribute() {
+        return foreignKeyAttribute;
+    }
+
+    /**
+     * @return The restrictions applied to objects in the foreign collection, or null if there are none
+     */
+    public Query<F> getForeignRestrictions() {
+        return foreignRestrictions;
+    }
+
     @Override
     protected boolean matchesSimpleAttribute(SimpleAttribute<O, A> attribute, O object, QueryOptions queryOptions) {
         A localValue = attribute.getValue(object, queryOptions);
@@ -21,7 +21,9 @@ import com.googlecode.cqengine.resultset.common.NoSuchObjectException;
 import com.googlecode.cqengine.resultset.common.NonUniqueObjectException;
 
 import java.io.Closeable;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.Stream;
@@ -54,6 +56,28 @@ public abstract class ResultSet<O> implements Iterable<O>, Closeable {
      */
     public abstract boolean contains(O object);
 
+    /**
+     * Checks which of the given objects this {@link ResultSet} contains, as if by calling {@link #contains(Object)} for
+     * each of them.
+     * <p/>
+     * The default implementation does exactly that. {@code ResultSet}s whose {@link #contains(Object)} method must
+     * query an external data store, such as those returned by SQLite-backed indexes, override this to check the
+     * entire batch in a small number of round trips.
+     *
+     * @param objects The objects to check for containment in this {@link ResultSet}
+     * @return A {@link BitSet} in which the bit at index <i>i</i> is set if this {@link ResultSet} contains the object
+     * at index <i>i</i> in the given list
+     */
+    public BitSet containsAll(List<O> objects) {
+        BitSet contained = new BitSet(objects.size());
+        for (int i = 0, size = objects.size(); i < size; i++) {
+            if (contains(objects.get(i))) {
+                contained.set(i);
+            }
+        }
+        return contained;
+    }
+
     /**
      * Similar to the {@link #contains(Object)} method, but checks for logical containment in the ResultSet as opposed
      * to physical containment in the ResultSet. Determines if the given object would be contained in the ResultSet,
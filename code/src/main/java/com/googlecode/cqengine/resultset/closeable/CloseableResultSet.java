@@ -20,7 +20,9 @@ import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
 
 import java.io.Closeable;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * A ResultSet which throws exceptions if an attempt to use it is made after its {@link #close} method has been called.
@@ -50,6 +52,12 @@ public class CloseableResultSet<O> extends ResultSet<O> implements Closeable {
         return wrapped.contains(object);
     }
 
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        ensureNotClosed();
+        return wrapped.containsAll(objects);
+    }
+
     @Override
     public boolean matches(O object) {
         ensureNotClosed();
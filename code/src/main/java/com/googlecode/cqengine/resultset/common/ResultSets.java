@@ -15,9 +15,11 @@
  */
 package com.googlecode.cqengine.resultset.common;
 
+import com.googlecode.cqengine.query.option.ApproximateCountOption;
 import com.googlecode.cqengine.resultset.ResultSet;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Utility methods for working with {@link com.googlecode.cqengine.resultset.ResultSet} objects.
@@ -86,6 +88,123 @@ public class ResultSets {
         return resultSet instanceof CostCachingResultSet ? resultSet : new CostCachingResultSet<O>(resultSet);
     }
 
+    /**
+     * Counts the objects in the given {@link ResultSet} which satisfy the given predicate.
+     * <p/>
+     * If an {@link ApproximateCountOption} is supplied and the result set is larger than its sample size, the predicate
+     * is only evaluated on a systematic sample of the objects in the result set (every k-th object), and the count is
+     * estimated by scaling the fraction of sampled objects which satisfy the predicate by the size of the result set.
+     * Otherwise the predicate is evaluated on every object, and the count is exact.
+     *
+     * @param resultSet The result set whose objects should be counted
+     * @param predicate The predicate which objects must satisfy to be counted
+     * @param approximateCountOption The option which allows the count to be estimated, or null to count exactly
+     * @return The number of objects in the result set which satisfy the predicate, exact or estimated
+     */
+    public static <O> int countMatching(ResultSet<O> resultSet, Predicate<O> predicate, ApproximateCountOption approximateCountOption) {
+        if (approximateCountOption != null) {
+            long size = resultSet.size();
+            long sampleSize = approximateCountOption.getSampleSize();
+            if (size > sampleSize) {
+                long sampled = 0, matched = 0, position = 0, nextSamplePosition = 0;
+                for (O object : resultSet) {
+                    if (position++ == nextSamplePosition) {
+                        if (predicate.test(object)) {
+                            matched++;
+                        }
+                        if (++sampled == sampleSize) {
+                            break;
+                        }
+                        nextSamplePosition = sampled * size / sampleSize;
+                    }
+                }
+                return sampled == 0 ? 0 : (int) Math.round((double) size * matched / sampled);
+            }
+        }
+        int count = 0;
+        for (O object : resultSet) {
+            if (predicate.test(object)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks which of the given objects are contained in <b><u>all</u></b> of the given result sets, using
+     * {@link ResultSet#containsAll(List)}. Each result set after the first is asked only about the objects which were
+     * contained in all of the result sets before it.
+     *
+     * @param resultSets The result sets to check
+     * @param objects The objects to check for containment
+     * @return A {@link BitSet} in which the bit at index <i>i</i> is set if the object at index <i>i</i> in the given
+     * list is contained in all of the result sets; no bits are set if there are no result sets
+     */
+    public static <O> BitSet containedInAll(Iterable<? extends ResultSet<O>> resultSets, List<O> objects) {
+        BitSet contained = new BitSet(objects.size());
+        Iterator<? extends ResultSet<O>> iterator = resultSets.iterator();
+        if (!iterator.hasNext()) {
+            return contained;
+        }
+        contained.set(0, objects.size());
+        while (iterator.hasNext() && !contained.isEmpty()) {
+            retainContained(iterator.next(), objects, contained, true);
+        }
+        return contained;
+    }
+
+    /**
+     * Checks which of the given objects are contained in <b><u>any</u></b> of the given result sets, using
+     * {@link ResultSet#containsAll(List)}. Each result set after the first is asked only about the objects which were
+     * not contained in any of the result sets before it.
+     *
+     * @param resultSets The result sets to check
+     * @param objects The objects to check for containment
+     * @return A {@link BitSet} in which the bit at index <i>i</i> is set if the object at index <i>i</i> in the given
+     * list is contained in any of the result sets
+     */
+    public static <O> BitSet containedInAny(Iterable<? extends ResultSet<O>> resultSets, List<O> objects) {
+        // Track the objects not yet found, and invert at the end...
+        BitSet notContained = new BitSet(objects.size());
+        notContained.set(0, objects.size());
+        for (Iterator<? extends ResultSet<O>> iterator = resultSets.iterator(); iterator.hasNext() && !notContained.isEmpty(); ) {
+            retainContained(iterator.next(), objects, notContained, false);
+        }
+        notContained.flip(0, objects.size());
+        return notContained;
+    }
+
+    /**
+     * Asks the given result set about the objects whose bits are set in the given {@link BitSet}, and clears the bits
+     * of those objects which the result set does not contain (if {@code retainIfContained} is true) or does contain
+     * (if {@code retainIfContained} is false).
+     */
+    public static <O> void retainContained(ResultSet<O> resultSet, List<O> objects, BitSet candidates, boolean retainIfContained) {
+        int candidateCount = candidates.cardinality();
+        if (candidateCount == objects.size()) {
+            BitSet contained = resultSet.containsAll(objects);
+            if (retainIfContained) {
+                candidates.and(contained);
+            }
+            else {
+                candidates.andNot(contained);
+            }
+            return;
+        }
+        List<O> candidateObjects = new ArrayList<O>(candidateCount);
+        int[] positions = new int[candidateCount];
+        for (int i = candidates.nextSetBit(0), j = 0; i >= 0; i = candidates.nextSetBit(i + 1), j++) {
+            candidateObjects.add(objects.get(i));
+            positions[j] = i;
+        }
+        BitSet contained = resultSet.containsAll(candidateObjects);
+        for (int j = 0; j < candidateCount; j++) {
+            if (contained.get(j) != retainIfContained) {
+                candidates.clear(positions[j]);
+            }
+        }
+    }
+
     /**
      * Private constructor, not used.
      */
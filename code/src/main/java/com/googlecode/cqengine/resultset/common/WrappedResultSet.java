@@ -19,7 +19,9 @@ import com.googlecode.cqengine.query.Query;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
 
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * A ResultSet which wraps another. Subclasses may extend this, to override some methods.
@@ -44,6 +46,11 @@ public class WrappedResultSet<O> extends ResultSet<O> {
         return wrappedResultSet.contains(object);
     }
 
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        return wrappedResultSet.containsAll(objects);
+    }
+
     @Override
     public boolean matches(O object) {
         return wrappedResultSet.matches(object);
@@ -78,4 +85,11 @@ public class WrappedResultSet<O> extends ResultSet<O> {
     public QueryOptions getQueryOptions() {
         return wrappedResultSet.getQueryOptions();
     }
+
+    /**
+     * @return The {@code ResultSet} which is wrapped
+     */
+    public ResultSet<O> getWrappedResultSet() {
+        return wrappedResultSet;
+    }
 }
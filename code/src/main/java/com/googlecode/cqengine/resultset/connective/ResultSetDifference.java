@@ -18,6 +18,7 @@ package com.googlecode.cqengine.resultset.connective;
 import com.googlecode.cqengine.query.Query;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.common.ResultSets;
+import com.googlecode.cqengine.resultset.filter.BatchFilteringIterator;
 import com.googlecode.cqengine.resultset.filter.FilteringIterator;
 import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
@@ -62,10 +63,14 @@ public class ResultSetDifference<O> extends ResultSet<O> {
     @Override
     public Iterator<O> iterator() {
         if (indexMergeStrategyEnabled) {
-            return new FilteringIterator<O>(firstResultSet.iterator(), queryOptions) {
+            // Check objects against the second result set in batches,
+            // which some result sets can answer with a single round trip per batch...
+            return new BatchFilteringIterator<O>(firstResultSet.iterator(), queryOptions) {
                 @Override
-                public boolean isValid(O object, QueryOptions queryOptions) {
-                    return !secondResultSet.contains(object);
+                public BitSet filterBatch(List<O> batch, QueryOptions queryOptions) {
+                    BitSet notContained = secondResultSet.containsAll(batch);
+                    notContained.flip(0, batch.size());
+                    return notContained;
                 }
             };
         }
@@ -92,6 +97,23 @@ public class ResultSetDifference<O> extends ResultSet<O> {
         return firstResultSet.contains(object) && !secondResultSet.contains(object);
     }
 
+    /**
+     * Returns which of the given objects are contained in the first ResultSet,
+     * but are NOT contained in the second ResultSet.
+     *
+     * @param objects The objects to check if contained
+     * @return A {@link BitSet} in which bits are set for the objects contained in the first ResultSet,
+     * but NOT contained in the second ResultSet
+     */
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        BitSet contained = firstResultSet.containsAll(objects);
+        if (!contained.isEmpty()) {
+            ResultSets.retainContained(secondResultSet, objects, contained, false);
+        }
+        return contained;
+    }
+
     @Override
     public boolean matches(O object) {
             return query.matches(object, queryOptions);
@@ -135,4 +157,26 @@ public class ResultSetDifference<O> extends ResultSet<O> {
     public QueryOptions getQueryOptions() {
         return queryOptions;
     }
+
+    /**
+     * @return The {@code ResultSet} from which objects are returned
+     */
+    public ResultSet<O> getFirstResultSet() {
+        return firstResultSet;
+    }
+
+    /**
+     * @return The {@code ResultSet} whose objects are excluded
+     */
+    public ResultSet<O> getSecondResultSet() {
+        return secondResultSet;
+    }
+
+    /**
+     * @return True if the index merge strategy is used to exclude objects, false if objects are excluded by
+     * evaluating the query on them instead
+     */
+    public boolean isIndexMergeStrategyEnabled() {
+        return indexMergeStrategyEnabled;
+    }
 }
@@ -16,14 +16,16 @@
 package com.googlecode.cqengine.resultset.connective;
 
 import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.ApproximateCountOption;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.common.ResultSets;
+import com.googlecode.cqengine.resultset.filter.BatchFilteringIterator;
 import com.googlecode.cqengine.resultset.filter.FilteringIterator;
 import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.common.QueryCostComparators;
-import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * A ResultSet which provides a view onto the intersection of other ResultSets.
@@ -59,15 +61,12 @@ public class ResultSetIntersection<O> extends ResultSet<O> {
         ResultSet<O> lowestMergeCostResultSet = resultSets.get(0);
         final List<ResultSet<O>> moreExpensiveResultSets = resultSets.subList(1, resultSets.size());
         if (useIndexMergeStrategy) {
-            return new FilteringIterator<O>(lowestMergeCostResultSet.iterator(), queryOptions) {
+            // Check objects against the other result sets in batches,
+            // which some result sets can answer with a single round trip per batch...
+            return new BatchFilteringIterator<O>(lowestMergeCostResultSet.iterator(), queryOptions) {
                 @Override
-                public boolean isValid(O object, QueryOptions queryOptions) {
-                    for (ResultSet<O> resultSet : moreExpensiveResultSets) {
-                        if (!resultSet.contains(object)) {
-                            return false;
-                        }
-                    }
-                    return true;
+                public BitSet filterBatch(List<O> batch, QueryOptions queryOptions) {
+                    return ResultSets.containedInAll(moreExpensiveResultSets, batch);
                 }
             };
         }
@@ -105,14 +104,49 @@ public class ResultSetIntersection<O> extends ResultSet<O> {
         return true;
     }
 
+    /**
+     * Returns which of the given objects are contained in <b><u>all</u></b> underlying ResultSets.
+     * @param objects The objects to check if contained
+     * @return A {@link BitSet} in which bits are set for the objects contained in <b><u>all</u></b> underlying
+     * ResultSets; no bits are set if there are no underlying result sets
+     */
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        return ResultSets.containedInAll(resultSets, objects);
+    }
+
     @Override
     public boolean matches(O object) {
         return query.matches(object, queryOptions);
     }
 
+    /**
+     * Returns the number of objects in the intersection of the underlying {@code ResultSet}s, by iterating the
+     * {@code ResultSet} with the lowest merge cost and checking if each object is in the others. If an
+     * {@link ApproximateCountOption} was supplied, the size may instead be estimated from a sample of those objects.
+     * @return the number of objects in the intersection of the underlying {@code ResultSet}s
+     */
     @Override
     public int size() {
-        return IteratorUtil.countElements(this);
+        if (resultSets.isEmpty()) {
+            return 0;
+        }
+        else if (resultSets.size() == 1) {
+            return resultSets.get(0).size();
+        }
+        ResultSet<O> lowestMergeCostResultSet = resultSets.get(0);
+        final List<ResultSet<O>> moreExpensiveResultSets = resultSets.subList(1, resultSets.size());
+        return ResultSets.countMatching(lowestMergeCostResultSet, new Predicate<O>() {
+            @Override
+            public boolean test(O object) {
+                for (ResultSet<O> resultSet : moreExpensiveResultSets) {
+                    if (useIndexMergeStrategy ? !resultSet.contains(object) : !resultSet.matches(object)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }, ApproximateCountOption.get(queryOptions));
     }
 
     /**
@@ -164,4 +198,19 @@ public class ResultSetIntersection<O> extends ResultSet<O> {
     public QueryOptions getQueryOptions() {
         return queryOptions;
     }
+
+    /**
+     * @return The underlying {@code ResultSet}s, in ascending order of merge cost
+     */
+    public List<ResultSet<O>> getResultSets() {
+        return Collections.unmodifiableList(resultSets);
+    }
+
+    /**
+     * @return True if the index merge strategy is used to filter objects from the {@code ResultSet} with the lowest
+     * merge cost, false if objects are filtered by evaluating the query on them instead
+     */
+    public boolean isUseIndexMergeStrategy() {
+        return useIndexMergeStrategy;
+    }
 }
@@ -16,16 +16,18 @@
 package com.googlecode.cqengine.resultset.connective;
 
 import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.ApproximateCountOption;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.common.ResultSets;
 import com.googlecode.cqengine.resultset.filter.FilteringIterator;
 import com.googlecode.cqengine.resultset.iterator.ConcatenatingIterator;
-import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * A ResultSet which provides a view onto the union of other ResultSets, with deduplication.
@@ -127,6 +129,17 @@ public class ResultSetUnion<O> extends ResultSet<O> {
         return false;
     }
 
+    /**
+     * Returns which of the given objects are contained in <b><u>any</u></b> underlying ResultSets.
+     * @param objects The objects to check if contained
+     * @return A {@link BitSet} in which bits are set for the objects contained in <b><u>any</u></b> underlying
+     * ResultSets
+     */
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        return ResultSets.containedInAny(resultSets, objects);
+    }
+
     @Override
     public boolean matches(O object) {
         return query.matches(object, queryOptions);
@@ -134,11 +147,50 @@ public class ResultSetUnion<O> extends ResultSet<O> {
 
     /**
      * Returns the number of distinct objects in the the underlying {@code ResultSet}s, with duplicates eliminated.
+     * <p/>
+     * The {@code ResultSet} with the highest merge cost (typically the largest) is counted via its own size, which
+     * indexes can usually provide without iteration. Objects in each of the other {@code ResultSet}s are counted only
+     * if they are not in any {@code ResultSet} counted before them. If an {@link ApproximateCountOption} was supplied,
+     * those counts may instead be estimated from a sample of the objects.
      * @return the number of distinct objects in the the underlying {@code ResultSet}s, with duplicates eliminated
      */
     @Override
     public int size() {
-        return IteratorUtil.countElements(this);
+        List<ResultSet<O>> remainingResultSets = new ArrayList<ResultSet<O>>();
+        ResultSet<O> highestMergeCostResultSet = null;
+        for (ResultSet<O> resultSet : this.resultSets) {
+            if (highestMergeCostResultSet == null || resultSet.getMergeCost() > highestMergeCostResultSet.getMergeCost()) {
+                if (highestMergeCostResultSet != null) {
+                    remainingResultSets.add(highestMergeCostResultSet);
+                }
+                highestMergeCostResultSet = resultSet;
+            }
+            else {
+                remainingResultSets.add(resultSet);
+            }
+        }
+        if (highestMergeCostResultSet == null) {
+            return 0;
+        }
+        final List<ResultSet<O>> resultSetsCounted = new ArrayList<ResultSet<O>>();
+        resultSetsCounted.add(highestMergeCostResultSet);
+        long count = highestMergeCostResultSet.size();
+        ApproximateCountOption approximateCountOption = ApproximateCountOption.get(queryOptions);
+        for (ResultSet<O> resultSet : remainingResultSets) {
+            count += ResultSets.countMatching(resultSet, new Predicate<O>() {
+                @Override
+                public boolean test(O object) {
+                    for (ResultSet<O> resultSetCounted : resultSetsCounted) {
+                        if (useIndexMergeStrategy ? resultSetCounted.contains(object) : resultSetCounted.matches(object)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            }, approximateCountOption);
+            resultSetsCounted.add(resultSet);
+        }
+        return (int) Math.min(count, Integer.MAX_VALUE);
     }
 
     /**
@@ -186,4 +238,19 @@ public class ResultSetUnion<O> extends ResultSet<O> {
     public QueryOptions getQueryOptions() {
         return queryOptions;
     }
+
+    /**
+     * @return The underlying {@code ResultSet}s, in the order in which they are iterated
+     */
+    public Iterable<? extends ResultSet<O>> getResultSets() {
+        return resultSets;
+    }
+
+    /**
+     * @return True if the index merge strategy is used to eliminate duplicates, false if duplicates are eliminated
+     * by evaluating queries on objects instead
+     */
+    public boolean isUseIndexMergeStrategy() {
+        return useIndexMergeStrategy;
+    }
 }
@@ -70,6 +70,17 @@ public class ResultSetUnionAll<O> extends ResultSet<O> {
         return false;
     }
 
+    /**
+     * Returns which of the given objects are contained in <b><u>any</u></b> underlying ResultSets.
+     * @param objects The objects to check if contained
+     * @return A {@link BitSet} in which bits are set for the objects contained in <b><u>any</u></b> underlying
+     * ResultSets
+     */
+    @Override
+    public BitSet containsAll(List<O> objects) {
+        return ResultSets.containedInAny(resultSets, objects);
+    }
+
     @Override
     public boolean matches(O object) {
         return query.matches(object, queryOptions);
@@ -133,4 +144,11 @@ public class ResultSetUnionAll<O> extends ResultSet<O> {
     public QueryOptions getQueryOptions() {
         return queryOptions;
     }
+
+    /**
+     * @return The underlying {@code ResultSet}s, in the order in which they are iterated
+     */
+    public Iterable<? extends ResultSet<O>> getResultSets() {
+        return resultSets;
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.resultset.filter;
+
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An Iterator which wraps another iterator, and reads objects from the wrapped iterator in batches, calling an
+ * {@link #filterBatch(List, QueryOptions)} method to determine which objects in each batch are valid. This iterator
+ * returns the valid objects, in the order in which they were returned by the wrapped iterator.
+ * <p/>
+ * This allows the filter to be evaluated with one round trip per batch, when evaluating it for each object
+ * individually would require a round trip per object. Batches start small and double in size up to a maximum, so that
+ * applications which only consume the first few objects do not cause a large batch to be read.
+ */
+public abstract class BatchFilteringIterator<O> extends UnmodifiableIterator<O> {
+
+    public static final int INITIAL_BATCH_SIZE = 16;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    final Iterator<O> wrappedIterator;
+    final QueryOptions queryOptions;
+    final int maxBatchSize;
+
+    int nextBatchSize;
+    List<O> batch = new ArrayList<O>();
+    BitSet validInBatch = new BitSet();
+    int nextIndexInBatch = -1;
+
+    public BatchFilteringIterator(Iterator<O> wrappedIterator, QueryOptions queryOptions) {
+        this(wrappedIterator, queryOptions, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public BatchFilteringIterator(Iterator<O> wrappedIterator, QueryOptions queryOptions, int maxBatchSize) {
+        this.wrappedIterator = wrappedIterator;
+        this.queryOptions = queryOptions;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.nextBatchSize = Math.min(INITIAL_BATCH_SIZE, this.maxBatchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextIndexInBatch < 0) {
+            if (!wrappedIterator.hasNext()) {
+                return false;
+            }
+            batch.clear();
+            while (batch.size() < nextBatchSize && wrappedIterator.hasNext()) {
+                batch.add(wrappedIterator.next());
+            }
+            nextBatchSize = Math.min(nextBatchSize * 2, maxBatchSize);
+            validInBatch = filterBatch(batch, queryOptions);
+            nextIndexInBatch = validInBatch.nextSetBit(0);
+            if (nextIndexInBatch >= batch.size()) {
+                nextIndexInBatch = -1;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public O next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        O objectToReturn = batch.get(nextIndexInBatch);
+        nextIndexInBatch = validInBatch.nextSetBit(nextIndexInBatch + 1);
+        if (nextIndexInBatch >= batch.size()) {
+            nextIndexInBatch = -1;
+        }
+        return objectToReturn;
+    }
+
+    /**
+     * Determines which objects in a batch read from the wrapped iterator are valid.
+     *
+     * @param batch The objects read from the wrapped iterator; must not be modified
+     * @param queryOptions The query options supplied to the constructor
+     * @return A {@link BitSet} in which the bit at index <i>i</i> is set if the object at index <i>i</i> in the batch
+     * is valid; objects not valid will be skipped
+     */
+    public abstract BitSet filterBatch(List<O> batch, QueryOptions queryOptions);
+}
@@ -93,4 +93,11 @@ public abstract class FilteringResultSet<O> extends ResultSet<O> {
     public QueryOptions getQueryOptions() {
         return queryOptions;
     }
+
+    /**
+     * @return The {@code ResultSet} whose objects are filtered
+     */
+    public ResultSet<O> getWrappedResultSet() {
+        return wrappedResultSet;
+    }
 }
@@ -15,9 +15,11 @@
  */
 package com.googlecode.cqengine.resultset.order;
 
+import com.googlecode.cqengine.jfr.OrderingMaterializationEvent;
 import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.resultset.common.WrappedResultSet;
 import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
+import com.googlecode.cqengine.resultset.iterator.UnmodifiableIterator;
 
 import java.util.*;
 
@@ -61,7 +63,33 @@ public class MaterializedOrderedResultSet<O> extends WrappedResultSet<O> {
      */
     @Override
     public Iterator<O> iterator() {
-        return IteratorUtil.materializedSort(super.iterator(), comparator);
+        OrderingMaterializationEvent orderingMaterializationEvent = new OrderingMaterializationEvent();
+        if (!orderingMaterializationEvent.isEnabled()) {
+            return IteratorUtil.materializedSort(super.iterator(), comparator);
+        }
+        // A recording is in progress, so record the time taken and the number of objects sorted...
+        orderingMaterializationEvent.begin();
+        final Iterator<O> unsortedIterator = super.iterator();
+        final int[] rows = new int[1];
+        Iterator<O> sortedIterator = IteratorUtil.materializedSort(new UnmodifiableIterator<O>() {
+            @Override
+            public boolean hasNext() {
+                return unsortedIterator.hasNext();
+            }
+            @Override
+            public O next() {
+                O next = unsortedIterator.next();
+                rows[0]++;
+                return next;
+            }
+        }, comparator);
+        orderingMaterializationEvent.end();
+        if (orderingMaterializationEvent.shouldCommit()) {
+            orderingMaterializationEvent.query = String.valueOf(getQuery());
+            orderingMaterializationEvent.rows = rows[0];
+            orderingMaterializationEvent.commit();
+        }
+        return sortedIterator;
     }
 
     /**
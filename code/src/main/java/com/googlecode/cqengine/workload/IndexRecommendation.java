@@ -0,0 +1,169 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.workload;
+
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.Index;
+import com.googlecode.cqengine.index.compound.CompoundIndex;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.index.radix.RadixTreeIndex;
+import com.googlecode.cqengine.index.radixreversed.ReversedRadixTreeIndex;
+import com.googlecode.cqengine.index.standingquery.StandingQueryIndex;
+import com.googlecode.cqengine.index.suffix.SuffixTreeIndex;
+import com.googlecode.cqengine.query.Query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An index which {@link WorkloadRecorder} recommends adding to a collection, based on the queries it observed.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public class IndexRecommendation<O> {
+
+    /**
+     * The types of index which can be recommended, with a rough estimate of the memory each index uses per object
+     * in the collection.
+     */
+    public enum Type {
+        HASH_INDEX(48),
+        NAVIGABLE_INDEX(64),
+        RADIX_TREE_INDEX(96),
+        REVERSED_RADIX_TREE_INDEX(96),
+        SUFFIX_TREE_INDEX(512),
+        COMPOUND_INDEX(64),
+        STANDING_QUERY_INDEX(16);
+
+        final int estimatedBytesPerObject;
+
+        Type(int estimatedBytesPerObject) {
+            this.estimatedBytesPerObject = estimatedBytesPerObject;
+        }
+
+        public int getEstimatedBytesPerObject() {
+            return estimatedBytesPerObject;
+        }
+    }
+
+    final Type type;
+    final List<Attribute<O, ?>> attributes;
+    final Query<O> query;
+    final long occurrences;
+    final long estimatedSavings;
+
+    public IndexRecommendation(Type type, List<Attribute<O, ?>> attributes, Query<O> query, long occurrences, long estimatedSavings) {
+        this.type = type;
+        this.attributes = Collections.unmodifiableList(attributes);
+        this.query = query;
+        this.occurrences = occurrences;
+        this.estimatedSavings = estimatedSavings;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The attributes on which the index should be built, or an empty list for a
+     * {@link Type#STANDING_QUERY_INDEX}
+     */
+    public List<Attribute<O, ?>> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return The query on which a {@link Type#STANDING_QUERY_INDEX} should be built, otherwise null
+     */
+    public Query<O> getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The number of times the index would have been used by the queries observed
+     */
+    public long getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * @return The estimated number of objects which would not have been visited by the queries observed, had the
+     * index existed
+     */
+    public long getEstimatedSavings() {
+        return estimatedSavings;
+    }
+
+    /**
+     * Returns a rough estimate of the memory in bytes which the index would use in a collection of the given size.
+     *
+     * @param collectionSize The number of objects in the collection
+     * @return A rough estimate of the memory in bytes which the index would use
+     */
+    public long estimateMemoryUsage(int collectionSize) {
+        return (long) collectionSize * type.getEstimatedBytesPerObject();
+    }
+
+    /**
+     * Creates the recommended index.
+     *
+     * @return A new instance of the recommended index, which can be added to the collection
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Index<O> createIndex() {
+        switch (type) {
+            case HASH_INDEX:
+                return HashIndex.onAttribute(attributes.get(0));
+            case NAVIGABLE_INDEX:
+                return NavigableIndex.onAttribute((Attribute) attributes.get(0));
+            case RADIX_TREE_INDEX:
+                return RadixTreeIndex.onAttribute((Attribute) attributes.get(0));
+            case REVERSED_RADIX_TREE_INDEX:
+                return ReversedRadixTreeIndex.onAttribute((Attribute) attributes.get(0));
+            case SUFFIX_TREE_INDEX:
+                return SuffixTreeIndex.onAttribute((Attribute) attributes.get(0));
+            case COMPOUND_INDEX:
+                return CompoundIndex.onAttributes(attributes.toArray(new Attribute[attributes.size()]));
+            case STANDING_QUERY_INDEX:
+                return StandingQueryIndex.onQuery(query);
+            default:
+                throw new IllegalStateException("Unexpected type of index: " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(type).append(" on ");
+        if (type == Type.STANDING_QUERY_INDEX) {
+            sb.append(query);
+        }
+        else {
+            sb.append('(');
+            for (int i = 0; i < attributes.size(); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(attributes.get(i).getAttributeName());
+            }
+            sb.append(')');
+        }
+        sb.append(" [occurrences=").append(occurrences);
+        sb.append(", estimatedSavings=").append(estimatedSavings).append(']');
+        return sb.toString();
+    }
+}
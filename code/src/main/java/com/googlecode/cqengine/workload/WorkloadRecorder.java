@@ -0,0 +1,322 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.workload;
+
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.attribute.Attribute;
+import com.googlecode.cqengine.index.compound.support.CompoundQuery;
+import com.googlecode.cqengine.query.ComparativeQuery;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.logical.LogicalQuery;
+import com.googlecode.cqengine.query.simple.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * If set as a query option, records the workload observed by CQEngine during query evaluation, and produces
+ * {@link IndexRecommendation}s ranked by the number of object visits which the recommended indexes would have saved.
+ * <p/>
+ * The same instance should be supplied as a query option to all queries which should be taken into account.
+ * CQEngine records into it:
+ * <ul>
+ *     <li>The shape of each query, which is the query with its constants removed</li>
+ *     <li>Each branch of a query which had to be answered by scanning the collection with the fallback index,
+ *     resulting in a recommendation for an attribute index which supports that type of query, or for a
+ *     standing query index if no attribute index supports it</li>
+ *     <li>Each {@link And} query of {@link Equal} queries whose results were intersected by filtering, resulting in a
+ *     recommendation for a compound index on the attributes concerned, sorted by name</li>
+ * </ul>
+ * The estimated savings are rough: they assume that a scan would have been replaced by a direct lookup, and that
+ * the objects filtered by an intersection would have been retrieved directly from a compound index.
+ * <p/>
+ * This class is thread-safe. The number of distinct query shapes and recommendations tracked is bounded.
+ *
+ * @param <O> The type of the objects in the collection
+ */
+public class WorkloadRecorder<O> {
+
+    /**
+     * The default maximum number of distinct query shapes, and of distinct recommendations, which will be tracked.
+     */
+    public static final int DEFAULT_MAX_TRACKED = 1000;
+
+    final int maxTracked;
+    final ConcurrentMap<String, LongAdder> queryShapes = new ConcurrentHashMap<String, LongAdder>();
+    final ConcurrentMap<Candidate<O>, Statistics> candidates = new ConcurrentHashMap<Candidate<O>, Statistics>();
+
+    public WorkloadRecorder() {
+        this(DEFAULT_MAX_TRACKED);
+    }
+
+    public WorkloadRecorder(int maxTracked) {
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * Records that the given query was evaluated.
+     *
+     * @param query The query evaluated
+     */
+    public void recordQuery(Query<O> query) {
+        String shape = getShape(query);
+        LongAdder count = queryShapes.get(shape);
+        if (count == null) {
+            if (queryShapes.size() >= maxTracked) {
+                return;
+            }
+            count = queryShapes.computeIfAbsent(shape, new Function<String, LongAdder>() {
+                @Override
+                public LongAdder apply(String shape) {
+                    return new LongAdder();
+                }
+            });
+        }
+        count.increment();
+    }
+
+    /**
+     * Records that the given branch of a query was answered by scanning the collection, because no index supported it.
+     *
+     * @param query The branch of the query which was answered by scanning the collection
+     * @param objectsScanned The number of objects in the collection
+     */
+    public void recordFallbackScan(SimpleQuery<O, ?> query, long objectsScanned) {
+        IndexRecommendation.Type type = getIndexTypeSupporting(query);
+        if (type == null) {
+            record(new Candidate<O>(IndexRecommendation.Type.STANDING_QUERY_INDEX, Collections.<Attribute<O, ?>>emptyList(), query), objectsScanned);
+        }
+        else {
+            record(new Candidate<O>(type, Collections.<Attribute<O, ?>>singletonList(query.getAttribute()), null), objectsScanned);
+        }
+    }
+
+    /**
+     * Records that the results of the given {@link And} query were intersected by filtering the objects retrieved
+     * for one of its branches.
+     *
+     * @param query The And query
+     * @param objectsFiltered The estimated number of objects which were filtered
+     */
+    public void recordFilterStep(And<O> query, long objectsFiltered) {
+        CompoundQuery<O> compoundQuery = CompoundQuery.fromAndQueryIfSuitable(query);
+        if (compoundQuery == null) {
+            return;
+        }
+        List<Attribute<O, ?>> attributes = new ArrayList<Attribute<O, ?>>(query.getSimpleQueries().size());
+        for (SimpleQuery<O, ?> simpleQuery : query.getSimpleQueries()) {
+            if (attributes.contains(simpleQuery.getAttribute())) {
+                return;
+            }
+            attributes.add(simpleQuery.getAttribute());
+        }
+        if (attributes.size() > 1) {
+            // Sort the attributes, so that the same conjuncts in a different order result in the same candidate...
+            Collections.sort(attributes, new Comparator<Attribute<O, ?>>() {
+                @Override
+                public int compare(Attribute<O, ?> o1, Attribute<O, ?> o2) {
+                    return o1.getAttributeName().compareTo(o2.getAttributeName());
+                }
+            });
+            record(new Candidate<O>(IndexRecommendation.Type.COMPOUND_INDEX, attributes, null), objectsFiltered);
+        }
+    }
+
+    void record(Candidate<O> candidate, long objectsVisited) {
+        Statistics statistics = candidates.get(candidate);
+        if (statistics == null) {
+            if (candidates.size() >= maxTracked) {
+                return;
+            }
+            statistics = candidates.computeIfAbsent(candidate, new Function<Candidate<O>, Statistics>() {
+                @Override
+                public Statistics apply(Candidate<O> candidate) {
+                    return new Statistics();
+                }
+            });
+        }
+        statistics.occurrences.increment();
+        statistics.objectsVisited.add(objectsVisited);
+    }
+
+    /**
+     * @return The shapes of the queries recorded (the queries with their constants removed), and the number of times
+     * each was evaluated
+     */
+    public Map<String, Long> getQueryShapes() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : queryShapes.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * @return The recommended indexes, ranked in descending order of estimated savings
+     */
+    public List<IndexRecommendation<O>> getRecommendations() {
+        List<IndexRecommendation<O>> recommendations = new ArrayList<IndexRecommendation<O>>(candidates.size());
+        for (Map.Entry<Candidate<O>, Statistics> entry : candidates.entrySet()) {
+            Candidate<O> candidate = entry.getKey();
+            long occurrences = entry.getValue().occurrences.sum();
+            // Assume that each use of the index would visit one object instead of the objects visited...
+            long estimatedSavings = Math.max(entry.getValue().objectsVisited.sum() - occurrences, 0);
+            recommendations.add(new IndexRecommendation<O>(candidate.type, candidate.attributes, candidate.query, occurrences, estimatedSavings));
+        }
+        Collections.sort(recommendations, new Comparator<IndexRecommendation<O>>() {
+            @Override
+            public int compare(IndexRecommendation<O> o1, IndexRecommendation<O> o2) {
+                return Long.compare(o2.getEstimatedSavings(), o1.getEstimatedSavings());
+            }
+        });
+        return recommendations;
+    }
+
+    /**
+     * Adds the recommended indexes to the given collection in order of estimated savings, skipping those which
+     * would not fit within the remaining memory budget.
+     *
+     * @param collection The collection in which the workload was recorded
+     * @param memoryBudgetBytes The maximum memory in bytes which the indexes added should use, as estimated by
+     * {@link IndexRecommendation#estimateMemoryUsage(int)}
+     * @return The recommendations which were applied
+     */
+    public List<IndexRecommendation<O>> applyRecommendations(IndexedCollection<O> collection, long memoryBudgetBytes) {
+        final int collectionSize = collection.size();
+        long remainingBudget = memoryBudgetBytes;
+        List<IndexRecommendation<O>> applied = new ArrayList<IndexRecommendation<O>>();
+        for (IndexRecommendation<O> recommendation : getRecommendations()) {
+            long memoryUsage = recommendation.estimateMemoryUsage(collectionSize);
+            if (recommendation.getEstimatedSavings() == 0 || memoryUsage > remainingBudget) {
+                continue;
+            }
+            collection.addIndex(recommendation.createIndex());
+            remainingBudget -= memoryUsage;
+            applied.add(recommendation);
+        }
+        // The workload recorded so far no longer reflects the indexes available...
+        reset();
+        return applied;
+    }
+
+    /**
+     * Discards the workload recorded so far.
+     */
+    public void reset() {
+        queryShapes.clear();
+        candidates.clear();
+    }
+
+    /**
+     * Returns the type of attribute index which would support the given type of query, or null if no attribute index
+     * would support it.
+     * <p/>
+     * A {@link Has} query is not supported by a hash index, which stores only the objects having each value, and so
+     * a standing query index is recommended for it instead.
+     */
+    static IndexRecommendation.Type getIndexTypeSupporting(SimpleQuery<?, ?> query) {
+        if (query instanceof Equal || query instanceof In) {
+            return IndexRecommendation.Type.HASH_INDEX;
+        }
+        else if (query instanceof LessThan || query instanceof GreaterThan || query instanceof Between) {
+            return IndexRecommendation.Type.NAVIGABLE_INDEX;
+        }
+        else if (query instanceof StringStartsWith) {
+            return IndexRecommendation.Type.RADIX_TREE_INDEX;
+        }
+        else if (query instanceof StringEndsWith) {
+            return IndexRecommendation.Type.REVERSED_RADIX_TREE_INDEX;
+        }
+        else if (query instanceof StringContains) {
+            return IndexRecommendation.Type.SUFFIX_TREE_INDEX;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the shape of the given query, which is the query with its constants removed.
+     * For example the shape of {@code and(equal("manufacturer", "Ford"), lessThan("price", 5000.0))} is
+     * {@code and(equal(manufacturer), lessThan(price))}.
+     */
+    static String getShape(Query<?> query) {
+        StringBuilder sb = new StringBuilder();
+        appendShape(sb, query);
+        return sb.toString();
+    }
+
+    static void appendShape(StringBuilder sb, Query<?> query) {
+        String name = query.getClass().getSimpleName();
+        sb.append(name.isEmpty() ? "query" : Character.toLowerCase(name.charAt(0)) + name.substring(1));
+        if (query instanceof SimpleQuery) {
+            sb.append('(').append(((SimpleQuery<?, ?>) query).getAttributeName()).append(')');
+        }
+        else if (query instanceof ComparativeQuery) {
+            sb.append('(').append(((ComparativeQuery<?, ?>) query).getAttribute().getAttributeName()).append(')');
+        }
+        else if (query instanceof LogicalQuery) {
+            sb.append('(');
+            boolean first = true;
+            for (Query<?> childQuery : ((LogicalQuery<?>) query).getChildQueries()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                appendShape(sb, childQuery);
+                first = false;
+            }
+            sb.append(')');
+        }
+    }
+
+    static class Candidate<O> {
+        final IndexRecommendation.Type type;
+        final List<Attribute<O, ?>> attributes;
+        final Query<O> query;
+
+        Candidate(IndexRecommendation.Type type, List<Attribute<O, ?>> attributes, Query<O> query) {
+            this.type = type;
+            this.attributes = attributes;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Candidate)) return false;
+
+            Candidate<?> candidate = (Candidate<?>) o;
+            return type == candidate.type
+                    && attributes.equals(candidate.attributes)
+                    && (query != null ? query.equals(candidate.query) : candidate.query == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + attributes.hashCode();
+            result = 31 * result + (query != null ? query.hashCode() : 0);
+            return result;
+        }
+    }
+
+    static class Statistics {
+        final LongAdder occurrences = new LongAdder();
+        final LongAdder objectsVisited = new LongAdder();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.aggregate;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.TransactionalIndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.index.navigable.PartialNavigableIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.IsolationLevel;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+
+/**
+ * Tests for {@link AggregationEngine}.
+ */
+public class AggregationEngineTest {
+
+    @Test
+    public void testAggregatesFromIndexes() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(NavigableIndex.onAttribute(Car.PRICE));
+        collection.addIndex(NavigableIndex.onAttribute(Car.DOORS));
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addIndex(HashIndex.onAttribute(Car.FEATURES));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        AggregationEngine<Car> aggregationEngine = collection.getAggregationEngine();
+        Query<Car> all = all(Car.class);
+
+        assertStrategy("resultSetSize", log -> aggregationEngine.count(all, queryOptions(log)), 100);
+        assertStrategy("resultSetSize", log -> aggregationEngine.count(equal(Car.MANUFACTURER, "Ford"), queryOptions(log)), 30);
+        assertStrategy("resultSetSize", log -> aggregationEngine.count(equal(Car.FEATURES, "hybrid"), queryOptions(log)), 20);
+        assertIndexUsed(true, log -> aggregationEngine.min(Car.PRICE, all, queryOptions(log)), 3000.0);
+        assertIndexUsed(true, log -> aggregationEngine.max(Car.PRICE, all, queryOptions(log)), 9000.23);
+        assertIndexUsed(true, log -> aggregationEngine.max(Car.PRICE, lessThan(Car.PRICE, 6000.0), queryOptions(log)), 5999.95);
+        assertIndexUsed(true, log -> aggregationEngine.min(Car.PRICE, between(Car.PRICE, 3000.0, false, 9000.0, true), queryOptions(log)), 3999.99);
+        assertIndexUsed(true, log -> aggregationEngine.sum(Car.DOORS, all, queryOptions(log)), 410L);
+        assertIndexUsed(true, log -> aggregationEngine.average(Car.DOORS, all, queryOptions(log)), 4.1);
+        Map<String, Integer> manufacturerCounts = new HashMap<String, Integer>();
+        manufacturerCounts.put("Ford", 30);
+        manufacturerCounts.put("Honda", 30);
+        manufacturerCounts.put("Toyota", 30);
+        manufacturerCounts.put("BMW", 10);
+        assertIndexUsed(true, log -> aggregationEngine.countBy(Car.MANUFACTURER, all, queryOptions(log)), manufacturerCounts);
+
+        // Aggregates which must be computed by streaming matching objects...
+        assertStrategy("resultSetSize", log -> aggregationEngine.count(or(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 5)), queryOptions(log)), 70);
+        assertIndexUsed(false, log -> aggregationEngine.max(Car.PRICE, equal(Car.MANUFACTURER, "Honda"), queryOptions(log)), 5000.0);
+        assertIndexUsed(false, log -> aggregationEngine.sum(Car.DOORS, equal(Car.MANUFACTURER, "Honda"), queryOptions(log)), 130L);
+        Map<String, Integer> fordFeatureCounts = new HashMap<String, Integer>();
+        fordFeatureCounts.put("hybrid", 10);
+        fordFeatureCounts.put("grade a", 10);
+        assertIndexUsed(false, log -> aggregationEngine.countBy(Car.FEATURES, equal(Car.MANUFACTURER, "Ford"), queryOptions(log)), fordFeatureCounts);
+    }
+
+    @Test
+    public void testStreamingMatchesIndexed() {
+        IndexedCollection<Car> indexed = new ConcurrentIndexedCollection<Car>();
+        indexed.addIndex(NavigableIndex.onAttribute(Car.PRICE));
+        indexed.addIndex(HashIndex.onAttribute(Car.FEATURES));
+        IndexedCollection<Car> unindexed = new ConcurrentIndexedCollection<Car>();
+        for (IndexedCollection<Car> collection : Arrays.asList(indexed, unindexed)) {
+            collection.addAll(CarFactory.createCollectionOfCars(50));
+        }
+        Query<Car> all = all(Car.class);
+        Assert.assertEquals(unindexed.getAggregationEngine().sum(Car.PRICE, all), indexed.getAggregationEngine().sum(Car.PRICE, all));
+        Assert.assertEquals(unindexed.getAggregationEngine().min(Car.PRICE, greaterThan(Car.PRICE, 5000.0)), indexed.getAggregationEngine().min(Car.PRICE, greaterThan(Car.PRICE, 5000.0)));
+        Assert.assertEquals(unindexed.getAggregationEngine().countBy(Car.FEATURES, all), indexed.getAggregationEngine().countBy(Car.FEATURES, all));
+        Assert.assertNull(indexed.getAggregationEngine().max(Car.PRICE, greaterThan(Car.PRICE, 10000.0)));
+        Assert.assertNull(unindexed.getAggregationEngine().average(Car.PRICE, none(Car.class)));
+        Assert.assertEquals(0.0, unindexed.getAggregationEngine().sum(Car.PRICE, none(Car.class)));
+    }
+
+    @Test
+    public void testPartialIndexes() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(PartialNavigableIndex.onAttributeWithFilterQuery(Car.PRICE, equal(Car.MANUFACTURER, "Honda")));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        AggregationEngine<Car> aggregationEngine = collection.getAggregationEngine();
+        Query<Car> all = all(Car.class);
+
+        // The partial index contains only Hondas, so cannot answer aggregates over the entire collection...
+        assertIndexUsed(false, log -> aggregationEngine.max(Car.PRICE, all, queryOptions(log)), 9000.23);
+        assertIndexUsed(false, log -> aggregationEngine.min(Car.PRICE, has(Car.PRICE), queryOptions(log)), 3000.0);
+        assertIndexUsed(false, log -> aggregationEngine.max(Car.PRICE, lessThan(Car.PRICE, 6000.0), queryOptions(log)), 5999.95);
+        assertIndexUsed(false, log -> aggregationEngine.sum(Car.DOORS, all, queryOptions(log)), 410L);
+        Assert.assertEquals(9, aggregationEngine.countBy(Car.PRICE, all).size());
+
+        // But can answer aggregates over objects matching its filter query...
+        Query<Car> hondas = equal(Car.MANUFACTURER, "Honda");
+        assertIndexUsed(true, log -> aggregationEngine.max(Car.PRICE, hondas, queryOptions(log)), 5000.0);
+        assertIndexUsed(true, log -> aggregationEngine.sum(Car.PRICE, hondas, queryOptions(log)), 120000.0);
+        Map<Double, Integer> hondaPriceCounts = new HashMap<Double, Integer>();
+        hondaPriceCounts.put(3000.0, 10);
+        hondaPriceCounts.put(4000.0, 10);
+        hondaPriceCounts.put(5000.0, 10);
+        assertIndexUsed(true, log -> new HashMap<Double, Integer>(aggregationEngine.countBy(Car.PRICE, hondas, queryOptions(log))), hondaPriceCounts);
+    }
+
+    @Test
+    public void testIndexesNotUsedWhenRetrievalIsFiltered() {
+        IndexedCollection<Car> collection = new TransactionalIndexedCollection<Car>(Car.class);
+        collection.addIndex(NavigableIndex.onAttribute(Car.PRICE));
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        AggregationEngine<Car> aggregationEngine = collection.getAggregationEngine();
+        Query<Car> all = all(Car.class);
+
+        // Indexes might contain objects which are not yet committed, so aggregates must be computed from queries...
+        assertIndexUsed(false, log -> aggregationEngine.max(Car.PRICE, all, queryOptions(log)), 9000.23);
+        assertIndexUsed(false, log -> aggregationEngine.sum(Car.PRICE, lessThan(Car.PRICE, 3500.0), queryOptions(log)), 30000.0);
+        Assert.assertEquals(Integer.valueOf(30), aggregationEngine.countBy(Car.MANUFACTURER, all).get("Ford"));
+        Assert.assertEquals(30, aggregationEngine.count(equal(Car.MANUFACTURER, "Ford")));
+
+        // Unless the application reads uncommitted objects anyway...
+        assertIndexUsed(true, log -> aggregationEngine.max(Car.PRICE, all, queryOptions(isolationLevel(IsolationLevel.READ_UNCOMMITTED), log)), 9000.23);
+    }
+
+    interface Aggregation {
+        Object compute(QueryLog queryLog);
+    }
+
+    static void assertIndexUsed(boolean indexUsed, Aggregation aggregation, Object expectedResult) {
+        assertStrategy(indexUsed ? "index" : "stream", aggregation, expectedResult);
+    }
+
+    static void assertStrategy(String strategy, Aggregation aggregation, Object expectedResult) {
+        StringBuilder log = new StringBuilder();
+        Object result = aggregation.compute(new QueryLog(log));
+        if (expectedResult instanceof Double) {
+            Assert.assertEquals((Double) expectedResult, ((Number) result).doubleValue(), 0.001);
+        }
+        else {
+            Assert.assertEquals(expectedResult, result);
+        }
+        Assert.assertTrue(log.toString(), log.toString().contains("aggregationStrategy: " + strategy));
+    }
+}
@@ -30,8 +30,10 @@ import com.googlecode.cqengine.persistence.support.ObjectStore;
 import com.googlecode.cqengine.persistence.wrapping.WrappingPersistence;
 import com.googlecode.cqengine.query.Query;
 import com.googlecode.cqengine.query.QueryFactory;
+import com.googlecode.cqengine.query.option.QueryLog;
 import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.connective.ResultSetIntersection;
 import com.googlecode.cqengine.testutil.Car;
 import com.googlecode.cqengine.testutil.CarFactory;
 import com.googlecode.cqengine.testutil.IterationCountingSet;
@@ -39,8 +41,10 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.googlecode.cqengine.query.QueryFactory.*;
@@ -200,6 +204,43 @@ public class CollectionQueryEngineTest {
         Assert.assertEquals(0, countElements(queryEngine.getIndexes()));
     }
 
+    @Test
+    public void testStandingQuerySubsumption() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        collection.addIndex(StandingQueryIndex.onQuery(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED))));
+        StandingQueryIndex<Car> largestIndex = StandingQueryIndex.onQuery(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED), lessThan(Car.PRICE, 4500.0)));
+        collection.addIndex(largestIndex);
+
+        // The standing query with the most conjuncts contained in the And query should be used...
+        Query<Car> query = and(equal(Car.DOORS, 4), equal(Car.COLOR, Car.Color.RED), lessThan(Car.PRICE, 4500.0), equal(Car.MANUFACTURER, "Ford"));
+        StringBuilder log = new StringBuilder();
+        Assert.assertEquals(expectedCarIds(collection, query), retrieveCarIds(collection, query, new QueryLog(log)));
+        Assert.assertTrue(log.toString(), log.toString().contains("standingQuerySubsumption: and(equal(\"manufacturer\", \"Ford\"), equal(\"color\", RED), lessThan(\"price\", 4500.0))"));
+
+        // The standing query's conjuncts in a different order should be answered from the index directly...
+        log.setLength(0);
+        query = and(equal(Car.COLOR, Car.Color.RED), equal(Car.MANUFACTURER, "Ford"));
+        Assert.assertEquals(expectedCarIds(collection, query), retrieveCarIds(collection, query, new QueryLog(log)));
+        Assert.assertTrue(log.toString(), log.toString().contains("standingQuerySubsumption"));
+        ResultSet<Car> results = collection.retrieve(query);
+        Assert.assertFalse(results instanceof ResultSetIntersection);
+        Assert.assertEquals(20, results.size());
+
+        // An And query not containing all conjuncts of any standing query should be processed normally...
+        log.setLength(0);
+        query = and(equal(Car.COLOR, Car.Color.RED), equal(Car.DOORS, 4));
+        Assert.assertEquals(expectedCarIds(collection, query), retrieveCarIds(collection, query, new QueryLog(log)));
+        Assert.assertFalse(log.toString(), log.toString().contains("standingQuerySubsumption"));
+
+        // Once the largest standing query index is removed, the remaining one should be used instead...
+        collection.removeIndex(largestIndex);
+        log.setLength(0);
+        query = and(equal(Car.DOORS, 4), equal(Car.COLOR, Car.Color.RED), lessThan(Car.PRICE, 4500.0), equal(Car.MANUFACTURER, "Ford"));
+        Assert.assertEquals(expectedCarIds(collection, query), retrieveCarIds(collection, query, new QueryLog(log)));
+        Assert.assertTrue(log.toString(), log.toString().contains("standingQuerySubsumption: and(equal(\"manufacturer\", \"Ford\"), equal(\"color\", RED)) "));
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testRemoveIndex_ArgumentValidation1() {
         CollectionQueryEngine<Car> queryEngine = new CollectionQueryEngine<Car>();
@@ -208,6 +249,30 @@ public class CollectionQueryEngineTest {
         queryEngine.removeIndex(null, noQueryOptions());
     }
 
+    static Set<Integer> retrieveCarIds(IndexedCollection<Car> cars, Query<Car> query, QueryLog queryLog) {
+        Set<Integer> carIds = new HashSet<Integer>();
+        ResultSet<Car> results = cars.retrieve(query, queryOptions(queryLog));
+        try {
+            for (Car car : results) {
+                Assert.assertTrue("Duplicate: " + car, carIds.add(car.getCarId()));
+            }
+        }
+        finally {
+            results.close();
+        }
+        return carIds;
+    }
+
+    static Set<Integer> expectedCarIds(IndexedCollection<Car> cars, Query<Car> query) {
+        Set<Integer> carIds = new HashSet<Integer>();
+        for (Car car : cars) {
+            if (query.matches(car, noQueryOptions())) {
+                carIds.add(car.getCarId());
+            }
+        }
+        return carIds;
+    }
+
     static QueryOptions queryOptionsWithOnHeapPersistence() {
         QueryOptions queryOptions = new QueryOptions();
         queryOptions.put(Persistence.class, OnHeapPersistence.withoutPrimaryKey());
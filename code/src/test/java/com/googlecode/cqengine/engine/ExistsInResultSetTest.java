@@ -0,0 +1,166 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.engine;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.unique.UniqueIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+
+/**
+ * Tests for the join strategies chosen by {@link CollectionQueryEngine} for {@link com.googlecode.cqengine.query.simple.ExistsIn} queries.
+ */
+public class ExistsInResultSetTest {
+
+    @Test
+    public void testLocalProbe() {
+        IndexedCollection<Car> localCars = createCars(10);
+        IndexedCollection<Car> foreignCars = createCars(1000);
+        foreignCars.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+
+        Query<Car> query = existsIn(foreignCars, Car.MANUFACTURER, Car.MANUFACTURER, equal(Car.COLOR, Car.Color.BLUE));
+        assertJoin(localCars, query, ExistsInResultSet.JoinStrategy.LOCAL_PROBE);
+    }
+
+    @Test
+    public void testHashSemiJoin() {
+        IndexedCollection<Car> localCars = createCars(1000);
+        IndexedCollection<Car> foreignCars = createCars(10);
+
+        Query<Car> query = existsIn(foreignCars, Car.MANUFACTURER, Car.MANUFACTURER, equal(Car.COLOR, Car.Color.BLUE));
+        assertJoin(localCars, query, ExistsInResultSet.JoinStrategy.HASH_SEMI_JOIN);
+    }
+
+    @Test
+    public void testForeignDriven() {
+        IndexedCollection<Car> localCars = createCars(1000);
+        localCars.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        IndexedCollection<Car> foreignCars = createCars(10);
+        foreignCars.addIndex(UniqueIndex.onAttribute(Car.CAR_ID));
+
+        Query<Car> query = existsIn(foreignCars, Car.MANUFACTURER, Car.MANUFACTURER, equal(Car.CAR_ID, 3));
+        assertJoin(localCars, query, ExistsInResultSet.JoinStrategy.FOREIGN_DRIVEN);
+    }
+
+    @Test
+    public void testJoinWithinIntersection() {
+        IndexedCollection<Car> localCars = createCars(1000);
+        localCars.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        localCars.addIndex(UniqueIndex.onAttribute(Car.CAR_ID));
+        IndexedCollection<Car> foreignCars = createCars(10);
+
+        Query<Car> query = and(equal(Car.CAR_ID, 4), existsIn(foreignCars, Car.MANUFACTURER, Car.MANUFACTURER, equal(Car.COLOR, Car.Color.BLUE)));
+        Assert.assertEquals(expectedCarIds(localCars, query), retrieveCarIds(localCars, query, null));
+
+        PlanNode<Car> root = localCars.explain(query).getRoot();
+        Assert.assertEquals(PlanNode.Type.INTERSECTION, root.getType());
+        Assert.assertEquals(PlanNode.Type.INDEX_LOOKUP, root.getChildren().get(0).getType());
+        Assert.assertEquals(PlanNode.Type.SEMI_JOIN, root.getChildren().get(1).getType());
+    }
+
+    @Test
+    public void testForeignCollectionQueriedLazilyWithCallersOptions() {
+        IndexedCollection<Car> localCars = createCars(1000);
+        final List<QueryOptions> foreignQueryOptions = new ArrayList<QueryOptions>();
+        IndexedCollection<Car> foreignCars = new ConcurrentIndexedCollection<Car>() {
+            @Override
+            public ResultSet<Car> retrieve(Query<Car> query, QueryOptions queryOptions) {
+                foreignQueryOptions.add(queryOptions);
+                return super.retrieve(query, queryOptions);
+            }
+        };
+        foreignCars.addAll(CarFactory.createCollectionOfCars(10));
+
+        Query<Car> query = existsIn(foreignCars, Car.MANUFACTURER, Car.MANUFACTURER, equal(Car.COLOR, Car.Color.BLUE));
+        int expectedSize = expectedCarIds(localCars, query).size();
+        foreignQueryOptions.clear();
+        StringBuilder log = new StringBuilder();
+        QueryLog queryLog = new QueryLog(log);
+        QueryOptions localQueryOptions = queryOptions(queryLog);
+        localQueryOptions.put("localOption", Boolean.TRUE);
+        ResultSet<Car> results = localCars.retrieve(query, localQueryOptions);
+        try {
+            // The foreign collection should not be queried until the results are consumed...
+            Assert.assertTrue(foreignQueryOptions.isEmpty());
+            Assert.assertFalse(log.toString().contains("joinStrategy"));
+            Assert.assertEquals(expectedSize, results.size());
+        }
+        finally {
+            results.close();
+        }
+        Assert.assertFalse(foreignQueryOptions.isEmpty());
+        for (QueryOptions options : foreignQueryOptions) {
+            // The caller's query log applies to the foreign collection, but other options do not...
+            Assert.assertSame(queryLog, options.get(QueryLog.class));
+            Assert.assertNull(options.get("localOption"));
+        }
+    }
+
+    static void assertJoin(IndexedCollection<Car> localCars, Query<Car> query, ExistsInResultSet.JoinStrategy expectedStrategy) {
+        StringBuilder log = new StringBuilder();
+        Set<Integer> actual = retrieveCarIds(localCars, query, new QueryLog(log));
+        Assert.assertTrue(log.toString(), log.toString().contains("joinStrategy: " + expectedStrategy));
+        Assert.assertEquals(expectedCarIds(localCars, query), actual);
+        Assert.assertFalse(actual.isEmpty());
+        Assert.assertEquals(PlanNode.Type.SEMI_JOIN, localCars.explain(query).getRoot().getType());
+    }
+
+    static Set<Integer> retrieveCarIds(IndexedCollection<Car> cars, Query<Car> query, QueryLog queryLog) {
+        Set<Integer> carIds = new HashSet<Integer>();
+        ResultSet<Car> results = queryLog == null ? cars.retrieve(query) : cars.retrieve(query, queryOptions(queryLog));
+        try {
+            for (Car car : results) {
+                Assert.assertTrue("Duplicate: " + car, carIds.add(car.getCarId()));
+            }
+        }
+        finally {
+            results.close();
+        }
+        return carIds;
+    }
+
+    static Set<Integer> expectedCarIds(IndexedCollection<Car> cars, Query<Car> query) {
+        Set<Integer> carIds = new HashSet<Integer>();
+        for (Car car : cars) {
+            if (query.matches(car, noQueryOptions())) {
+                carIds.add(car.getCarId());
+            }
+        }
+        return carIds;
+    }
+
+    static IndexedCollection<Car> createCars(int numCars) {
+        IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>();
+        cars.addAll(CarFactory.createCollectionOfCars(numCars));
+        return cars;
+    }
+}
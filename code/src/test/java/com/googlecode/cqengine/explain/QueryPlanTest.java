@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.explain;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.index.unique.UniqueIndex;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+import com.googlecode.cqengine.query.option.EngineFlags;
+import com.googlecode.cqengine.query.option.EngineThresholds;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+
+/**
+ * Tests for {@link QueryPlan} returned by {@link IndexedCollection#explain(com.googlecode.cqengine.query.Query)}.
+ */
+public class QueryPlanTest {
+
+    @Test
+    public void testExplainSimpleQuery() {
+        IndexedCollection<Car> collection = createCollection();
+
+        QueryPlan<Car> plan = collection.explain(equal(Car.CAR_ID, 5));
+        Assert.assertEquals(PlanNode.Type.INDEX_LOOKUP, plan.getRoot().getType());
+        Assert.assertTrue(plan.getRoot().getIndex() instanceof UniqueIndex);
+        Assert.assertEquals(QueryPlan.OrderingStrategy.NONE, plan.getOrderingStrategy());
+        Assert.assertEquals(DeduplicationStrategy.DUPLICATES_ALLOWED, plan.getDeduplicationStrategy());
+        Assert.assertFalse(plan.isAnalyzed());
+        Assert.assertFalse(plan.getRoot().isAnalyzed());
+    }
+
+    @Test
+    public void testExplainIntersection() {
+        IndexedCollection<Car> collection = createCollection();
+
+        QueryPlan<Car> plan = collection.explain(and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.PRICE, 5000.0), equal(Car.CAR_ID, 1)));
+        PlanNode<Car> root = plan.getRoot();
+        Assert.assertEquals(PlanNode.Type.INTERSECTION, root.getType());
+        Assert.assertEquals(PlanNode.MergeStrategy.FILTER, root.getMergeStrategy());
+        Assert.assertEquals(3, root.getChildren().size());
+        // The branch with the lowest merge cost (the unique index) should be evaluated first...
+        Assert.assertTrue(root.getChildren().get(0).getIndex() instanceof UniqueIndex);
+        for (PlanNode<Car> child : root.getChildren()) {
+            Assert.assertEquals(PlanNode.Type.INDEX_LOOKUP, child.getType());
+        }
+
+        QueryPlan<Car> indexMergePlan = collection.explain(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.CAR_ID, 1)),
+                queryOptions(enableFlags(EngineFlags.PREFER_INDEX_MERGE_STRATEGY)));
+        Assert.assertEquals(PlanNode.MergeStrategy.INDEX, indexMergePlan.getRoot().getMergeStrategy());
+    }
+
+    @Test
+    public void testExplainUnionAndDifference() {
+        IndexedCollection<Car> collection = createCollection();
+
+        QueryPlan<Car> unionPlan = collection.explain(or(equal(Car.MANUFACTURER, "Ford"), equal(Car.MANUFACTURER, "Honda")),
+                queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION)));
+        Assert.assertEquals(PlanNode.Type.UNION, unionPlan.getRoot().getType());
+        Assert.assertEquals(2, unionPlan.getRoot().getChildren().size());
+        Assert.assertEquals(DeduplicationStrategy.LOGICAL_ELIMINATION, unionPlan.getDeduplicationStrategy());
+
+        QueryPlan<Car> differencePlan = collection.explain(not(equal(Car.CAR_ID, 1)));
+        Assert.assertEquals(PlanNode.Type.DIFFERENCE, differencePlan.getRoot().getType());
+        Assert.assertEquals(PlanNode.Type.COLLECTION_SCAN, differencePlan.getRoot().getChildren().get(0).getType());
+        Assert.assertEquals(PlanNode.Type.INDEX_LOOKUP, differencePlan.getRoot().getChildren().get(1).getType());
+    }
+
+    @Test
+    public void testExplainOrdering() {
+        IndexedCollection<Car> collection = createCollection();
+
+        QueryPlan<Car> materializePlan = collection.explain(equal(Car.MANUFACTURER, "Ford"), queryOptions(orderBy(ascending(Car.DOORS))));
+        Assert.assertEquals(QueryPlan.OrderingStrategy.MATERIALIZE, materializePlan.getOrderingStrategy());
+        Assert.assertNull(materializePlan.getIndexForOrdering());
+
+        QueryPlan<Car> indexPlan = collection.explain(equal(Car.MANUFACTURER, "Ford"),
+                queryOptions(orderBy(ascending(Car.PRICE)), applyThresholds(threshold(EngineThresholds.INDEX_ORDERING_SELECTIVITY, 1.0))));
+        Assert.assertEquals(QueryPlan.OrderingStrategy.INDEX, indexPlan.getOrderingStrategy());
+        Assert.assertTrue(indexPlan.getIndexForOrdering() instanceof NavigableIndex);
+    }
+
+    @Test
+    public void testExplainAnalyze() {
+        IndexedCollection<Car> collection = createCollection();
+
+        QueryPlan<Car> plan = collection.explain(and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.PRICE, 5000.0)),
+                queryOptions(enableFlags(EngineFlags.EXPLAIN_ANALYZE)));
+        Assert.assertTrue(plan.isAnalyzed());
+        Assert.assertEquals(collection.retrieve(and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.PRICE, 5000.0))).size(), plan.getActualRows());
+        Assert.assertEquals(plan.getActualRows(), plan.getRoot().getActualRows());
+        for (PlanNode<Car> child : plan.getRoot().getChildren()) {
+            Assert.assertTrue(child.isAnalyzed());
+        }
+        Assert.assertTrue(plan.toString().contains("actualRows="));
+    }
+
+    static IndexedCollection<Car> createCollection() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(UniqueIndex.onAttribute(Car.CAR_ID));
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addIndex(NavigableIndex.onAttribute(Car.PRICE));
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+        return collection;
+    }
+}
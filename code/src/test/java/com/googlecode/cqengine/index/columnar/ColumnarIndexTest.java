@@ -0,0 +1,164 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.columnar;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Tests for {@link ColumnarIndex}.
+ */
+public class ColumnarIndexTest {
+
+    @Test
+    public void testQueriesMatchFullScan() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        ColumnarIndex<Double, Car> priceIndex = ColumnarIndex.onAttribute(Car.PRICE);
+        collection.addIndex(priceIndex);
+        collection.addIndex(ColumnarIndex.onAttribute(Car.DOORS));
+        collection.addIndex(ColumnarIndex.onAttribute(Car.COLOR));
+        collection.addAll(CarFactory.createCollectionOfCars(200));
+
+        List<Query<Car>> queries = asList(
+                equal(Car.PRICE, 5000.0),
+                lessThan(Car.PRICE, 5000.0),
+                lessThanOrEqualTo(Car.PRICE, 5000.0),
+                greaterThan(Car.PRICE, 7800.55),
+                greaterThanOrEqualTo(Car.PRICE, 7800.55),
+                between(Car.PRICE, 3999.99, false, 6000.0, true),
+                between(Car.PRICE, 6000.0, 5000.0),
+                in(Car.PRICE, 3000.0, 9000.23, 1.0),
+                has(Car.PRICE),
+                greaterThan(Car.DOORS, 3),
+                in(Car.COLOR, Car.Color.BLUE, Car.Color.GREEN),
+                lessThan(Car.COLOR, Car.Color.WHITE),
+                and(equal(Car.COLOR, Car.Color.RED), lessThan(Car.DOORS, 5), greaterThan(Car.PRICE, 3000.0))
+        );
+        for (Query<Car> query : queries) {
+            Assert.assertEquals(query.toString(), expectedCarIds(collection, query), retrieveCarIds(collection, query));
+        }
+        PlanNode<Car> root = collection.explain(lessThan(Car.PRICE, 5000.0)).getRoot();
+        Assert.assertSame(priceIndex, root.getIndex());
+
+        ResultSet<Car> results = collection.retrieve(lessThan(Car.PRICE, 4000.0));
+        Assert.assertEquals(40, results.size());
+        Assert.assertTrue(results.contains(CarFactory.createCar(4)));
+        Assert.assertFalse(results.contains(CarFactory.createCar(3)));
+        results.close();
+    }
+
+    @Test
+    public void testRemovalsAndSlotReuse() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(ColumnarIndex.onAttribute(Car.CAR_ID));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        for (int carId = 0; carId < 100; carId += 2) {
+            collection.remove(CarFactory.createCar(carId));
+        }
+        Assert.assertEquals(asList(1, 3, 5, 7, 9), retrieveCarIds(collection, lessThan(Car.CAR_ID, 10)));
+        collection.addAll(asList(CarFactory.createCar(200), CarFactory.createCar(4)));
+        Assert.assertEquals(asList(1, 3, 4, 5, 7, 9), retrieveCarIds(collection, lessThan(Car.CAR_ID, 10)));
+        Assert.assertEquals(asList(200), retrieveCarIds(collection, greaterThan(Car.CAR_ID, 99)));
+        collection.clear();
+        Assert.assertEquals(Collections.<Integer>emptyList(), retrieveCarIds(collection, has(Car.CAR_ID)));
+    }
+
+    @Test
+    public void testLazyIterationAcrossBatches() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        ColumnarIndex<Integer, Car> carIdIndex = ColumnarIndex.onAttribute(Car.CAR_ID);
+        collection.addIndex(carIdIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(5000));
+
+        ResultSet<Car> results = carIdIndex.retrieve(greaterThanOrEqualTo(Car.CAR_ID, 100), noQueryOptions());
+        Assert.assertEquals(4900, results.size());
+        Assert.assertEquals(4900, results.getMergeCost());
+        Iterator<Car> iterator = results.iterator();
+        Assert.assertEquals(100, iterator.next().getCarId());
+
+        // Objects in batches not yet evaluated should not be returned once removed, nor should the iterator fail...
+        collection.removeAll(collection.retrieve(between(Car.CAR_ID, 2000, 2999)).stream().collect(toList()));
+        int count = 1;
+        while (iterator.hasNext()) {
+            int carId = iterator.next().getCarId();
+            Assert.assertTrue(String.valueOf(carId), carId < 2000 || carId >= 3000);
+            count++;
+        }
+        Assert.assertEquals(3900, count);
+    }
+
+    @Test
+    public void testEncodingPreservesOrdering() {
+        List<Double> doubles = asList(Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, Double.MIN_VALUE, 2.5, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN);
+        for (int i = 1; i < doubles.size(); i++) {
+            Assert.assertTrue(ColumnarIndex.encode(doubles.get(i - 1)) < ColumnarIndex.encode(doubles.get(i)));
+        }
+        Assert.assertTrue(ColumnarIndex.encode(-1.5F) < ColumnarIndex.encode(-0.0F));
+        Assert.assertTrue(ColumnarIndex.encode(0.0F) < ColumnarIndex.encode(1.0F));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMultiValuedAttributeRejected() {
+        ColumnarIndex.onAttribute(Car.FEATURES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedAttributeTypeRejected() {
+        ColumnarIndex.onAttribute(Car.MODEL);
+    }
+
+    static List<Integer> retrieveCarIds(IndexedCollection<Car> collection, Query<Car> query) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        ResultSet<Car> results = collection.retrieve(query);
+        try {
+            for (Car car : results) {
+                carIds.add(car.getCarId());
+            }
+        }
+        finally {
+            results.close();
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+
+    static List<Integer> expectedCarIds(IndexedCollection<Car> collection, Query<Car> query) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (Car car : collection) {
+            if (query.matches(car, noQueryOptions())) {
+                carIds.add(car.getCarId());
+            }
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+}
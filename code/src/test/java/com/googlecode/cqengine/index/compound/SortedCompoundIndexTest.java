@@ -0,0 +1,281 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.compound;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.explain.QueryPlan;
+import com.googlecode.cqengine.index.compound.support.CompoundAttribute;
+import com.googlecode.cqengine.index.compound.support.CompoundRangeQuery;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link SortedCompoundIndex}.
+ */
+public class SortedCompoundIndexTest {
+
+    @Test
+    public void testPrefixAndRangeQueries() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        SortedCompoundIndex<Car> index = SortedCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE, Car.CAR_ID);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        List<Query<Car>> queries = asList(
+                and(equal(Car.MANUFACTURER, "Ford"), between(Car.PRICE, 4000.0, 6000.0)),
+                and(equal(Car.MANUFACTURER, "Ford"), between(Car.PRICE, 3999.99, false, 6000.0, false)),
+                and(equal(Car.MANUFACTURER, "Honda"), lessThanOrEqualTo(Car.PRICE, 4000.0)),
+                and(equal(Car.MANUFACTURER, "Honda"), greaterThan(Car.PRICE, 3000.0), lessThan(Car.PRICE, 5000.0)),
+                and(equal(Car.MANUFACTURER, "Toyota"), equal(Car.PRICE, 8500.0), lessThan(Car.CAR_ID, 50)),
+                and(equal(Car.PRICE, 5000.0), equal(Car.MANUFACTURER, "Ford"), equal(Car.CAR_ID, 10)),
+                and(greaterThanOrEqualTo(Car.MANUFACTURER, "Honda"), lessThan(Car.MANUFACTURER, "Toyota"))
+        );
+        for (Query<Car> query : queries) {
+            List<Car> results = retrieve(collection, query, noQueryOptions());
+            Assert.assertEquals(query.toString(), expectedCarIds(collection, query), sortedCarIds(results));
+            Assert.assertFalse(query.toString(), results.isEmpty());
+            PlanNode<Car> root = collection.explain(query).getRoot();
+            Assert.assertEquals(query.toString(), PlanNode.Type.INDEX_LOOKUP, root.getType());
+            Assert.assertSame(query.toString(), index, root.getIndex());
+        }
+        // An empty range...
+        Assert.assertTrue(retrieve(collection, and(equal(Car.MANUFACTURER, "Ford"), between(Car.PRICE, 6000.0, 5000.0)), noQueryOptions()).isEmpty());
+        // Results of a range scan are in order of the range attribute...
+        List<Car> results = retrieve(collection, queries.get(3), noQueryOptions());
+        for (int i = 1; i < results.size(); i++) {
+            Assert.assertTrue(results.get(i - 1).getPrice() <= results.get(i).getPrice());
+        }
+    }
+
+    @Test
+    public void testIndexOrdering() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        SortedCompoundIndex<Car> index = SortedCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Toyota"), between(Car.PRICE, 5000.0, 9000.0));
+        for (boolean descending : asList(false, true)) {
+            StringBuilder log = new StringBuilder();
+            QueryOptions queryOptions = queryOptions(orderBy(descending ? descending(Car.PRICE) : ascending(Car.PRICE)), new QueryLog(log));
+            List<Car> results = retrieve(collection, query, queryOptions);
+            Assert.assertTrue(log.toString(), log.toString().contains("orderingStrategy: compoundIndex"));
+            Assert.assertEquals(expectedCarIds(collection, query), sortedCarIds(results));
+            for (int i = 1; i < results.size(); i++) {
+                int comparison = Double.compare(results.get(i - 1).getPrice(), results.get(i).getPrice());
+                Assert.assertTrue(descending ? comparison >= 0 : comparison <= 0);
+            }
+            QueryPlan<Car> plan = collection.explain(query, queryOptions(orderBy(ascending(Car.PRICE))));
+            Assert.assertEquals(QueryPlan.OrderingStrategy.INDEX, plan.getOrderingStrategy());
+            Assert.assertSame(index, plan.getIndexForOrdering());
+        }
+        // Ordering by an attribute other than the range attribute cannot use the index...
+        StringBuilder log = new StringBuilder();
+        retrieve(collection, query, queryOptions(orderBy(ascending(Car.CAR_ID)), new QueryLog(log)));
+        Assert.assertFalse(log.toString(), log.toString().contains("orderingStrategy: compoundIndex"));
+    }
+
+    @Test
+    public void testMultiValuedAttributeIsDeduplicated() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        SortedCompoundIndex<Car> index = SortedCompoundIndex.onAttributes(Car.MANUFACTURER, Car.FEATURES);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+        Assert.assertFalse(index.hasSingleValuedAttributes());
+
+        // The Prius has two features, so would be returned twice without deduplication...
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Toyota"), greaterThan(Car.FEATURES, "a"));
+        Assert.assertEquals(2, retrieve(collection, query, noQueryOptions()).size());
+        Assert.assertEquals(asList(7), sortedCarIds(retrieve(collection, query, queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION)))));
+    }
+
+    @Test
+    public void testTrailingAttributeWithoutValues() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        SortedCompoundIndex<Car> index = SortedCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE, Car.FEATURES);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        // Car 0 has no features, so is not stored in the index, and a range scan would not find it...
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.PRICE, 100000.0));
+        Assert.assertEquals(asList(0, 1, 2), sortedCarIds(retrieve(collection, query, noQueryOptions())));
+        Assert.assertNotSame(index, collection.explain(query).getRoot().getIndex());
+        CompoundRangeQuery<Car> rangeQuery = CompoundRangeQuery.fromAndQueryIfSuitable((And<Car>) query, index.getAttribute());
+        Assert.assertFalse(rangeQuery.isAnswerableByRangeScan());
+        Assert.assertFalse(index.supportsQuery(rangeQuery, noQueryOptions()));
+
+        // A query which constrains every attribute can still be answered by the index...
+        query = and(equal(Car.MANUFACTURER, "Ford"), equal(Car.PRICE, 3999.99), greaterThan(Car.FEATURES, "a"));
+        Assert.assertEquals(asList(1), sortedCarIds(retrieve(collection, query, noQueryOptions())));
+        Assert.assertSame(index, collection.explain(query).getRoot().getIndex());
+    }
+
+    @Test
+    public void testFromAndQueryIfSuitable() {
+        CompoundAttribute<Car> attribute = SortedCompoundIndex.<Car>onAttributes(Car.MANUFACTURER, Car.PRICE, Car.CAR_ID).getAttribute();
+        CompoundRangeQuery<Car> rangeQuery = CompoundRangeQuery.fromAndQueryIfSuitable(
+                and(lessThan(Car.PRICE, 5000.0), equal(Car.MANUFACTURER, "Ford"), greaterThan(Car.PRICE, 1000.0)), attribute);
+        Assert.assertNotNull(rangeQuery);
+        Assert.assertEquals(Collections.<Object>singletonList("Ford"), rangeQuery.getPrefixValues());
+        Assert.assertEquals(Car.PRICE, rangeQuery.getRangeAttribute());
+        Assert.assertEquals(1000.0, rangeQuery.getLowerBound());
+        Assert.assertEquals(5000.0, rangeQuery.getUpperBound());
+
+        // Gap in the prefix...
+        Assert.assertNull(CompoundRangeQuery.fromAndQueryIfSuitable(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.CAR_ID, 1)), attribute));
+        // Range not on the attribute following the prefix...
+        Assert.assertNull(CompoundRangeQuery.fromAndQueryIfSuitable(and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.CAR_ID, 1)), attribute));
+        // Attribute not in the index...
+        Assert.assertNull(CompoundRangeQuery.fromAndQueryIfSuitable(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 5)), attribute));
+        // Two lower bounds...
+        Assert.assertNull(CompoundRangeQuery.fromAndQueryIfSuitable(and(greaterThan(Car.MANUFACTURER, "A"), greaterThan(Car.MANUFACTURER, "B")), attribute));
+    }
+
+    @Test
+    public void testFromConjunctsIfSuitableRequiresTwoConjuncts() {
+        CompoundAttribute<Car> attribute = SortedCompoundIndex.<Car>onAttributes(Car.MANUFACTURER, Car.PRICE).getAttribute();
+        // A single equality condition on the leading attribute is not answered by the compound index...
+        Assert.assertNull(CompoundRangeQuery.fromConjunctsIfSuitable(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED)), attribute));
+        // Nor is a single range condition on the leading attribute...
+        Assert.assertNull(CompoundRangeQuery.fromConjunctsIfSuitable(and(greaterThan(Car.MANUFACTURER, "A"), equal(Car.COLOR, Car.Color.RED)), attribute));
+        // A leading equality condition together with a range on the following attribute is...
+        CompoundRangeQuery<Car> rangeQuery = CompoundRangeQuery.fromConjunctsIfSuitable(
+                and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED), lessThan(Car.PRICE, 5000.0)), attribute);
+        Assert.assertNotNull(rangeQuery);
+        Assert.assertEquals(2, rangeQuery.getAndQuery().size());
+
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(SortedCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED));
+        StringBuilder log = new StringBuilder();
+        List<Car> results = retrieve(collection, query, queryOptions(new QueryLog(log)));
+        Assert.assertEquals(expectedCarIds(collection, query), sortedCarIds(results));
+        Assert.assertFalse(log.toString(), log.toString().contains("compoundIndexPartialMatch: "));
+    }
+
+    @Test
+    public void testPartialMatchWithinLargerAndQuery() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        CompoundIndex<Car> exactIndex = CompoundIndex.onAttributes(Car.MANUFACTURER, Car.COLOR);
+        SortedCompoundIndex<Car> sortedIndex = SortedCompoundIndex.onAttributes(Car.MODEL, Car.PRICE);
+        collection.addIndex(exactIndex);
+        collection.addIndex(sortedIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        Map<Query<Car>, CompoundIndex<Car>> queries = new LinkedHashMap<Query<Car>, CompoundIndex<Car>>();
+        queries.put(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 4), equal(Car.COLOR, Car.Color.RED)), exactIndex);
+        queries.put(and(equal(Car.COLOR, Car.Color.BLACK), lessThan(Car.CAR_ID, 50), equal(Car.MANUFACTURER, "Honda"), equal(Car.DOORS, 5)), exactIndex);
+        queries.put(and(equal(Car.MODEL, "Focus"), greaterThan(Car.PRICE, 4000.0), lessThan(Car.CAR_ID, 60), equal(Car.DOORS, 5)), sortedIndex);
+        queries.put(and(equal(Car.MODEL, "Prius"), equal(Car.PRICE, 8500.0), equal(Car.MANUFACTURER, "Toyota")), sortedIndex);
+        for (Map.Entry<Query<Car>, CompoundIndex<Car>> entry : queries.entrySet()) {
+            Query<Car> query = entry.getKey();
+            StringBuilder log = new StringBuilder();
+            List<Car> results = retrieve(collection, query, queryOptions(new QueryLog(log)));
+            Assert.assertEquals(query.toString(), expectedCarIds(collection, query), sortedCarIds(results));
+            Assert.assertFalse(query.toString(), results.isEmpty());
+            Assert.assertTrue(log.toString(), log.toString().contains("compoundIndexPartialMatch: "));
+            PlanNode<Car> root = collection.explain(query).getRoot();
+            Assert.assertTrue(query.toString(), usesIndex(root, entry.getValue()));
+        }
+        // A single conjunct on the leading attribute is not worth a compound index lookup...
+        StringBuilder log = new StringBuilder();
+        retrieve(collection, and(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 5)), queryOptions(new QueryLog(log)));
+        Assert.assertFalse(log.toString(), log.toString().contains("compoundIndexPartialMatch: "));
+    }
+
+    @Test
+    public void testPartialMatchWithTrailingAttributeWithoutValues() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        CompoundIndex<Car> exactIndex = CompoundIndex.onAttributes(Car.MODEL, Car.DOORS);
+        SortedCompoundIndex<Car> sortedIndex = SortedCompoundIndex.onAttributes(Car.MODEL, Car.DOORS, Car.PRICE, Car.FEATURES);
+        collection.addIndex(exactIndex);
+        collection.addIndex(sortedIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        // The sorted index would answer more conjuncts, but Focuses have no features so are not stored in it...
+        Query<Car> query = and(equal(Car.MODEL, "Focus"), equal(Car.DOORS, 5), greaterThan(Car.PRICE, 1000.0), lessThan(Car.CAR_ID, 60));
+        StringBuilder log = new StringBuilder();
+        List<Car> results = retrieve(collection, query, queryOptions(new QueryLog(log)));
+        Assert.assertEquals(asList(0, 10, 20, 30, 40, 50), sortedCarIds(results));
+        Assert.assertEquals(expectedCarIds(collection, query), sortedCarIds(results));
+        Assert.assertTrue(log.toString(), log.toString().contains("compoundIndexPartialMatch: "));
+        PlanNode<Car> root = collection.explain(query).getRoot();
+        Assert.assertTrue(usesIndex(root, exactIndex));
+        Assert.assertFalse(usesIndex(root, sortedIndex));
+    }
+
+    static boolean usesIndex(PlanNode<Car> node, CompoundIndex<Car> index) {
+        if (node.getIndex() == index) {
+            return true;
+        }
+        for (PlanNode<Car> child : node.getChildren()) {
+            if (usesIndex(child, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static List<Car> retrieve(IndexedCollection<Car> collection, Query<Car> query, QueryOptions queryOptions) {
+        ResultSet<Car> results = collection.retrieve(query, queryOptions);
+        try {
+            List<Car> cars = new ArrayList<Car>();
+            for (Car car : results) {
+                cars.add(car);
+            }
+            return cars;
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    static List<Integer> sortedCarIds(List<Car> cars) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (Car car : cars) {
+            carIds.add(car.getCarId());
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+
+    static List<Integer> expectedCarIds(IndexedCollection<Car> collection, Query<Car> query) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (Car car : collection) {
+            if (query.matches(car, noQueryOptions())) {
+                carIds.add(car.getCarId());
+            }
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+}
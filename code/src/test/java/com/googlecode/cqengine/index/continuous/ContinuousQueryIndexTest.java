@@ -0,0 +1,253 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.continuous;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.TransactionalIndexedCollection;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link ContinuousQueryIndex}.
+ */
+public class ContinuousQueryIndexTest {
+
+    @Test
+    public void testDeltasDeliveredForMatchingWrites() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        // Deliver changes synchronously on the writing thread...
+        ContinuousQueryIndex<Car> index = ContinuousQueryIndex.withExecutor(Runnable::run);
+        collection.addIndex(index);
+
+        RecordingListener fordListener = new RecordingListener();
+        RecordingListener hondaListener = new RecordingListener();
+        Query<Car> fords = equal(Car.MANUFACTURER, "Ford");
+        index.subscribe(fords, fordListener);
+        index.subscribe(equal(Car.MANUFACTURER, "Honda"), hondaListener);
+        Assert.assertEquals(2, index.getQueryCount());
+
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+        Assert.assertEquals(1, fordListener.batches.size());
+        Assert.assertEquals(fords, fordListener.batches.get(0).getQuery());
+        Assert.assertEquals(asList(0, 1, 2), fordListener.addedIds());
+        Assert.assertEquals(asList(3, 4, 5), hondaListener.addedIds());
+
+        collection.remove(CarFactory.createCar(1));
+        collection.remove(CarFactory.createCar(7));
+        Assert.assertEquals(asList(1), fordListener.removedIds());
+        Assert.assertEquals(Collections.emptyList(), hondaListener.removedIds());
+        Assert.assertEquals(2, fordListener.batches.size());
+        Assert.assertEquals(1, hondaListener.batches.size());
+    }
+
+    @Test
+    public void testSubscriptionsToEqualQueriesShareEvaluation() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        ContinuousQueryIndex<Car> index = ContinuousQueryIndex.withExecutor(Runnable::run);
+        collection.addIndex(index);
+
+        RecordingListener listener1 = new RecordingListener();
+        RecordingListener listener2 = new RecordingListener();
+        ContinuousQueryIndex.Subscription<Car> subscription1 = index.subscribe(equal(Car.COLOR, Car.Color.RED), listener1);
+        index.subscribe(equal(Car.COLOR, Car.Color.RED), listener2);
+        Assert.assertEquals(1, index.getQueryCount());
+
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+        Assert.assertFalse(listener1.addedIds().isEmpty());
+        Assert.assertEquals(listener1.addedIds(), listener2.addedIds());
+
+        subscription1.cancel();
+        Assert.assertTrue(subscription1.isCancelled());
+        collection.add(CarFactory.createCar(10));
+        Assert.assertEquals(1, listener1.batches.size());
+        Assert.assertEquals(1, index.getQueryCount());
+
+        collection.removeIndex(index);
+        collection.clear();
+        Assert.assertTrue(listener2.removedIds().isEmpty());
+    }
+
+    @Test
+    public void testBatchSizeAndBackPressure() throws Exception {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExecutorService writerExecutor = Executors.newSingleThreadExecutor();
+        try {
+            ContinuousQueryIndex<Car> index = ContinuousQueryIndex.withExecutor(executor, 3, 5);
+            collection.addIndex(index);
+
+            // A listener which blocks until released, so that changes accumulate...
+            final CountDownLatch release = new CountDownLatch(1);
+            final RecordingListener listener = new RecordingListener() {
+                @Override
+                public void onChanges(ChangeBatch<Car> changes) {
+                    awaitUninterruptibly(release);
+                    super.onChanges(changes);
+                }
+            };
+            ContinuousQueryIndex.Subscription<Car> subscription = index.subscribe(greaterThanOrEqualTo(Car.CAR_ID, 0), listener);
+
+            Future<?> writer = writerExecutor.submit(() -> collection.addAll(CarFactory.createCollectionOfCars(20)));
+            // The writer should block once the subscription has 5 pending changes (3 of the 20 being delivered)...
+            long deadline = System.currentTimeMillis() + 10000;
+            while (subscription.getPendingChanges() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            Assert.assertEquals(5, subscription.getPendingChanges());
+            Assert.assertFalse("Writer should have been blocked by back-pressure", writer.isDone());
+            release.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+
+            deadline = System.currentTimeMillis() + 10000;
+            while (listener.addedIds().size() < 20 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < 20; i++) {
+                expected.add(i);
+            }
+            Assert.assertEquals(expected, listener.addedIds());
+            for (ChangeBatch<Car> batch : listener.batches) {
+                Assert.assertTrue(batch.getChanges().size() <= 3);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            writerExecutor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectedDeliveryDropsChanges() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        ContinuousQueryIndex<Car> index = ContinuousQueryIndex.withExecutor(executor, 3, 5);
+        collection.addIndex(index);
+        RecordingListener listener = new RecordingListener();
+        ContinuousQueryIndex.Subscription<Car> subscription = index.subscribe(greaterThanOrEqualTo(Car.CAR_ID, 0), listener);
+
+        final List<Throwable> reported = new CopyOnWriteArrayList<Throwable>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler previousHandler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                reported.add(e);
+            }
+        });
+        try {
+            // More changes than can be pending, which would block the writer if rejected changes were kept...
+            collection.addAll(CarFactory.createCollectionOfCars(20));
+        }
+        finally {
+            thread.setUncaughtExceptionHandler(previousHandler);
+        }
+        // The listener should not have been invoked on the writing thread...
+        Assert.assertTrue(listener.batches.isEmpty());
+        Assert.assertEquals(20, subscription.getDroppedChanges());
+        Assert.assertEquals(0, subscription.getPendingChanges());
+        Assert.assertFalse(reported.isEmpty());
+        Assert.assertTrue(reported.get(0) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testChangesDeliveredInOrder() {
+        IndexedCollection<Car> collection = new TransactionalIndexedCollection<Car>(Car.class);
+        ContinuousQueryIndex<Car> index = ContinuousQueryIndex.withExecutor(Runnable::run);
+        collection.addIndex(index);
+        RecordingListener listener = new RecordingListener();
+        index.subscribe(equal(Car.MANUFACTURER, "Ford"), listener);
+
+        collection.add(CarFactory.createCar(0));
+        Car replacement = new Car(10, "Ford", "Focus", Car.Color.BLUE, 5, 4500.00, Collections.<String>emptyList(), Collections.<String>emptyList());
+        collection.update(asList(CarFactory.createCar(0)), asList(replacement));
+
+        // The replacement is added before the original is removed, and the order should be preserved...
+        List<ChangeBatch.Change<Car>> changes = new ArrayList<ChangeBatch.Change<Car>>();
+        for (ChangeBatch<Car> batch : listener.batches) {
+            changes.addAll(batch.getChanges());
+        }
+        Assert.assertEquals(3, changes.size());
+        Assert.assertTrue(changes.get(0).isAdded());
+        Assert.assertTrue(changes.get(1).isAdded());
+        Assert.assertSame(replacement, changes.get(1).getObject());
+        Assert.assertFalse(changes.get(2).isAdded());
+        Assert.assertEquals(0, changes.get(2).getObject().getCarId());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRetrieveUnsupported() {
+        ContinuousQueryIndex<Car> index = ContinuousQueryIndex.withExecutor(Runnable::run);
+        Assert.assertFalse(index.supportsQuery(all(Car.class), noQueryOptions()));
+        index.retrieve(all(Car.class), noQueryOptions());
+    }
+
+    static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class RecordingListener implements ContinuousQueryListener<Car> {
+        final List<ChangeBatch<Car>> batches = new CopyOnWriteArrayList<ChangeBatch<Car>>();
+
+        @Override
+        public void onChanges(ChangeBatch<Car> changes) {
+            batches.add(changes);
+        }
+
+        List<Integer> addedIds() {
+            List<Integer> carIds = new ArrayList<Integer>();
+            for (ChangeBatch<Car> batch : batches) {
+                for (ChangeBatch.Change<Car> change : batch.getChanges()) {
+                    if (change.isAdded()) {
+                        carIds.add(change.getObject().getCarId());
+                    }
+                }
+            }
+            return carIds;
+        }
+
+        List<Integer> removedIds() {
+            List<Integer> carIds = new ArrayList<Integer>();
+            for (ChangeBatch<Car> batch : batches) {
+                for (ChangeBatch.Change<Car> change : batch.getChanges()) {
+                    if (!change.isAdded()) {
+                        carIds.add(change.getObject().getCarId());
+                    }
+                }
+            }
+            return carIds;
+        }
+    }
+}
@@ -224,6 +224,24 @@ public class NavigableIndexTest {
         assertEquals(asList(96, 97, 98), carIdsFound);
     }
 
+    @Test
+    public void testBPlusTreeIndexMapFactory() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        NavigableIndex<Double, Car> PRICE_INDEX = NavigableIndex.onAttribute(
+                new NavigableIndex.BPlusTreeIndexMapFactory<Double, Car>(4), new NavigableIndex.DefaultValueSetFactory<Car>(), Car.PRICE
+        );
+        collection.addIndex(PRICE_INDEX);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+        collection.removeAll(collection.retrieve(lessThan(Car.CAR_ID, 10)).stream().toList());
+
+        assertEquals(Integer.valueOf(9), PRICE_INDEX.getCountOfDistinctKeys(noQueryOptions()));
+        assertEquals(asList(3000.0, 3999.99, 4000.0, 5000.0, 5999.95, 6000.0, 7800.55, 8500.0, 9000.23), new ArrayList<Double>(setOf(PRICE_INDEX.getDistinctKeys(noQueryOptions()))));
+        assertEquals(asList(5999.95, 5000.0, 4000.0, 3999.99), new ArrayList<Double>(setOf(PRICE_INDEX.getDistinctKeysDescending(3500.0, false, 6000.0, false, noQueryOptions()))));
+        assertEquals(asList(10, 12, 15, 16, 18, 20, 22, 25, 26, 28), retrieveCarIds(collection, and(between(Car.PRICE, 4000.0, false, 7800.55, true), lessThan(Car.CAR_ID, 30))));
+        assertEquals(18, collection.retrieve(greaterThanOrEqualTo(Car.PRICE, 8500.0)).size());
+        assertEquals(27, collection.retrieve(in(Car.PRICE, 3000.0, 5000.0)).size());
+    }
+
     static List<Integer> retrieveCarIds(IndexedCollection<Car> collection, Query<Car> query) {
         ResultSet<Car> cars = collection.retrieve(query, queryOptions(orderBy(ascending(Car.CAR_ID))));
         List<Integer> carIds = new ArrayList<Integer>();
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.navigable;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.support.KeyValue;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+
+/**
+ * Tests for {@link OrderStatisticNavigableIndex}.
+ */
+public class OrderStatisticNavigableIndexTest {
+
+    @Test
+    public void testRangeCountsAndRank() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        OrderStatisticNavigableIndex<Double, Car> priceIndex = OrderStatisticNavigableIndex.onAttribute(Car.PRICE);
+        collection.addIndex(priceIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(1000));
+        collection.removeAll(collection.retrieve(lessThan(Car.CAR_ID, 100)).stream().toList());
+
+        List<Query<Car>> queries = Arrays.<Query<Car>>asList(
+                lessThan(Car.PRICE, 5000.0),
+                lessThanOrEqualTo(Car.PRICE, 5000.0),
+                greaterThan(Car.PRICE, 5999.95),
+                greaterThanOrEqualTo(Car.PRICE, 5999.95),
+                between(Car.PRICE, 4000.0, 8500.0),
+                between(Car.PRICE, 4000.0, false, 8500.0, false),
+                between(Car.PRICE, 100.0, 200.0),
+                has(Car.PRICE)
+        );
+        for (Query<Car> query : queries) {
+            int expected = countMatching(collection, query);
+            ResultSet<Car> results = priceIndex.retrieve(query, noQueryOptions());
+            Assert.assertEquals(query.toString(), expected, results.size());
+            Assert.assertEquals(query.toString(), expected, results.getMergeCost());
+            Assert.assertEquals(query.toString(), expected, sizeByIteration(results));
+        }
+        Assert.assertEquals(0, priceIndex.getRank(3000.0));
+        Assert.assertEquals(countMatching(collection, lessThan(Car.PRICE, 6000.0)), priceIndex.getRank(6000.0));
+        Assert.assertEquals(900, priceIndex.getRank(100000.0));
+        Assert.assertEquals(Integer.valueOf(9), priceIndex.getCountOfDistinctKeys(noQueryOptions()));
+
+        collection.clear();
+        Assert.assertEquals(0, priceIndex.getCountInRange(null, true, null, true));
+        Assert.assertEquals(Integer.valueOf(0), priceIndex.getCountOfDistinctKeys(noQueryOptions()));
+    }
+
+    @Test
+    public void testKeysAndValuesFromOffset() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        OrderStatisticNavigableIndex<Double, Car> priceIndex = OrderStatisticNavigableIndex.onAttribute(Car.PRICE);
+        collection.addIndex(priceIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        List<KeyValue<Double, Car>> all = new ArrayList<KeyValue<Double, Car>>();
+        for (KeyValue<Double, Car> keyValue : priceIndex.getKeysAndValues(noQueryOptions())) {
+            all.add(keyValue);
+        }
+        Assert.assertEquals(100, all.size());
+        for (int offset : new int[] {0, 1, 9, 10, 19, 20, 55, 99, 100, 150}) {
+            List<KeyValue<Double, Car>> fromOffset = new ArrayList<KeyValue<Double, Car>>();
+            for (KeyValue<Double, Car> keyValue : priceIndex.getKeysAndValuesFromOffset(offset, noQueryOptions())) {
+                fromOffset.add(keyValue);
+            }
+            Assert.assertEquals("offset " + offset, all.subList(Math.min(offset, all.size()), all.size()), fromOffset);
+        }
+    }
+
+    @Test
+    public void testMultiValuedAttribute() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        OrderStatisticNavigableIndex<String, Car> featuresIndex = OrderStatisticNavigableIndex.onAttribute(Car.FEATURES);
+        collection.addIndex(featuresIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        // Car 1 has "hybrid", car 7 has both "hybrid" and "sunroof"...
+        Query<Car> query = between(Car.FEATURES, "hybrid", "sunroof");
+        ResultSet<Car> duplicatesRetained = featuresIndex.retrieve(query, noQueryOptions());
+        Assert.assertEquals(3, duplicatesRetained.size());
+        Assert.assertEquals(3, duplicatesRetained.getMergeCost());
+
+        ResultSet<Car> duplicatesEliminated = featuresIndex.retrieve(query, queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION)));
+        Assert.assertEquals(2, duplicatesEliminated.size());
+        Assert.assertEquals(3, duplicatesEliminated.getMergeCost());
+    }
+
+    @Test
+    public void testOrderStatisticTree() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<Integer>();
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(200);
+            int delta = random.nextInt(3) == 0 && expected.containsKey(key) ? -1 : 1;
+            tree.adjust(key, delta);
+            int count = expected.getOrDefault(key, 0) + delta;
+            if (count == 0) {
+                expected.remove(key);
+            }
+            else {
+                expected.put(key, count);
+            }
+        }
+        Assert.assertEquals(expected.size(), tree.getKeyCount());
+        long rank = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(rank, tree.getCountBelow(entry.getKey(), false));
+            Assert.assertEquals(entry.getKey(), tree.getKeyAtRank(rank));
+            Assert.assertEquals(entry.getKey(), tree.getKeyAtRank(rank + entry.getValue() - 1));
+            rank += entry.getValue();
+            Assert.assertEquals(rank, tree.getCountBelow(entry.getKey(), true));
+        }
+        Assert.assertEquals(rank, tree.getTotalCount());
+        Assert.assertNull(tree.getKeyAtRank(rank));
+    }
+
+    static int countMatching(IndexedCollection<Car> collection, Query<Car> query) {
+        int count = 0;
+        for (Car car : collection) {
+            if (query.matches(car, noQueryOptions())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static int sizeByIteration(ResultSet<Car> results) {
+        int size = 0;
+        for (Iterator<Car> iterator = results.iterator(); iterator.hasNext(); iterator.next()) {
+            size++;
+        }
+        return size;
+    }
+}
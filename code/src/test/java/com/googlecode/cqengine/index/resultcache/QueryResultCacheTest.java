@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.resultcache;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link QueryResultCache}.
+ */
+public class QueryResultCacheTest {
+
+    @Test
+    public void testHitsAndPreciseInvalidation() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        QueryResultCache<Car> cache = QueryResultCache.withMaximumSize(10, 1000);
+        collection.addIndex(cache);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        Query<Car> fords = equal(Car.MANUFACTURER, "Ford");
+        Query<Car> hondas = equal(Car.MANUFACTURER, "Honda");
+        Assert.assertEquals(asList(0, 1, 2), retrieveCarIds(collection, fords));
+        Assert.assertEquals(asList(3, 4, 5), retrieveCarIds(collection, hondas));
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertEquals(6, cache.getCachedObjectCount());
+
+        Assert.assertEquals(asList(0, 1, 2), retrieveCarIds(collection, fords));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertTrue(cache.supportsQuery(fords, noQueryOptions()));
+
+        // Adding a Toyota should not invalidate either entry...
+        collection.add(CarFactory.createCar(16));
+        Assert.assertEquals(2, cache.getEntryCount());
+
+        // Adding a Ford should invalidate only the entry for Fords...
+        collection.add(CarFactory.createCar(10));
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertFalse(cache.supportsQuery(fords, noQueryOptions()));
+        Assert.assertEquals(asList(0, 1, 2, 10), retrieveCarIds(collection, fords));
+
+        // Removing a Honda should invalidate only the entry for Hondas...
+        collection.remove(CarFactory.createCar(3));
+        Assert.assertFalse(cache.supportsQuery(hondas, noQueryOptions()));
+        Assert.assertTrue(cache.supportsQuery(fords, noQueryOptions()));
+        Assert.assertEquals(asList(4, 5), retrieveCarIds(collection, hondas));
+
+        collection.clear();
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(Collections.<Integer>emptyList(), retrieveCarIds(collection, fords));
+    }
+
+    @Test
+    public void testInvalidationOfEntriesGroupedByValue() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        QueryResultCache<Car> cache = QueryResultCache.withMaximumSize(10, 1000);
+        collection.addIndex(cache);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        Query<Car> fordsOrBmws = or(equal(Car.MANUFACTURER, "Ford"), equal(Car.MANUFACTURER, "BMW"));
+        Query<Car> cheapHondas = and(lessThan(Car.PRICE, 5000.0), in(Car.MODEL, "Civic", "Accord", "Insight"));
+        Query<Car> sunroofs = equal(Car.FEATURES, "sunroof");
+        Query<Car> cheapCars = lessThan(Car.PRICE, 4000.0);
+        Assert.assertEquals(asList(0, 1, 2, 9), retrieveCarIds(collection, fordsOrBmws));
+        Assert.assertEquals(asList(3, 4), retrieveCarIds(collection, cheapHondas));
+        Assert.assertEquals(asList(7), retrieveCarIds(collection, sunroofs));
+        Assert.assertEquals(asList(1, 4), retrieveCarIds(collection, cheapCars));
+        Assert.assertTrue(cache.keysByAttributeValue.get(Car.MANUFACTURER).containsKey("BMW"));
+        Assert.assertEquals(1, cache.unbucketedKeys.size());
+
+        // An Insight priced at 5000 matches none of the queries...
+        collection.add(CarFactory.createCar(15));
+        Assert.assertEquals(4, cache.getEntryCount());
+
+        // A BMW matches only the Or query...
+        collection.add(CarFactory.createCar(19));
+        Assert.assertEquals(3, cache.getEntryCount());
+        Assert.assertFalse(cache.supportsQuery(fordsOrBmws, noQueryOptions()));
+        Assert.assertNull(cache.keysByAttributeValue.get(Car.MANUFACTURER));
+
+        // A Prius matches the query on a multi-valued attribute...
+        collection.add(CarFactory.createCar(17));
+        Assert.assertFalse(cache.supportsQuery(sunroofs, noQueryOptions()));
+
+        // An Accord matches both the And query and the query which is not grouped by value...
+        collection.add(CarFactory.createCar(14));
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertTrue(cache.keysByAttributeValue.isEmpty());
+        Assert.assertTrue(cache.unbucketedKeys.isEmpty());
+        Assert.assertEquals(asList(3, 4, 14), retrieveCarIds(collection, cheapHondas));
+    }
+
+    @Test
+    public void testContainsOnCachedResults() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        QueryResultCache<Car> cache = QueryResultCache.withMaximumSize(10, 1000);
+        collection.addIndex(cache);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        Query<Car> hybridsOrToyotas = or(equal(Car.FEATURES, "hybrid"), equal(Car.MANUFACTURER, "Toyota"));
+        Assert.assertEquals(asList(1, 6, 7, 8), retrieveCarIds(collection, hybridsOrToyotas));
+        ResultSet<Car> results = collection.retrieve(hybridsOrToyotas);
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(4, results.size());
+        Assert.assertTrue(results.contains(CarFactory.createCar(7)));
+        Assert.assertFalse(results.contains(CarFactory.createCar(0)));
+    }
+
+    @Test
+    public void testResultsNotCachedUnlessIteratedInFull() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        QueryResultCache<Car> cache = QueryResultCache.withMaximumSize(10, 1000);
+        collection.addIndex(cache);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        ResultSet<Car> results = collection.retrieve(equal(Car.MANUFACTURER, "Ford"));
+        results.iterator().next();
+        results.close();
+        Assert.assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testEviction() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        QueryResultCache<Car> lruCache = QueryResultCache.withMaximumSize(2, 1000);
+        collection.addIndex(lruCache);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        Query<Car> fords = equal(Car.MANUFACTURER, "Ford");
+        Query<Car> hondas = equal(Car.MANUFACTURER, "Honda");
+        Query<Car> toyotas = equal(Car.MANUFACTURER, "Toyota");
+        retrieveCarIds(collection, fords);
+        retrieveCarIds(collection, hondas);
+        retrieveCarIds(collection, fords);
+        retrieveCarIds(collection, toyotas);
+        // Hondas were least recently used...
+        Assert.assertEquals(1, lruCache.getEvictionCount());
+        Assert.assertFalse(lruCache.supportsQuery(hondas, noQueryOptions()));
+        Assert.assertTrue(lruCache.supportsQuery(fords, noQueryOptions()));
+
+        collection.removeIndex(lruCache);
+        QueryResultCache<Car> lfuCache = QueryResultCache.withMaximumSize(10, 6, QueryResultCache.EvictionPolicy.LFU);
+        collection.addIndex(lfuCache);
+        retrieveCarIds(collection, fords);
+        retrieveCarIds(collection, fords);
+        retrieveCarIds(collection, hondas);
+        retrieveCarIds(collection, toyotas);
+        // Hondas were least frequently used, and only 6 objects fit...
+        Assert.assertEquals(1, lfuCache.getEvictionCount());
+        Assert.assertFalse(lfuCache.supportsQuery(hondas, noQueryOptions()));
+        Assert.assertTrue(lfuCache.supportsQuery(fords, noQueryOptions()));
+        Assert.assertTrue(lfuCache.supportsQuery(toyotas, noQueryOptions()));
+    }
+
+    @Test
+    public void testNotCacheable() {
+        IndexedCollection<Car> otherCars = new ConcurrentIndexedCollection<Car>();
+        QueryResultCache<Car> cache = QueryResultCache.withMaximumSize(10, 1000);
+        Assert.assertTrue(cache.isCacheable(or(equal(Car.MANUFACTURER, "Ford"), not(equal(Car.COLOR, Car.Color.RED))), noQueryOptions()));
+        Assert.assertFalse(cache.isCacheable(and(equal(Car.MANUFACTURER, "Ford"), existsIn(otherCars, Car.MODEL, Car.MODEL)), noQueryOptions()));
+        Assert.assertFalse(cache.isCacheable(longestPrefix(Car.MODEL, "Focus"), noQueryOptions()));
+    }
+
+    static List<Integer> retrieveCarIds(IndexedCollection<Car> collection, Query<Car> query) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        ResultSet<Car> results = collection.retrieve(query, queryOptions(orderBy(ascending(Car.CAR_ID))));
+        try {
+            for (Car car : results) {
+                carIds.add(car.getCarId());
+            }
+        }
+        finally {
+            results.close();
+        }
+        return carIds;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.sqlite;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.explain.QueryPlan;
+import com.googlecode.cqengine.index.offheap.OffHeapCompoundIndex;
+import com.googlecode.cqengine.index.support.indextype.NonHeapTypeIndex;
+import com.googlecode.cqengine.persistence.offheap.OffHeapPersistence;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link SQLiteCompoundIndex}, via {@link OffHeapCompoundIndex}.
+ */
+public class SQLiteCompoundIndexTest {
+
+    @Test
+    public void testPrefixAndRangeQueries() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>(OffHeapPersistence.onPrimaryKey(Car.CAR_ID));
+        OffHeapCompoundIndex<Car, ?> index = OffHeapCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE, Car.CAR_ID);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        List<Query<Car>> queries = asList(
+                and(equal(Car.MANUFACTURER, "Ford"), between(Car.PRICE, 4000.0, 6000.0)),
+                and(equal(Car.MANUFACTURER, "Ford"), between(Car.PRICE, 3999.99, false, 6000.0, false)),
+                and(equal(Car.MANUFACTURER, "Honda"), lessThanOrEqualTo(Car.PRICE, 4000.0)),
+                and(equal(Car.MANUFACTURER, "Honda"), greaterThan(Car.PRICE, 3000.0), lessThan(Car.PRICE, 5000.0)),
+                and(equal(Car.MANUFACTURER, "Toyota"), equal(Car.PRICE, 8500.0), lessThan(Car.CAR_ID, 50)),
+                and(equal(Car.PRICE, 5000.0), equal(Car.MANUFACTURER, "Ford"), equal(Car.CAR_ID, 10))
+        );
+        for (Query<Car> query : queries) {
+            List<Car> results = retrieve(collection, query, noQueryOptions());
+            Assert.assertEquals(query.toString(), expectedCarIds(collection, query), sortedCarIds(results));
+            Assert.assertFalse(query.toString(), results.isEmpty());
+            PlanNode<Car> root = collection.explain(query).getRoot();
+            Assert.assertEquals(query.toString(), PlanNode.Type.INDEX_LOOKUP, root.getType());
+            Assert.assertSame(query.toString(), index, root.getIndex());
+        }
+        // An empty range...
+        Assert.assertTrue(retrieve(collection, and(equal(Car.MANUFACTURER, "Ford"), between(Car.PRICE, 6000.0, 5000.0)), noQueryOptions()).isEmpty());
+
+        // The index reflects updates to the collection...
+        Query<Car> query = queries.get(0);
+        collection.removeAll(asList(CarFactory.createCar(0), CarFactory.createCar(2)));
+        collection.add(CarFactory.createCar(100));
+        Assert.assertEquals(expectedCarIds(collection, query), sortedCarIds(retrieve(collection, query, noQueryOptions())));
+        Assert.assertTrue(sortedCarIds(retrieve(collection, query, noQueryOptions())).contains(100));
+
+        collection.clear();
+        Assert.assertTrue(retrieve(collection, query, noQueryOptions()).isEmpty());
+    }
+
+    @Test
+    public void testIndexOrdering() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>(OffHeapPersistence.onPrimaryKey(Car.CAR_ID));
+        OffHeapCompoundIndex<Car, ?> index = OffHeapCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Toyota"), between(Car.PRICE, 5000.0, 9000.0));
+        for (boolean descending : asList(false, true)) {
+            StringBuilder log = new StringBuilder();
+            QueryOptions queryOptions = queryOptions(orderBy(descending ? descending(Car.PRICE) : ascending(Car.PRICE)), new QueryLog(log));
+            List<Car> results = retrieve(collection, query, queryOptions);
+            Assert.assertTrue(log.toString(), log.toString().contains("orderingStrategy: compoundIndex"));
+            Assert.assertEquals(expectedCarIds(collection, query), sortedCarIds(results));
+            for (int i = 1; i < results.size(); i++) {
+                int comparison = Double.compare(results.get(i - 1).getPrice(), results.get(i).getPrice());
+                Assert.assertTrue(descending ? comparison >= 0 : comparison <= 0);
+            }
+        }
+        QueryPlan<Car> plan = collection.explain(query, queryOptions(orderBy(ascending(Car.PRICE))));
+        Assert.assertEquals(QueryPlan.OrderingStrategy.INDEX, plan.getOrderingStrategy());
+        Assert.assertSame(index, plan.getIndexForOrdering());
+    }
+
+    @Test
+    public void testMultiValuedAttribute() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>(OffHeapPersistence.onPrimaryKey(Car.CAR_ID));
+        OffHeapCompoundIndex<Car, ?> index = OffHeapCompoundIndex.onAttributes(Car.MANUFACTURER, Car.FEATURES);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(20));
+        Assert.assertFalse(index.hasSingleValuedAttributes());
+
+        // Each Prius has two features in the range, but should be returned once...
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Toyota"), greaterThan(Car.FEATURES, "a"));
+        ResultSet<Car> results = collection.retrieve(query);
+        try {
+            Assert.assertEquals(asList(7, 17), expectedCarIds(collection, query));
+            Assert.assertEquals(2, results.size());
+            Assert.assertTrue(results.contains(CarFactory.createCar(7)));
+            Assert.assertFalse(results.contains(CarFactory.createCar(6)));
+        }
+        finally {
+            results.close();
+        }
+        Assert.assertEquals(asList(7, 17), sortedCarIds(retrieve(collection, query, noQueryOptions())));
+        Assert.assertTrue(index instanceof NonHeapTypeIndex);
+    }
+
+    @Test
+    public void testTrailingAttributeWithoutValues() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>(OffHeapPersistence.onPrimaryKey(Car.CAR_ID));
+        OffHeapCompoundIndex<Car, ?> index = OffHeapCompoundIndex.onAttributes(Car.MANUFACTURER, Car.PRICE, Car.FEATURES);
+        collection.addIndex(index);
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        // Car 0 has no features, so has no rows in the table, and a range scan would not find it...
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.PRICE, 100000.0));
+        Assert.assertEquals(asList(0, 1, 2), sortedCarIds(retrieve(collection, query, noQueryOptions())));
+        Assert.assertNotSame(index, collection.explain(query).getRoot().getIndex());
+
+        // A query which constrains every attribute can still be answered by the index...
+        query = and(equal(Car.MANUFACTURER, "Ford"), equal(Car.PRICE, 3999.99), greaterThan(Car.FEATURES, "a"));
+        Assert.assertEquals(asList(1), sortedCarIds(retrieve(collection, query, noQueryOptions())));
+        Assert.assertSame(index, collection.explain(query).getRoot().getIndex());
+    }
+
+    static List<Car> retrieve(IndexedCollection<Car> collection, Query<Car> query, QueryOptions queryOptions) {
+        ResultSet<Car> results = collection.retrieve(query, queryOptions);
+        try {
+            List<Car> cars = new ArrayList<Car>();
+            for (Car car : results) {
+                cars.add(car);
+            }
+            return cars;
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    static List<Integer> sortedCarIds(List<Car> cars) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (Car car : cars) {
+            carIds.add(car.getCarId());
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+
+    static List<Integer> expectedCarIds(IndexedCollection<Car> collection, Query<Car> query) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (Car car : collection) {
+            if (query.matches(car, noQueryOptions())) {
+                carIds.add(car.getCarId());
+            }
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.sqlite;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.disk.DiskIndex;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.persistence.disk.DiskPersistence;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.EngineFlags;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link SQLiteLogicalQueryResultSet}.
+ */
+public class SQLiteLogicalQueryResultSetTest {
+
+    DiskPersistence<Car, Integer> persistence;
+    IndexedCollection<Car> cars;
+
+    @Before
+    public void setUp() {
+        persistence = DiskPersistence.onPrimaryKey(Car.CAR_ID);
+        cars = new ConcurrentIndexedCollection<Car>(persistence);
+        cars.addIndex(DiskIndex.onAttribute(Car.MANUFACTURER));
+        cars.addIndex(DiskIndex.onAttribute(Car.MODEL));
+        cars.addIndex(DiskIndex.onAttribute(Car.DOORS));
+        cars.addIndex(DiskIndex.onAttribute(Car.PRICE));
+        cars.addIndex(DiskIndex.onAttribute(Car.FEATURES));
+        cars.addAll(CarFactory.createCollectionOfCars(20));
+    }
+
+    @After
+    public void tearDown() {
+        persistence.close();
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    @Test
+    public void testAnd() {
+        assertPushedDown(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 4)), 1, 2, 11, 12);
+        // Multi-valued attribute...
+        assertPushedDown(and(equal(Car.FEATURES, "hybrid"), between(Car.PRICE, 3000.0, true, 9000.0, true)), 1, 7, 11, 17);
+        assertPushedDown(and(startsWith(Car.MODEL, "F"), has(Car.FEATURES), not(lessThan(Car.PRICE, 3000.0))), 1, 11);
+    }
+
+    @Test
+    public void testOr() {
+        assertPushedDown(or(equal(Car.MODEL, "Prius"), in(Car.DOORS, 2, 3)), 5, 7, 9, 15, 17, 19);
+        assertPushedDown(or(equal(Car.MODEL, "Prius"), and(equal(Car.MANUFACTURER, "Honda"), not(lessThan(Car.PRICE, 4000.0)))), 3, 5, 7, 13, 15, 17);
+    }
+
+    @Test
+    public void testNotPushedDown() {
+        // Colour is not indexed...
+        assertNotPushedDown(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED)), 0, 1, 10, 11);
+        // Or with a negated child...
+        assertNotPushedDown(or(equal(Car.MODEL, "Prius"), not(greaterThan(Car.DOORS, 2))), 7, 9, 17, 19);
+        // An on-heap index is available for the manufacturer...
+        cars.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        assertNotPushedDown(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 4)), 1, 2, 11, 12);
+    }
+
+    @Test
+    public void testSizeAndContains() {
+        ResultSet<Car> results = cars.retrieve(and(equal(Car.MANUFACTURER, "Toyota"), lessThan(Car.PRICE, 8000.0)));
+        try {
+            Assert.assertEquals(4, results.size());
+            Assert.assertTrue(results.contains(CarFactory.createCar(16)));
+            Assert.assertFalse(results.contains(CarFactory.createCar(17)));
+            Assert.assertFalse(results.contains(CarFactory.createCar(0)));
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    @Test
+    public void testContainsAll() {
+        // More objects than fit in one IN clause, so that several statements are needed...
+        List<Car> objects = new ArrayList<Car>();
+        for (int i = 0; i < 1200; i++) {
+            objects.add(CarFactory.createCar(i % 25));
+        }
+        assertContainsAll(equal(Car.MANUFACTURER, "Toyota"), objects, 6, 7, 8, 16, 17, 18);
+        assertContainsAll(has(Car.FEATURES), objects, 1, 2, 3, 4, 7, 9, 11, 12, 13, 14, 17, 19);
+        assertContainsAll(and(equal(Car.MANUFACTURER, "Toyota"), lessThan(Car.PRICE, 8000.0)), objects, 6, 8, 16, 18);
+    }
+
+    @Test
+    public void testIndexMergeProbesInBatches() {
+        // Prevent the query from being evaluated in a single SQL statement...
+        cars.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        Query<Car> query = and(equal(Car.MANUFACTURER, "Toyota"), lessThan(Car.PRICE, 8000.0), not(equal(Car.DOORS, 3)));
+        Set<Integer> carIds = new TreeSet<Integer>();
+        try (ResultSet<Car> results = cars.retrieve(query, queryOptions(enableFlags(EngineFlags.PREFER_INDEX_MERGE_STRATEGY)))) {
+            for (Car car : results) {
+                carIds.add(car.getCarId());
+            }
+        }
+        Assert.assertEquals(new TreeSet<Integer>(asList(6, 8, 16, 18)), carIds);
+    }
+
+    void assertContainsAll(Query<Car> query, List<Car> objects, Integer... expectedCarIds) {
+        Set<Integer> expected = new TreeSet<Integer>(asList(expectedCarIds));
+        try (ResultSet<Car> results = cars.retrieve(query)) {
+            BitSet contained = results.containsAll(objects);
+            for (int i = 0; i < objects.size(); i++) {
+                Assert.assertEquals("Car " + objects.get(i).getCarId(), expected.contains(objects.get(i).getCarId()), contained.get(i));
+            }
+        }
+    }
+
+    void assertPushedDown(Query<Car> query, Integer... expectedCarIds) {
+        Assert.assertTrue(retrieveAndLog(query, expectedCarIds).contains("sqliteLogicalQuery"));
+    }
+
+    void assertNotPushedDown(Query<Car> query, Integer... expectedCarIds) {
+        Assert.assertFalse(retrieveAndLog(query, expectedCarIds).contains("sqliteLogicalQuery"));
+    }
+
+    String retrieveAndLog(Query<Car> query, Integer... expectedCarIds) {
+        StringBuilder log = new StringBuilder();
+        Set<Integer> carIds = new TreeSet<Integer>();
+        try (ResultSet<Car> results = cars.retrieve(query, queryOptions(new QueryLog(log)))) {
+            for (Car car : results) {
+                Assert.assertTrue("Duplicate car: " + car, carIds.add(car.getCarId()));
+            }
+        }
+        Assert.assertEquals(new TreeSet<Integer>(asList(expectedCarIds)), carIds);
+        return log.toString();
+    }
+}
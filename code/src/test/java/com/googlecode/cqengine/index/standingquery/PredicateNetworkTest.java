@@ -0,0 +1,189 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.standingquery;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.logical.And;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link PredicateNetwork} and {@link StandingQueryIndexGroup}.
+ */
+public class PredicateNetworkTest {
+
+    static final List<Query<Car>> QUERIES = asList(
+            equal(Car.MANUFACTURER, "Ford"),
+            equal(Car.MANUFACTURER, "Honda"),
+            in(Car.COLOR, Car.Color.RED, Car.Color.BLUE),
+            lessThan(Car.PRICE, 4000.0),
+            lessThanOrEqualTo(Car.PRICE, 4000.0),
+            greaterThan(Car.PRICE, 8500.0),
+            greaterThanOrEqualTo(Car.PRICE, 8500.0),
+            between(Car.DOORS, 3, true, 4, false),
+            and(equal(Car.MANUFACTURER, "Toyota"), lessThan(Car.DOORS, 5)),
+            and(greaterThan(Car.PRICE, 5000.0), equal(Car.FEATURES, "hybrid")),
+            or(equal(Car.MODEL, "Civic"), between(Car.PRICE, 7000.0, 9000.0)),
+            or(equal(Car.MODEL, "Civic"), not(equal(Car.COLOR, Car.Color.RED))),
+            not(equal(Car.MANUFACTURER, "BMW"))
+    );
+
+    @Test
+    public void testMatchingQueriesAgreeWithFullEvaluation() {
+        PredicateNetwork<Car> network = new PredicateNetwork<Car>();
+        for (Query<Car> query : QUERIES) {
+            Assert.assertTrue(network.register(query));
+        }
+        Assert.assertFalse(network.register(equal(Car.MANUFACTURER, "Ford")));
+        Assert.assertEquals(QUERIES.size(), network.getQueryCount());
+        // The Or with a Not branch, and the standalone Not, cannot be indexed...
+        Assert.assertEquals(2, network.getUnconditionalQueryCount());
+
+        for (Car car : CarFactory.createCollectionOfCars(10)) {
+            List<Query<Car>> expected = new ArrayList<Query<Car>>();
+            for (Query<Car> query : QUERIES) {
+                if (query.matches(car, noQueryOptions())) {
+                    expected.add(query);
+                }
+            }
+            Assert.assertEquals("car " + car.getCarId(), new HashSet<Query<Car>>(expected),
+                    new HashSet<Query<Car>>(network.getMatchingQueries(car, noQueryOptions())));
+        }
+    }
+
+    @Test
+    public void testOnlyCandidateQueriesAreEvaluated() {
+        PredicateNetwork<Car> network = new PredicateNetwork<Car>();
+        for (int carId = 0; carId < 1000; carId++) {
+            network.register(equal(Car.CAR_ID, carId));
+        }
+        network.register(and(greaterThan(Car.PRICE, 8000.0), equal(Car.MANUFACTURER, "BMW")));
+        Car car = CarFactory.createCar(9);
+        Collection<Query<Car>> candidates = network.getCandidateQueries(car, noQueryOptions());
+        Assert.assertEquals(2, candidates.size());
+        Assert.assertEquals(2, network.getMatchingQueries(car, noQueryOptions()).size());
+
+        Assert.assertTrue(network.unregister(equal(Car.CAR_ID, 9)));
+        Assert.assertFalse(network.unregister(equal(Car.CAR_ID, 9)));
+        Assert.assertEquals(asList(and(greaterThan(Car.PRICE, 8000.0), equal(Car.MANUFACTURER, "BMW"))),
+                network.getMatchingQueries(car, noQueryOptions()));
+    }
+
+    @Test
+    public void testRangeLeavesMaintainedIncrementally() {
+        PredicateNetwork<Car> network = new PredicateNetwork<Car>();
+        Random random = new Random(42);
+        List<Query<Car>> registered = new ArrayList<Query<Car>>();
+        for (int i = 0; i < 500; i++) {
+            double lower = random.nextInt(100) * 100.0, upper = lower + random.nextInt(50) * 100.0;
+            Query<Car> query;
+            switch (i % 4) {
+                case 0: query = lessThan(Car.PRICE, upper); break;
+                case 1: query = greaterThanOrEqualTo(Car.PRICE, lower); break;
+                case 2: query = between(Car.PRICE, lower, random.nextBoolean(), upper, random.nextBoolean()); break;
+                default: query = and(between(Car.PRICE, lower, upper), greaterThan(Car.CAR_ID, i)); break;
+            }
+            if (network.register(query)) {
+                registered.add(query);
+            }
+            if (i % 5 == 4) {
+                // Unregister a query registered earlier...
+                Assert.assertTrue(network.unregister(registered.remove(random.nextInt(registered.size()))));
+            }
+        }
+        Assert.assertEquals(registered.size(), network.getQueryCount());
+        for (Car car : CarFactory.createCollectionOfCars(10)) {
+            Set<Query<Car>> expected = new HashSet<Query<Car>>();
+            for (Query<Car> query : registered) {
+                if (query.matches(car, noQueryOptions())) {
+                    expected.add(query);
+                }
+            }
+            // Candidates should be exactly the queries whose range contains the price, but for the filter on car id...
+            Assert.assertEquals("car " + car.getCarId(), expected, new HashSet<Query<Car>>(network.getMatchingQueries(car, noQueryOptions())));
+            for (Query<Car> candidate : network.getCandidateQueries(car, noQueryOptions())) {
+                Query<Car> range = candidate instanceof And ? ((And<Car>) candidate).getChildQueries().iterator().next() : candidate;
+                Assert.assertTrue(candidate.toString(), range.matches(car, noQueryOptions()));
+            }
+        }
+        for (Query<Car> query : registered) {
+            Assert.assertTrue(network.unregister(query));
+        }
+        Assert.assertEquals(0, network.getQueryCount());
+        Assert.assertTrue(network.leavesByAttribute.isEmpty());
+    }
+
+    @Test
+    public void testStandingQueryIndexesUpdatedViaGroup() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        for (Query<Car> query : QUERIES) {
+            collection.addIndex(StandingQueryIndex.onQuery(query));
+        }
+        StandingQueryIndex<Car> fordIndex = StandingQueryIndex.onQuery(equal(Car.MODEL, "Focus"));
+        collection.addIndex(fordIndex);
+        collection.addAll(CarFactory.createCollectionOfCars(20));
+        collection.remove(CarFactory.createCar(3));
+        collection.remove(CarFactory.createCar(10));
+        collection.removeIndex(fordIndex);
+        collection.add(CarFactory.createCar(20));
+
+        Assert.assertEquals(asList(0), retrieveCarIds(fordIndex, equal(Car.MODEL, "Focus")));
+        for (Query<Car> query : QUERIES) {
+            List<Integer> expected = new ArrayList<Integer>();
+            for (Car car : collection) {
+                if (query.matches(car, noQueryOptions())) {
+                    expected.add(car.getCarId());
+                }
+            }
+            Collections.sort(expected);
+            Assert.assertEquals(query.toString(), expected, retrieveCarIds(collection, query));
+        }
+    }
+
+    static List<Integer> retrieveCarIds(IndexedCollection<Car> collection, Query<Car> query) {
+        ResultSet<Car> results = collection.retrieve(query);
+        try {
+            List<Integer> carIds = new ArrayList<Integer>();
+            for (Car car : results) {
+                carIds.add(car.getCarId());
+            }
+            Collections.sort(carIds);
+            return carIds;
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    static List<Integer> retrieveCarIds(StandingQueryIndex<Car> index, Query<Car> query) {
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (Car car : index.retrieve(query, noQueryOptions())) {
+            carIds.add(car.getCarId());
+        }
+        Collections.sort(carIds);
+        return carIds;
+    }
+}
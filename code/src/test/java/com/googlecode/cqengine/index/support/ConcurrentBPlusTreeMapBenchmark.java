@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.support;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of {@link ConcurrentBPlusTreeMap} compared with {@link ConcurrentSkipListMap}, as the
+ * number of threads and the proportion of writes increases. This is not run as part of the test suite; run the
+ * main method on the hardware of interest.
+ * <p/>
+ * Each thread performs random lookups, short range scans, and writes (alternately inserting and removing a random
+ * key) on a map which initially contains half of the key space. The proportion of writes is varied because
+ * {@link com.googlecode.cqengine.index.navigable.NavigableIndex} only writes to its map when a distinct attribute
+ * value is first added or last removed; objects added for existing values are added to the value set instead.
+ */
+public class ConcurrentBPlusTreeMapBenchmark {
+
+    static final int KEY_SPACE = 1000000;
+    static final int OPERATIONS_PER_THREAD = 1000000;
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+    static final int[] WRITE_PERCENTAGES = {1, 10, 50};
+    static final int RANGE_SCAN_LENGTH = 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("Map\tThreads\tWrite%\tOpsPerSecond");
+        for (int writePercentage : WRITE_PERCENTAGES) {
+            for (int threadCount : THREAD_COUNTS) {
+                // Warmup...
+                run(new ConcurrentSkipListMap<Integer, Integer>(), threadCount, writePercentage);
+                run(new ConcurrentBPlusTreeMap<Integer, Integer>(), threadCount, writePercentage);
+
+                long skipList = run(new ConcurrentSkipListMap<Integer, Integer>(), threadCount, writePercentage);
+                long bPlusTree = run(new ConcurrentBPlusTreeMap<Integer, Integer>(), threadCount, writePercentage);
+                System.out.println("ConcurrentSkipListMap\t" + threadCount + "\t" + writePercentage + "\t" + skipList);
+                System.out.println("ConcurrentBPlusTreeMap\t" + threadCount + "\t" + writePercentage + "\t" + bPlusTree);
+            }
+        }
+    }
+
+    /**
+     * @return The total number of operations per second performed by all threads
+     */
+    static long run(final ConcurrentNavigableMap<Integer, Integer> map, int threadCount, final int writePercentage) throws InterruptedException {
+        for (int key = 0; key < KEY_SPACE; key += 2) {
+            map.put(key, key);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final long seed = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    long checksum = 0;
+                    try {
+                        start.await();
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            Integer key = random.nextInt(KEY_SPACE);
+                            int operation = random.nextInt(100);
+                            if (operation < writePercentage) {
+                                if ((i & 1) == 0) {
+                                    map.put(key, key);
+                                }
+                                else {
+                                    map.remove(key);
+                                }
+                            }
+                            else if (operation < 90) {
+                                Integer value = map.get(key);
+                                checksum += value == null ? 0 : value;
+                            }
+                            else {
+                                for (Integer value : map.subMap(key, key + RANGE_SCAN_LENGTH).values()) {
+                                    checksum += value;
+                                }
+                            }
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        dummyResultHolder.addAndGet(checksum);
+                        finish.countDown();
+                    }
+                }
+            }).start();
+        }
+        long startTimeNanos = System.nanoTime();
+        start.countDown();
+        finish.await();
+        long timeTakenNanos = System.nanoTime() - startTimeNanos;
+        return (long) (threadCount * (double) OPERATIONS_PER_THREAD * 1000000000L / timeTakenNanos);
+    }
+
+    // Store results in this public variable, so JIT compiler can't eliminate "redundant" benchmark code...
+    public static final AtomicLong dummyResultHolder = new AtomicLong();
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.index.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link ConcurrentBPlusTreeMap}, which compare its behaviour with that of {@link ConcurrentSkipListMap}.
+ */
+public class ConcurrentBPlusTreeMapTest {
+
+    @Test
+    public void testRandomOperationsMatchSkipList() {
+        Random random = new Random(1);
+        // A small node capacity forces many splits, and leaves to be removed as they become empty...
+        ConcurrentNavigableMap<Integer, String> actual = new ConcurrentBPlusTreeMap<Integer, String>(4);
+        ConcurrentNavigableMap<Integer, String> expected = new ConcurrentSkipListMap<Integer, String>();
+        for (int i = 0; i < 20000; i++) {
+            Integer key = random.nextInt(500);
+            String value = "v" + random.nextInt(3);
+            switch (random.nextInt(6)) {
+                case 0: case 1:
+                    Assert.assertEquals(expected.put(key, value), actual.put(key, value));
+                    break;
+                case 2:
+                    Assert.assertEquals(expected.putIfAbsent(key, value), actual.putIfAbsent(key, value));
+                    break;
+                case 3:
+                    Assert.assertEquals(expected.remove(key), actual.remove(key));
+                    break;
+                case 4:
+                    Assert.assertEquals(expected.remove(key, value), actual.remove(key, value));
+                    break;
+                default:
+                    Assert.assertEquals(expected.replace(key, value, "r"), actual.replace(key, value, "r"));
+            }
+            Assert.assertEquals(expected.get(key), actual.get(key));
+            if (i % 1000 == 0) {
+                assertSameContents(expected, actual);
+            }
+        }
+        assertSameContents(expected, actual);
+
+        // Remove everything, so that all leaves are removed, then add again...
+        for (Integer key : new ArrayList<Integer>(expected.keySet())) {
+            Assert.assertEquals(expected.remove(key), actual.remove(key));
+        }
+        assertSameContents(expected, actual);
+        Assert.assertTrue(actual.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(expected.put(i, "x"), actual.put(i, "x"));
+        }
+        assertSameContents(expected, actual);
+    }
+
+    @Test
+    public void testViewsMatchSkipList() {
+        ConcurrentNavigableMap<Integer, String> actual = new ConcurrentBPlusTreeMap<Integer, String>(4);
+        ConcurrentNavigableMap<Integer, String> expected = new ConcurrentSkipListMap<Integer, String>();
+        for (int i = 0; i < 200; i += 2) {
+            actual.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        assertSameContents(expected, actual);
+        assertSameContents(expected.descendingMap(), actual.descendingMap());
+        assertSameContents(expected.subMap(10, 50), actual.subMap(10, 50));
+        assertSameContents(expected.subMap(11, false, 51, true), actual.subMap(11, false, 51, true));
+        assertSameContents(expected.subMap(10, false, 50, true), actual.subMap(10, false, 50, true));
+        assertSameContents(expected.headMap(30, true), actual.headMap(30, true));
+        assertSameContents(expected.tailMap(150, false), actual.tailMap(150, false));
+        assertSameContents(expected.tailMap(1000), actual.tailMap(1000));
+        assertSameContents(expected.descendingMap().headMap(100), actual.descendingMap().headMap(100));
+        assertSameContents(expected.descendingMap().subMap(100, 40), actual.descendingMap().subMap(100, 40));
+        assertSameContents(expected.subMap(20, 120).descendingMap().tailMap(60, true), actual.subMap(20, 120).descendingMap().tailMap(60, true));
+        assertSameContents(expected.subMap(20, 120).subMap(100, 120), actual.subMap(20, 120).subMap(100, 120));
+
+        Assert.assertEquals(expected.keySet().subSet(10, true, 20, true), actual.keySet().subSet(10, true, 20, true));
+        Assert.assertEquals(new ArrayList<Integer>(expected.descendingKeySet().headSet(10)), new ArrayList<Integer>(actual.descendingKeySet().headSet(10)));
+        Assert.assertEquals(expected.keySet().size(), actual.keySet().size());
+
+        // Writes through views...
+        Assert.assertEquals(expected.pollFirstEntry(), actual.pollFirstEntry());
+        Assert.assertEquals(expected.descendingMap().pollFirstEntry(), actual.descendingMap().pollFirstEntry());
+        expected.subMap(50, 60).clear();
+        actual.subMap(50, 60).clear();
+        assertSameContents(expected, actual);
+        try {
+            actual.headMap(10).put(20, "x");
+            Assert.fail("Should throw exception");
+        }
+        catch (IllegalArgumentException expectedException) {
+            // Expected
+        }
+        try {
+            actual.subMap(20, 120).subMap(100, 200);
+            Assert.fail("Should throw exception");
+        }
+        catch (IllegalArgumentException expectedException) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testBoundedViewSizes() {
+        ConcurrentNavigableMap<Integer, String> actual = new ConcurrentBPlusTreeMap<Integer, String>(4);
+        ConcurrentNavigableMap<Integer, String> expected = new ConcurrentSkipListMap<Integer, String>();
+        for (int i = 0; i < 100; i += 3) {
+            actual.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        for (int from = -2; from < 102; from++) {
+            Assert.assertEquals(expected.headMap(from, true).size(), actual.headMap(from, true).size());
+            Assert.assertEquals(expected.tailMap(from, false).size(), actual.tailMap(from, false).size());
+            for (int to = from; to < 102; to += 5) {
+                Assert.assertEquals(expected.subMap(from, true, to, false).size(), actual.subMap(from, true, to, false).size());
+                Assert.assertEquals(expected.subMap(from, false, to, true).size(), actual.subMap(from, false, to, true).size());
+                Assert.assertEquals(expected.descendingMap().subMap(to, from).size(), actual.descendingMap().subMap(to, from).size());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws InterruptedException {
+        final ConcurrentNavigableMap<Integer, Integer> map = new ConcurrentBPlusTreeMap<Integer, Integer>(8);
+        // Even keys are never removed, so should always be found by readers...
+        for (int i = 0; i < 10000; i += 2) {
+            map.put(i, i);
+        }
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 2; t++) {
+            final int seed = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < 50000; i++) {
+                            int key = random.nextInt(5000) * 2 + 1;
+                            if (random.nextBoolean()) {
+                                map.put(key, key);
+                            }
+                            else {
+                                map.remove(key);
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }));
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < 20000; i++) {
+                            int key = random.nextInt(5000) * 2;
+                            Assert.assertEquals(Integer.valueOf(key), map.get(key));
+                        }
+                        for (int i = 0; i < 20; i++) {
+                            int evenKeys = 0;
+                            Integer previous = null;
+                            for (Integer key : map.keySet()) {
+                                Assert.assertTrue(previous == null || key > previous);
+                                previous = key;
+                                if (key % 2 == 0) {
+                                    evenKeys++;
+                                }
+                            }
+                            Assert.assertEquals(5000, evenKeys);
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesOfDistinctKeys() throws InterruptedException {
+        final ConcurrentNavigableMap<Integer, Integer> map = new ConcurrentBPlusTreeMap<Integer, Integer>(8);
+        final int threadCount = 4, keysPerThread = 20000;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        // Each thread writes interleaved keys, so that threads write to the same leaves, and leaves are split and
+        // removed concurrently with writes which modify leaves in place...
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < keysPerThread; i++) {
+                            int key = i * threadCount + offset;
+                            Assert.assertNull(map.put(key, key));
+                        }
+                        for (int i = 0; i < keysPerThread; i += 2) {
+                            int key = i * threadCount + offset;
+                            Assert.assertEquals(Integer.valueOf(key), map.remove(key));
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        NavigableMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        for (int t = 0; t < threadCount; t++) {
+            for (int i = 1; i < keysPerThread; i += 2) {
+                int key = i * threadCount + t;
+                expected.put(key, key);
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(new ArrayList<Map.Entry<Integer, Integer>>(expected.entrySet()), new ArrayList<Map.Entry<Integer, Integer>>(map.entrySet()));
+        Assert.assertEquals(expected.subMap(1000, true, 50000, false).size(), map.subMap(1000, true, 50000, false).size());
+    }
+
+    static void assertSameContents(NavigableMap<Integer, String> expected, NavigableMap<Integer, String> actual) {
+        Assert.assertEquals(new ArrayList<Map.Entry<Integer, String>>(expected.entrySet()), new ArrayList<Map.Entry<Integer, String>>(actual.entrySet()));
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(expected.firstEntry(), actual.firstEntry());
+        Assert.assertEquals(expected.lastEntry(), actual.lastEntry());
+        for (int key = -2; key < 202; key += 3) {
+            Assert.assertEquals(expected.lowerEntry(key), actual.lowerEntry(key));
+            Assert.assertEquals(expected.floorEntry(key), actual.floorEntry(key));
+            Assert.assertEquals(expected.ceilingEntry(key), actual.ceilingEntry(key));
+            Assert.assertEquals(expected.higherEntry(key), actual.higherEntry(key));
+            Assert.assertEquals(expected.get(key), actual.get(key));
+        }
+        Assert.assertEquals(new ArrayList<Integer>(expected.descendingKeySet()), new ArrayList<Integer>(actual.descendingKeySet()));
+    }
+}
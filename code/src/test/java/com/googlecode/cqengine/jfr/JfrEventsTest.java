@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.jfr;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.TransactionalIndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+
+/**
+ * Tests that CQEngine's Java Flight Recorder events are emitted while a recording is in progress.
+ */
+public class JfrEventsTest {
+
+    @Test
+    public void testEventsRecorded() throws Exception {
+        IndexedCollection<Car> collection = new TransactionalIndexedCollection<Car>(Car.class);
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(RetrieveEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(IndexUpdateEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(VersionSwitchEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(OrderingMaterializationEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            collection.addAll(CarFactory.createCollectionOfCars(10));
+            ResultSet<Car> results = collection.retrieve(equal(Car.MANUFACTURER, "Ford"), queryOptions(orderBy(ascending(Car.CAR_ID))));
+            Assert.assertEquals(3, results.stream().count());
+            results.close();
+
+            events = stopAndReadEvents(recording);
+        }
+
+        RecordedEvent retrieveEvent = singleEvent(events, "com.googlecode.cqengine.Retrieve");
+        Assert.assertEquals(3L, retrieveEvent.getLong("rows"));
+        Assert.assertEquals("orderingStrategy: materialize; INDEX_LOOKUP equal(\"manufacturer\", \"Ford\") [index=HashIndex on manufacturer]", retrieveEvent.getString("plan"));
+        Assert.assertEquals("equal(\"manufacturer\", \"Ford\")", retrieveEvent.getString("query"));
+
+        RecordedEvent orderingEvent = singleEvent(events, "com.googlecode.cqengine.OrderingMaterialization");
+        Assert.assertEquals(3L, orderingEvent.getLong("rows"));
+
+        Assert.assertTrue(countEvents(events, "com.googlecode.cqengine.IndexUpdate") >= 2); // HashIndex + FallbackIndex
+        Assert.assertTrue(countEvents(events, "com.googlecode.cqengine.VersionSwitch") >= 2);
+    }
+
+    @Test
+    public void testRetrievePlanDescribesIndexesAndMergeStrategies() throws Exception {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addIndex(NavigableIndex.onAttribute(Car.PRICE));
+        collection.addAll(CarFactory.createCollectionOfCars(10));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(RetrieveEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            ResultSet<Car> results = collection.retrieve(or(and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.PRICE, 6000.0)), equal(Car.MANUFACTURER, "BMW")),
+                    queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION)));
+            Assert.assertEquals(3, results.stream().count());
+            results.close();
+
+            events = stopAndReadEvents(recording);
+        }
+        String plan = singleEvent(events, "com.googlecode.cqengine.Retrieve").getString("plan");
+        Assert.assertTrue(plan, plan.startsWith("orderingStrategy: none; UNION [mergeStrategy="));
+        Assert.assertTrue(plan, plan.contains("INTERSECTION [mergeStrategy="));
+        Assert.assertTrue(plan, plan.contains("INDEX_LOOKUP equal(\"manufacturer\", \"Ford\") [index=HashIndex on manufacturer]"));
+        Assert.assertTrue(plan, plan.contains("INDEX_LOOKUP lessThan(\"price\", 6000.0) [index=NavigableIndex on price]"));
+        Assert.assertTrue(plan, plan.contains("INDEX_LOOKUP equal(\"manufacturer\", \"BMW\") [index=HashIndex on manufacturer]"));
+    }
+
+    static List<RecordedEvent> stopAndReadEvents(Recording recording) throws Exception {
+        recording.stop();
+        Path dump = File.createTempFile("cqengine_jfr_", ".jfr").toPath();
+        try {
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump);
+        }
+        finally {
+            dump.toFile().delete();
+        }
+    }
+
+    static RecordedEvent singleEvent(List<RecordedEvent> events, String name) {
+        RecordedEvent found = null;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                Assert.assertNull("More than one event: " + name, found);
+                found = event;
+            }
+        }
+        Assert.assertNotNull("No event: " + name, found);
+        return found;
+    }
+
+    static int countEvents(List<RecordedEvent> events, String name) {
+        int count = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.metadata;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static com.googlecode.cqengine.query.option.EngineThresholds.INDEX_ORDERING_SELECTIVITY;
+
+/**
+ * Tests for {@link AttributeHistogram}.
+ */
+public class AttributeHistogramTest {
+
+    @Test
+    public void testRangeEstimates() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        AttributeHistogram<Integer, Car> carIdHistogram = AttributeHistogram.onAttribute(Car.CAR_ID);
+        collection.addHistogram(carIdHistogram);
+        collection.addAll(CarFactory.createCollectionOfCars(10000));
+
+        assertEstimate(collection, carIdHistogram, between(Car.CAR_ID, 1000, 2999));
+        assertEstimate(collection, carIdHistogram, between(Car.CAR_ID, 1000, false, 2999, false));
+        assertEstimate(collection, carIdHistogram, lessThan(Car.CAR_ID, 500));
+        assertEstimate(collection, carIdHistogram, greaterThanOrEqualTo(Car.CAR_ID, 9000));
+        assertEstimate(collection, carIdHistogram, has(Car.CAR_ID));
+        Assert.assertEquals(0.0, carIdHistogram.estimateCount(lessThan(Car.CAR_ID, 0)), 0.0);
+        Assert.assertEquals(10000.0, carIdHistogram.estimateCount(lessThanOrEqualTo(Car.CAR_ID, 20000)), 0.0);
+
+        // Unique values should be estimated as occurring about once...
+        Assert.assertEquals(1.0, carIdHistogram.estimateCount(equal(Car.CAR_ID, 42)), 0.5);
+        Assert.assertEquals(3.0, carIdHistogram.estimateCount(in(Car.CAR_ID, 1, 2, 3)), 1.5);
+        Assert.assertEquals(10000.0, carIdHistogram.getDistinctValueCount(), 10000 * 0.05);
+
+        // Queries on other attributes are not supported...
+        Assert.assertNull(carIdHistogram.estimateCount(equal(Car.MANUFACTURER, "Ford")));
+    }
+
+    @Test
+    public void testFrequentValueEstimates() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        AttributeHistogram<String, Car> manufacturerHistogram = AttributeHistogram.onAttribute(Car.MANUFACTURER);
+        AttributeHistogram<Double, Car> carIdHistogram = AttributeHistogram.onAttribute(Car.PRICE);
+        collection.addHistogram(manufacturerHistogram);
+        collection.addHistogram(carIdHistogram);
+        collection.addAll(CarFactory.createCollectionOfCars(10000));
+
+        assertEstimate(collection, manufacturerHistogram, equal(Car.MANUFACTURER, "Ford"));
+        assertEstimate(collection, manufacturerHistogram, equal(Car.MANUFACTURER, "BMW"));
+        assertEstimate(collection, manufacturerHistogram, in(Car.MANUFACTURER, "Honda", "Toyota"));
+        Assert.assertEquals(0.0, manufacturerHistogram.estimateCount(equal(Car.MANUFACTURER, "Audi")), 0.0);
+        Assert.assertEquals(4, manufacturerHistogram.getDistinctValueCount());
+        assertEstimate(collection, carIdHistogram, lessThan(Car.PRICE, 5000.0));
+        assertEstimate(collection, carIdHistogram, between(Car.PRICE, 5000.0, 8000.0));
+    }
+
+    @Test
+    public void testMaintainedOnRemovalAndClear() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        AttributeHistogram<Integer, Car> carIdHistogram = AttributeHistogram.onAttribute(Car.CAR_ID, 16, 4096);
+        collection.addHistogram(carIdHistogram);
+        collection.addAll(CarFactory.createCollectionOfCars(2000));
+        Assert.assertEquals(16, carIdHistogram.getBucketCount());
+
+        collection.removeAll(collection.retrieve(lessThan(Car.CAR_ID, 1000)).stream().toList());
+        Assert.assertEquals(1000, carIdHistogram.getObjectCount());
+        Assert.assertEquals(0.0, carIdHistogram.estimateCount(lessThan(Car.CAR_ID, 1000)), 30.0);
+        assertEstimate(collection, carIdHistogram, between(Car.CAR_ID, 1000, 1499));
+
+        collection.clear();
+        Assert.assertEquals(0, carIdHistogram.getObjectCount());
+        Assert.assertEquals(0.0, carIdHistogram.estimateCount(lessThan(Car.CAR_ID, 1000)), 0.0);
+    }
+
+    @Test
+    public void testStatisticsRecomputedAfterRemoval() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        // The sample can hold all of the values remaining after the removals, so that estimates are not subject to
+        // sampling error on the smaller collection...
+        AttributeHistogram<Integer, Car> carIdHistogram = AttributeHistogram.onAttribute(Car.CAR_ID, 16, 2048);
+        collection.addHistogram(carIdHistogram);
+        collection.addAll(CarFactory.createCollectionOfCars(4000));
+
+        // Values removed should be removed from the sample, even before the statistics are recomputed...
+        collection.removeAll(collection.stream().filter(car -> car.getCarId() < 1000).toList());
+        Assert.assertEquals(3000, carIdHistogram.getObjectCount());
+        Assert.assertFalse(carIdHistogram.sample.stream().anyMatch(carId -> carId < 1000));
+
+        // Removing more than half of the values remaining should recompute the minimum and the distinct values...
+        collection.removeAll(collection.stream().filter(car -> car.getCarId() < 3000).toList());
+        Assert.assertEquals(1000, carIdHistogram.getObjectCount());
+        Assert.assertEquals(3000, carIdHistogram.minValue.intValue());
+        Assert.assertEquals(1000.0, carIdHistogram.getDistinctValueCount(), 1000 * 0.05);
+        assertEstimate(collection, carIdHistogram, between(Car.CAR_ID, 3000, 3499));
+
+        // Bucket boundaries recomputed after adding new values should reflect only the values in the collection...
+        collection.addAll(CarFactory.createCollectionOfCars(10000).stream().filter(car -> car.getCarId() >= 6000).toList());
+        Assert.assertEquals(5000, carIdHistogram.getObjectCount());
+        Assert.assertTrue(carIdHistogram.upperBounds.get(0) >= 3000);
+        assertEstimate(collection, carIdHistogram, between(Car.CAR_ID, 3000, 3999));
+        assertEstimate(collection, carIdHistogram, greaterThanOrEqualTo(Car.CAR_ID, 8000));
+        Assert.assertEquals(0.0, carIdHistogram.estimateCount(lessThan(Car.CAR_ID, 3000)), 0.0);
+    }
+
+    @Test
+    public void testDuplicateAdditionsAndAbsentRemovalsIgnored() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        AttributeHistogram<Integer, Car> carIdHistogram = AttributeHistogram.onAttribute(Car.CAR_ID, 16, 4096);
+        collection.addHistogram(carIdHistogram);
+        List<Car> cars = new ArrayList<Car>(CarFactory.createCollectionOfCars(2000));
+        collection.addAll(cars);
+
+        // Objects which are already in the collection, or which are not in it, should not change the statistics...
+        collection.addAll(cars.subList(0, 1000));
+        collection.add(cars.get(0));
+        collection.removeAll(new ArrayList<Car>(CarFactory.createCollectionOfCars(3000)).subList(2000, 3000));
+        collection.remove(CarFactory.createCar(2500));
+        Assert.assertEquals(2000, carIdHistogram.getObjectCount());
+        Assert.assertEquals(2000, carIdHistogram.valueCount);
+        Assert.assertEquals(2000, carIdHistogram.countInBucketsBefore(carIdHistogram.getBucketCount()));
+        assertEstimate(collection, carIdHistogram, between(Car.CAR_ID, 0, 999));
+
+        // Removing objects twice should count them once...
+        collection.removeAll(cars.subList(0, 500));
+        collection.removeAll(cars.subList(0, 500));
+        collection.remove(cars.get(0));
+        Assert.assertEquals(1500, carIdHistogram.getObjectCount());
+        Assert.assertEquals(1500, carIdHistogram.valueCount);
+    }
+
+    @Test
+    public void testBucketCountTreeAndSampleSlotsMaintained() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        AttributeHistogram<Integer, Car> carIdHistogram = AttributeHistogram.onAttribute(Car.CAR_ID, 16, 512);
+        collection.addHistogram(carIdHistogram);
+        collection.addAll(CarFactory.createCollectionOfCars(5000));
+        collection.removeAll(collection.retrieve(between(Car.CAR_ID, 1000, 1999)).stream().toList());
+
+        // The Fenwick tree should agree with the bucket counts it summarizes...
+        long cumulativeCount = 0;
+        for (int bucket = 0; bucket < carIdHistogram.getBucketCount(); bucket++) {
+            Assert.assertEquals(cumulativeCount, carIdHistogram.countInBucketsBefore(bucket));
+            cumulativeCount += carIdHistogram.bucketCounts[bucket];
+        }
+        Assert.assertEquals(cumulativeCount, carIdHistogram.countInBucketsBefore(carIdHistogram.getBucketCount()));
+
+        // Every slot in the sample should be recorded against the value it holds, at its recorded index...
+        int slotsRecorded = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : carIdHistogram.sampleSlots.entrySet()) {
+            for (int index = 0; index < entry.getValue().size(); index++) {
+                int slot = entry.getValue().get(index);
+                Assert.assertEquals(entry.getKey(), carIdHistogram.sample.get(slot));
+                Assert.assertEquals(index, carIdHistogram.sampleSlotIndexes[slot]);
+                slotsRecorded++;
+            }
+        }
+        Assert.assertEquals(carIdHistogram.sample.size(), slotsRecorded);
+        Assert.assertFalse(carIdHistogram.sample.stream().anyMatch(carId -> carId >= 1000 && carId < 2000));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateHistogram() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addHistogram(AttributeHistogram.onAttribute(Car.CAR_ID));
+        collection.addHistogram(AttributeHistogram.onAttribute(Car.CAR_ID));
+    }
+
+    @Test
+    public void testPlannerUsesEstimates() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(NavigableIndex.onAttribute(Car.CAR_ID));
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addHistogram(AttributeHistogram.onAttribute(Car.CAR_ID));
+        collection.addHistogram(AttributeHistogram.onAttribute(Car.MANUFACTURER));
+        collection.addAll(CarFactory.createCollectionOfCars(10000));
+
+        // The merge cost of a range query should be the estimate, rather than computed by the NavigableIndex...
+        ResultSet<Car> rangeResults = collection.retrieve(between(Car.CAR_ID, 1000, 2999));
+        Assert.assertEquals(2000, rangeResults.getMergeCost(), 300);
+        Assert.assertEquals(2000, rangeResults.size());
+
+        // The histogram is not an index, so other indexes answer queries...
+        Assert.assertEquals(3000, collection.retrieve(equal(Car.MANUFACTURER, "Ford")).size());
+
+        // Selectivity for index ordering should be estimated from the histograms (Ford is 30%, range is 20%)...
+        StringBuilder log = new StringBuilder();
+        Query<Car> query = and(between(Car.CAR_ID, 0, 1999), equal(Car.MANUFACTURER, "Ford"));
+        ResultSet<Car> orderedResults = collection.retrieve(query, queryOptions(
+                orderBy(ascending(Car.CAR_ID)),
+                applyThresholds(threshold(INDEX_ORDERING_SELECTIVITY, 0.5)),
+                new QueryLog(log)
+        ));
+        Assert.assertEquals(600, orderedResults.size());
+        Assert.assertTrue(log.toString(), log.toString().contains("cardinalityEstimation: histogram"));
+        Assert.assertTrue(log.toString(), log.toString().contains("indexCardinality: 10000"));
+        int queryCardinality = Integer.parseInt(log.toString().replaceAll("(?s).*queryCardinality: (\\d+).*", "$1"));
+        Assert.assertEquals(600, queryCardinality, 100);
+    }
+
+    /**
+     * Asserts that the estimated selectivity of the query is within 3% of its actual selectivity; bucket counts are
+     * derived from a sample, so this allows for sampling error.
+     */
+    static void assertEstimate(IndexedCollection<Car> collection, AttributeHistogram<?, Car> histogram, Query<Car> query) {
+        int actual = collection.retrieve(query).size();
+        Double estimate = histogram.estimateCount(query);
+        Assert.assertNotNull(estimate);
+        Assert.assertEquals(query.toString(), actual, estimate, Math.max(1.0, collection.size() * 0.03));
+    }
+}
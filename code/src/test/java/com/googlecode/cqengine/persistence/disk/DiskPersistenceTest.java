@@ -21,6 +21,9 @@ import com.googlecode.cqengine.index.Index;
 import com.googlecode.cqengine.index.disk.DiskIndex;
 import com.googlecode.cqengine.index.navigable.NavigableIndex;
 import com.googlecode.cqengine.index.offheap.OffHeapIndex;
+import com.googlecode.cqengine.index.support.CloseableIterator;
+import com.googlecode.cqengine.persistence.support.sqlite.ObjectCache;
+import com.googlecode.cqengine.query.option.QueryOptions;
 import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.testutil.Car;
 import com.googlecode.cqengine.testutil.CarFactory;
@@ -33,10 +36,17 @@ import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 
 import static com.googlecode.cqengine.query.QueryFactory.equal;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 /**
@@ -111,9 +121,10 @@ public class DiskPersistenceTest {
         SQLiteDataSource ds2 = new SQLiteDataSource(new SQLiteConfig());
         ds2.setUrl("bar");
         EqualsVerifier.forClass(DiskPersistence.class)
-                .withIgnoredFields("sqLiteDataSource", "persistentConnection", "closed", "useReadWriteLock", "readWriteLock")
+                .withIgnoredFields("sqLiteDataSource", "persistentConnection", "closed", "useReadWriteLock", "readWriteLock", "connectionPool", "fetchSize", "objectCache")
                 .suppress(Warning.NULL_FIELDS, Warning.STRICT_INHERITANCE)
                 .withPrefabValues(SQLiteDataSource.class, ds1, ds2)
+                .withPrefabValues(ObjectCache.class, new ObjectCache<Object, Object>(1), new ObjectCache<Object, Object>(2))
                 .verify();
     }
 
@@ -157,6 +168,153 @@ public class DiskPersistenceTest {
         Assert.assertTrue("Failed to delete temp file:" + persistenceFile, persistenceFile.delete());
     }
 
+    @Test
+    public void testConnectionPool() {
+        Properties properties = new Properties();
+        properties.setProperty("connection_pool_size", "2");
+        DiskPersistence<Car, Integer> persistence = DiskPersistence.onPrimaryKeyInFileWithProperties(Car.CAR_ID, DiskPersistence.createTempFile(), properties);
+        try {
+            IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addIndex(DiskIndex.onAttribute(Car.MANUFACTURER));
+            cars.addAll(CarFactory.createCollectionOfCars(50));
+
+            for (int i = 0; i < 10; i++) {
+                try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+                    Assert.assertEquals(15, fords.size());
+                    Assert.assertEquals(15, fords.stream().map(Car::getCarId).collect(toSet()).size());
+                }
+            }
+            cars.remove(CarFactory.createCar(0));
+            try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+                Assert.assertEquals(14, fords.size());
+            }
+            // Requests are served sequentially, so should be served by a single pooled connection...
+            Assert.assertEquals(1, persistence.connectionPool.getConnectionsOpened());
+            Assert.assertEquals(1, persistence.connectionPool.getIdleConnectionCount());
+            Assert.assertTrue(persistence.connectionPool.getStatementCacheHits() > persistence.connectionPool.getStatementsPrepared());
+        }
+        finally {
+            persistence.close();
+        }
+        Assert.assertEquals(0, persistence.connectionPool.getIdleConnectionCount());
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    @Test
+    public void testFetchSize() {
+        Properties properties = new Properties();
+        properties.setProperty("fetch_size", "3");
+        properties.setProperty("connection_pool_size", "2");
+        DiskPersistence<Car, Integer> persistence = DiskPersistence.onPrimaryKeyInFileWithProperties(Car.CAR_ID, DiskPersistence.createTempFile(), properties);
+        try {
+            Assert.assertEquals(3, persistence.getFetchSize());
+            ConcurrentIndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addAll(CarFactory.createCollectionOfCars(10));
+
+            List<Integer> carIds = new ArrayList<Integer>();
+            try (CloseableIterator<Car> iterator = cars.iterator()) {
+                carIds.add(iterator.next().getCarId());
+                // The connection is not held between pages, so the collection can be modified mid-iteration,
+                // and the modification is visible to pages not yet read...
+                cars.remove(CarFactory.createCar(9));
+                while (iterator.hasNext()) {
+                    carIds.add(iterator.next().getCarId());
+                }
+            }
+            Assert.assertEquals(asList(0, 1, 2, 3, 4, 5, 6, 7, 8), carIds);
+
+            // Queries which scan the collection also read it in pages...
+            try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+                Assert.assertEquals(3, fords.size());
+            }
+        }
+        finally {
+            persistence.close();
+        }
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    @Test
+    public void testObjectCache() {
+        Properties properties = new Properties();
+        properties.setProperty("object_cache_size", "100");
+        DiskPersistence<Car, Integer> persistence = DiskPersistence.onPrimaryKeyInFileWithProperties(Car.CAR_ID, DiskPersistence.createTempFile(), properties);
+        try {
+            IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addIndex(DiskIndex.onAttribute(Car.MANUFACTURER));
+            cars.addAll(CarFactory.createCollectionOfCars(50));
+            ObjectCache<Integer, Car> objectCache = persistence.getObjectCache();
+
+            Assert.assertEquals(asList("Focus", "Fusion", "Taurus"), retrieveFordModels(cars));
+            Assert.assertEquals(0, objectCache.getHitCount());
+            Assert.assertEquals(15, objectCache.getMissCount());
+            Assert.assertEquals(asList("Focus", "Fusion", "Taurus"), retrieveFordModels(cars));
+            Assert.assertEquals(15, objectCache.getHitCount());
+
+            // Updating an object should not leave the old version in the cache...
+            Car oldFocus = CarFactory.createCar(0);
+            Car newFocus = new Car(0, "Ford", "Focus RS", Car.Color.BLUE, 3, 9999.0, emptyList(), emptyList());
+            cars.update(singletonList(oldFocus), singletonList(newFocus));
+            Assert.assertEquals(asList("Focus", "Focus RS", "Fusion", "Taurus"), retrieveFordModels(cars));
+            try (ResultSet<Car> results = cars.retrieve(equal(Car.CAR_ID, 0))) {
+                Assert.assertEquals("Focus RS", results.uniqueResult().getModel());
+            }
+        }
+        finally {
+            persistence.close();
+        }
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    @Test
+    public void testObjectCacheWithReadTransactionOpenedBeforeCommit() {
+        Properties properties = new Properties();
+        properties.setProperty("object_cache_size", "100");
+        DiskPersistence<Car, Integer> persistence = DiskPersistence.onPrimaryKeyInFileWithProperties(Car.CAR_ID, DiskPersistence.createTempFile(), properties);
+        try {
+            IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addAll(CarFactory.createCollectionOfCars(10));
+            ObjectCache<Integer, Car> objectCache = persistence.getObjectCache();
+
+            // The reader's request opens a read transaction on its own connection, by reading another object...
+            QueryOptions readerQueryOptions = new QueryOptions();
+            ResultSet<Car> readerResults1 = cars.retrieve(equal(Car.CAR_ID, 1), readerQueryOptions);
+            ResultSet<Car> readerResults2 = null;
+            try {
+                Assert.assertEquals("Fusion", readerResults1.uniqueResult().getModel());
+
+                // A writer on another connection commits an update, and invalidates the cached object afterwards...
+                Car oldFocus = CarFactory.createCar(0);
+                Car newFocus = new Car(0, "Ford", "Focus RS", Car.Color.BLUE, 3, 9999.0, emptyList(), emptyList());
+                cars.update(singletonList(oldFocus), singletonList(newFocus));
+
+                // The reader reads the object for the first time after the invalidation, but from its snapshot...
+                readerResults2 = cars.retrieve(equal(Car.CAR_ID, 0), readerQueryOptions);
+                Assert.assertEquals("Focus", readerResults2.uniqueResult().getModel());
+            }
+            finally {
+                if (readerResults2 != null) {
+                    readerResults2.close();
+                }
+                readerResults1.close();
+            }
+            // The object read from the reader's snapshot should not have been cached...
+            Assert.assertNull(objectCache.get(0));
+            try (ResultSet<Car> results = cars.retrieve(equal(Car.CAR_ID, 0))) {
+                Assert.assertEquals("Focus RS", results.uniqueResult().getModel());
+            }
+        }
+        finally {
+            persistence.close();
+        }
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    static List<String> retrieveFordModels(IndexedCollection<Car> cars) {
+        try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+            return fords.stream().map(Car::getModel).distinct().sorted().collect(toList());
+        }
+    }
 
     // ================================================================================================
     // === Manual tests, used to verify disk persistence compatibility between CQEngine versions... ===
@@ -21,6 +21,7 @@ import com.googlecode.cqengine.index.Index;
 import com.googlecode.cqengine.index.disk.DiskIndex;
 import com.googlecode.cqengine.index.navigable.NavigableIndex;
 import com.googlecode.cqengine.index.offheap.OffHeapIndex;
+import com.googlecode.cqengine.resultset.ResultSet;
 import com.googlecode.cqengine.testutil.Car;
 import com.googlecode.cqengine.testutil.CarFactory;
 import nl.jqno.equalsverifier.EqualsVerifier;
@@ -30,6 +31,18 @@ import org.junit.Test;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.googlecode.cqengine.query.QueryFactory.equal;
+import static com.googlecode.cqengine.query.QueryFactory.noQueryOptions;
+
 /**
  * @author niall.gallagher
  */
@@ -99,9 +112,54 @@ public class OffHeapPersistenceTest {
         SQLiteDataSource ds2 = new SQLiteDataSource(new SQLiteConfig());
         ds2.setUrl("bar");
         EqualsVerifier.forClass(OffHeapPersistence.class)
-                .withIgnoredFields("sqLiteDataSource", "persistentConnection", "closed", "readWriteLock")
+                .withIgnoredFields("sqLiteDataSource", "persistentConnection", "closed", "readWriteLock", "file", "concurrentReads", "writerLock", "connectionPool")
                 .suppress(Warning.NULL_FIELDS, Warning.STRICT_INHERITANCE)
                 .withPrefabValues(SQLiteDataSource.class, ds1, ds2)
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("concurrent_reads", "true");
+        properties.setProperty("connection_pool_size", "4");
+        OffHeapPersistence<Car, Integer> persistence = OffHeapPersistence.onPrimaryKeyWithProperties(Car.CAR_ID, properties);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Assert.assertTrue(persistence.getFile().exists());
+            IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addIndex(OffHeapIndex.onAttribute(Car.MANUFACTURER));
+            cars.addAll(CarFactory.createCollectionOfCars(100));
+
+            // Hold open an uncommitted write transaction, which would block readers in the default mode...
+            Connection writeConnection = persistence.getConnection(null, noQueryOptions());
+            try {
+                writeConnection.setAutoCommit(false);
+                try (Statement statement = writeConnection.createStatement()) {
+                    statement.executeUpdate("CREATE TABLE pending_write (id INTEGER)");
+                }
+                Callable<Integer> countFords = () -> {
+                    try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+                        return fords.size();
+                    }
+                };
+                Future<Integer> first = executor.submit(countFords);
+                Future<Integer> second = executor.submit(countFords);
+                Assert.assertEquals(Integer.valueOf(30), first.get(30, TimeUnit.SECONDS));
+                Assert.assertEquals(Integer.valueOf(30), second.get(30, TimeUnit.SECONDS));
+            }
+            finally {
+                writeConnection.close();
+            }
+            cars.remove(CarFactory.createCar(0));
+            try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+                Assert.assertEquals(29, fords.size());
+            }
+        }
+        finally {
+            executor.shutdown();
+            persistence.close();
+        }
+        Assert.assertFalse(persistence.getFile().exists());
+    }
+}
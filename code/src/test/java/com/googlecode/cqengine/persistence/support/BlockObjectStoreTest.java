@@ -0,0 +1,184 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.support.CloseableIterator;
+import com.googlecode.cqengine.persistence.onheap.BlockOnHeapPersistence;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.QueryLog;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link BlockObjectStore}.
+ */
+public class BlockObjectStoreTest {
+
+    @Test
+    public void testFallbackScanSkipsBlocks() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>(BlockOnHeapPersistence.withZoneMaps(10, Car.CAR_ID, Car.MANUFACTURER, Car.FEATURES));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        assertBlocksScanned(collection, between(Car.CAR_ID, 12, 18), "1 of 10");
+        assertBlocksScanned(collection, lessThan(Car.CAR_ID, 20), "2 of 10");
+        assertBlocksScanned(collection, greaterThanOrEqualTo(Car.CAR_ID, 95), "1 of 10");
+        assertBlocksScanned(collection, equal(Car.CAR_ID, 42), "1 of 10");
+        assertBlocksScanned(collection, in(Car.CAR_ID, 5, 55, 56), "2 of 10");
+        assertBlocksScanned(collection, and(equal(Car.MANUFACTURER, "Ford"), lessThan(Car.CAR_ID, 30)), "3 of 10");
+        assertBlocksScanned(collection, or(equal(Car.CAR_ID, 1), equal(Car.CAR_ID, 99)), "2 of 10");
+        assertBlocksScanned(collection, equal(Car.MANUFACTURER, "Ford"), "10 of 10");
+        // Values outside the min/max of every block...
+        assertBlocksScanned(collection, equal(Car.MANUFACTURER, "Audi"), "0 of 10");
+        assertBlocksScanned(collection, equal(Car.FEATURES, "zzz"), "0 of 10");
+        // Query on an attribute without zone maps...
+        assertBlocksScanned(collection, lessThan(Car.PRICE, 5000.0), "10 of 10");
+    }
+
+    @Test
+    public void testRemovals() {
+        BlockObjectStore<Car> objectStore = new BlockObjectStore<Car>(10, Collections.singletonList(Car.CAR_ID));
+        objectStore.addAll(CarFactory.createCollectionOfCars(30), noQueryOptions());
+        Assert.assertEquals(3, objectStore.getBlockCount());
+        Assert.assertEquals(30, objectStore.size(noQueryOptions()));
+        Assert.assertFalse(objectStore.add(CarFactory.createCar(5), noQueryOptions()));
+
+        // Removing every object in a block which is not the current block removes the block...
+        for (int carId = 10; carId < 20; carId++) {
+            Assert.assertTrue(objectStore.remove(CarFactory.createCar(carId), noQueryOptions()));
+        }
+        Assert.assertEquals(2, objectStore.getBlockCount());
+        Assert.assertEquals(0, objectStore.getCandidateBlockCount(between(Car.CAR_ID, 10, 19)));
+
+        // Removing every object in the current block resets its zone maps...
+        for (int carId = 20; carId < 30; carId++) {
+            objectStore.remove(CarFactory.createCar(carId), noQueryOptions());
+        }
+        Assert.assertEquals(0, objectStore.getCandidateBlockCount(between(Car.CAR_ID, 20, 29)));
+        objectStore.add(CarFactory.createCar(50), noQueryOptions());
+        Assert.assertEquals(1, objectStore.getCandidateBlockCount(equal(Car.CAR_ID, 50)));
+        Assert.assertEquals(0, objectStore.getCandidateBlockCount(equal(Car.CAR_ID, 25)));
+        Assert.assertEquals(11, objectStore.size(noQueryOptions()));
+
+        // The iterator scans the blocks selected by the zone maps when it was created...
+        BlockObjectStore<Car>.BlockIterator candidates = objectStore.iterator(equal(Car.CAR_ID, 50), noQueryOptions());
+        Assert.assertEquals(1, candidates.getBlockCount());
+        Assert.assertTrue(candidates.hasNext());
+        Assert.assertEquals(50, candidates.next().getCarId());
+        Assert.assertFalse(candidates.hasNext());
+
+        objectStore.clear(noQueryOptions());
+        Assert.assertTrue(objectStore.isEmpty(noQueryOptions()));
+        Assert.assertEquals(0, objectStore.getBlockCount());
+    }
+
+    @Test
+    public void testRefillOfBlocksWithFreeSpace() {
+        BlockObjectStore<Car> objectStore = new BlockObjectStore<Car>(10, Collections.singletonList(Car.CAR_ID));
+        objectStore.addAll(CarFactory.createCollectionOfCars(30), noQueryOptions());
+        for (int carId = 0; carId < 8; carId++) {
+            objectStore.remove(CarFactory.createCar(carId), noQueryOptions());
+        }
+        // Zone maps are not narrowed by removals...
+        Assert.assertEquals(1, objectStore.getCandidateBlockCount(between(Car.CAR_ID, 0, 7)));
+
+        // The current block is full, so the first block, which is at most half full, is refilled instead of adding a
+        // block, and its zone maps are recomputed from the objects remaining in it...
+        objectStore.add(CarFactory.createCar(30), noQueryOptions());
+        Assert.assertEquals(3, objectStore.getBlockCount());
+        Assert.assertEquals(0, objectStore.getCandidateBlockCount(between(Car.CAR_ID, 0, 7)));
+        Assert.assertEquals(1, objectStore.getCandidateBlockCount(equal(Car.CAR_ID, 8)));
+        Assert.assertEquals(1, objectStore.getCandidateBlockCount(equal(Car.CAR_ID, 30)));
+
+        for (int carId = 31; carId < 38; carId++) {
+            objectStore.add(CarFactory.createCar(carId), noQueryOptions());
+        }
+        Assert.assertEquals(3, objectStore.getBlockCount());
+        objectStore.add(CarFactory.createCar(38), noQueryOptions());
+        Assert.assertEquals(4, objectStore.getBlockCount());
+        Assert.assertEquals(31, objectStore.size(noQueryOptions()));
+
+        // Objects in the refilled block can still be found and removed...
+        List<Integer> carIds = new ArrayList<Integer>();
+        for (CloseableIterator<Car> iterator = objectStore.iterator(between(Car.CAR_ID, 0, 9), noQueryOptions()); iterator.hasNext(); ) {
+            carIds.add(iterator.next().getCarId());
+        }
+        Assert.assertTrue(carIds.containsAll(asList(8, 9)));
+        Assert.assertTrue(objectStore.remove(CarFactory.createCar(8), noQueryOptions()));
+        Assert.assertFalse(objectStore.contains(CarFactory.createCar(8), noQueryOptions()));
+    }
+
+    @Test
+    public void testBlockCountUnderChurn() {
+        BlockObjectStore<Car> objectStore = new BlockObjectStore<Car>(10, Collections.singletonList(Car.CAR_ID));
+        objectStore.addAll(CarFactory.createCollectionOfCars(100), noQueryOptions());
+        Random random = new Random(0);
+        List<Car> cars = new ArrayList<Car>(CarFactory.createCollectionOfCars(100));
+        for (int carId = 100; carId < 10000; carId++) {
+            Car removed = cars.remove(random.nextInt(cars.size()));
+            Assert.assertTrue(objectStore.remove(removed, noQueryOptions()));
+            Car added = CarFactory.createCar(carId);
+            Assert.assertTrue(objectStore.add(added, noQueryOptions()));
+            cars.add(added);
+        }
+        Assert.assertEquals(100, objectStore.size(noQueryOptions()));
+        // Sparse blocks are refilled rather than accumulating (without refilling, this leaves 27 blocks)...
+        Assert.assertTrue("Block count: " + objectStore.getBlockCount(), objectStore.getBlockCount() <= 20);
+        for (Car car : cars) {
+            boolean found = false;
+            for (CloseableIterator<Car> iterator = objectStore.iterator(equal(Car.CAR_ID, car.getCarId()), noQueryOptions()); iterator.hasNext(); ) {
+                found |= iterator.next().equals(car);
+            }
+            Assert.assertTrue(car.toString(), found);
+        }
+    }
+
+    static void assertBlocksScanned(IndexedCollection<Car> collection, Query<Car> query, String expectedBlocksScanned) {
+        StringBuilder log = new StringBuilder();
+        List<Integer> carIds = new ArrayList<Integer>();
+        ResultSet<Car> results = collection.retrieve(query, queryOptions(new QueryLog(log)));
+        try {
+            for (Car car : results) {
+                carIds.add(car.getCarId());
+            }
+        }
+        finally {
+            results.close();
+        }
+        Collections.sort(carIds);
+        List<Integer> expectedCarIds = new ArrayList<Integer>();
+        for (Car car : collection) {
+            if (query.matches(car, noQueryOptions())) {
+                expectedCarIds.add(car.getCarId());
+            }
+        }
+        Collections.sort(expectedCarIds);
+        Assert.assertEquals(query.toString(), expectedCarIds, carIds);
+        Assert.assertTrue(log.toString(), log.toString().contains("zoneMapBlocksScanned: " + expectedBlocksScanned));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support.sqlite;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Tests for {@link ConnectionPool}.
+ */
+public class ConnectionPoolTest {
+
+    static int instanceId = 0;
+
+    static ConnectionPool createPool(int maxIdleConnections, int statementCacheSize) throws SQLException {
+        SQLiteDataSource dataSource = new SQLiteDataSource(new SQLiteConfig());
+        dataSource.setUrl("jdbc:sqlite:file:connection_pool_test_" + (++instanceId) + "?mode=memory&cache=shared");
+        ConnectionPool pool = new ConnectionPool(dataSource, maxIdleConnections, statementCacheSize);
+        Connection connection = pool.getConnection();
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("CREATE TABLE test (id INTEGER PRIMARY KEY, name TEXT)");
+        statement.executeUpdate("INSERT INTO test VALUES (1, 'a'), (2, 'b'), (3, 'c')");
+        statement.close();
+        connection.close();
+        return pool;
+    }
+
+    @Test
+    public void testConnectionAndStatementReuse() throws SQLException {
+        ConnectionPool pool = createPool(1, 8);
+        Connection keepAlive = pool.getConnection(); // keeps the in-memory database alive if the pooled one is closed
+        try {
+            for (int i = 1; i <= 3; i++) {
+                Connection connection = pool.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT name FROM test WHERE id = ?");
+                statement.setInt(1, i);
+                ResultSet resultSet = statement.executeQuery();
+                Assert.assertTrue(resultSet.next());
+                Assert.assertEquals(String.valueOf((char) ('a' + i - 1)), resultSet.getString(1));
+                Assert.assertSame(statement, resultSet.getStatement());
+                Assert.assertSame(connection, statement.getConnection());
+                statement.close();
+                Assert.assertTrue(resultSet.isClosed());
+                connection.close();
+                Assert.assertTrue(connection.isClosed());
+            }
+            // The keep-alive connection and one pooled connection...
+            Assert.assertEquals(2, pool.getConnectionsOpened());
+            Assert.assertEquals(1, pool.getStatementsPrepared());
+            Assert.assertEquals(2, pool.getStatementCacheHits());
+        }
+        finally {
+            keepAlive.close();
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testStatementsInUseAreNotShared() throws SQLException {
+        ConnectionPool pool = createPool(1, 8);
+        try {
+            Connection connection = pool.getConnection();
+            PreparedStatement first = connection.prepareStatement("SELECT id FROM test ORDER BY id");
+            PreparedStatement second = connection.prepareStatement("SELECT id FROM test ORDER BY id");
+            ResultSet firstResults = first.executeQuery();
+            ResultSet secondResults = second.executeQuery();
+            Assert.assertTrue(firstResults.next());
+            Assert.assertTrue(firstResults.next());
+            Assert.assertTrue(secondResults.next());
+            Assert.assertEquals(2, firstResults.getInt(1));
+            Assert.assertEquals(1, secondResults.getInt(1));
+            Assert.assertEquals(2, pool.getStatementsPrepared());
+
+            // Closing the connection returns statements which were left open to the cache...
+            connection.close();
+            try {
+                firstResults.next();
+                Assert.fail("Should throw exception");
+            }
+            catch (SQLException expected) {
+                // Expected
+            }
+            connection = pool.getConnection();
+            connection.prepareStatement("SELECT id FROM test ORDER BY id").close();
+            connection.prepareStatement("SELECT id FROM test ORDER BY id").close();
+            Assert.assertEquals(2, pool.getStatementsPrepared());
+            connection.close();
+        }
+        finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testUncommittedTransactionRolledBackOnReturn() throws SQLException {
+        ConnectionPool pool = createPool(1, 8);
+        try {
+            Connection connection = pool.getConnection();
+            connection.setAutoCommit(false);
+            PreparedStatement statement = connection.prepareStatement("DELETE FROM test WHERE id = ?");
+            statement.setInt(1, 1);
+            statement.addBatch();
+            statement.executeBatch();
+            connection.close();
+
+            connection = pool.getConnection();
+            Assert.assertTrue(connection.getAutoCommit());
+            ResultSet resultSet = connection.prepareStatement("SELECT COUNT(*) FROM test").executeQuery();
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(3, resultSet.getInt(1));
+            connection.close();
+            Assert.assertEquals(1, pool.getConnectionsOpened());
+        }
+        finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testStatementCacheEviction() throws SQLException {
+        ConnectionPool pool = createPool(1, 2);
+        try {
+            Connection connection = pool.getConnection();
+            for (String sql : new String[] {"SELECT 1", "SELECT 2", "SELECT 3", "SELECT 3", "SELECT 1"}) {
+                connection.prepareStatement(sql).close();
+            }
+            // "SELECT 1" was evicted when "SELECT 3" was cached...
+            Assert.assertEquals(4, pool.getStatementsPrepared());
+            Assert.assertEquals(1, pool.getStatementCacheHits());
+            connection.close();
+        }
+        finally {
+            pool.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetConnectionAfterClose() throws SQLException {
+        ConnectionPool pool = createPool(1, 8);
+        pool.close();
+        Assert.assertEquals(0, pool.getIdleConnectionCount());
+        pool.getConnection();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.support.sqlite;
+
+import com.googlecode.cqengine.query.option.QueryOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ObjectCache}.
+ */
+public class ObjectCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(10);
+        Assert.assertNull(cache.get(1));
+        Assert.assertTrue(cache.putIfNotInvalidatedSince(1, "one", cache.getInvalidationStamp(1)));
+        Assert.assertEquals("one", cache.get(1));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testFrequentlyUsedObjectsSurviveScan() {
+        ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(100);
+        for (int i = 0; i < 100; i++) {
+            readThrough(cache, i);
+        }
+        // Make the first 50 objects hot...
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                readThrough(cache, i);
+            }
+        }
+        // Scan many objects which are read only once...
+        for (int i = 1000; i < 5000; i++) {
+            readThrough(cache, i);
+        }
+        Assert.assertTrue(cache.size() <= 100);
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+        long hitsBefore = cache.getHitCount();
+        for (int i = 0; i < 50; i++) {
+            readThrough(cache, i);
+        }
+        Assert.assertEquals(50, cache.getHitCount() - hitsBefore);
+    }
+
+    @Test
+    public void testInvalidation() {
+        ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(10);
+        long stamp = cache.getInvalidationStamp(1);
+        cache.putIfNotInvalidatedSince(1, "one", stamp);
+        cache.invalidate(1);
+        Assert.assertNull(cache.get(1));
+        // An object read before the invalidation is not stored...
+        Assert.assertFalse(cache.putIfNotInvalidatedSince(1, "stale", stamp));
+        Assert.assertNull(cache.get(1));
+
+        // An invalidation of another key does not prevent an object read concurrently from being stored...
+        long stamp2 = cache.getInvalidationStamp(2);
+        cache.invalidate(1);
+        Assert.assertTrue(cache.putIfNotInvalidatedSince(2, "two", stamp2));
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertFalse(cache.putIfNotInvalidatedSince(3, "three", cache.getInvalidationStamp(3) - 1));
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception {
+        final ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        int key = (i * 7 + offset) % 300;
+                        String object = cache.get(key);
+                        Assert.assertTrue(object == null || object.equals(String.valueOf(key)));
+                        if (object == null) {
+                            cache.putIfNotInvalidatedSince(key, String.valueOf(key), cache.getInvalidationStamp(key));
+                        }
+                        if (i % 100 == 0) {
+                            cache.invalidate(key);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        Assert.assertTrue(cache.size() <= 100);
+        Assert.assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+        Assert.assertTrue(cache.getHitCount() > 0);
+    }
+
+    @Test
+    public void testInvalidationStampForRequest() {
+        ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(10);
+        QueryOptions readRequest = new QueryOptions();
+        cache.beginRequest(readRequest);
+        cache.invalidate(1);
+
+        // The read request began before the invalidation, so may have read the old version from its snapshot...
+        Assert.assertFalse(cache.putIfNotInvalidatedSince(1, "stale", cache.getInvalidationStamp(1, readRequest)));
+        Assert.assertTrue(cache.putIfNotInvalidatedSince(2, "two", cache.getInvalidationStamp(2, readRequest)));
+        cache.endRequest(readRequest);
+        Assert.assertTrue(cache.putIfNotInvalidatedSince(1, "one", cache.getInvalidationStamp(1, readRequest)));
+        Assert.assertEquals("one", cache.get(1));
+    }
+
+    @Test
+    public void testPendingInvalidationsForRequest() {
+        ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(10);
+        QueryOptions writeRequest = new QueryOptions();
+        cache.putIfNotInvalidatedSince(1, "one", cache.getInvalidationStamp(1));
+        cache.invalidateForRequest(1, writeRequest);
+        Assert.assertNull(cache.get(1));
+
+        // Another request reads the old version of the object before the write request commits...
+        cache.putIfNotInvalidatedSince(1, "one", cache.getInvalidationStamp(1));
+        cache.putIfNotInvalidatedSince(2, "two", cache.getInvalidationStamp(2));
+        cache.invalidatePendingForRequest(writeRequest);
+        Assert.assertNull(cache.get(1));
+        Assert.assertEquals("two", cache.get(2));
+        Assert.assertNull(writeRequest.get(cache));
+
+        cache.invalidateAllForRequest(writeRequest);
+        cache.putIfNotInvalidatedSince(2, "two", cache.getInvalidationStamp(2));
+        cache.invalidatePendingForRequest(writeRequest);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeOne() {
+        ObjectCache<Integer, String> cache = new ObjectCache<Integer, String>(1);
+        for (int i = 0; i < 10; i++) {
+            readThrough(cache, i);
+        }
+        Assert.assertEquals(1, cache.size());
+    }
+
+    static void readThrough(ObjectCache<Integer, String> cache, int key) {
+        if (cache.get(key) == null) {
+            cache.putIfNotInvalidatedSince(key, String.valueOf(key), cache.getInvalidationStamp(key));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.persistence.tiered;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.disk.DiskIndex;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.googlecode.cqengine.query.QueryFactory.equal;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Tests for {@link TieredPersistence}.
+ */
+public class TieredPersistenceTest {
+
+    @Test
+    public void testDemotionAndPromotion() {
+        TieredPersistence<Car, Integer> persistence = TieredPersistence.onPrimaryKey(Car.CAR_ID, 5, 10);
+        try {
+            IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addAll(CarFactory.createCollectionOfCars(50));
+            TieredObjectCache<Car, Integer> tiers = persistence.getObjectCache();
+
+            // The first pass reads every car from disk, and demotes those which do not fit on the heap...
+            for (int carId = 0; carId < 10; carId++) {
+                Assert.assertEquals(carId, retrieveCar(cars, carId).getCarId());
+            }
+            tiers.drainDemotions();
+            Assert.assertEquals(10, tiers.getDiskReadCount());
+            Assert.assertEquals(5, tiers.size());
+            Assert.assertEquals(5, tiers.getOffHeapSize());
+            Assert.assertEquals(5, tiers.getDemotionCount());
+
+            // The second pass finds every car in one of the two tiers...
+            for (int carId = 0; carId < 10; carId++) {
+                Assert.assertEquals(carId, retrieveCar(cars, carId).getCarId());
+            }
+            tiers.drainDemotions();
+            Assert.assertEquals(10, tiers.getDiskReadCount());
+            Assert.assertEquals(10, tiers.getHitCount() + tiers.getOffHeapHitCount());
+            Assert.assertTrue(tiers.getOffHeapHitCount() > 0);
+            Assert.assertEquals(5, tiers.size());
+            Assert.assertEquals(5, tiers.getOffHeapSize());
+
+            // Reading more cars than fit in both tiers evicts the least recently demoted cars from the off-heap tier...
+            for (int carId = 10; carId < 30; carId++) {
+                Assert.assertEquals(carId, retrieveCar(cars, carId).getCarId());
+            }
+            tiers.drainDemotions();
+            Assert.assertEquals(10, tiers.getOffHeapSize());
+            Assert.assertTrue(tiers.getOffHeapEvictionCount() > 0);
+        }
+        finally {
+            persistence.close();
+        }
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    @Test
+    public void testConsistencyAcrossTiers() {
+        TieredPersistence<Car, Integer> persistence = TieredPersistence.onPrimaryKey(Car.CAR_ID, 2, 20);
+        try {
+            IndexedCollection<Car> cars = new ConcurrentIndexedCollection<Car>(persistence);
+            cars.addIndex(DiskIndex.onAttribute(Car.MANUFACTURER));
+            cars.addAll(CarFactory.createCollectionOfCars(50));
+            TieredObjectCache<Car, Integer> tiers = persistence.getObjectCache();
+
+            // Fords are materialized from the disk index via the tiers, so most end up off-heap...
+            Assert.assertEquals(asList("Focus", "Fusion", "Taurus"), retrieveFordModels(cars));
+            Assert.assertEquals(asList("Focus", "Fusion", "Taurus"), retrieveFordModels(cars));
+            tiers.drainDemotions();
+            Assert.assertEquals(15, tiers.getDiskReadCount());
+            Assert.assertEquals(13, tiers.getOffHeapSize());
+
+            // Updating a car held in either tier should not leave the old version in it...
+            for (int carId : asList(0, 1, 2)) {
+                Car oldCar = retrieveCar(cars, carId);
+                Car newCar = new Car(carId, "Ford", "Focus RS", Car.Color.BLUE, 3, 9999.0, emptyList(), emptyList());
+                cars.update(singletonList(oldCar), singletonList(newCar));
+                Assert.assertEquals("Focus RS", retrieveCar(cars, carId).getModel());
+            }
+            try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+                Assert.assertEquals(3, fords.stream().filter(car -> car.getModel().equals("Focus RS")).count());
+            }
+
+            // Removing a car should remove it from both tiers...
+            cars.remove(retrieveCar(cars, 10));
+            try (ResultSet<Car> results = cars.retrieve(equal(Car.CAR_ID, 10))) {
+                Assert.assertTrue(results.isEmpty());
+            }
+            Assert.assertEquals(14, cars.retrieve(equal(Car.MANUFACTURER, "Ford")).size());
+
+            cars.clear();
+            tiers.drainDemotions();
+            Assert.assertEquals(0, tiers.size());
+            Assert.assertEquals(0, tiers.getOffHeapSize());
+            Assert.assertEquals(emptyList(), retrieveFordModels(cars));
+        }
+        finally {
+            persistence.close();
+        }
+        Assert.assertTrue("Failed to delete temp file:" + persistence.getFile(), persistence.getFile().delete());
+    }
+
+    @Test
+    public void testDemotionOfObjectInvalidatedAfterEviction() {
+        TieredObjectCache<Car, Integer> tiers = new TieredObjectCache<Car, Integer>(Car.CAR_ID, 1, 10);
+        try {
+            Car car = CarFactory.createCar(1);
+            // Objects are demoted after the heap lock is released, so an invalidation can arrive in between...
+            long invalidationStamp = tiers.getInvalidationStamp(1);
+            tiers.invalidate(1);
+            tiers.onEviction(1, car, invalidationStamp);
+            tiers.drainDemotions();
+            Assert.assertEquals(0, tiers.getOffHeapSize());
+            Assert.assertNull(tiers.get(1));
+
+            tiers.onEviction(1, car, tiers.getInvalidationStamp(1));
+            tiers.drainDemotions();
+            Assert.assertEquals(1, tiers.getOffHeapSize());
+            Assert.assertEquals(car, tiers.get(1));
+            Assert.assertEquals(0, tiers.getOffHeapSize());
+        }
+        finally {
+            tiers.close();
+        }
+    }
+
+    @Test
+    public void testPromotionOfObjectInvalidatedAfterEviction() {
+        TieredObjectCache<Car, Integer> tiers = new TieredObjectCache<Car, Integer>(Car.CAR_ID, 1, 10);
+        try {
+            // An object held off-heap must not be promoted if its key was invalidated after it was evicted, even
+            // if the invalidation has not yet removed it from the off-heap tier...
+            long invalidationStamp = tiers.getInvalidationStamp(1);
+            tiers.invalidate(1);
+            byte[] serializedCar = tiers.serializer.serialize(CarFactory.createCar(1));
+            tiers.stripeOf(1).entries.put(1, new TieredObjectCache.OffHeapEntry(serializedCar, invalidationStamp));
+            tiers.offHeapSize.incrementAndGet();
+            Assert.assertNull(tiers.get(1));
+            Assert.assertEquals(0, tiers.getOffHeapHitCount());
+            Assert.assertEquals(0, tiers.getOffHeapSize());
+
+            // Objects awaiting demotion can be promoted directly...
+            tiers.onEviction(2, CarFactory.createCar(2), tiers.getInvalidationStamp(2));
+            Assert.assertEquals(2, tiers.get(2).getCarId());
+            Assert.assertEquals(1, tiers.getOffHeapHitCount());
+        }
+        finally {
+            tiers.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOffHeapCapacity() {
+        new TieredObjectCache<Car, Integer>(Car.CAR_ID, 10, 0);
+    }
+
+    static Car retrieveCar(IndexedCollection<Car> cars, int carId) {
+        try (ResultSet<Car> results = cars.retrieve(equal(Car.CAR_ID, carId))) {
+            return results.uniqueResult();
+        }
+    }
+
+    static List<String> retrieveFordModels(IndexedCollection<Car> cars) {
+        try (ResultSet<Car> fords = cars.retrieve(equal(Car.MANUFACTURER, "Ford"))) {
+            return fords.stream().map(Car::getModel).distinct().sorted().collect(toList());
+        }
+    }
+}
@@ -21,9 +21,17 @@ import com.googlecode.cqengine.resultset.common.ResultSets;
 import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
 import org.junit.Test;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.googlecode.cqengine.query.QueryFactory.all;
+import static com.googlecode.cqengine.query.QueryFactory.approximateCount;
+import static com.googlecode.cqengine.query.QueryFactory.lessThan;
+import static com.googlecode.cqengine.query.QueryFactory.greaterThan;
+import static com.googlecode.cqengine.query.QueryFactory.selfAttribute;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 
@@ -43,4 +51,46 @@ public class ResultSetsTest {
         assertTrue(collection.contains("now"));
         assertFalse(collection.contains("baz"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCountMatching() {
+        IndexedCollection<Integer> indexedCollection = new ConcurrentIndexedCollection<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            indexedCollection.add(i);
+        }
+        ResultSet<Integer> resultSet = indexedCollection.retrieve(all(Integer.class));
+        assertEquals(2500, ResultSets.countMatching(resultSet, i -> i % 4 == 0, null));
+
+        // Only a sample of objects should be tested...
+        AtomicInteger objectsTested = new AtomicInteger();
+        int estimate = ResultSets.countMatching(resultSet, i -> objectsTested.incrementAndGet() > 0 && i % 4 == 0, approximateCount(0.05, 0.95));
+        assertEquals(approximateCount(0.05, 0.95).getSampleSize(), objectsTested.get());
+        assertEquals(2500, estimate, 0.05 * 10000);
+    }
+
+    @Test
+    public void testContainedInAllAndAny() {
+        IndexedCollection<Integer> indexedCollection = new ConcurrentIndexedCollection<Integer>();
+        for (int i = 0; i < 10; i++) {
+            indexedCollection.add(i);
+        }
+        ResultSet<Integer> lessThanSix = indexedCollection.retrieve(lessThan(selfAttribute(Integer.class), 6));
+        ResultSet<Integer> greaterThanThree = indexedCollection.retrieve(greaterThan(selfAttribute(Integer.class), 3));
+        List<Integer> objects = asList(9, 5, 1, 4, 42);
+
+        assertEquals(bits(1, 2, 3), lessThanSix.containsAll(objects));
+        assertEquals(bits(1, 3), ResultSets.containedInAll(asList(lessThanSix, greaterThanThree), objects));
+        assertEquals(new BitSet(), ResultSets.containedInAll(Collections.<ResultSet<Integer>>emptyList(), objects));
+
+        assertEquals(bits(0, 1, 2, 3), ResultSets.containedInAny(asList(lessThanSix, greaterThanThree), objects));
+        assertEquals(new BitSet(), ResultSets.containedInAny(Collections.<ResultSet<Integer>>emptyList(), objects));
+    }
+
+    static BitSet bits(int... indexes) {
+        BitSet bitSet = new BitSet();
+        for (int index : indexes) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+}
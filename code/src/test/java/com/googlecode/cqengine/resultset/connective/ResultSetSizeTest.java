@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.resultset.connective;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.ApproximateCountOption;
+import com.googlecode.cqengine.query.option.DeduplicationStrategy;
+import com.googlecode.cqengine.query.option.EngineFlags;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.resultset.ResultSet;
+import com.googlecode.cqengine.resultset.iterator.IteratorUtil;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests the {@code size()} methods of {@link ResultSetIntersection} and {@link ResultSetUnion}.
+ */
+public class ResultSetSizeTest {
+
+    static final IndexedCollection<Car> COLLECTION = new ConcurrentIndexedCollection<Car>();
+    static {
+        COLLECTION.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        COLLECTION.addIndex(HashIndex.onAttribute(Car.COLOR));
+        COLLECTION.addIndex(HashIndex.onAttribute(Car.DOORS));
+        COLLECTION.addAll(CarFactory.createCollectionOfCars(20000));
+    }
+
+    static final List<Query<Car>> QUERIES = asList(
+            and(equal(Car.COLOR, Car.Color.RED), equal(Car.DOORS, 5)),
+            and(equal(Car.MANUFACTURER, "Toyota"), equal(Car.COLOR, Car.Color.GREEN), equal(Car.DOORS, 5)),
+            or(equal(Car.MANUFACTURER, "Ford"), equal(Car.DOORS, 5)),
+            or(equal(Car.COLOR, Car.Color.BLUE), equal(Car.DOORS, 2), equal(Car.MANUFACTURER, "Honda")),
+            and(equal(Car.COLOR, Car.Color.RED), or(equal(Car.DOORS, 4), equal(Car.MANUFACTURER, "Toyota")))
+    );
+
+    @Test
+    public void testExactSize() {
+        for (QueryOptions queryOptions : asList(queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION)),
+                queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION), enableFlags(EngineFlags.PREFER_INDEX_MERGE_STRATEGY)))) {
+            for (Query<Car> query : QUERIES) {
+                ResultSet<Car> results = COLLECTION.retrieve(query, queryOptions);
+                Assert.assertEquals(query.toString(), IteratorUtil.countElements(results), results.size());
+                Assert.assertEquals(query.toString(), countMatches(query), results.size());
+                results.close();
+            }
+        }
+    }
+
+    @Test
+    public void testApproximateSize() {
+        ApproximateCountOption approximateCountOption = approximateCount(0.02, 0.99);
+        for (Query<Car> query : QUERIES) {
+            ResultSet<Car> results = COLLECTION.retrieve(query, queryOptions(deduplicate(DeduplicationStrategy.LOGICAL_ELIMINATION), approximateCountOption));
+            // Each estimated component is within maxError of the size of a result set, which is at most the collection size...
+            Assert.assertEquals(query.toString(), countMatches(query), results.size(), 0.02 * COLLECTION.size() * 2);
+            results.close();
+        }
+    }
+
+    @Test
+    public void testSampleSize() {
+        Assert.assertEquals(9604, approximateCount(0.01, 0.95).getSampleSize(), 10);
+        Assert.assertEquals(16587, approximateCount(0.01, 0.99).getSampleSize(), 20);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidErrorBound() {
+        approximateCount(0.0, 0.95);
+    }
+
+    static int countMatches(Query<Car> query) {
+        int count = 0;
+        for (Car car : COLLECTION) {
+            if (query.matches(car, noQueryOptions())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
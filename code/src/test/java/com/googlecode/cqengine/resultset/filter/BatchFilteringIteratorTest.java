@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.resultset.filter;
+
+import com.googlecode.cqengine.query.option.QueryOptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static com.googlecode.cqengine.query.QueryFactory.noQueryOptions;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BatchFilteringIterator}.
+ */
+public class BatchFilteringIteratorTest {
+
+    @Test
+    public void testFilteringInGrowingBatches() {
+        List<Integer> testList = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            testList.add(i);
+        }
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        BatchFilteringIterator<Integer> iterator = new BatchFilteringIterator<Integer>(testList.iterator(), noQueryOptions(), 32) {
+            @Override
+            public BitSet filterBatch(List<Integer> batch, QueryOptions queryOptions) {
+                batchSizes.add(batch.size());
+                BitSet valid = new BitSet();
+                for (int i = 0; i < batch.size(); i++) {
+                    valid.set(i, batch.get(i) % 3 == 0);
+                }
+                return valid;
+            }
+        };
+        List<Integer> results = new ArrayList<Integer>();
+        while (iterator.hasNext()) {
+            results.add(iterator.next());
+        }
+        assertEquals(34, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(Integer.valueOf(i * 3), results.get(i));
+        }
+        assertEquals(asList(16, 32, 32, 20), batchSizes);
+    }
+
+    @Test
+    public void testBatchesWithNoValidObjectsAreSkipped() {
+        List<String> testList = asList("aaa", "bbb", "aab", "bba");
+        BatchFilteringIterator<String> iterator = new BatchFilteringIterator<String>(testList.iterator(), noQueryOptions(), 1) {
+            @Override
+            public BitSet filterBatch(List<String> batch, QueryOptions queryOptions) {
+                BitSet valid = new BitSet();
+                valid.set(0, batch.get(0).startsWith("bb"));
+                return valid;
+            }
+        };
+        assertTrue(iterator.hasNext());
+        assertTrue(iterator.hasNext());
+        assertEquals("bbb", iterator.next());
+        assertEquals("bba", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testBitsBeyondBatchAreIgnored() {
+        BatchFilteringIterator<String> iterator = new BatchFilteringIterator<String>(asList("abc", null).iterator(), noQueryOptions()) {
+            @Override
+            public BitSet filterBatch(List<String> batch, QueryOptions queryOptions) {
+                BitSet valid = new BitSet();
+                valid.set(0, 10);
+                return valid;
+            }
+        };
+        assertEquals("abc", iterator.next());
+        assertNull(iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testEmptyDelegate() {
+        BatchFilteringIterator<String> iterator = new BatchFilteringIterator<String>(Collections.<String>emptyIterator(), noQueryOptions()) {
+            @Override
+            public BitSet filterBatch(List<String> batch, QueryOptions queryOptions) {
+                throw new AssertionError("Should not be called");
+            }
+        };
+        iterator.next();
+    }
+}
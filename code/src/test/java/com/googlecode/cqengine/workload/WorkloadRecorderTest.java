@@ -0,0 +1,178 @@
+/*
+ * Copyright 2025 Saif Asif
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.googlecode.cqengine.workload;
+
+import com.googlecode.cqengine.ConcurrentIndexedCollection;
+import com.googlecode.cqengine.IndexedCollection;
+import com.googlecode.cqengine.explain.PlanNode;
+import com.googlecode.cqengine.index.compound.CompoundIndex;
+import com.googlecode.cqengine.index.hash.HashIndex;
+import com.googlecode.cqengine.index.navigable.NavigableIndex;
+import com.googlecode.cqengine.query.Query;
+import com.googlecode.cqengine.query.option.EngineFlags;
+import com.googlecode.cqengine.query.option.QueryOptions;
+import com.googlecode.cqengine.testutil.Car;
+import com.googlecode.cqengine.testutil.CarFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.googlecode.cqengine.query.QueryFactory.*;
+import static java.util.Arrays.asList;
+
+/**
+ * Tests for {@link WorkloadRecorder}.
+ */
+public class WorkloadRecorderTest {
+
+    @Test
+    public void testRecommendations() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addIndex(HashIndex.onAttribute(Car.COLOR));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        WorkloadRecorder<Car> workloadRecorder = new WorkloadRecorder<Car>();
+        QueryOptions queryOptions = queryOptions(workloadRecorder);
+        for (int i = 0; i < 10; i++) {
+            collection.retrieve(lessThan(Car.PRICE, 5000.0 + i), queryOptions).size();
+        }
+        for (int i = 0; i < 5; i++) {
+            collection.retrieve(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED)), queryOptions).size();
+        }
+        collection.retrieve(matchesRegex(Car.MODEL, "F.*"), queryOptions).size();
+
+        Map<String, Long> queryShapes = workloadRecorder.getQueryShapes();
+        Assert.assertEquals(Long.valueOf(10), queryShapes.get("lessThan(price)"));
+        Assert.assertEquals(Long.valueOf(5), queryShapes.get("and(equal(manufacturer), equal(color))"));
+        Assert.assertEquals(Long.valueOf(1), queryShapes.get("stringMatchesRegex(model)"));
+
+        List<IndexRecommendation<Car>> recommendations = workloadRecorder.getRecommendations();
+        Assert.assertEquals(3, recommendations.size());
+
+        IndexRecommendation<Car> first = recommendations.get(0);
+        Assert.assertEquals(IndexRecommendation.Type.NAVIGABLE_INDEX, first.getType());
+        Assert.assertEquals(Collections.singletonList(Car.PRICE), first.getAttributes());
+        Assert.assertEquals(10, first.getOccurrences());
+        Assert.assertEquals(990, first.getEstimatedSavings());
+
+        IndexRecommendation<Car> second = recommendations.get(1);
+        Assert.assertEquals(IndexRecommendation.Type.COMPOUND_INDEX, second.getType());
+        Assert.assertEquals(asList(Car.COLOR, Car.MANUFACTURER), second.getAttributes());
+        Assert.assertEquals(5, second.getOccurrences());
+
+        IndexRecommendation<Car> third = recommendations.get(2);
+        Assert.assertEquals(IndexRecommendation.Type.STANDING_QUERY_INDEX, third.getType());
+        Assert.assertEquals(matchesRegex(Car.MODEL, "F.*"), third.getQuery());
+        Assert.assertEquals(99, third.getEstimatedSavings());
+    }
+
+    @Test
+    public void testCompoundCandidatesIndependentOfConjunctOrder() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addIndex(HashIndex.onAttribute(Car.COLOR));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        WorkloadRecorder<Car> workloadRecorder = new WorkloadRecorder<Car>();
+        collection.retrieve(and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED)), queryOptions(workloadRecorder)).size();
+        collection.retrieve(and(equal(Car.COLOR, Car.Color.BLUE), equal(Car.MANUFACTURER, "Honda")), queryOptions(workloadRecorder)).size();
+
+        List<IndexRecommendation<Car>> recommendations = workloadRecorder.getRecommendations();
+        Assert.assertEquals(1, recommendations.size());
+        Assert.assertEquals(IndexRecommendation.Type.COMPOUND_INDEX, recommendations.get(0).getType());
+        Assert.assertEquals(asList(Car.COLOR, Car.MANUFACTURER), recommendations.get(0).getAttributes());
+        Assert.assertEquals(2, recommendations.get(0).getOccurrences());
+    }
+
+    @Test
+    public void testHasQueryRecommendsStandingQueryIndex() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        WorkloadRecorder<Car> workloadRecorder = new WorkloadRecorder<Car>();
+        collection.retrieve(has(Car.FEATURES), queryOptions(workloadRecorder)).size();
+
+        List<IndexRecommendation<Car>> recommendations = workloadRecorder.getRecommendations();
+        Assert.assertEquals(1, recommendations.size());
+        Assert.assertEquals(IndexRecommendation.Type.STANDING_QUERY_INDEX, recommendations.get(0).getType());
+        Assert.assertEquals(has(Car.FEATURES), recommendations.get(0).getQuery());
+    }
+
+    @Test
+    public void testOnlyScansOfExecutedPlansAreRecorded() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        WorkloadRecorder<Car> workloadRecorder = new WorkloadRecorder<Car>();
+        // Explaining a query, even with analysis, should not be recorded...
+        collection.explain(lessThan(Car.PRICE, 5000.0), queryOptions(workloadRecorder, enableFlags(EngineFlags.EXPLAIN_ANALYZE)));
+        Assert.assertTrue(workloadRecorder.getQueryShapes().isEmpty());
+        Assert.assertTrue(workloadRecorder.getRecommendations().isEmpty());
+
+        // A query which is retrieved but never iterated does not scan the collection...
+        collection.retrieve(lessThan(Car.PRICE, 5000.0), queryOptions(workloadRecorder));
+        Assert.assertTrue(workloadRecorder.getRecommendations().isEmpty());
+
+        // The regex is only evaluated on the Fords retrieved from the index, so is not a fallback scan...
+        collection.retrieve(and(equal(Car.MANUFACTURER, "Ford"), matchesRegex(Car.MODEL, "F.*")), queryOptions(workloadRecorder)).size();
+        Assert.assertTrue(workloadRecorder.getRecommendations().isEmpty());
+
+        collection.retrieve(matchesRegex(Car.MODEL, "F.*"), queryOptions(workloadRecorder)).size();
+        List<IndexRecommendation<Car>> recommendations = workloadRecorder.getRecommendations();
+        Assert.assertEquals(1, recommendations.size());
+        Assert.assertEquals(IndexRecommendation.Type.STANDING_QUERY_INDEX, recommendations.get(0).getType());
+        Assert.assertEquals(1, recommendations.get(0).getOccurrences());
+    }
+
+    @Test
+    public void testApplyRecommendations() {
+        IndexedCollection<Car> collection = new ConcurrentIndexedCollection<Car>();
+        collection.addIndex(HashIndex.onAttribute(Car.MANUFACTURER));
+        collection.addIndex(HashIndex.onAttribute(Car.COLOR));
+        collection.addAll(CarFactory.createCollectionOfCars(100));
+
+        WorkloadRecorder<Car> workloadRecorder = new WorkloadRecorder<Car>();
+        Query<Car> rangeQuery = lessThan(Car.PRICE, 5000.0);
+        Query<Car> compoundQuery = and(equal(Car.MANUFACTURER, "Ford"), equal(Car.COLOR, Car.Color.RED));
+        collection.retrieve(rangeQuery, queryOptions(workloadRecorder)).size();
+        collection.retrieve(compoundQuery, queryOptions(workloadRecorder)).size();
+
+        // Budget sufficient for the NavigableIndex only...
+        long budget = IndexRecommendation.Type.NAVIGABLE_INDEX.getEstimatedBytesPerObject() * 100L;
+        List<IndexRecommendation<Car>> applied = workloadRecorder.applyRecommendations(collection, budget);
+        Assert.assertEquals(1, applied.size());
+        Assert.assertEquals(IndexRecommendation.Type.NAVIGABLE_INDEX, applied.get(0).getType());
+        Assert.assertTrue(workloadRecorder.getRecommendations().isEmpty());
+
+        Assert.assertTrue(collection.explain(rangeQuery).getRoot().getIndex() instanceof NavigableIndex);
+
+        collection.retrieve(compoundQuery, queryOptions(workloadRecorder)).size();
+        applied = workloadRecorder.applyRecommendations(collection, Long.MAX_VALUE);
+        Assert.assertEquals(1, applied.size());
+        PlanNode<Car> root = collection.explain(compoundQuery).getRoot();
+        Assert.assertTrue(root.getIndex() instanceof CompoundIndex);
+        int expected = 0;
+        for (Car car : collection) {
+            expected += compoundQuery.matches(car, noQueryOptions()) ? 1 : 0;
+        }
+        Assert.assertEquals(expected, collection.retrieve(compoundQuery).size());
+    }
+}